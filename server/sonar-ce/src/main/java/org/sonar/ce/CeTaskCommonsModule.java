@@ -23,6 +23,8 @@ import org.sonar.core.platform.Module;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 import org.sonar.server.computation.dbcleaner.IndexPurgeListener;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeSubmitter;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeTaskProcessor;
 
 /**
  * Globally available components in CE for tasks to use.
@@ -33,6 +35,8 @@ public class CeTaskCommonsModule extends Module {
     add(
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
-      IndexPurgeListener.class);
+      IndexPurgeListener.class,
+      ProjectPurgeSubmitter.class,
+      ProjectPurgeTaskProcessor.class);
   }
 }
@@ -23,7 +23,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.CheckForNull;
@@ -32,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import org.sonar.process.DefaultProcessCommands;
 import org.sonar.process.Lifecycle;
 import org.sonar.process.Lifecycle.State;
+import org.sonar.process.MetricsSnapshot;
 import org.sonar.process.ProcessId;
 import org.sonar.process.ProcessUtils;
 import org.sonar.process.SystemExit;
@@ -431,6 +434,19 @@ public class Monitor {
     return lifecycle.getState();
   }
 
+  /**
+   * Metrics last published into shared memory by the monitored processes, by process key. Child processes
+   * are not called.
+   */
+  public Map<String, MetricsSnapshot> getProcessMetrics() {
+    Map<String, MetricsSnapshot> metricsByProcessKey = new LinkedHashMap<>();
+    for (WatcherThread watcherThread : watcherThreads) {
+      ProcessRef processRef = watcherThread.getProcessRef();
+      metricsByProcessKey.put(processRef.getKey(), processRef.getCommands().getMetrics());
+    }
+    return metricsByProcessKey;
+  }
+
   Thread getShutdownHook() {
     return shutdownHook;
   }
@@ -60,6 +60,10 @@ import static org.sonar.process.ProcessCommands.MAX_PROCESSES;
  *   <li>Fourth byte will always contain {@link #EMPTY} unless process declares that it is operational by writing {@link #OPERATIONAL}.
  *       This does not imply that is done starting.</li>
  *   <li>The next 8 bytes contains a long (value of {@link System#currentTimeMillis()}) which represents the date of the last ping</li>
+ *   <li>The next 500 bytes contains the URL of the HTTP server of the process, if any</li>
+ *   <li>The last {@link #MAX_METRIC_SLOTS} longs contain the {@link ProcessMetric}s published by the process. They are
+ *       8-byte aligned, so that each long is written and read at once. As a process is the only writer of its metrics,
+ *       neither readers nor writer need any lock. Readers may see slots of two successive publications though.</li>
  * </ul>
  * </p>
  */
@@ -72,8 +76,12 @@ public class AllProcessesCommands implements AutoCloseable {
   private static final int SYSTEM_INFO_URL_BYTE_OFFSET = PING_BYTE_OFFSET + 8;
 
   private static final int SYSTEM_INFO_URL_SIZE_IN_BYTES = 500;
+  private static final int METRICS_BYTE_OFFSET = SYSTEM_INFO_URL_BYTE_OFFSET + SYSTEM_INFO_URL_SIZE_IN_BYTES;
 
-  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES;
+  // room is kept for new metrics, so that the size of the file does not change each time a metric is added
+  private static final int MAX_METRIC_SLOTS = 64;
+
+  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES + 8 * MAX_METRIC_SLOTS;
 
   // With this shared memory we can handle up to MAX_PROCESSES processes
   private static final int MAX_SHARED_MEMORY = BYTE_LENGTH_FOR_ONE_PROCESS * MAX_PROCESSES;
@@ -89,6 +97,9 @@ public class AllProcessesCommands implements AutoCloseable {
   private final RandomAccessFile sharedMemory;
 
   public AllProcessesCommands(File directory) {
+    if (ProcessMetric.totalSlotCount() > MAX_METRIC_SLOTS) {
+      throw new IllegalStateException(format("Too many metric slots: %d. Max is %d", ProcessMetric.totalSlotCount(), MAX_METRIC_SLOTS));
+    }
     if (!directory.isDirectory() || !directory.exists()) {
       throw new IllegalArgumentException("Not a valid directory: " + directory);
     }
@@ -167,6 +178,24 @@ public class AllProcessesCommands implements AutoCloseable {
     writeBytes(processNumber, SYSTEM_INFO_URL_BYTE_OFFSET, urlBytes);
   }
 
+  /**
+   * To be executed by child process only, as it is the single writer of its metrics
+   */
+  void setMetrics(int processNumber, MetricsSnapshot metrics) {
+    long[] slots = metrics.slots();
+    for (int i = 0; i < slots.length; i++) {
+      writeLong(processNumber, METRICS_BYTE_OFFSET + i * 8, slots[i]);
+    }
+  }
+
+  MetricsSnapshot getMetrics(int processNumber) {
+    long[] slots = new long[ProcessMetric.totalSlotCount()];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = readLong(processNumber, METRICS_BYTE_OFFSET + i * 8);
+    }
+    return new MetricsSnapshot(slots);
+  }
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
@@ -292,6 +321,16 @@ public class AllProcessesCommands implements AutoCloseable {
       return AllProcessesCommands.this.getSystemInfoUrl(processNumber);
     }
 
+    @Override
+    public void setMetrics(MetricsSnapshot metrics) {
+      AllProcessesCommands.this.setMetrics(processNumber, metrics);
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+      return AllProcessesCommands.this.getMetrics(processNumber);
+    }
+
     @Override
     public void askForStop() {
       AllProcessesCommands.this.askForStop(processNumber);
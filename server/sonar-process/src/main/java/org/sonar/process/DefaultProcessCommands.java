@@ -101,6 +101,16 @@ public class DefaultProcessCommands implements ProcessCommands {
     return delegate.getHttpUrl();
   }
 
+  @Override
+  public void setMetrics(MetricsSnapshot metrics) {
+    delegate.setMetrics(metrics);
+  }
+
+  @Override
+  public MetricsSnapshot getMetrics() {
+    return delegate.getMetrics();
+  }
+
   @Override
   public void askForStop() {
     delegate.askForStop();
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Periodically copies the {@link ProcessMetrics} of the current process, along with heap and thread gauges,
+ * into its space of the shared memory. Being the only writer of this space, it does not need any lock.
+ */
+public class MetricsPublisher extends Thread {
+
+  private final ProcessCommands commands;
+  private final long delayMs;
+  private volatile boolean publishing = true;
+
+  public MetricsPublisher(ProcessCommands commands) {
+    this(commands, 1_000L);
+  }
+
+  MetricsPublisher(ProcessCommands commands, long delayMs) {
+    super("Metrics Publisher");
+    this.commands = commands;
+    this.delayMs = delayMs;
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    while (publishing) {
+      publish();
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException ignored) {
+        publishing = false;
+        // restore interrupted flag
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  void publish() {
+    Runtime runtime = Runtime.getRuntime();
+    ProcessMetrics.set(ProcessMetric.HEAP_USED, runtime.totalMemory() - runtime.freeMemory());
+    ProcessMetrics.set(ProcessMetric.HEAP_MAX, runtime.maxMemory());
+    ProcessMetrics.set(ProcessMetric.THREADS, ManagementFactory.getThreadMXBean().getThreadCount());
+    commands.setMetrics(ProcessMetrics.snapshot());
+  }
+
+  public void stopPublishing() {
+    publishing = false;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Values of the {@link ProcessMetric}s of a process at a given time.
+ */
+public final class MetricsSnapshot {
+
+  private final long[] slots;
+
+  MetricsSnapshot(long[] slots) {
+    if (slots.length != ProcessMetric.totalSlotCount()) {
+      throw new IllegalArgumentException(format("Expected %d slots, got %d", ProcessMetric.totalSlotCount(), slots.length));
+    }
+    this.slots = slots;
+  }
+
+  /**
+   * Value of a gauge or of a counter, number of values recorded by an histogram.
+   */
+  public long get(ProcessMetric metric) {
+    if (metric.getType() != ProcessMetric.Type.HISTOGRAM) {
+      return slots[metric.firstSlot()];
+    }
+    long count = 0L;
+    for (long bucket : getHistogramBuckets(metric)) {
+      count += bucket;
+    }
+    return count;
+  }
+
+  /**
+   * Number of values of each bucket of an histogram. The last bucket contains the values above
+   * the last bound.
+   */
+  public long[] getHistogramBuckets(ProcessMetric metric) {
+    checkHistogram(metric);
+    return Arrays.copyOfRange(slots, metric.firstSlot(), metric.sumSlot());
+  }
+
+  public long getHistogramSum(ProcessMetric metric) {
+    checkHistogram(metric);
+    return slots[metric.sumSlot()];
+  }
+
+  /**
+   * Values of all the metrics, by label, as displayed in system info.
+   */
+  public Map<String, Object> toAttributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (ProcessMetric metric : ProcessMetric.values()) {
+      if (metric.getType() == ProcessMetric.Type.HISTOGRAM) {
+        attributes.put(metric.getLabel() + " Count", get(metric));
+        attributes.put(metric.getLabel() + " Sum (ms)", getHistogramSum(metric));
+        long[] buckets = getHistogramBuckets(metric);
+        long[] bounds = ProcessMetric.HISTOGRAM_BOUNDS_MS;
+        for (int i = 0; i < bounds.length; i++) {
+          attributes.put(format("%s <= %d ms", metric.getLabel(), bounds[i]), buckets[i]);
+        }
+        attributes.put(format("%s > %d ms", metric.getLabel(), bounds[bounds.length - 1]), buckets[bounds.length]);
+      } else {
+        attributes.put(metric.getLabel(), get(metric));
+      }
+    }
+    return attributes;
+  }
+
+  long[] slots() {
+    return slots;
+  }
+
+  private static void checkHistogram(ProcessMetric metric) {
+    if (metric.getType() != ProcessMetric.Type.HISTOGRAM) {
+      throw new IllegalArgumentException(format("Metric %s is not an histogram", metric));
+    }
+  }
+}
@@ -59,6 +59,16 @@ public interface ProcessCommands extends AutoCloseable {
 
   String getHttpUrl();
 
+  /**
+   * To be executed by child process to publish its metrics. Only the process itself writes its metrics.
+   */
+  void setMetrics(MetricsSnapshot metrics);
+
+  /**
+   * Can be called by any process to read the metrics last published by the process.
+   */
+  MetricsSnapshot getMetrics();
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+/**
+ * Metrics shared by each process through {@link AllProcessesCommands}. Every metric has a fixed location
+ * (its slots) in the shared memory, so that readers don't need any registration or lookup.
+ *
+ * <p>
+ * Gauges and counters use a single slot. Histograms of durations in milliseconds use one slot per bucket of
+ * {@link #HISTOGRAM_BOUNDS_MS}, one slot for the values above the last bound and one slot for the sum of values.
+ * </p>
+ *
+ * <p>
+ * New metrics must be appended at the end, so that slots of existing metrics do not move.
+ * </p>
+ */
+public enum ProcessMetric {
+
+  HEAP_USED("Heap Used (bytes)", Type.GAUGE),
+  HEAP_MAX("Heap Max (bytes)", Type.GAUGE),
+  THREADS("Threads", Type.GAUGE),
+  CE_PENDING_TASKS("Pending Tasks", Type.GAUGE),
+  CE_IN_PROGRESS_TASKS("In Progress Tasks", Type.GAUGE),
+  CE_SUCCESS_TASKS("Processed With Success", Type.COUNTER),
+  CE_ERROR_TASKS("Processed With Error", Type.COUNTER),
+  CE_TASK_DURATION("Task Duration", Type.HISTOGRAM),
+  WEB_REQUEST_DURATION("HTTP Request Duration", Type.HISTOGRAM);
+
+  public enum Type {
+    GAUGE, COUNTER, HISTOGRAM
+  }
+
+  /**
+   * Inclusive upper bounds, in milliseconds, of the buckets of histograms
+   */
+  static final long[] HISTOGRAM_BOUNDS_MS = {10L, 50L, 100L, 500L, 1_000L, 5_000L, 30_000L, 60_000L};
+
+  private static final int HISTOGRAM_SLOTS = HISTOGRAM_BOUNDS_MS.length + 2;
+  private static final int SLOT_COUNT;
+
+  static {
+    int slot = 0;
+    for (ProcessMetric metric : values()) {
+      metric.firstSlot = slot;
+      slot += metric.slotCount();
+    }
+    SLOT_COUNT = slot;
+  }
+
+  private final String label;
+  private final Type type;
+  private int firstSlot;
+
+  ProcessMetric(String label, Type type) {
+    this.label = label;
+    this.type = type;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  int firstSlot() {
+    return firstSlot;
+  }
+
+  int slotCount() {
+    return type == Type.HISTOGRAM ? HISTOGRAM_SLOTS : 1;
+  }
+
+  /**
+   * Slot of the bucket the given value of an histogram falls into
+   */
+  int bucketSlot(long value) {
+    int bucket = 0;
+    while (bucket < HISTOGRAM_BOUNDS_MS.length && value > HISTOGRAM_BOUNDS_MS[bucket]) {
+      bucket++;
+    }
+    return firstSlot + bucket;
+  }
+
+  /**
+   * Slot of the sum of the values of an histogram
+   */
+  int sumSlot() {
+    return firstSlot + HISTOGRAM_SLOTS - 1;
+  }
+
+  /**
+   * Total number of slots used by all the metrics
+   */
+  static int totalSlotCount() {
+    return SLOT_COUNT;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.String.format;
+
+/**
+ * {@link ProcessMetric}s of the current process. Updates are lock-free and do not touch the shared memory:
+ * values are periodically copied to it by {@link MetricsPublisher}.
+ */
+public final class ProcessMetrics {
+
+  private static final AtomicLongArray SLOTS = new AtomicLongArray(ProcessMetric.totalSlotCount());
+
+  private ProcessMetrics() {
+    // only static methods
+  }
+
+  public static void set(ProcessMetric metric, long value) {
+    checkType(metric, ProcessMetric.Type.GAUGE);
+    SLOTS.set(metric.firstSlot(), value);
+  }
+
+  public static void increment(ProcessMetric metric) {
+    checkType(metric, ProcessMetric.Type.COUNTER);
+    SLOTS.incrementAndGet(metric.firstSlot());
+  }
+
+  /**
+   * Adds a duration, in milliseconds, to an histogram
+   */
+  public static void record(ProcessMetric metric, long durationMs) {
+    checkType(metric, ProcessMetric.Type.HISTOGRAM);
+    SLOTS.incrementAndGet(metric.bucketSlot(durationMs));
+    SLOTS.addAndGet(metric.sumSlot(), durationMs);
+  }
+
+  public static MetricsSnapshot snapshot() {
+    long[] values = new long[SLOTS.length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = SLOTS.get(i);
+    }
+    return new MetricsSnapshot(values);
+  }
+
+  // VisibleForTesting
+  static void reset() {
+    for (int i = 0; i < SLOTS.length(); i++) {
+      SLOTS.set(i, 0L);
+    }
+  }
+
+  private static void checkType(ProcessMetric metric, ProcessMetric.Type expected) {
+    if (metric.getType() != expected) {
+      throw new IllegalArgumentException(format("Metric %s is a %s, not a %s", metric, metric.getType(), expected));
+    }
+  }
+}
@@ -114,6 +114,25 @@ public class AllProcessesCommandsTest {
     }
   }
 
+  @Test
+  public void write_and_read_metrics() throws IOException {
+    try (AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder())) {
+      int offset = 512;
+      assertThat(commands.getMetrics(PROCESS_NUMBER).get(ProcessMetric.HEAP_USED)).isEqualTo(0L);
+
+      long[] slots = new long[ProcessMetric.totalSlotCount()];
+      slots[ProcessMetric.HEAP_USED.firstSlot()] = 42L;
+      slots[ProcessMetric.WEB_REQUEST_DURATION.bucketSlot(200L)] = 3L;
+      commands.setMetrics(PROCESS_NUMBER, new MetricsSnapshot(slots));
+
+      assertThat(readLong(commands, offset)).isEqualTo(42L);
+      MetricsSnapshot metrics = commands.getMetrics(PROCESS_NUMBER);
+      assertThat(metrics.get(ProcessMetric.HEAP_USED)).isEqualTo(42L);
+      assertThat(metrics.get(ProcessMetric.WEB_REQUEST_DURATION)).isEqualTo(3L);
+      assertThat(commands.getMetrics(PROCESS_NUMBER + 1).get(ProcessMetric.HEAP_USED)).isEqualTo(0L);
+    }
+  }
+
   @Test
   public void ask_for_stop() throws Exception {
     try (AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder())) {
@@ -200,10 +219,12 @@ public class AllProcessesCommandsTest {
     try (AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder())) {
       for (int i = 0; i < MAX_PROCESSES; i++) {
         commands.create(i).setUp();
+        commands.create(i).setMetrics(ProcessMetrics.snapshot());
       }
       commands.clean();
       for (int i = 0; i < MAX_PROCESSES; i++) {
         assertThat(commands.create(i).isUp()).isFalse();
+        assertThat(commands.create(i).getMetrics().get(ProcessMetric.HEAP_MAX)).isEqualTo(0L);
       }
     }
   }
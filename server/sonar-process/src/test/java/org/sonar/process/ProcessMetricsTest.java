@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessMetricsTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    ProcessMetrics.reset();
+  }
+
+  @Test
+  public void metrics_fit_in_shared_memory() {
+    assertThat(ProcessMetric.totalSlotCount()).isLessThanOrEqualTo(64);
+  }
+
+  @Test
+  public void set_gauge() {
+    ProcessMetrics.set(ProcessMetric.CE_PENDING_TASKS, 12L);
+    ProcessMetrics.set(ProcessMetric.CE_PENDING_TASKS, 5L);
+
+    assertThat(ProcessMetrics.snapshot().get(ProcessMetric.CE_PENDING_TASKS)).isEqualTo(5L);
+  }
+
+  @Test
+  public void increment_counter() {
+    ProcessMetrics.increment(ProcessMetric.CE_SUCCESS_TASKS);
+    ProcessMetrics.increment(ProcessMetric.CE_SUCCESS_TASKS);
+
+    MetricsSnapshot snapshot = ProcessMetrics.snapshot();
+    assertThat(snapshot.get(ProcessMetric.CE_SUCCESS_TASKS)).isEqualTo(2L);
+    assertThat(snapshot.get(ProcessMetric.CE_ERROR_TASKS)).isEqualTo(0L);
+  }
+
+  @Test
+  public void record_durations_in_histogram_buckets() {
+    ProcessMetrics.record(ProcessMetric.WEB_REQUEST_DURATION, 0L);
+    ProcessMetrics.record(ProcessMetric.WEB_REQUEST_DURATION, 10L);
+    ProcessMetrics.record(ProcessMetric.WEB_REQUEST_DURATION, 11L);
+    ProcessMetrics.record(ProcessMetric.WEB_REQUEST_DURATION, 100_000L);
+
+    MetricsSnapshot snapshot = ProcessMetrics.snapshot();
+    assertThat(snapshot.get(ProcessMetric.WEB_REQUEST_DURATION)).isEqualTo(4L);
+    assertThat(snapshot.getHistogramSum(ProcessMetric.WEB_REQUEST_DURATION)).isEqualTo(100_021L);
+    assertThat(snapshot.getHistogramBuckets(ProcessMetric.WEB_REQUEST_DURATION)).containsExactly(2L, 1L, 0L, 0L, 0L, 0L, 0L, 0L, 1L);
+    assertThat(snapshot.get(ProcessMetric.CE_TASK_DURATION)).isEqualTo(0L);
+    assertThat(snapshot.toAttributes())
+      .containsEntry("HTTP Request Duration Count", 4L)
+      .containsEntry("HTTP Request Duration <= 10 ms", 2L)
+      .containsEntry("HTTP Request Duration > 60000 ms", 1L);
+  }
+
+  @Test
+  public void fail_to_increment_a_gauge() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Metric HEAP_USED is a GAUGE, not a COUNTER");
+
+    ProcessMetrics.increment(ProcessMetric.HEAP_USED);
+  }
+
+  @Test
+  public void fail_to_get_buckets_of_a_counter() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Metric CE_ERROR_TASKS is not an histogram");
+
+    ProcessMetrics.snapshot().getHistogramBuckets(ProcessMetric.CE_ERROR_TASKS);
+  }
+
+  @Test
+  public void publisher_writes_metrics_and_jvm_gauges_into_shared_memory() throws Exception {
+    ProcessMetrics.increment(ProcessMetric.CE_ERROR_TASKS);
+    try (AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder())) {
+      new MetricsPublisher(commands.create(2)).publish();
+
+      MetricsSnapshot metrics = commands.create(2).getMetrics();
+      assertThat(metrics.get(ProcessMetric.CE_ERROR_TASKS)).isEqualTo(1L);
+      assertThat(metrics.get(ProcessMetric.HEAP_USED)).isPositive();
+      assertThat(metrics.get(ProcessMetric.HEAP_MAX)).isPositive();
+      assertThat(metrics.get(ProcessMetric.THREADS)).isPositive();
+    }
+  }
+}
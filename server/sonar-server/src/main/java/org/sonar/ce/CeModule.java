@@ -22,9 +22,11 @@ package org.sonar.ce;
 import org.sonar.ce.http.CeHttpClient;
 import org.sonar.ce.log.CeLogging;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.taskprocessor.ProjectPurgeTaskProcessorDeclaration;
 import org.sonar.ce.taskprocessor.ReportTaskProcessorDeclaration;
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.queue.ReportSubmitter;
+import org.sonar.server.computation.queue.ReportUploads;
 
 public class CeModule extends Module {
   @Override
@@ -35,8 +37,10 @@ public class CeModule extends Module {
       // Queue
       CeQueueImpl.class,
       ReportSubmitter.class,
+      ReportUploads.class,
 
       // Core tasks processors
-      ReportTaskProcessorDeclaration.class);
+      ReportTaskProcessorDeclaration.class,
+      ProjectPurgeTaskProcessorDeclaration.class);
   }
 }
@@ -29,6 +29,7 @@ import org.apache.commons.io.IOUtils;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.process.DefaultProcessCommands;
+import org.sonar.process.MetricsSnapshot;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
 import static java.util.Objects.requireNonNull;
@@ -58,6 +59,20 @@ public class CeHttpClient {
     return call(SystemInfoActionClient.INSTANCE);
   }
 
+  /**
+   * Reads the metrics published by the Compute Engine into shared memory. Contrary to {@link #retrieveSystemInfo()},
+   * the Compute Engine is not called.
+   * @return the metrics, or absent if the process is not up
+   */
+  public Optional<MetricsSnapshot> retrieveMetrics() {
+    try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
+      if (commands.isUp()) {
+        return Optional.of(commands.getMetrics());
+      }
+      return Optional.empty();
+    }
+  }
+
   private enum SystemInfoActionClient implements ActionClient<Optional<ProtobufSystemInfo.SystemInfo>> {
     INSTANCE;
 
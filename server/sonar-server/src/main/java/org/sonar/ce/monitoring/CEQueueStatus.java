@@ -61,6 +61,19 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds the specified time to the counter of time spent by batch reports waiting for processing.
+   *
+   * @param waitingTime duration in ms between submission of a batch report and start of its processing
+   *
+   * @return the new time spent waiting for processing
+   *
+   * @see #getWaitingTime()
+   *
+   * @throws IllegalArgumentException if waitingTime is < 0
+   */
+  long addWaitingTime(long waitingTime);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +98,10 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Time spent by batch reports waiting for processing, in milliseconds, since startup. Only reports
+   * which processing started are counted.
+   */
+  long getWaitingTime();
 }
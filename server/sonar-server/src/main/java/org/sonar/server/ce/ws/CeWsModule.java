@@ -35,6 +35,9 @@ public class CeWsModule extends Module {
       SubmitAction.class,
       TaskFormatter.class,
       TaskAction.class,
-      TaskTypesAction.class);
+      TaskTypesAction.class,
+      UploadAppendAction.class,
+      UploadCommitAction.class,
+      UploadInitAction.class);
   }
 }
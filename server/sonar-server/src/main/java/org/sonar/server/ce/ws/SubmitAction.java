@@ -21,6 +21,7 @@ package org.sonar.server.ce.ws;
 
 import java.io.BufferedInputStream;
 import java.io.InputStream;
+import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -58,6 +59,31 @@ public class SubmitAction implements CeWsAction {
       .setHandler(this)
       .setResponseExample(getClass().getResource("submit-example.json"));
 
+    createProjectParams(action);
+
+    action
+      .createParam(PARAM_REPORT_DATA)
+      .setRequired(true)
+      .setDescription("Report file. Format is not an API, it changes among SonarQube versions.");
+  }
+
+  /**
+   * Parameters identifying the project of the submitted report, shared with {@link UploadCommitAction}
+   */
+  static void createProjectParams(WebService.NewAction action) {
+    createProjectKeyParams(action);
+
+    action
+      .createParam(PARAM_PROJECT_NAME)
+      .setRequired(false)
+      .setDescription("Optional name of the project, used only if the project does not exist yet.")
+      .setExampleValue("My Project");
+  }
+
+  /**
+   * Parameters identifying the project of an upload, shared with {@link UploadInitAction}
+   */
+  static void createProjectKeyParams(WebService.NewAction action) {
     action.createParam(PARAM_ORGANIZATION_KEY)
       .setDescription("Key of the organization the project belongs to")
       .setExampleValue("my-org")
@@ -74,33 +100,41 @@ public class SubmitAction implements CeWsAction {
       .createParam(PARAM_PROJECT_BRANCH)
       .setDescription("Optional branch of project")
       .setExampleValue("branch-1.x");
-
-    action
-      .createParam(PARAM_PROJECT_NAME)
-      .setRequired(false)
-      .setDescription("Optional name of the project, used only if the project does not exist yet.")
-      .setExampleValue("My Project");
-
-    action
-      .createParam(PARAM_REPORT_DATA)
-      .setRequired(true)
-      .setDescription("Report file. Format is not an API, it changes among SonarQube versions.");
   }
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
-    String organizationKey = wsRequest.getParam(PARAM_ORGANIZATION_KEY)
-      .emptyAsNull()
-      .or(defaultOrganizationProvider.get()::getKey);
-    String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
-    String projectBranch = wsRequest.param(PARAM_PROJECT_BRANCH);
-    String projectName = StringUtils.defaultIfBlank(wsRequest.param(PARAM_PROJECT_NAME), projectKey);
-
     CeTask task;
     try (InputStream report = new BufferedInputStream(wsRequest.paramAsInputStream(PARAM_REPORT_DATA))) {
-      task = reportSubmitter.submit(organizationKey, projectKey, projectBranch, projectName, report);
+      task = submit(reportSubmitter, defaultOrganizationProvider, wsRequest, report);
     }
+    writeResponse(task, wsRequest, wsResponse);
+  }
+
+  static CeTask submit(ReportSubmitter reportSubmitter, DefaultOrganizationProvider defaultOrganizationProvider, Request wsRequest, InputStream report) {
+    String organizationKey = organizationKey(defaultOrganizationProvider, wsRequest);
+    String projectKey = projectKey(wsRequest);
+    String projectBranch = projectBranch(wsRequest);
+    String projectName = StringUtils.defaultIfBlank(wsRequest.param(PARAM_PROJECT_NAME), projectKey);
+    return reportSubmitter.submit(organizationKey, projectKey, projectBranch, projectName, report);
+  }
+
+  static String organizationKey(DefaultOrganizationProvider defaultOrganizationProvider, Request wsRequest) {
+    return wsRequest.getParam(PARAM_ORGANIZATION_KEY)
+      .emptyAsNull()
+      .or(defaultOrganizationProvider.get()::getKey);
+  }
+
+  static String projectKey(Request wsRequest) {
+    return wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
+  }
+
+  @CheckForNull
+  static String projectBranch(Request wsRequest) {
+    return wsRequest.param(PARAM_PROJECT_BRANCH);
+  }
 
+  static void writeResponse(CeTask task, Request wsRequest, Response wsResponse) {
     WsCe.SubmitResponse submitResponse = WsCe.SubmitResponse.newBuilder()
       .setTaskId(task.getUuid())
       .setProjectId(task.getComponentUuid())
@@ -69,7 +69,8 @@ public class TaskAction implements CeWsAction {
     WebService.NewAction action = controller.createAction(ACTION)
       .setDescription("Give Compute Engine task details such as type, status, duration and associated component.<br />" +
         "Requires 'Administer System' or 'Execute Analysis' permission.<br/>" +
-        "Since 6.1, field \"logs\" is deprecated and its value is always false.")
+        "Since 6.1, field \"logs\" is deprecated and its value is always false.<br/>" +
+        "Since 6.3, the resources used by each step of the task can be returned with additional field \"stepMetrics\".")
       .setResponseExample(getClass().getResource("task-example.json"))
       .setSince("5.2")
       .setHandler(this);
@@ -101,6 +102,7 @@ public class TaskAction implements CeWsAction {
         checkPermission(component);
         Set<AdditionalField> additionalFields = AdditionalField.getFromRequest(wsRequest);
         maskErrorStacktrace(ceActivityDto, additionalFields);
+        maskStepMetrics(ceActivityDto, additionalFields);
         wsTaskResponse.setTask(
           wsTaskFormatter.formatActivity(dbSession, ceActivityDto, component, extractScannerContext(dbSession, ceActivityDto, additionalFields)));
       }
@@ -135,6 +137,12 @@ public class TaskAction implements CeWsAction {
     }
   }
 
+  private static void maskStepMetrics(CeActivityDto ceActivityDto, Set<AdditionalField> additionalFields) {
+    if (!additionalFields.contains(AdditionalField.STEP_METRICS)) {
+      ceActivityDto.setStepMetrics(null);
+    }
+  }
+
   @CheckForNull
   private String extractScannerContext(DbSession dbSession, CeActivityDto activityDto, Set<AdditionalField> additionalFields) {
     if (additionalFields.contains(AdditionalField.SCANNER_CONTEXT)) {
@@ -146,7 +154,8 @@ public class TaskAction implements CeWsAction {
 
   private enum AdditionalField {
     STACKTRACE("stacktrace"),
-    SCANNER_CONTEXT("scannerContext");
+    SCANNER_CONTEXT("scannerContext"),
+    STEP_METRICS("stepMetrics");
 
     private final String label;
 
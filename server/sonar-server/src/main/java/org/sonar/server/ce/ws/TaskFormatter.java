@@ -38,6 +38,7 @@ import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonarqube.ws.WsCe;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -133,9 +134,25 @@ public class TaskFormatter {
     setNullable(dto.getErrorStacktrace(), builder::setErrorStacktrace);
     setNullable(scannerContext, builder::setScannerContext);
     builder.setHasScannerContext(dto.isHasScannerContext());
+    String stepMetrics = dto.getStepMetrics();
+    if (stepMetrics != null) {
+      CeTaskStepMetrics.fromJson(stepMetrics).forEach(step -> builder.addStepMetrics(formatStepMetrics(step)));
+    }
     return builder.build();
   }
 
+  private static WsCe.StepMetrics formatStepMetrics(CeTaskStepMetrics step) {
+    return WsCe.StepMetrics.newBuilder()
+      .setStep(step.getStep())
+      .setWallTimeMs(step.getWallTimeMs())
+      .setCpuTimeMs(step.getCpuTimeMs())
+      .setAllocatedBytes(step.getAllocatedBytes())
+      .setSqlStatements(step.getSqlStatements())
+      .setSqlRows(step.getSqlRows())
+      .setEsRequests(step.getEsRequests())
+      .build();
+  }
+
   private static void buildComponent(WsCe.Task.Builder builder, @Nullable ComponentDto componentDto) {
     if (componentDto != null) {
       builder.setComponentKey(componentDto.getKey());
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.InputStream;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.ReportSubmitter;
+import org.sonar.server.computation.queue.ReportUploads;
+
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_OFFSET;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadAppendAction implements CeWsAction {
+
+  private final ReportUploads reportUploads;
+  private final ReportSubmitter reportSubmitter;
+
+  public UploadAppendAction(ReportUploads reportUploads, ReportSubmitter reportSubmitter) {
+    this.reportUploads = reportUploads;
+    this.reportSubmitter = reportSubmitter;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("upload_append")
+      .setDescription("Appends a chunk to a report upload started with api/ce/upload_init. " +
+        "Returns the number of bytes received so far. Requires the permissions required by api/ce/submit on the project of the upload.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.4")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("upload-example.json"));
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action
+      .createParam(PARAM_OFFSET)
+      .setRequired(true)
+      .setDescription("Position of the chunk in the report. Must be the number of bytes received so far.")
+      .setExampleValue("1048576");
+
+    action
+      .createParam(PARAM_CHUNK)
+      .setRequired(true)
+      .setDescription("Chunk of the report file");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String uploadId = wsRequest.mandatoryParam(PARAM_UPLOAD_ID);
+    long offset = wsRequest.mandatoryParamAsLong(PARAM_OFFSET);
+    ReportUploads.Upload upload = reportUploads.get(uploadId);
+    reportSubmitter.checkSubmitPermission(upload.getOrganizationKey(), upload.getProjectKey(), upload.getProjectBranch());
+    long size;
+    try (InputStream chunk = wsRequest.paramAsInputStream(PARAM_CHUNK)) {
+      size = reportUploads.append(uploadId, offset, chunk);
+    }
+    UploadInitAction.writeResponse(uploadId, size, wsRequest, wsResponse);
+  }
+}
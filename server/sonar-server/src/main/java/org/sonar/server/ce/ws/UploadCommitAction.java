@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.server.computation.queue.ReportSubmitter;
+import org.sonar.server.computation.queue.ReportUploads;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadCommitAction implements CeWsAction {
+
+  private final ReportUploads reportUploads;
+  private final ReportSubmitter reportSubmitter;
+  private final DefaultOrganizationProvider defaultOrganizationProvider;
+
+  public UploadCommitAction(ReportUploads reportUploads, ReportSubmitter reportSubmitter, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this.reportUploads = reportUploads;
+    this.reportSubmitter = reportSubmitter;
+    this.defaultOrganizationProvider = defaultOrganizationProvider;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("upload_commit")
+      .setDescription("Submits a report uploaded with api/ce/upload_append to the queue. Report is processed asynchronously. " +
+        "Requires analysis permission. If the project does not exist, then the provisioning permission is also required.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.4")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("submit-example.json"));
+
+    SubmitAction.createProjectParams(action);
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    CeTask task = reportUploads.submit(wsRequest.mandatoryParam(PARAM_UPLOAD_ID),
+      report -> SubmitAction.submit(reportSubmitter, defaultOrganizationProvider, wsRequest, report));
+    SubmitAction.writeResponse(task, wsRequest, wsResponse);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.ReportSubmitter;
+import org.sonar.server.computation.queue.ReportUploads;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.ws.WsUtils;
+import org.sonarqube.ws.WsCe;
+
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadInitAction implements CeWsAction {
+
+  private final ReportUploads reportUploads;
+  private final ReportSubmitter reportSubmitter;
+  private final DefaultOrganizationProvider defaultOrganizationProvider;
+
+  public UploadInitAction(ReportUploads reportUploads, ReportSubmitter reportSubmitter, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this.reportUploads = reportUploads;
+    this.reportSubmitter = reportSubmitter;
+    this.defaultOrganizationProvider = defaultOrganizationProvider;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("upload_init")
+      .setDescription("Starts the upload of a scanner report in several chunks, or returns the number of bytes already received " +
+        "when resuming an interrupted upload. Chunks are sent with api/ce/upload_append, then the report is submitted with api/ce/upload_commit. " +
+        "The returned upload id must be kept secret, as it gives access to the upload. Requires the permissions required by api/ce/submit.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.4")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("upload-example.json"));
+
+    SubmitAction.createProjectKeyParams(action);
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setDescription("Id of the upload to resume. A new upload is started if it does not exist anymore.")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String organizationKey = SubmitAction.organizationKey(defaultOrganizationProvider, wsRequest);
+    String projectKey = SubmitAction.projectKey(wsRequest);
+    String projectBranch = SubmitAction.projectBranch(wsRequest);
+    reportSubmitter.checkSubmitPermission(organizationKey, projectKey, projectBranch);
+    ReportUploads.Upload upload = reportUploads.init(organizationKey, projectKey, projectBranch, wsRequest.param(PARAM_UPLOAD_ID));
+    writeResponse(upload.getId(), upload.getSize(), wsRequest, wsResponse);
+  }
+
+  static void writeResponse(String uploadId, long offset, Request wsRequest, Response wsResponse) {
+    WsCe.UploadResponse response = WsCe.UploadResponse.newBuilder()
+      .setUploadId(uploadId)
+      .setOffset(offset)
+      .build();
+    WsUtils.writeProtobuf(response, wsRequest, wsResponse);
+  }
+}
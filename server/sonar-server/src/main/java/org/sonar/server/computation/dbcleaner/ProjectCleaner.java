@@ -20,6 +20,7 @@
 package org.sonar.server.computation.dbcleaner;
 
 import java.util.Collection;
+import java.util.Collections;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.config.Settings;
@@ -29,6 +30,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
@@ -54,20 +56,66 @@ public class ProjectCleaner {
     this.purgeListener = purgeListener;
   }
 
-  public ProjectCleaner purge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+  /**
+   * Purges the analysis superseded by the last one, so that the history is purged by
+   * {@link #purgeHistory(DbSession, IdUuidPair, Settings, PurgeProfiler, PurgeBudget)} only when a backlog is left.
+   */
+  public ProjectCleaner purgeSupersededAnalysis(DbSession session, IdUuidPair idUuidPair, Settings projectSettings) {
     long start = System.currentTimeMillis();
     profiler.reset();
 
-    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
-
-    cleanHistoricalData(session, configuration.rootProjectIdUuid().getUuid(), projectSettings);
-    doPurge(session, configuration);
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, Collections.emptyList());
+    try {
+      purgeDao.purgeSupersededAnalysis(session, configuration, profiler);
+    } catch (Exception e) {
+      // purge errors must no fail the report analysis
+      LOG.error("Fail to purge superseded analysis [id=" + idUuidPair.getId() + "]", e);
+    }
 
     session.commit();
     logProfiling(start, projectSettings);
     return this;
   }
 
+  /**
+   * Purges the data of the components disabled by an analysis. The history of the project is left to
+   * {@link #purgeHistory(DbSession, IdUuidPair, Settings, PurgeProfiler, PurgeBudget)}.
+   */
+  public ProjectCleaner purgeDisabledComponents(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    try {
+      purgeDao.purgeDisabledComponents(session, configuration, purgeListener);
+    } catch (Exception e) {
+      // purge errors must no fail the report analysis
+      LOG.error("Fail to purge disabled components [id=" + idUuidPair.getId() + "]", e);
+    }
+    session.commit();
+    return this;
+  }
+
+  /**
+   * Deletes the analyses and data which are not kept anymore by the history of the project, until the
+   * budget is exhausted. Deletions are committed by chunks.
+   *
+   * @return {@code true} if the purge is complete, {@code false} if data is left to be purged
+   */
+  public boolean purgeHistory(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, PurgeProfiler purgeProfiler, PurgeBudget budget) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, Collections.emptyList());
+    boolean complete = periodCleaner.clean(session, idUuidPair.getUuid(), projectSettings, purgeProfiler, budget)
+      && purgeDao.purgeHistory(session, configuration, purgeListener, purgeProfiler, budget);
+    session.commit();
+    return complete;
+  }
+
+  /**
+   * Whether {@link #purgeHistory(DbSession, IdUuidPair, Settings, PurgeProfiler, PurgeBudget)} has something to delete.
+   */
+  public boolean hasHistoryToPurge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, Collections.emptyList());
+    return periodCleaner.hasAnalysesToDelete(session, idUuidPair.getUuid(), projectSettings)
+      || purgeDao.hasHistoryToPurge(session, configuration);
+  }
+
   private void logProfiling(long start, Settings settings) {
     if (settings.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY)) {
       long duration = System.currentTimeMillis() - start;
@@ -76,22 +124,4 @@ public class ProjectCleaner {
       LOG.info("\n -------- End of profiling for purge --------\n");
     }
   }
-
-  private void cleanHistoricalData(DbSession session, String rootUuid, Settings settings) {
-    try {
-      periodCleaner.clean(session, rootUuid, settings);
-    } catch (Exception e) {
-      // purge errors must no fail the batch
-      LOG.error("Fail to clean historical data [uuid=" + rootUuid + "]", e);
-    }
-  }
-
-  private void doPurge(DbSession session, PurgeConfiguration configuration) {
-    try {
-      purgeDao.purge(session, configuration, purgeListener, profiler);
-    } catch (Exception e) {
-      // purge errors must no fail the report analysis
-      LOG.error("Fail to purge data [id=" + configuration.rootProjectIdUuid().getId() + "]", e);
-    }
-  }
 }
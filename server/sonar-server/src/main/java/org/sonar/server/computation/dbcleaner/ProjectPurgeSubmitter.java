@@ -0,0 +1,59 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeTaskSubmit;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+/**
+ * Submits the {@link CeTaskTypes#PROJECT_PURGE} task of a project, unless one is already pending. Purging
+ * the history in a dedicated task does not delay the analysis of reports, and its progress is persisted
+ * by the queue.
+ */
+@ComputeEngineSide
+public class ProjectPurgeSubmitter {
+
+  private final DbClient dbClient;
+  private final CeQueue queue;
+
+  public ProjectPurgeSubmitter(DbClient dbClient, CeQueue queue) {
+    this.dbClient = dbClient;
+    this.queue = queue;
+  }
+
+  public void submit(String componentUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      boolean pending = dbClient.ceQueueDao().selectByComponentUuid(dbSession, componentUuid).stream()
+        .anyMatch(task -> CeTaskTypes.PROJECT_PURGE.equals(task.getTaskType()) && task.getStatus() == CeQueueDto.Status.PENDING);
+      if (pending) {
+        return;
+      }
+    }
+    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+    submit.setType(CeTaskTypes.PROJECT_PURGE);
+    submit.setComponentUuid(componentUuid);
+    queue.submit(submit.build());
+  }
+}
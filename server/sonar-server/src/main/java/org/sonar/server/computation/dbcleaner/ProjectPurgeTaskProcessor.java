@@ -0,0 +1,120 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import com.google.common.base.Optional;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
+import org.sonar.db.purge.PurgeProfiler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Purges the history of a project by chunks, for a limited time. When the time budget is exhausted, a new
+ * task is submitted to resume the purge, so that the analyses of the project submitted in the meantime
+ * are processed first.
+ */
+public class ProjectPurgeTaskProcessor implements CeTaskProcessor {
+
+  static final String TIME_BUDGET_PROPERTY = "sonar.ce.purge.timeBudgetInSeconds";
+  static final String CHUNK_SIZE_PROPERTY = "sonar.ce.purge.chunkSize";
+  static final int DEFAULT_TIME_BUDGET_IN_SECONDS = 60;
+  static final int DEFAULT_CHUNK_SIZE = 100;
+
+  private static final Logger LOG = Loggers.get(ProjectPurgeTaskProcessor.class);
+  private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.PROJECT_PURGE);
+
+  private final DbClient dbClient;
+  private final ProjectCleaner projectCleaner;
+  private final ProjectSettingsFactory projectSettingsFactory;
+  private final ProjectPurgeSubmitter submitter;
+  private final Settings settings;
+  private final System2 system2;
+
+  public ProjectPurgeTaskProcessor(DbClient dbClient, ProjectCleaner projectCleaner, ProjectSettingsFactory projectSettingsFactory,
+    ProjectPurgeSubmitter submitter, Settings settings, System2 system2) {
+    this.dbClient = dbClient;
+    this.projectCleaner = projectCleaner;
+    this.projectSettingsFactory = projectSettingsFactory;
+    this.submitter = submitter;
+    this.settings = settings;
+    this.system2 = system2;
+  }
+
+  @Override
+  public Set<String> getHandledCeTaskTypes() {
+    return HANDLED_TYPES;
+  }
+
+  @Override
+  @CheckForNull
+  public CeTaskResult process(CeTask task) {
+    long start = system2.now();
+    PurgeBudget budget = new PurgeBudget(positiveInt(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE),
+      start + positiveInt(TIME_BUDGET_PROPERTY, DEFAULT_TIME_BUDGET_IN_SECONDS) * 1_000L, system2);
+    PurgeProfiler profiler = new PurgeProfiler();
+    boolean complete;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, task.getComponentUuid());
+      if (!component.isPresent()) {
+        LOG.info("Component {} does not exist anymore, its history is not purged", task.getComponentUuid());
+        return null;
+      }
+      ComponentDto root = component.get();
+      Settings projectSettings = projectSettingsFactory.newProjectSettings(root.getKey());
+      complete = projectCleaner.purgeHistory(dbSession, new IdUuidPair(root.getId(), root.uuid()), projectSettings, profiler, budget);
+    }
+    logDeletedRows(task, profiler.getDeletedRows(), system2.now() - start, complete);
+    if (!complete) {
+      submitter.submit(task.getComponentUuid());
+    }
+    return null;
+  }
+
+  private int positiveInt(String key, int defaultValue) {
+    if (!settings.hasKey(key)) {
+      return defaultValue;
+    }
+    int value = settings.getInt(key);
+    checkArgument(value > 0, "Property %s must be strictly positive. Got %s.", key, value);
+    return value;
+  }
+
+  private static void logDeletedRows(CeTask task, Map<String, Long> deletedRows, long durationMs, boolean complete) {
+    long total = deletedRows.values().stream().mapToLong(Long::longValue).sum();
+    LOG.info("{} purge of {}: {} rows deleted in {} ms {}", complete ? "Complete" : "Partial", task.getComponentKey(), total, durationMs, deletedRows);
+  }
+}
@@ -24,6 +24,8 @@ import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -34,6 +36,7 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final AtomicLong waitingTime = new AtomicLong(0);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -41,26 +44,36 @@ public class CEQueueStatusImpl implements CEQueueStatus {
 
   @Override
   public long addInProgress() {
-    return inProgress.incrementAndGet();
+    long count = inProgress.incrementAndGet();
+    ProcessMetrics.set(ProcessMetric.CE_IN_PROGRESS_TASKS, count);
+    return count;
   }
 
   @Override
   public long addError(long processingTimeInMs) {
     addProcessingTime(processingTimeInMs);
-    inProgress.decrementAndGet();
+    ProcessMetrics.increment(ProcessMetric.CE_ERROR_TASKS);
     return error.incrementAndGet();
   }
 
   @Override
   public long addSuccess(long processingTimeInMs) {
     addProcessingTime(processingTimeInMs);
-    inProgress.decrementAndGet();
+    ProcessMetrics.increment(ProcessMetric.CE_SUCCESS_TASKS);
     return success.incrementAndGet();
   }
 
   private void addProcessingTime(long ms) {
     checkArgument(ms >= 0, "Processing time can not be < 0");
     processingTime.addAndGet(ms);
+    ProcessMetrics.set(ProcessMetric.CE_IN_PROGRESS_TASKS, inProgress.decrementAndGet());
+    ProcessMetrics.record(ProcessMetric.CE_TASK_DURATION, ms);
+  }
+
+  @Override
+  public long addWaitingTime(long waitingTimeInMs) {
+    checkArgument(waitingTimeInMs >= 0, "Waiting time can not be < 0");
+    return waitingTime.addAndGet(waitingTimeInMs);
   }
 
   @Override
@@ -89,4 +102,9 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getWaitingTime() {
+    return waitingTime.get();
+  }
 }
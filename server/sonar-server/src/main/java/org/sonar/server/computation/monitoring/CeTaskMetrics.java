@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.ce.ComputeEngineSide;
+
+/**
+ * Collects the {@link CeTaskStepMetrics} of the task being executed by each worker thread, and cumulates
+ * them since startup.
+ */
+@ComputeEngineSide
+public class CeTaskMetrics {
+
+  private final ThreadLocal<List<CeTaskStepMetrics>> stepsOfCurrentTask = new ThreadLocal<>();
+  private final AtomicLong cpuTime = new AtomicLong(0);
+  private final AtomicLong allocatedBytes = new AtomicLong(0);
+  private final AtomicLong sqlStatements = new AtomicLong(0);
+  private final AtomicLong esRequests = new AtomicLong(0);
+
+  /**
+   * Starts collecting the steps executed by the current thread.
+   */
+  public void startTask() {
+    stepsOfCurrentTask.set(new ArrayList<>());
+  }
+
+  public void addStep(CeTaskStepMetrics stepMetrics) {
+    List<CeTaskStepMetrics> steps = stepsOfCurrentTask.get();
+    if (steps != null) {
+      steps.add(stepMetrics);
+    }
+    cpuTime.addAndGet(stepMetrics.getCpuTimeMs());
+    allocatedBytes.addAndGet(stepMetrics.getAllocatedBytes());
+    sqlStatements.addAndGet(stepMetrics.getSqlStatements());
+    esRequests.addAndGet(stepMetrics.getEsRequests());
+  }
+
+  /**
+   * Stops collecting the steps executed by the current thread.
+   *
+   * @return the steps executed since {@link #startTask()}, in order of execution
+   */
+  public List<CeTaskStepMetrics> stopTask() {
+    List<CeTaskStepMetrics> steps = stepsOfCurrentTask.get();
+    stepsOfCurrentTask.remove();
+    return steps == null ? Collections.emptyList() : steps;
+  }
+
+  /**
+   * CPU time used by the steps of tasks since startup, in milliseconds.
+   */
+  public long getCpuTime() {
+    return cpuTime.get();
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  public long getSqlStatementCount() {
+    return sqlStatements.get();
+  }
+
+  public long getEsRequestCount() {
+    return esRequests.get();
+  }
+}
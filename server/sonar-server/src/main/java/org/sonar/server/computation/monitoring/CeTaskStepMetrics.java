@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import com.google.gson.Gson;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resources used by a step of a Compute Engine task. They are measured on the thread executing the task, so
+ * the work delegated by a step to other threads is only accounted in its wall time.
+ */
+@Immutable
+public class CeTaskStepMetrics {
+
+  private static final Gson GSON = new Gson();
+
+  private final String step;
+  private final long wallTimeMs;
+  private final long cpuTimeMs;
+  private final long allocatedBytes;
+  private final long sqlStatements;
+  private final long sqlRows;
+  private final long esRequests;
+
+  public CeTaskStepMetrics(String step, long wallTimeMs, long cpuTimeMs, long allocatedBytes, long sqlStatements, long sqlRows, long esRequests) {
+    this.step = requireNonNull(step, "step can't be null");
+    this.wallTimeMs = wallTimeMs;
+    this.cpuTimeMs = cpuTimeMs;
+    this.allocatedBytes = allocatedBytes;
+    this.sqlStatements = sqlStatements;
+    this.sqlRows = sqlRows;
+    this.esRequests = esRequests;
+  }
+
+  public String getStep() {
+    return step;
+  }
+
+  public long getWallTimeMs() {
+    return wallTimeMs;
+  }
+
+  /**
+   * 0 if the JVM does not support measurement of thread CPU time
+   */
+  public long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  /**
+   * 0 if the JVM does not support measurement of thread memory allocation
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getSqlStatements() {
+    return sqlStatements;
+  }
+
+  /**
+   * Rows fetched or updated by the SQL statements
+   */
+  public long getSqlRows() {
+    return sqlRows;
+  }
+
+  public long getEsRequests() {
+    return esRequests;
+  }
+
+  /**
+   * Format of column CE_ACTIVITY.STEP_METRICS
+   */
+  public static String toJson(List<CeTaskStepMetrics> stepMetrics) {
+    return GSON.toJson(stepMetrics);
+  }
+
+  public static List<CeTaskStepMetrics> fromJson(String json) {
+    return Arrays.asList(GSON.fromJson(json, CeTaskStepMetrics[].class));
+  }
+
+  @Override
+  public String toString() {
+    return "CeTaskStepMetrics{" +
+      "step='" + step + '\'' +
+      ", wallTimeMs=" + wallTimeMs +
+      ", cpuTimeMs=" + cpuTimeMs +
+      ", allocatedBytes=" + allocatedBytes +
+      ", sqlStatements=" + sqlStatements +
+      ", sqlRows=" + sqlRows +
+      ", esRequests=" + esRequests +
+      '}';
+  }
+}
@@ -48,6 +48,31 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Time spent by reports waiting for processing since startup, in milliseconds.
+   */
+  long getWaitingTime();
+
+  /**
+   * CPU time used by the steps of tasks since startup, in milliseconds.
+   */
+  long getCpuTime();
+
+  /**
+   * Memory allocated by the steps of tasks since startup, in bytes.
+   */
+  long getAllocatedBytes();
+
+  /**
+   * Count of SQL statements executed by the steps of tasks since startup.
+   */
+  long getSqlStatementCount();
+
+  /**
+   * Count of Elasticsearch requests executed by the steps of tasks since startup.
+   */
+  long getEsRequestCount();
+
   /**
    * Configured number of Workers.
    */
@@ -29,10 +29,12 @@ import org.sonar.server.computation.configuration.CeConfiguration;
 public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSection {
   private final CEQueueStatus queueStatus;
   private final CeConfiguration ceConfiguration;
+  private final CeTaskMetrics taskMetrics;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeTaskMetrics taskMetrics) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
+    this.taskMetrics = taskMetrics;
   }
 
   @Override
@@ -73,6 +75,31 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getWaitingTime() {
+    return queueStatus.getWaitingTime();
+  }
+
+  @Override
+  public long getCpuTime() {
+    return taskMetrics.getCpuTime();
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return taskMetrics.getAllocatedBytes();
+  }
+
+  @Override
+  public long getSqlStatementCount() {
+    return taskMetrics.getSqlStatementCount();
+  }
+
+  @Override
+  public long getEsRequestCount() {
+    return taskMetrics.getEsRequestCount();
+  }
+
   @Override
   public int getWorkerCount() {
     return ceConfiguration.getWorkerCount();
@@ -87,6 +114,11 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Waiting Time (ms)").setLongValue(getWaitingTime()).build();
+    builder.addAttributesBuilder().setKey("CPU Time (ms)").setLongValue(getCpuTime()).build();
+    builder.addAttributesBuilder().setKey("Allocated Memory (bytes)").setLongValue(getAllocatedBytes()).build();
+    builder.addAttributesBuilder().setKey("SQL Statements").setLongValue(getSqlStatementCount()).build();
+    builder.addAttributesBuilder().setKey("Elasticsearch Requests").setLongValue(getEsRequestCount()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
     return builder.build();
   }
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.sonar.db.profiling.ThreadSqlStatistics;
+import org.sonar.server.es.ThreadEsStatistics;
+
+/**
+ * Resources used so far by the current thread. The resources used by a piece of code are the difference between
+ * the snapshots taken before and after its execution, on the same thread.
+ */
+public final class ThreadResourceSnapshot {
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final long wallTimeNs;
+  private final long cpuTimeNs;
+  private final long allocatedBytes;
+  private final long sqlStatements;
+  private final long sqlRows;
+  private final long esRequests;
+
+  private ThreadResourceSnapshot() {
+    this.wallTimeNs = System.nanoTime();
+    this.cpuTimeNs = currentThreadCpuTime();
+    this.allocatedBytes = currentThreadAllocatedBytes();
+    this.sqlStatements = ThreadSqlStatistics.statementCount();
+    this.sqlRows = ThreadSqlStatistics.rowCount();
+    this.esRequests = ThreadEsStatistics.requestCount();
+  }
+
+  public static ThreadResourceSnapshot ofCurrentThread() {
+    return new ThreadResourceSnapshot();
+  }
+
+  /**
+   * Resources used by the current thread since this snapshot has been taken.
+   */
+  public CeTaskStepMetrics toStepMetrics(String step) {
+    ThreadResourceSnapshot now = new ThreadResourceSnapshot();
+    return new CeTaskStepMetrics(step,
+      TimeUnit.NANOSECONDS.toMillis(now.wallTimeNs - wallTimeNs),
+      TimeUnit.NANOSECONDS.toMillis(now.cpuTimeNs - cpuTimeNs),
+      now.allocatedBytes - allocatedBytes,
+      now.sqlStatements - sqlStatements,
+      now.sqlRows - sqlRows,
+      now.esRequests - esRequests);
+  }
+
+  private static long currentThreadCpuTime() {
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return 0L;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return 0L;
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.queue;
 
 import com.google.common.base.Optional;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.ce.queue.CeQueue;
 import org.sonar.ce.queue.CeTask;
@@ -27,6 +28,7 @@ import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto.Status;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 
 /**
  * Queue of pending Compute Engine tasks. Both producer and consumer actions
@@ -60,12 +62,13 @@ public interface InternalCeQueue extends CeQueue {
 
   /**
    * Removes a task from the queue and registers it to past activities. This method
-   * is called by Compute Engine workers when task is processed and can include an option {@link CeTaskResult} object.
+   * is called by Compute Engine workers when task is processed and can include an option {@link CeTaskResult} object
+   * and the resources used by the steps of the task.
    *
    * @throws IllegalStateException if the task does not exist in the queue
    * @throws IllegalArgumentException if {@code error} is non {@code null} but {@code status} is not {@link Status#FAILED}
    */
-  void remove(CeTask task, Status status, @Nullable CeTaskResult taskResult, @Nullable Throwable error);
+  void remove(CeTask task, Status status, @Nullable CeTaskResult taskResult, @Nullable Throwable error, List<CeTaskStepMetrics> stepMetrics);
 
   void cancel(DbSession dbSession, CeQueueDto ceQueueDto);
 
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -34,25 +36,51 @@ import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeQueueImpl;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * Tasks to be processed are chosen from an in-memory index of the pending tasks (see {@link PendingCeTaskIndex}),
+ * which is fed by the tasks submitted by Compute Engine itself and refreshed from table CE_QUEUE with the
+ * pending tasks submitted since the latest refresh. The whole index is rebuilt from database periodically, to
+ * recover from tasks which would have been missed or canceled by the web server.
+ */
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
 
+  /**
+   * Minimum delay between two refreshes of the index when it has pending tasks which can be processed
+   */
+  private static final long REFRESH_INTERVAL_MS = 2_000L;
+  private static final long REBUILD_INTERVAL_MS = 5L * 60 * 1000;
+  /**
+   * Tasks are searched back from this delay before the submission date of the latest known task, as
+   * submissions may be committed in a different order than their dates
+   */
+  private static final long SUBMISSION_TOLERANCE_MS = 60_000L;
+
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final PendingCeTaskIndex pendingTasks = new PendingCeTaskIndex();
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
+  // guarded by this
+  private long lastRefreshAt = 0L;
+  private long lastRebuildAt = 0L;
+  private long lastSubmissionAt = 0L;
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
     DefaultOrganizationProvider defaultOrganizationProvider) {
@@ -62,6 +90,20 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     this.queueStatus = queueStatus;
   }
 
+  @Override
+  public CeTask submit(CeTaskSubmit submission) {
+    CeTask task = super.submit(submission);
+    pendingTasks.add(task.getUuid(), task.getComponentUuid());
+    return task;
+  }
+
+  @Override
+  public List<CeTask> massSubmit(Collection<CeTaskSubmit> submissions) {
+    List<CeTask> tasks = super.massSubmit(submissions);
+    tasks.forEach(task -> pendingTasks.add(task.getUuid(), task.getComponentUuid()));
+    return tasks;
+  }
+
   @Override
   public Optional<CeTask> peek() {
     if (peekPaused.get()) {
@@ -69,11 +111,24 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
+      boolean refreshed = refreshPendingTasks(dbSession, false);
+      Optional<CeQueueDto> dto = peekPendingTask(dbSession);
+      if (!dto.isPresent() && !refreshed) {
+        refreshPendingTasks(dbSession, true);
+        dto = peekPendingTask(dbSession);
+      }
+      ProcessMetrics.set(ProcessMetric.CE_PENDING_TASKS, pendingTasks.size());
       CeTask task = null;
       if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+        try {
+          task = loadTask(dbSession, dto.get());
+          queueStatus.addInProgress();
+          queueStatus.addWaitingTime(Math.max(0L, dto.get().getStartedAt() - dto.get().getCreatedAt()));
+        } catch (RuntimeException e) {
+          // the task will not be processed, other tasks of its component must not be blocked
+          pendingTasks.release(dto.get().getUuid());
+          throw e;
+        }
       }
       return Optional.fromNullable(task);
 
@@ -82,13 +137,55 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  private Optional<CeQueueDto> peekPendingTask(DbSession dbSession) {
+    String taskUuid = pendingTasks.next();
+    while (taskUuid != null) {
+      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession, taskUuid);
+      if (dto.isPresent()) {
+        return dto;
+      }
+      // task has been canceled or is already in progress
+      pendingTasks.release(taskUuid);
+      taskUuid = pendingTasks.next();
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Adds to the index the tasks submitted since the latest refresh, or rebuilds the whole index if it has not been
+   * rebuilt for a while.
+   *
+   * @param force if false, the index is refreshed only if it has not been refreshed for a while
+   * @return true if the index has been refreshed
+   */
+  private synchronized boolean refreshPendingTasks(DbSession dbSession, boolean force) {
+    long now = system2.now();
+    boolean rebuild = lastRebuildAt == 0L || now - lastRebuildAt >= REBUILD_INTERVAL_MS;
+    if (!force && !rebuild && now - lastRefreshAt < REFRESH_INTERVAL_MS) {
+      return false;
+    }
+    long createdAt = rebuild ? 0L : Math.max(0L, lastSubmissionAt - SUBMISSION_TOLERANCE_MS);
+    List<CeQueueDto> dtos = dbClient.ceQueueDao().selectPendingCreatedFrom(dbSession, createdAt);
+    if (rebuild) {
+      pendingTasks.clear();
+      lastRebuildAt = now;
+    }
+    for (CeQueueDto dto : dtos) {
+      pendingTasks.add(dto.getUuid(), dto.getComponentUuid());
+      lastSubmissionAt = Math.max(lastSubmissionAt, dto.getCreatedAt());
+    }
+    lastRefreshAt = now;
+    return true;
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
   }
 
   @Override
-  public void remove(CeTask task, CeActivityDto.Status status, @Nullable CeTaskResult taskResult, @Nullable Throwable error) {
+  public void remove(CeTask task, CeActivityDto.Status status, @Nullable CeTaskResult taskResult, @Nullable Throwable error,
+    List<CeTaskStepMetrics> stepMetrics) {
     checkArgument(error == null || status == CeActivityDto.Status.FAILED, "Error can be provided only when status is FAILED");
     DbSession dbSession = dbClient.openSession(false);
     try {
@@ -99,8 +196,12 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       updateQueueStatus(status, activityDto);
       updateTaskResult(activityDto, taskResult);
       updateError(activityDto, error);
+      if (!stepMetrics.isEmpty()) {
+        activityDto.setStepMetrics(CeTaskStepMetrics.toJson(stepMetrics));
+      }
       remove(dbSession, queueDto.get(), activityDto);
     } finally {
+      pendingTasks.release(task.getUuid());
       dbClient.closeSession(dbSession);
     }
   }
@@ -159,6 +260,13 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     cancelImpl(dbSession, ceQueueDto);
   }
 
+  @Override
+  protected void cancelImpl(DbSession dbSession, CeQueueDto q) {
+    super.cancelImpl(dbSession, q);
+    pendingTasks.remove(q.getUuid());
+    pendingTasks.release(q.getUuid());
+  }
+
   @Override
   public void pausePeek() {
     this.peekPaused.set(true);
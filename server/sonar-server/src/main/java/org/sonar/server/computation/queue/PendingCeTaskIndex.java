@@ -0,0 +1,146 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory index of the pending tasks of the queue, used to choose the next task to be processed without querying
+ * the whole table CE_QUEUE.
+ * <p>
+ * Tasks are grouped in lanes: one per component, processed in order of submission, and one per task which has no
+ * component. Lanes are served in turn, so that a project with many pending tasks does not delay the other ones.
+ * A lane of component is not served while one of its tasks is in progress.
+ * <p>
+ * This class is thread-safe.
+ */
+class PendingCeTaskIndex {
+
+  private final Map<String, Deque<String>> taskUuidsByLane = new HashMap<>();
+  private final Map<String, String> laneByTaskUuid = new HashMap<>();
+  // lanes having pending tasks, in the order they will be served
+  private final Deque<String> lanes = new ArrayDeque<>();
+  // tasks returned by next() and not released yet, with their lane
+  private final Map<String, String> laneByTakenTaskUuid = new HashMap<>();
+  // components having a task in progress
+  private final Set<String> busyComponentUuids = new HashSet<>();
+
+  /**
+   * @return false if the task is already indexed or is in progress
+   */
+  synchronized boolean add(String taskUuid, @Nullable String componentUuid) {
+    if (laneByTaskUuid.containsKey(taskUuid) || laneByTakenTaskUuid.containsKey(taskUuid)) {
+      return false;
+    }
+    String lane = componentUuid == null ? taskUuid : componentUuid;
+    laneByTaskUuid.put(taskUuid, lane);
+    Deque<String> taskUuids = taskUuidsByLane.get(lane);
+    if (taskUuids == null) {
+      taskUuids = new ArrayDeque<>();
+      taskUuidsByLane.put(lane, taskUuids);
+      lanes.addLast(lane);
+    }
+    taskUuids.addLast(taskUuid);
+    return true;
+  }
+
+  /**
+   * Removes from the index the next task to be processed. Its component, if any, is considered busy until
+   * the task is released with {@link #release(String)}.
+   *
+   * @return the uuid of the task, or null if no pending task can be processed
+   */
+  @CheckForNull
+  synchronized String next() {
+    Iterator<String> laneIterator = lanes.iterator();
+    while (laneIterator.hasNext()) {
+      String lane = laneIterator.next();
+      if (!busyComponentUuids.contains(lane)) {
+        laneIterator.remove();
+        Deque<String> taskUuids = taskUuidsByLane.get(lane);
+        String taskUuid = taskUuids.pollFirst();
+        laneByTaskUuid.remove(taskUuid);
+        if (taskUuids.isEmpty()) {
+          taskUuidsByLane.remove(lane);
+        } else {
+          lanes.addLast(lane);
+        }
+        laneByTakenTaskUuid.put(taskUuid, lane);
+        if (!lane.equals(taskUuid)) {
+          busyComponentUuids.add(lane);
+        }
+        return taskUuid;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Marks a task returned by {@link #next()} as not being in progress anymore, either because it is processed
+   * or because it could not be started.
+   */
+  synchronized void release(String taskUuid) {
+    String lane = laneByTakenTaskUuid.remove(taskUuid);
+    if (lane != null) {
+      busyComponentUuids.remove(lane);
+    }
+  }
+
+  /**
+   * Removes a pending task which is not in queue anymore, for example because it has been canceled.
+   */
+  synchronized void remove(String taskUuid) {
+    String lane = laneByTaskUuid.remove(taskUuid);
+    if (lane == null) {
+      return;
+    }
+    Deque<String> taskUuids = taskUuidsByLane.get(lane);
+    taskUuids.remove(taskUuid);
+    if (taskUuids.isEmpty()) {
+      taskUuidsByLane.remove(lane);
+      lanes.remove(lane);
+    }
+  }
+
+  synchronized boolean contains(String taskUuid) {
+    return laneByTaskUuid.containsKey(taskUuid);
+  }
+
+  synchronized int size() {
+    return laneByTaskUuid.size();
+  }
+
+  /**
+   * Removes all the pending tasks. Tasks in progress are kept.
+   */
+  synchronized void clear() {
+    taskUuidsByLane.clear();
+    laneByTaskUuid.clear();
+    lanes.clear();
+  }
+}
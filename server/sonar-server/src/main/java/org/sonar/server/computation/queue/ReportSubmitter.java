@@ -21,6 +21,7 @@ package org.sonar.server.computation.queue;
 
 import com.google.common.base.Optional;
 import java.io.InputStream;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.resources.Qualifiers;
@@ -81,6 +82,26 @@ public class ReportSubmitter {
     }
   }
 
+  /**
+   * Checks that the current user is allowed to submit a report of the specified project, as {@link #submit} does,
+   * but without creating the project.
+   *
+   * @throws NotFoundException if the organization with the specified key does not exist
+   * @throws IllegalArgumentException if the organization with the specified key is not the organization of the specified project (when it already exists in DB)
+   */
+  public void checkSubmitPermission(String organizationKey, String projectKey, @Nullable String projectBranch) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      OrganizationDto organizationDto = getOrganizationDtoOrFail(dbSession, organizationKey);
+      Optional<ComponentDto> project = dbClient.componentDao().selectByKey(dbSession, ComponentKeys.createKey(projectKey, projectBranch));
+      ensureOrganizationIsConsistent(project, organizationDto);
+      if (project.isPresent()) {
+        checkScanPermission(project.get());
+      } else {
+        checkProvisioningPermission(dbSession, organizationDto.getUuid(), projectKey, projectBranch);
+      }
+    }
+  }
+
   private void checkScanPermission(ComponentDto project) {
     // this is a specific and inconsistent behavior. For legacy reasons, "technical users"
     // defined on an organization should be able to analyze a project even if
@@ -107,15 +128,7 @@ public class ReportSubmitter {
   }
 
   private ComponentDto createProject(DbSession dbSession, String organizationUuid, String projectKey, @Nullable String projectBranch, @Nullable String projectName) {
-    userSession.checkOrganizationPermission(organizationUuid, PROVISIONING);
-    Integer userId = userSession.getUserId();
-    Long projectCreatorUserId = userId == null ? null : userId.longValue();
-
-    boolean wouldCurrentUserHaveScanPermission = permissionTemplateService.wouldUserHavePermissionWithDefaultTemplate(
-      dbSession, organizationUuid, projectCreatorUserId, SCAN_EXECUTION, projectBranch, projectKey, Qualifiers.PROJECT);
-    if (!wouldCurrentUserHaveScanPermission) {
-      throw insufficientPrivilegesException();
-    }
+    checkProvisioningPermission(dbSession, organizationUuid, projectKey, projectBranch);
 
     NewComponent newProject = newComponentBuilder()
       .setOrganizationUuid(organizationUuid)
@@ -124,7 +137,22 @@ public class ReportSubmitter {
       .setBranch(projectBranch)
       .setQualifier(Qualifiers.PROJECT)
       .build();
-    return componentUpdater.create(dbSession, newProject, projectCreatorUserId);
+    return componentUpdater.create(dbSession, newProject, projectCreatorUserId());
+  }
+
+  private void checkProvisioningPermission(DbSession dbSession, String organizationUuid, String projectKey, @Nullable String projectBranch) {
+    userSession.checkOrganizationPermission(organizationUuid, PROVISIONING);
+    boolean wouldCurrentUserHaveScanPermission = permissionTemplateService.wouldUserHavePermissionWithDefaultTemplate(
+      dbSession, organizationUuid, projectCreatorUserId(), SCAN_EXECUTION, projectBranch, projectKey, Qualifiers.PROJECT);
+    if (!wouldCurrentUserHaveScanPermission) {
+      throw insufficientPrivilegesException();
+    }
+  }
+
+  @CheckForNull
+  private Long projectCreatorUserId() {
+    Integer userId = userSession.getUserId();
+    return userId == null ? null : userId.longValue();
   }
 
   private CeTask submitReport(DbSession dbSession, InputStream reportInput, ComponentDto project) {
@@ -0,0 +1,339 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.exceptions.ServerException;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Scanner reports uploaded in several chunks. Chunks are appended to a file of the temporary directory of
+ * the web server, so that neither the report nor a chunk is held in memory. An interrupted upload is resumed
+ * from the size of this file. Once complete, the file is streamed to {@link ReportSubmitter}.
+ * <p>
+ * The id of an upload is a random token which is known only by the client which started it, so that anonymous
+ * analyses can upload their reports in chunks too. Permissions on the project are still checked by the web services.
+ * Uploads which are not updated during {@link #EXPIRATION_DELAY_MS} are dropped. The size of an upload and the
+ * number of uploads in progress for a project are limited by the properties {@link #MAX_SIZE_PROPERTY} and
+ * {@link #MAX_UPLOADS_PROPERTY}.
+ */
+@ServerSide
+public class ReportUploads implements Startable {
+
+  static final long EXPIRATION_DELAY_MS = TimeUnit.MINUTES.toMillis(15);
+  static final String MAX_SIZE_PROPERTY = "sonar.web.reportUpload.maxSizeInMb";
+  static final int DEFAULT_MAX_SIZE_IN_MB = 1024;
+  static final String MAX_UPLOADS_PROPERTY = "sonar.web.reportUpload.maxConcurrentUploadsPerProject";
+  static final int DEFAULT_MAX_UPLOADS = 5;
+
+  private static final Logger LOG = Loggers.get(ReportUploads.class);
+  private static final int ID_SIZE_IN_BYTES = 20;
+
+  private final ServerFileSystem fileSystem;
+  private final System2 system2;
+  private final long maxSize;
+  private final int maxUploads;
+  private final SecureRandom random = new SecureRandom();
+  private final Map<String, Upload> uploadsById = new ConcurrentHashMap<>();
+  private ScheduledExecutorService executorService;
+
+  public ReportUploads(ServerFileSystem fileSystem, System2 system2, Settings settings) {
+    this.fileSystem = fileSystem;
+    this.system2 = system2;
+    this.maxSize = positiveIntOrDefault(settings, MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE_IN_MB) * 1024L * 1024L;
+    this.maxUploads = positiveIntOrDefault(settings, MAX_UPLOADS_PROPERTY, DEFAULT_MAX_UPLOADS);
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("report-uploads-cleaner-%d")
+      .setDaemon(true)
+      .build());
+    executorService.scheduleWithFixedDelay(() -> {
+      try {
+        dropExpiredUploads();
+      } catch (Exception e) {
+        LOG.error("Fail to drop expired report uploads", e);
+      }
+    }, 1, 1, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the upload with the specified id, or starts a new upload if it does not exist anymore
+   * or if it has been started for another project.
+   *
+   * @throws ServerException if too many uploads are in progress for the project
+   */
+  public Upload init(String organizationKey, String projectKey, @Nullable String projectBranch, @Nullable String uploadId) {
+    if (uploadId != null) {
+      Upload upload = uploadsById.get(uploadId);
+      if (upload != null && upload.isFor(organizationKey, projectKey, projectBranch)) {
+        return upload;
+      }
+    }
+    String id = newId();
+    Upload upload = new Upload(id, organizationKey, projectKey, projectBranch, new File(uploadDir(), id), system2.now());
+    synchronized (uploadsById) {
+      long uploadsOfProject = uploadsById.values().stream().filter(u -> u.isFor(organizationKey, projectKey)).count();
+      if (uploadsOfProject >= maxUploads) {
+        throw new ServerException(HTTP_UNAVAILABLE,
+          format("Too many report uploads are in progress for project %s (%d). Please try again later.", projectKey, maxUploads));
+      }
+      uploadsById.put(upload.getId(), upload);
+    }
+    try {
+      Files.createDirectories(uploadDir().toPath());
+      Files.createFile(upload.getFile().toPath());
+    } catch (IOException e) {
+      uploadsById.remove(upload.getId());
+      throw new IllegalStateException("Fail to create file of report upload " + upload.getId(), e);
+    }
+    return upload;
+  }
+
+  /**
+   * @throws NotFoundException if the upload does not exist
+   */
+  public Upload get(String uploadId) {
+    return getOrFail(uploadId);
+  }
+
+  /**
+   * Appends a chunk of data to the upload. The upload is dropped if it exceeds the maximum size.
+   *
+   * @param offset the number of bytes which the client has already uploaded, must be the current size of the upload
+   * @return the size of the upload after the chunk has been appended
+   * @throws NotFoundException if the upload does not exist
+   * @throws IllegalArgumentException if the offset is not the size of the upload
+   * @throws BadRequestException if the upload exceeds the maximum size
+   */
+  public long append(String uploadId, long offset, InputStream chunk) {
+    Upload upload = getOrFail(uploadId);
+    synchronized (upload) {
+      checkNotRemoved(upload);
+      long size = upload.getFile().length();
+      checkArgument(offset == size, "Offset %s does not match the size of upload '%s': %s", offset, uploadId, size);
+      long maxChunkSize = maxSize - size;
+      long chunkSize;
+      try (OutputStream output = Files.newOutputStream(upload.getFile().toPath(), StandardOpenOption.APPEND)) {
+        // one more byte than allowed is enough to detect that the upload is too big
+        chunkSize = IOUtils.copyLarge(chunk, output, 0L, maxChunkSize + 1);
+      } catch (IOException e) {
+        // part of the chunk may have been written, the client resumes from the size of the file
+        throw new IllegalStateException(format("Fail to append data to upload '%s'", uploadId), e);
+      }
+      if (chunkSize > maxChunkSize) {
+        drop(upload);
+        throw new BadRequestException(format("Report exceeds the maximum size of %d MB", maxSize / 1024 / 1024));
+      }
+      upload.touch(system2.now());
+      return upload.getFile().length();
+    }
+  }
+
+  /**
+   * Gives the content of the upload to the submitter, then drops the upload. The upload is kept if the submitter
+   * fails, so that the submission can be retried. Chunks can not be appended meanwhile.
+   *
+   * @throws NotFoundException if the upload does not exist
+   */
+  public <T> T submit(String uploadId, Function<InputStream, T> submitter) {
+    Upload upload = getOrFail(uploadId);
+    synchronized (upload) {
+      checkNotRemoved(upload);
+      T result;
+      try (InputStream input = new BufferedInputStream(Files.newInputStream(upload.getFile().toPath()))) {
+        result = submitter.apply(input);
+      } catch (IOException e) {
+        throw new IllegalStateException(format("Fail to read upload '%s'", uploadId), e);
+      }
+      drop(upload);
+      return result;
+    }
+  }
+
+  private Upload getOrFail(String uploadId) {
+    Upload upload = uploadsById.get(uploadId);
+    if (upload == null) {
+      throw uploadNotFound(uploadId);
+    }
+    return upload;
+  }
+
+  /**
+   * The upload may have been removed while waiting for its lock
+   */
+  private static void checkNotRemoved(Upload upload) {
+    if (upload.removed) {
+      throw uploadNotFound(upload.getId());
+    }
+  }
+
+  private static NotFoundException uploadNotFound(String uploadId) {
+    return new NotFoundException(format("Report upload '%s' does not exist", uploadId));
+  }
+
+  @VisibleForTesting
+  void dropExpiredUploads() {
+    long expiredBefore = system2.now() - EXPIRATION_DELAY_MS;
+    Iterator<Upload> uploads = uploadsById.values().iterator();
+    while (uploads.hasNext()) {
+      Upload upload = uploads.next();
+      if (upload.getUpdatedAt() < expiredBefore) {
+        synchronized (upload) {
+          if (!upload.removed && upload.getUpdatedAt() < expiredBefore) {
+            drop(upload);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Must be called with the lock of the upload
+   */
+  private void drop(Upload upload) {
+    upload.removed = true;
+    uploadsById.remove(upload.getId(), upload);
+    deleteQuietly(upload.getFile());
+  }
+
+  private String newId() {
+    byte[] bytes = new byte[ID_SIZE_IN_BYTES];
+    random.nextBytes(bytes);
+    return Hex.encodeHexString(bytes);
+  }
+
+  private File uploadDir() {
+    return new File(fileSystem.getTempDir(), "ce-report-uploads");
+  }
+
+  private static int positiveIntOrDefault(Settings settings, String key, int defaultValue) {
+    int value = settings.getInt(key);
+    return value > 0 ? value : defaultValue;
+  }
+
+  public static class Upload {
+    private final String id;
+    private final String organizationKey;
+    private final String projectKey;
+    @CheckForNull
+    private final String projectBranch;
+    private final File file;
+    private volatile long updatedAt;
+    // guarded by this
+    private boolean removed = false;
+
+    private Upload(String id, String organizationKey, String projectKey, @Nullable String projectBranch, File file, long createdAt) {
+      this.id = id;
+      this.organizationKey = organizationKey;
+      this.projectKey = projectKey;
+      this.projectBranch = projectBranch;
+      this.file = file;
+      this.updatedAt = createdAt;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getOrganizationKey() {
+      return organizationKey;
+    }
+
+    public String getProjectKey() {
+      return projectKey;
+    }
+
+    @CheckForNull
+    public String getProjectBranch() {
+      return projectBranch;
+    }
+
+    /**
+     * Number of bytes received so far
+     */
+    public long getSize() {
+      return file.length();
+    }
+
+    File getFile() {
+      return file;
+    }
+
+    long getUpdatedAt() {
+      return updatedAt;
+    }
+
+    private void touch(long now) {
+      this.updatedAt = now;
+    }
+
+    private boolean isFor(String otherOrganizationKey, String otherProjectKey) {
+      return organizationKey.equals(otherOrganizationKey) && projectKey.equals(otherProjectKey);
+    }
+
+    private boolean isFor(String otherOrganizationKey, String otherProjectKey, @Nullable String otherProjectBranch) {
+      return isFor(otherOrganizationKey, otherProjectKey) && Objects.equals(projectBranch, otherProjectBranch);
+    }
+  }
+}
@@ -69,6 +69,7 @@ import org.sonar.server.computation.task.projectanalysis.issue.RuleTypeCopier;
 import org.sonar.server.computation.task.projectanalysis.issue.ScmAccountToUser;
 import org.sonar.server.computation.task.projectanalysis.issue.ScmAccountToUserLoader;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerBaseInputFactory;
+import org.sonar.server.computation.task.projectanalysis.issue.TrackerBaseInputStore;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerExecution;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerRawInputFactory;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
@@ -102,7 +103,7 @@ import org.sonar.server.computation.task.projectanalysis.source.LastCommitVisito
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.step.ReportComputationSteps;
-import org.sonar.server.computation.task.projectanalysis.webhook.WebhookModule;
+import org.sonar.server.computation.task.projectanalysis.webhook.WebhookPostTask;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
 import org.sonar.server.computation.task.step.ComputationSteps;
 import org.sonar.server.computation.taskprocessor.MutableTaskResultHolderImpl;
@@ -222,6 +223,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       MeasureComputersVisitor.class,
 
       UpdateConflictResolver.class,
+      TrackerBaseInputStore.class,
       TrackerBaseInputFactory.class,
       TrackerRawInputFactory.class,
       Tracker.class,
@@ -241,8 +243,8 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
 
       MeasureToMeasureDto.class,
 
-      // webhooks
-      WebhookModule.class);
+      // webhooks, delivered by the components of WebhookModule of Compute Engine container
+      WebhookPostTask.class);
   }
 
 }
@@ -23,10 +23,13 @@ import com.google.common.base.Optional;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.SettingsRepository;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 import org.sonar.server.util.cache.DiskCache;
@@ -35,6 +38,11 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
 
+  /**
+   * Number of threads used to track the issues of components concurrently. Tracking is sequential by default.
+   */
+  public static final String THREADS_PROPERTY = "sonar.ce.issueTrackingThreads";
+
   private final TrackerExecution tracker;
   private final IssueCache issueCache;
   private final IssueLifecycle issueLifecycle;
@@ -42,11 +50,18 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final MutableComponentIssuesRepository componentIssuesRepository;
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
   private final MovedFilesRepository movedFilesRepository;
+  private final TreeRootHolder treeRootHolder;
+  private final SettingsRepository settingsRepository;
 
   private final List<DefaultIssue> componentIssues = new ArrayList<>();
+  @CheckForNull
+  private Integer threads;
+  @CheckForNull
+  private ParallelTracking parallelTracking;
 
   public IntegrateIssuesVisitor(TrackerExecution tracker, IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
-    ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository, MovedFilesRepository movedFilesRepository) {
+    ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository, MovedFilesRepository movedFilesRepository,
+    TreeRootHolder treeRootHolder, SettingsRepository settingsRepository) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
     this.tracker = tracker;
     this.issueCache = issueCache;
@@ -55,12 +70,23 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
     this.componentIssuesRepository = componentIssuesRepository;
     this.movedFilesRepository = movedFilesRepository;
+    this.treeRootHolder = treeRootHolder;
+    this.settingsRepository = settingsRepository;
   }
 
   @Override
   public void visitAny(Component component) {
     componentIssues.clear();
-    processIssues(component);
+    try {
+      processIssues(component);
+    } catch (RuntimeException e) {
+      closeParallelTracking();
+      throw e;
+    }
+    if (component.equals(treeRootHolder.getRoot())) {
+      // the root is the last visited component
+      closeParallelTracking();
+    }
 
     componentsWithUnprocessedIssues.remove(component.getUuid());
     Optional<MovedFilesRepository.OriginalFile> originalFile = movedFilesRepository.getOriginalFile(component);
@@ -73,7 +99,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private void processIssues(Component component) {
     DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
     try {
-      Tracking<DefaultIssue, DefaultIssue> tracking = tracker.track(component);
+      Tracking<DefaultIssue, DefaultIssue> tracking = track(component);
       issueVisitors.beforeComponent(component);
       fillNewOpenIssues(component, tracking, cacheAppender);
       fillExistingOpenIssues(component, tracking, cacheAppender);
@@ -86,6 +112,39 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
+  /**
+   * When tracking is parallel, the issues of the next components are tracked ahead on a pool of threads,
+   * while the trackings are still consumed here in the order of the visit.
+   */
+  private Tracking<DefaultIssue, DefaultIssue> track(Component component) {
+    if (threads == null) {
+      threads = settingsRepository.getSettings(treeRootHolder.getRoot()).getInt(THREADS_PROPERTY);
+    }
+    if (threads <= 1) {
+      return tracker.track(component);
+    }
+    if (parallelTracking == null) {
+      List<Component> components = new ArrayList<>();
+      addInPostOrder(treeRootHolder.getRoot(), components);
+      parallelTracking = new ParallelTracking(tracker, components, threads);
+    }
+    return parallelTracking.track(component);
+  }
+
+  private static void addInPostOrder(Component component, List<Component> components) {
+    for (Component child : component.getChildren()) {
+      addInPostOrder(child, components);
+    }
+    components.add(component);
+  }
+
+  private void closeParallelTracking() {
+    if (parallelTracking != null) {
+      parallelTracking.close();
+      parallelTracking = null;
+    }
+  }
+
   private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
     for (DefaultIssue issue : tracking.getUnmatchedRaws()) {
       issueLifecycle.initNewOpenIssue(issue);
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+
+/**
+ * Tracks the issues of components ahead of their visit, on a pool of threads. Components are expected to be
+ * consumed in the given order.
+ * <p>
+ * Raw issues are loaded by the calling thread, as they rely on repositories which are not thread-safe. The
+ * loading of base issues and line hashes and the matching of issues are executed on the pool.
+ */
+class ParallelTracking implements AutoCloseable {
+
+  private final TrackerExecution tracker;
+  private final Iterator<Component> components;
+  private final int lookAhead;
+  private final ExecutorService executorService;
+  private final Map<Component, Future<Tracking<DefaultIssue, DefaultIssue>>> pending = new HashMap<>();
+
+  ParallelTracking(TrackerExecution tracker, List<Component> components, int threads) {
+    this.tracker = tracker;
+    this.components = components.iterator();
+    this.lookAhead = 2 * threads;
+    this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("IssueTracking-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  Tracking<DefaultIssue, DefaultIssue> track(Component component) {
+    Future<Tracking<DefaultIssue, DefaultIssue>> future = pending.remove(component);
+    while (future == null && components.hasNext()) {
+      submit(components.next());
+      future = pending.remove(component);
+    }
+    while (pending.size() < lookAhead && components.hasNext()) {
+      submit(components.next());
+    }
+    if (future == null) {
+      // component is not part of the expected ones
+      return tracker.track(component);
+    }
+    return waitFor(future);
+  }
+
+  private void submit(Component component) {
+    Input<DefaultIssue> rawInput = tracker.createRawInput(component);
+    rawInput.getIssues();
+    Input<DefaultIssue> baseInput = tracker.createBaseInput(component);
+    pending.put(component, executorService.submit(() -> tracker.track(rawInput, baseInput)));
+  }
+
+  private static Tracking<DefaultIssue, DefaultIssue> waitFor(Future<Tracking<DefaultIssue, DefaultIssue>> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while tracking issues", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+    pending.clear();
+  }
+}
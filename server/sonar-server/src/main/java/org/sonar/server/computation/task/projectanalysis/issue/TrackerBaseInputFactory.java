@@ -35,17 +35,17 @@ import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepo
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
 
 /**
- * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded.
+ * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded from {@link TrackerBaseInputStore}.
  */
 public class TrackerBaseInputFactory {
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.<String>emptyList());
 
-  private final BaseIssuesLoader baseIssuesLoader;
+  private final TrackerBaseInputStore baseInputStore;
   private final DbClient dbClient;
   private final MovedFilesRepository movedFilesRepository;
 
-  public TrackerBaseInputFactory(BaseIssuesLoader baseIssuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
-    this.baseIssuesLoader = baseIssuesLoader;
+  public TrackerBaseInputFactory(TrackerBaseInputStore baseInputStore, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
+    this.baseInputStore = baseInputStore;
     this.dbClient = dbClient;
     this.movedFilesRepository = movedFilesRepository;
   }
@@ -69,14 +69,23 @@ public class TrackerBaseInputFactory {
       if (component.getType() != Component.Type.FILE) {
         return EMPTY_LINE_HASH_SEQUENCE;
       }
-      
+
+      List<String> hashes = baseInputStore.getLineHashes(effectiveUuid);
+      if (hashes == null) {
+        // not prefetched as the file has no base issues
+        hashes = selectLineHashes();
+      }
+      if (hashes == null || hashes.isEmpty()) {
+        return EMPTY_LINE_HASH_SEQUENCE;
+      }
+      return new LineHashSequence(hashes);
+    }
+
+    @CheckForNull
+    private List<String> selectLineHashes() {
       DbSession session = dbClient.openSession(false);
       try {
-        List<String> hashes = dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid);
-        if (hashes == null || hashes.isEmpty()) {
-          return EMPTY_LINE_HASH_SEQUENCE;
-        }
-        return new LineHashSequence(hashes);
+        return dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid);
       } finally {
         MyBatis.closeQuietly(session);
       }
@@ -84,7 +93,7 @@ public class TrackerBaseInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
-      return baseIssuesLoader.loadForComponentUuid(effectiveUuid);
+      return baseInputStore.getIssues(effectiveUuid);
     }
   }
 }
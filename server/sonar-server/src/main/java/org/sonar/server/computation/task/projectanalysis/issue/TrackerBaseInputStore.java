@@ -0,0 +1,287 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.base.Splitter;
+import com.google.common.math.IntMath;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.source.FileSourceDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+
+/**
+ * Base data of issue tracking, i.e. the open issues of all the components of the project and the line hashes
+ * of the files having such issues. They are prefetched on first access with one ordered query for the
+ * issues and one query per partition of file uuids for the line hashes, instead of two queries per component.
+ * Data are spilled to a temporary file, indexed by component uuid, so that memory usage does not depend on
+ * the size of the project.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TrackerBaseInputStore implements Startable {
+
+  private static final Logger LOG = Loggers.get(TrackerBaseInputStore.class);
+  private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
+
+  private final DbClient dbClient;
+  private final BaseIssuesLoader baseIssuesLoader;
+  private final TempFolder tempFolder;
+
+  // written once by prefetch(), then read-only
+  private final Map<String, Segment> issuesByComponentUuid = new HashMap<>();
+  private final Map<String, Segment> lineHashesByFileUuid = new HashMap<>();
+  private FileChannel channel;
+  private volatile boolean prefetched = false;
+
+  private long issueRows = 0L;
+  private long lineHashesRows = 0L;
+  private long bytes = 0L;
+  private int queries = 0;
+
+  public TrackerBaseInputStore(DbClient dbClient, BaseIssuesLoader baseIssuesLoader, TempFolder tempFolder) {
+    this.dbClient = dbClient;
+    this.baseIssuesLoader = baseIssuesLoader;
+    this.tempFolder = tempFolder;
+  }
+
+  @Override
+  public void start() {
+    // data are prefetched on first access
+  }
+
+  @Override
+  public void stop() {
+    IOUtils.closeQuietly(channel);
+  }
+
+  /**
+   * Open issues of the component, or an empty list if it has none.
+   */
+  public List<DefaultIssue> getIssues(String componentUuid) {
+    ensurePrefetched();
+    Segment segment = issuesByComponentUuid.get(componentUuid);
+    if (segment == null) {
+      return new ArrayList<>();
+    }
+    return deserialize(read(segment));
+  }
+
+  /**
+   * Line hashes of the file, or {@code null} if they have not been prefetched because the file has no open issue.
+   */
+  @CheckForNull
+  public List<String> getLineHashes(String fileUuid) {
+    ensurePrefetched();
+    Segment segment = lineHashesByFileUuid.get(fileUuid);
+    if (segment == null) {
+      return null;
+    }
+    if (segment.length == 0) {
+      return Collections.emptyList();
+    }
+    return END_OF_LINE_SPLITTER.splitToList(new String(read(segment), UTF_8));
+  }
+
+  public long getIssueRows() {
+    ensurePrefetched();
+    return issueRows;
+  }
+
+  public long getLineHashesRows() {
+    ensurePrefetched();
+    return lineHashesRows;
+  }
+
+  public long getBytes() {
+    ensurePrefetched();
+    return bytes;
+  }
+
+  public int getQueries() {
+    ensurePrefetched();
+    return queries;
+  }
+
+  private void ensurePrefetched() {
+    if (!prefetched) {
+      synchronized (this) {
+        if (!prefetched) {
+          prefetch();
+          prefetched = true;
+        }
+      }
+    }
+  }
+
+  private void prefetch() {
+    File file = tempFolder.newFile("base-inputs", ".dat");
+    try (DbSession dbSession = dbClient.openSession(false);
+      SpillOutput output = new SpillOutput(file)) {
+      IssuesGrouper grouper = new IssuesGrouper(output);
+      baseIssuesLoader.scrollForProject(dbSession, grouper);
+      grouper.flush();
+      queries++;
+
+      List<String> componentUuids = new ArrayList<>(issuesByComponentUuid.keySet());
+      dbClient.fileSourceDao().scrollLineHashes(dbSession, componentUuids, resultContext -> {
+        FileSourceDto dto = (FileSourceDto) resultContext.getResultObject();
+        String lineHashes = dto.getLineHashes();
+        byte[] data = lineHashes == null ? new byte[0] : lineHashes.getBytes(UTF_8);
+        lineHashesByFileUuid.put(dto.getFileUuid(), output.write(data));
+        lineHashesRows++;
+      });
+      queries += IntMath.divide(componentUuids.size(), PARTITION_SIZE_FOR_ORACLE, RoundingMode.CEILING);
+      bytes = output.position;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write base data of issue tracking to " + file, e);
+    }
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open " + file, e);
+    }
+    LOG.debug("Prefetched {} issues and line hashes of {} files ({} bytes) in {} queries", issueRows, lineHashesRows, bytes, queries);
+  }
+
+  private byte[] read(Segment segment) {
+    ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, segment.offset + buffer.position()) < 0) {
+          throw new EOFException();
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read base data of issue tracking", e);
+    }
+    return buffer.array();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<DefaultIssue> deserialize(byte[] data) {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return (List<DefaultIssue>) input.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to read base issues", e);
+    }
+  }
+
+  /**
+   * Issues are streamed ordered by component uuid: those of a component are written as a single segment
+   * as soon as the issues of the next component are encountered.
+   */
+  private class IssuesGrouper implements Consumer<DefaultIssue> {
+    private final SpillOutput output;
+    private String componentUuid = null;
+    private ArrayList<DefaultIssue> issues = new ArrayList<>();
+
+    private IssuesGrouper(SpillOutput output) {
+      this.output = output;
+    }
+
+    @Override
+    public void accept(DefaultIssue issue) {
+      if (!issue.componentUuid().equals(componentUuid)) {
+        flush();
+        componentUuid = issue.componentUuid();
+      }
+      issues.add(issue);
+      issueRows++;
+    }
+
+    private void flush() {
+      if (issues.isEmpty()) {
+        return;
+      }
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(data)) {
+        objectOutput.writeObject(issues);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to serialize issues of component " + componentUuid, e);
+      }
+      issuesByComponentUuid.put(componentUuid, output.write(data.toByteArray()));
+      issues = new ArrayList<>();
+    }
+  }
+
+  private static class SpillOutput implements AutoCloseable {
+    private final OutputStream output;
+    private long position = 0L;
+
+    private SpillOutput(File file) throws IOException {
+      this.output = new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    private Segment write(byte[] data) {
+      try {
+        output.write(data);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write base data of issue tracking", e);
+      }
+      Segment segment = new Segment(position, data.length);
+      position += data.length;
+      return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+
+  private static class Segment {
+    private final long offset;
+    private final int length;
+
+    private Segment(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
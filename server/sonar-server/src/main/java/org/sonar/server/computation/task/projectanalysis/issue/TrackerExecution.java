@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -40,4 +41,19 @@ public class TrackerExecution {
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
     return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
   }
+
+  public Input<DefaultIssue> createRawInput(Component component) {
+    return rawInputFactory.create(component);
+  }
+
+  public Input<DefaultIssue> createBaseInput(Component component) {
+    return baseInputFactory.create(component);
+  }
+
+  /**
+   * Matches the issues of the given inputs. Can be called concurrently for different components.
+   */
+  public Tracking<DefaultIssue, DefaultIssue> track(Input<DefaultIssue> rawInput, Input<DefaultIssue> baseInput) {
+    return tracker.track(rawInput, baseInput);
+  }
 }
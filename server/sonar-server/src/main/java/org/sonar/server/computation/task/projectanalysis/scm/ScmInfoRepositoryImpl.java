@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.scm;
 import com.google.common.base.Optional;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
@@ -31,9 +32,14 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 
 import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
@@ -43,14 +49,18 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final DbClient dbClient;
   private final SourceHashRepository sourceHashRepository;
+  private final TreeRootHolder treeRootHolder;
 
   private final Map<Component, ScmInfo> scmInfoCache = new HashMap<>();
+  private boolean dbScmInfoLoaded = false;
 
-  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient, SourceHashRepository sourceHashRepository) {
+  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient,
+    SourceHashRepository sourceHashRepository, TreeRootHolder treeRootHolder) {
     this.batchReportReader = batchReportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.dbClient = dbClient;
     this.sourceHashRepository = sourceHashRepository;
+    this.treeRootHolder = treeRootHolder;
   }
 
   @Override
@@ -97,19 +107,78 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
       return NoScmInfo.INSTANCE;
     }
 
+    if (!dbScmInfoLoaded) {
+      dbScmInfoLoaded = true;
+      loadScmInfoOfProject();
+      ScmInfo scmInfo = scmInfoCache.get(file);
+      if (scmInfo != null) {
+        return scmInfo;
+      }
+    }
+
     LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey());
     DbSession dbSession = dbClient.openSession(false);
     try {
       FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, file.getUuid());
-      if (dto == null || !sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
-        return NoScmInfo.INSTANCE;
-      }
-      return DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
+      return toScmInfo(file, dto);
     } finally {
       dbClient.closeSession(dbSession);
     }
   }
 
+  /**
+   * Loads SCM info of the files of the project which are not yet in cache. Files of which changesets must be copied
+   * from the previous analysis are loaded from db with as few queries as possible, only the SCM fields of their
+   * source data being decoded.
+   */
+  private void loadScmInfoOfProject() {
+    Map<String, Component> filesToLoadByUuid = new HashMap<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          if (scmInfoCache.containsKey(file)) {
+            return;
+          }
+          ScannerReport.Changesets changesets = batchReportReader.readChangesets(file.getReportAttributes().getRef());
+          if (changesets == null) {
+            // absence of SCM info is cached and logged when this file is requested
+            return;
+          }
+          if (changesets.getCopyFromPrevious()) {
+            filesToLoadByUuid.put(file.getUuid(), file);
+          } else {
+            scmInfoCache.put(file, getScmInfoFromReport(file, changesets));
+          }
+        }
+      }).visit(treeRootHolder.getRoot());
+    if (filesToLoadByUuid.isEmpty()) {
+      return;
+    }
+
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      dbClient.fileSourceDao().scrollSourceData(dbSession, filesToLoadByUuid.keySet(), context -> {
+        FileSourceDto dto = (FileSourceDto) context.getResultObject();
+        Component file = filesToLoadByUuid.remove(dto.getFileUuid());
+        if (file != null) {
+          LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey());
+          scmInfoCache.put(file, toScmInfo(file, dto));
+        }
+      });
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+    filesToLoadByUuid.values().forEach(file -> scmInfoCache.put(file, NoScmInfo.INSTANCE));
+  }
+
+  private ScmInfo toScmInfo(Component file, @Nullable FileSourceDto dto) {
+    if (dto == null || !sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
+      return NoScmInfo.INSTANCE;
+    }
+    return DbScmInfo.create(file, dto.getScmData()).or(NoScmInfo.INSTANCE);
+  }
+
   private static ScmInfo getScmInfoFromReport(Component file, ScannerReport.Changesets changesets) {
     LOGGER.trace("Reading SCM info from report for file '{}'", file.getKey());
     return new ReportScmInfo(changesets);
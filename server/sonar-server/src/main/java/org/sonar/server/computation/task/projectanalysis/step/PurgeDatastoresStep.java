@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import org.sonar.api.config.Settings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
@@ -30,6 +31,7 @@ import org.sonar.server.computation.task.projectanalysis.component.SettingsRepos
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeSubmitter;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
@@ -45,15 +47,17 @@ public class PurgeDatastoresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
+  private final ProjectPurgeSubmitter projectPurgeSubmitter;
 
   public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder) {
+    SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder, ProjectPurgeSubmitter projectPurgeSubmitter) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.settingsRepository = settingsRepository;
     this.disabledComponentsHolder = disabledComponentsHolder;
+    this.projectPurgeSubmitter = projectPurgeSubmitter;
   }
 
   @Override
@@ -73,14 +77,23 @@ public class PurgeDatastoresStep implements ComputationStep {
   }
 
   private void execute(Component root) {
+    boolean hasHistoryToPurge;
     DbSession session = dbClient.openSession(true);
     try {
       IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
-      projectCleaner.purge(session, idUuidPair, settingsRepository.getSettings(root), disabledComponentsHolder.getUuids());
+      Settings settings = settingsRepository.getSettings(root);
+      projectCleaner.purgeDisabledComponents(session, idUuidPair, settings, disabledComponentsHolder.getUuids());
+      projectCleaner.purgeSupersededAnalysis(session, idUuidPair, settings);
       session.commit();
+      hasHistoryToPurge = projectCleaner.hasHistoryToPurge(session, idUuidPair, settings);
     } finally {
       dbClient.closeSession(session);
     }
+    // a backlog of history (old analyses, aborted analyses, closed issues) is purged later, so that it does
+    // not delay the processing of the report
+    if (hasHistoryToPurge) {
+      projectPurgeSubmitter.submit(root.getUuid());
+    }
   }
 
   @Override
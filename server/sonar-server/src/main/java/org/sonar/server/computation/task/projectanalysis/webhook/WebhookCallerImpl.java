@@ -19,14 +19,20 @@
  */
 package org.sonar.server.computation.task.projectanalysis.webhook;
 
+import java.util.concurrent.TimeUnit;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 
+import static org.sonar.core.config.WebhookProperties.CONNECT_TIMEOUT_KEY;
+import static org.sonar.core.config.WebhookProperties.DEFAULT_TIMEOUT_MS;
+import static org.sonar.core.config.WebhookProperties.READ_TIMEOUT_KEY;
+
 @ComputeEngineSide
 public class WebhookCallerImpl implements WebhookCaller {
 
@@ -36,9 +42,24 @@ public class WebhookCallerImpl implements WebhookCaller {
   private final System2 system;
   private final OkHttpClient okHttpClient;
 
-  public WebhookCallerImpl(System2 system, OkHttpClient okHttpClient) {
+  public WebhookCallerImpl(System2 system, OkHttpClient okHttpClient, Settings settings) {
     this.system = system;
-    this.okHttpClient = okHttpClient;
+    // each endpoint call is bounded, failed calls are attempted again by WebhookDispatcher
+    long readTimeoutMs = timeoutMs(settings, READ_TIMEOUT_KEY);
+    this.okHttpClient = okHttpClient.newBuilder()
+      .connectTimeout(timeoutMs(settings, CONNECT_TIMEOUT_KEY), TimeUnit.MILLISECONDS)
+      .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+      .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+      .retryOnConnectionFailure(false)
+      .build();
+  }
+
+  /**
+   * Zero would disable the timeout, which is not allowed
+   */
+  private static long timeoutMs(Settings settings, String key) {
+    int timeoutMs = settings.getInt(key);
+    return timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
   }
 
   @Override
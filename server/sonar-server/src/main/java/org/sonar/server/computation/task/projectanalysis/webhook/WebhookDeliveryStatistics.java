@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.process.systeminfo.SystemInfoSection;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+
+/**
+ * Outcome and latency histogram of the webhook deliveries since startup of Compute Engine.
+ * Latency is the duration of the HTTP calls which got a response.
+ */
+@ComputeEngineSide
+public class WebhookDeliveryStatistics implements SystemInfoSection {
+
+  /**
+   * Upper bounds, inclusive, of the buckets of the latency histogram. The last bucket is unbounded.
+   */
+  static final long[] LATENCY_BUCKETS_MS = {100L, 250L, 500L, 1_000L, 2_500L, 5_000L, 10_000L};
+
+  private final AtomicLong successes = new AtomicLong(0L);
+  private final AtomicLong failures = new AtomicLong(0L);
+  private final AtomicLong retries = new AtomicLong(0L);
+  private final AtomicLong totalLatencyMs = new AtomicLong(0L);
+  private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+
+  public void add(WebhookDelivery delivery) {
+    if (delivery.isSuccess()) {
+      successes.incrementAndGet();
+    } else {
+      failures.incrementAndGet();
+    }
+    delivery.getDurationInMs().ifPresent(durationMs -> {
+      totalLatencyMs.addAndGet(durationMs);
+      latencyHistogram.incrementAndGet(bucketOf(durationMs));
+    });
+  }
+
+  public void addRetry() {
+    retries.incrementAndGet();
+  }
+
+  public long getSuccessCount() {
+    return successes.get();
+  }
+
+  public long getFailureCount() {
+    return failures.get();
+  }
+
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * Number of deliveries in each bucket of {@link #LATENCY_BUCKETS_MS}, plus the one of slower deliveries.
+   */
+  public long[] getLatencyHistogram() {
+    long[] histogram = new long[latencyHistogram.length()];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = latencyHistogram.get(i);
+    }
+    return histogram;
+  }
+
+  public long getAverageLatencyMs() {
+    long count = 0L;
+    for (long bucketCount : getLatencyHistogram()) {
+      count += bucketCount;
+    }
+    return count == 0L ? 0L : (totalLatencyMs.get() / count);
+  }
+
+  @Override
+  public ProtobufSystemInfo.Section toProtobuf() {
+    ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
+    builder.setName("Compute Engine Webhooks");
+    builder.addAttributesBuilder().setKey("Successful Deliveries").setLongValue(getSuccessCount()).build();
+    builder.addAttributesBuilder().setKey("Failed Deliveries").setLongValue(getFailureCount()).build();
+    builder.addAttributesBuilder().setKey("Retries").setLongValue(getRetryCount()).build();
+    builder.addAttributesBuilder().setKey("Average Latency (ms)").setLongValue(getAverageLatencyMs()).build();
+    long[] histogram = getLatencyHistogram();
+    for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+      builder.addAttributesBuilder().setKey("Latency <= " + LATENCY_BUCKETS_MS[i] + "ms").setLongValue(histogram[i]).build();
+    }
+    builder.addAttributesBuilder().setKey("Latency > " + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms")
+      .setLongValue(histogram[LATENCY_BUCKETS_MS.length]).build();
+    return builder.build();
+  }
+
+  private static int bucketOf(long durationMs) {
+    for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+      if (durationMs <= LATENCY_BUCKETS_MS[i]) {
+        return i;
+      }
+    }
+    return LATENCY_BUCKETS_MS.length;
+  }
+}
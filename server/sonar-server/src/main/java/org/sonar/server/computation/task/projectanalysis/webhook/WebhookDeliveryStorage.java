@@ -20,16 +20,20 @@
 package org.sonar.server.computation.task.projectanalysis.webhook;
 
 import com.google.common.base.Throwables;
+import java.util.List;
+import java.util.Optional;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.webhook.WebhookDeliveryDao;
 import org.sonar.db.webhook.WebhookDeliveryDto;
+import org.sonar.db.webhook.WebhookDeliveryLiteDto;
 
 /**
- * Persist and purge {@link WebhookDelivery} into database
+ * Persist, load and purge {@link WebhookDelivery} into database
  */
 @ComputeEngineSide
 public class WebhookDeliveryStorage {
@@ -54,6 +58,31 @@ public class WebhookDeliveryStorage {
     }
   }
 
+  /**
+   * Deliveries persisted after the specified date, without their payload. Results are ordered by descending date.
+   */
+  public List<WebhookDeliveryLiteDto> selectCreatedAfter(long date) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.webhookDeliveryDao().selectOrderedCreatedAfter(dbSession, date);
+    }
+  }
+
+  /**
+   * Payload of a persisted delivery, in order to send it again. Empty if the delivery or its project
+   * do not exist anymore.
+   */
+  public Optional<WebhookPayload> selectPayload(String deliveryUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<WebhookDeliveryDto> delivery = dbClient.webhookDeliveryDao().selectByUuid(dbSession, deliveryUuid);
+      if (!delivery.isPresent()) {
+        return Optional.empty();
+      }
+      return dbClient.componentDao().selectByUuid(dbSession, delivery.get().getComponentUuid())
+        .map(ComponentDto::getKey)
+        .map(projectKey -> new WebhookPayload(projectKey, delivery.get().getPayload()));
+    }
+  }
+
   public void purge(String componentUuid) {
     long beforeDate = system.now() - ALIVE_DELAY_MS;
     try (DbSession dbSession = dbClient.openSession(false)) {
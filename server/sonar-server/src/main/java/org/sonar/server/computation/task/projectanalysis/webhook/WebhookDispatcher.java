@@ -0,0 +1,245 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.webhook.WebhookDeliveryLiteDto;
+
+import static java.lang.String.format;
+
+/**
+ * Delivers webhooks asynchronously, so that slow or unreachable endpoints do not delay the processing of
+ * Compute Engine tasks. Endpoints are called concurrently by a fixed pool of threads. When too many deliveries
+ * are waiting for a thread, the webhook is not called and the failure is persisted.
+ * <p>
+ * Every attempt is persisted by {@link WebhookDeliveryStorage}. Deliveries which failed because of a connectivity
+ * problem or of an error of the remote server are attempted again with an exponential backoff, up to
+ * {@link #MAX_ATTEMPTS} times. Attempts to come are deduced from the persisted deliveries, so they are
+ * not lost when Compute Engine restarts.
+ */
+@ComputeEngineSide
+public class WebhookDispatcher implements Startable {
+
+  static final int MAX_ATTEMPTS = 3;
+
+  private static final Logger LOGGER = Loggers.get(WebhookDispatcher.class);
+  private static final int THREADS = 5;
+  private static final int MAX_PENDING_DELIVERIES = 1_000;
+  private static final long FIRST_RETRY_DELAY_MS = 10_000L;
+  private static final long RETRY_CHECK_INTERVAL_MS = 5_000L;
+  /**
+   * Deliveries which failed before this delay are not attempted again, for example after a long shutdown
+   */
+  private static final long RETRY_WINDOW_MS = 60L * 60 * 1000;
+  private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage deliveryStorage;
+  private final WebhookDeliveryStatistics statistics;
+  private final System2 system;
+  private final int threads;
+  private final long firstRetryDelayMs;
+  private final long retryCheckIntervalMs;
+  /**
+   * Keys of the deliveries which are attempted again and which are not persisted yet
+   */
+  private final Set<String> retriesInProgress = ConcurrentHashMap.newKeySet();
+  /**
+   * Whether database may contain deliveries to be attempted again. Persisted deliveries are checked at startup.
+   */
+  private final AtomicBoolean retriesPending = new AtomicBoolean(true);
+  private ThreadPoolExecutor deliveryExecutor;
+  private ScheduledExecutorService retryScheduler;
+
+  public WebhookDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, WebhookDeliveryStatistics statistics, System2 system) {
+    this(caller, deliveryStorage, statistics, system, THREADS, FIRST_RETRY_DELAY_MS, RETRY_CHECK_INTERVAL_MS);
+  }
+
+  WebhookDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, WebhookDeliveryStatistics statistics, System2 system,
+    int threads, long firstRetryDelayMs, long retryCheckIntervalMs) {
+    this.caller = caller;
+    this.deliveryStorage = deliveryStorage;
+    this.statistics = statistics;
+    this.system = system;
+    this.threads = threads;
+    this.firstRetryDelayMs = firstRetryDelayMs;
+    this.retryCheckIntervalMs = retryCheckIntervalMs;
+  }
+
+  @Override
+  public void start() {
+    this.deliveryExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(MAX_PENDING_DELIVERIES),
+      new ThreadFactoryBuilder().setNameFormat("Webhook-%d").setDaemon(true).build());
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("Webhook-retry-%d").setDaemon(true).build());
+    retryScheduler.scheduleWithFixedDelay(this::retryPendingDeliveries, 0L, retryCheckIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Deliveries already requested are completed within a limited delay. Retries which are not due yet
+   * are resumed at next startup.
+   */
+  @Override
+  public void stop() {
+    if (deliveryExecutor == null) {
+      return;
+    }
+    retryScheduler.shutdownNow();
+    deliveryExecutor.shutdown();
+    try {
+      if (!deliveryExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        LOGGER.warn("Webhook deliveries are still in progress after {}ms. They are cancelled.", SHUTDOWN_TIMEOUT_MS);
+        deliveryExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      deliveryExecutor.shutdownNow();
+    }
+  }
+
+  public void dispatch(Webhook webhook, WebhookPayload payload) {
+    try {
+      deliveryExecutor.execute(() -> deliver(webhook, payload));
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Too many webhook deliveries are pending. Webhook '{}' is not sent | url={}", webhook.getName(), webhook.getUrl());
+      try {
+        record(new WebhookDelivery.Builder()
+          .setWebhook(webhook)
+          .setPayload(payload)
+          .setAt(system.now())
+          .setError(e)
+          .build());
+      } catch (RuntimeException recordError) {
+        LOGGER.error(format("Fail to record webhook '%s' | url=%s", webhook.getName(), webhook.getUrl()), recordError);
+      }
+    }
+  }
+
+  private void deliver(Webhook webhook, WebhookPayload payload) {
+    try {
+      record(caller.call(webhook, payload));
+    } catch (RuntimeException e) {
+      LOGGER.error(format("Fail to deliver webhook '%s' | url=%s", webhook.getName(), webhook.getUrl()), e);
+    } finally {
+      retriesInProgress.remove(retryKey(webhook.getCeTaskUuid(), webhook.getName(), webhook.getUrl()));
+    }
+  }
+
+  private void record(WebhookDelivery delivery) {
+    statistics.add(delivery);
+    log(delivery);
+    deliveryStorage.persist(delivery);
+    if (!delivery.isSuccess() && isRetryable(delivery.getHttpStatus().orElse(null))) {
+      retriesPending.set(true);
+    }
+  }
+
+  private void retryPendingDeliveries() {
+    if (!retriesPending.getAndSet(false)) {
+      return;
+    }
+    try {
+      long now = system.now();
+      Map<String, List<WebhookDeliveryLiteDto>> attemptsByDelivery = deliveryStorage.selectCreatedAfter(now - RETRY_WINDOW_MS).stream()
+        .collect(Collectors.groupingBy(dto -> retryKey(dto.getCeTaskUuid(), dto.getName(), dto.getUrl()), LinkedHashMap::new, Collectors.toList()));
+      attemptsByDelivery.forEach((key, attempts) -> retryIfDue(key, attempts, now));
+    } catch (RuntimeException e) {
+      retriesPending.set(true);
+      LOGGER.error("Fail to send again the failed webhooks", e);
+    }
+  }
+
+  /**
+   * @param attempts the persisted attempts of a delivery, latest first
+   */
+  private void retryIfDue(String key, List<WebhookDeliveryLiteDto> attempts, long now) {
+    WebhookDeliveryLiteDto latest = attempts.get(0);
+    if (latest.isSuccess() || !isRetryable(latest.getHttpStatus()) || attempts.size() >= MAX_ATTEMPTS) {
+      return;
+    }
+    if (latest.getCreatedAt() + (firstRetryDelayMs << (attempts.size() - 1)) > now) {
+      retriesPending.set(true);
+      return;
+    }
+    if (!retriesInProgress.add(key)) {
+      return;
+    }
+    Webhook webhook = new Webhook(latest.getComponentUuid(), latest.getCeTaskUuid(), latest.getName(), latest.getUrl());
+    Optional<WebhookPayload> payload = deliveryStorage.selectPayload(latest.getUuid());
+    if (!payload.isPresent()) {
+      retriesInProgress.remove(key);
+      return;
+    }
+    try {
+      deliveryExecutor.execute(() -> deliver(webhook, payload.get()));
+      statistics.addRetry();
+      LOGGER.debug("Webhook '{}' is sent again | url={} | attempt={}", webhook.getName(), webhook.getUrl(), attempts.size() + 1);
+    } catch (RejectedExecutionException e) {
+      // attempted at next check
+      retriesInProgress.remove(key);
+      retriesPending.set(true);
+    }
+  }
+
+  private static String retryKey(String ceTaskUuid, String name, String url) {
+    return ceTaskUuid + '|' + name + '|' + url;
+  }
+
+  /**
+   * Connectivity problems, timeouts, throttling and server errors are considered as transient
+   *
+   * @param httpStatus status of the response, null if no response was received
+   */
+  private static boolean isRetryable(@Nullable Integer httpStatus) {
+    return httpStatus == null || httpStatus == 429 || httpStatus >= 500;
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+}
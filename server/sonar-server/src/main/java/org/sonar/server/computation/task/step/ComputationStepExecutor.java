@@ -24,11 +24,14 @@ import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.server.computation.monitoring.CeTaskMetrics;
+import org.sonar.server.computation.monitoring.ThreadResourceSnapshot;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
   private final ComputationSteps steps;
+  private final CeTaskMetrics taskMetrics;
   @CheckForNull
   private final Listener listener;
 
@@ -36,12 +39,13 @@ public final class ComputationStepExecutor {
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
    * container.
    */
-  public ComputationStepExecutor(ComputationSteps steps) {
-    this(steps, null);
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskMetrics taskMetrics) {
+    this(steps, taskMetrics, null);
   }
 
-  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskMetrics taskMetrics, @Nullable Listener listener) {
     this.steps = steps;
+    this.taskMetrics = taskMetrics;
     this.listener = listener;
   }
 
@@ -61,8 +65,14 @@ public final class ComputationStepExecutor {
   private void executeSteps(Profiler stepProfiler) {
     for (ComputationStep step : steps.instances()) {
       stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      ThreadResourceSnapshot resources = ThreadResourceSnapshot.ofCurrentThread();
+      try {
+        step.execute();
+      } finally {
+        String description = step.getDescription();
+        taskMetrics.addStep(resources.toStepMetrics(description));
+        stepProfiler.stopDebug(description);
+      }
     }
   }
 
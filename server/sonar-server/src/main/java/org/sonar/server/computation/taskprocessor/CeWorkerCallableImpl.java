@@ -20,6 +20,7 @@
 package org.sonar.server.computation.taskprocessor;
 
 import com.google.common.base.Optional;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -29,6 +30,8 @@ import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.db.ce.CeActivityDto;
+import org.sonar.server.computation.monitoring.CeTaskMetrics;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.computation.queue.InternalCeQueue;
 
 import static java.lang.String.format;
@@ -40,11 +43,14 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
   private final InternalCeQueue queue;
   private final CeLogging ceLogging;
   private final CeTaskProcessorRepository taskProcessorRepository;
+  private final CeTaskMetrics taskMetrics;
 
-  public CeWorkerCallableImpl(InternalCeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository) {
+  public CeWorkerCallableImpl(InternalCeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository,
+    CeTaskMetrics taskMetrics) {
     this.queue = queue;
     this.ceLogging = ceLogging;
     this.taskProcessorRepository = taskProcessorRepository;
+    this.taskMetrics = taskMetrics;
   }
 
   @Override
@@ -73,6 +79,7 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
 
   private void executeTask(CeTask task) {
     ceLogging.initForTask(task);
+    taskMetrics.startTask();
     Profiler ceProfiler = startActivityProfiler(task);
 
     CeActivityDto.Status status = CeActivityDto.Status.FAILED;
@@ -98,8 +105,9 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
 
   private void finalizeTask(CeTask task, Profiler ceProfiler, CeActivityDto.Status status,
     @Nullable CeTaskResult taskResult, @Nullable Throwable error) {
+    List<CeTaskStepMetrics> stepMetrics = taskMetrics.stopTask();
     try {
-      queue.remove(task, status, taskResult, error);
+      queue.remove(task, status, taskResult, error, stepMetrics);
     } catch (Exception e) {
       LOG.error(format("Failed to finalize task with uuid '%s' and persist its state to db", task.getUuid()), e);
     } finally {
@@ -217,6 +217,7 @@ public class BulkIndexer implements Startable {
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
     semaphore.acquireUninterruptibly();
+    ThreadEsStatistics.addRequest();
     req.execute(new BulkResponseActionListener(req));
   }
 
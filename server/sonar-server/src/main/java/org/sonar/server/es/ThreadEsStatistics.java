@@ -0,0 +1,41 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+/**
+ * Counter of the Elasticsearch requests executed by the current thread. It is never reset: callers are
+ * expected to compute the difference between two readings.
+ */
+public final class ThreadEsStatistics {
+
+  private static final ThreadLocal<long[]> REQUESTS = ThreadLocal.withInitial(() -> new long[1]);
+
+  private ThreadEsStatistics() {
+    // only static methods
+  }
+
+  public static long requestCount() {
+    return REQUESTS.get()[0];
+  }
+
+  public static void addRequest() {
+    REQUESTS.get()[0]++;
+  }
+}
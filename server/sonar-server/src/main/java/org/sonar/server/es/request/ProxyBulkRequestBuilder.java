@@ -34,6 +34,7 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.ThreadEsStatistics;
 
 public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
 
@@ -44,6 +45,7 @@ public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
   @Override
   public BulkResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    ThreadEsStatistics.addRequest();
     try {
       return super.execute().actionGet();
     } catch (Exception e) {
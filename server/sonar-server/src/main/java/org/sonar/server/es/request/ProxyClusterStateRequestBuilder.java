@@ -28,6 +28,7 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.ThreadEsStatistics;
 
 public class ProxyClusterStateRequestBuilder extends ClusterStateRequestBuilder {
 
@@ -38,6 +39,7 @@ public class ProxyClusterStateRequestBuilder extends ClusterStateRequestBuilder
   @Override
   public ClusterStateResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    ThreadEsStatistics.addRequest();
     try {
       return super.execute().actionGet();
     } catch (Exception e) {
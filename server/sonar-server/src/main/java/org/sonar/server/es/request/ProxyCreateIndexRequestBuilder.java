@@ -27,6 +27,7 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.ThreadEsStatistics;
 
 public class ProxyCreateIndexRequestBuilder extends CreateIndexRequestBuilder {
 
@@ -40,6 +41,7 @@ public class ProxyCreateIndexRequestBuilder extends CreateIndexRequestBuilder {
   @Override
   public CreateIndexResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    ThreadEsStatistics.addRequest();
     try {
       return super.execute().actionGet();
     } catch (Exception e) {
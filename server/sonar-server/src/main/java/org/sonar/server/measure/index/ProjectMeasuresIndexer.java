@@ -19,12 +19,25 @@
  */
 package org.sonar.server.measure.index;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.index.IndexRequest;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.ProjectMeasuresIndexerIterator;
@@ -44,6 +57,9 @@ public class ProjectMeasuresIndexer extends BaseIndexer implements ProjectIndexe
 
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_PROJECT_MEASURES, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
 
+  private static final Logger LOGGER = Loggers.get(ProjectMeasuresIndexer.class);
+  private static final int PARTITIONS = 4;
+
   private final DbClient dbClient;
 
   public ProjectMeasuresIndexer(System2 system2, DbClient dbClient, EsClient esClient) {
@@ -87,24 +103,77 @@ public class ProjectMeasuresIndexer extends BaseIndexer implements ProjectIndexe
   }
 
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
+    if (projectUuid == null) {
+      return doIndexPartitions(bulk, lastUpdatedAt);
+    }
+    bulk.start();
+    long maxDate;
     try (DbSession dbSession = dbClient.openSession(false);
-      ProjectMeasuresIndexerIterator rowIt = ProjectMeasuresIndexerIterator.create(dbSession, lastUpdatedAt, projectUuid)) {
-      return doIndex(bulk, rowIt);
+      ProjectMeasuresIndexerIterator rowIt = ProjectMeasuresIndexerIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid)) {
+      maxDate = addDocs(bulk, rowIt, new AtomicLong());
     }
+    bulk.stop();
+    return maxDate;
   }
 
-  private static long doIndex(BulkIndexer bulk, Iterator<ProjectMeasures> docs) {
+  /**
+   * Projects are split in ranges of ids, whose measures are read by parallel cursors. Documents
+   * are sent to Elasticsearch through the same bulk indexer.
+   */
+  private long doIndexPartitions(BulkIndexer bulk, long lastUpdatedAt) {
+    long startTime = System.currentTimeMillis();
+    List<Range<Long>> partitions;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      partitions = ProjectMeasuresIndexerIterator.partitionProjectIds(dbSession, PARTITIONS);
+    }
+    AtomicLong count = new AtomicLong();
+    long maxDate = 0L;
     bulk.start();
+    ExecutorService executor = Executors.newFixedThreadPool(PARTITIONS, new ThreadFactoryBuilder()
+      .setNameFormat("ProjectMeasuresIndexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<Long>> futures = new ArrayList<>(partitions.size());
+      for (Range<Long> partition : partitions) {
+        futures.add(executor.submit(() -> doIndexPartition(bulk, lastUpdatedAt, partition, count)));
+      }
+      for (Future<Long> future : futures) {
+        maxDate = Math.max(maxDate, Uninterruptibles.getUninterruptibly(future));
+      }
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    bulk.stop();
+    long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+    LOGGER.info("{} projects indexed in {} ms ({} docs/sec)", count.get(), duration, count.get() * 1000L / duration);
+    return maxDate;
+  }
+
+  private long doIndexPartition(BulkIndexer bulk, long lastUpdatedAt, Range<Long> projectIds, AtomicLong count) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      ProjectMeasuresIndexerIterator rowIt = ProjectMeasuresIndexerIterator.createPartition(dbClient, dbSession, lastUpdatedAt, projectIds)) {
+      return addDocs(bulk, rowIt, count);
+    }
+  }
+
+  private static long addDocs(BulkIndexer bulk, Iterator<ProjectMeasures> docs, AtomicLong count) {
     long maxDate = 0L;
     while (docs.hasNext()) {
       ProjectMeasures doc = docs.next();
-      bulk.add(newIndexRequest(toProjectMeasuresDoc(doc)));
+      IndexRequest request = newIndexRequest(toProjectMeasuresDoc(doc));
+      // BulkIndexer is not thread-safe
+      synchronized (bulk) {
+        bulk.add(request);
+      }
+      count.incrementAndGet();
 
       Long analysisDate = doc.getProject().getAnalysisDate();
       // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
       maxDate = Math.max(maxDate, analysisDate == null ? 0L : analysisDate);
     }
-    bulk.stop();
     return maxDate;
   }
 
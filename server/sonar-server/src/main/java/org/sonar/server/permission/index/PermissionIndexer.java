@@ -25,14 +25,17 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.picocontainer.Startable;
@@ -82,20 +85,25 @@ public class PermissionIndexer implements ProjectIndexer, Startable {
     this.authorizationScopes = authorizationScopes;
   }
 
+  /**
+   * Indexes the authorizations of all the projects into the indices whose authorization type is empty,
+   * for example because they have just been created. Other indices are not touched.
+   */
   public void indexAllIfEmpty() {
-    boolean isEmpty = false;
-    for (AuthorizationScope scope : authorizationScopes) {
-      isEmpty |= isAuthorizationTypeEmpty(scope.getIndexName());
-    }
+    List<AuthorizationScope> emptyScopes = authorizationScopes.stream()
+      .filter(scope -> isAuthorizationTypeEmpty(scope.getIndexName()))
+      .collect(Collectors.toList());
 
-    if (isEmpty) {
+    if (!emptyScopes.isEmpty()) {
       Future submit = executor.submit(() -> {
-        authorizationScopes.stream()
+        emptyScopes.stream()
           .map(AuthorizationScope::getIndexName)
           .forEach(this::truncateAuthorizationType);
 
         try (DbSession dbSession = dbClient.openSession(false)) {
-          index(new PermissionIndexerDao().selectAll(dbClient, dbSession));
+          BulkAuthorizations bulk = new BulkAuthorizations(emptyScopes);
+          new PermissionIndexerDao().selectAll(dbClient, dbSession, bulk::add);
+          bulk.finish();
         }
       });
       try {
@@ -106,10 +114,22 @@ public class PermissionIndexer implements ProjectIndexer, Startable {
     }
   }
 
+  /**
+   * Re-indexes the authorizations of the given projects only. Authorizations are read and sent by partitions,
+   * so that the number of projects affected by a permission change does not matter. Projects which do not have
+   * any authorization anymore are removed from the authorization type, so that nobody can browse them.
+   */
   public void indexProjectsByUuids(DbSession dbSession, List<String> viewOrProjectUuids) {
     checkArgument(!viewOrProjectUuids.isEmpty(), "viewOrProjectUuids cannot be empty");
-    PermissionIndexerDao dao = new PermissionIndexerDao();
-    index(dao.selectByUuids(dbClient, dbSession, viewOrProjectUuids));
+    // the same project may be listed once per permission change
+    Set<String> uuidsWithoutAuthorization = new HashSet<>(viewOrProjectUuids);
+    BulkAuthorizations bulk = new BulkAuthorizations(authorizationScopes);
+    new PermissionIndexerDao().selectByUuids(dbClient, dbSession, viewOrProjectUuids, dto -> {
+      uuidsWithoutAuthorization.remove(dto.getProjectUuid());
+      bulk.add(dto);
+    });
+    uuidsWithoutAuthorization.forEach(bulk::delete);
+    bulk.finish();
   }
 
   @Override
@@ -152,25 +172,56 @@ public class PermissionIndexer implements ProjectIndexer, Startable {
     if (authorizations.isEmpty()) {
       return;
     }
-    int count = 0;
-    BulkRequestBuilder bulkRequest = esClient.prepareBulk().setRefresh(false);
-    for (PermissionIndexerDao.Dto dto : authorizations) {
-      for (AuthorizationScope scope : authorizationScopes) {
+    BulkAuthorizations bulk = new BulkAuthorizations(authorizationScopes);
+    authorizations.forEach(bulk::add);
+    bulk.finish();
+  }
+
+  /**
+   * Sends authorization documents to the indices of the given scopes, by bulk requests
+   * of at most {@link #MAX_BATCH_SIZE} documents.
+   */
+  private class BulkAuthorizations {
+    private final Collection<AuthorizationScope> scopes;
+    private BulkRequestBuilder bulkRequest = esClient.prepareBulk().setRefresh(false);
+    private int count = 0;
+
+    private BulkAuthorizations(Collection<AuthorizationScope> scopes) {
+      this.scopes = scopes;
+    }
+
+    private void add(PermissionIndexerDao.Dto dto) {
+      for (AuthorizationScope scope : scopes) {
         if (scope.getProjectPredicate().test(dto)) {
           bulkRequest.add(newIndexRequest(dto, scope.getIndexName()));
           count++;
         }
       }
+      flushIfFull();
+    }
+
+    private void delete(String projectUuid) {
+      for (AuthorizationScope scope : scopes) {
+        bulkRequest.add(new DeleteRequest(scope.getIndexName(), TYPE_AUTHORIZATION, projectUuid).routing(projectUuid));
+        count++;
+      }
+      flushIfFull();
+    }
+
+    private void flushIfFull() {
       if (count >= MAX_BATCH_SIZE) {
         EsUtils.executeBulkRequest(bulkRequest, BULK_ERROR_MESSAGE);
         bulkRequest = esClient.prepareBulk().setRefresh(false);
         count = 0;
       }
     }
-    if (count > 0) {
-      EsUtils.executeBulkRequest(bulkRequest, BULK_ERROR_MESSAGE);
+
+    private void finish() {
+      if (count > 0) {
+        EsUtils.executeBulkRequest(bulkRequest, BULK_ERROR_MESSAGE);
+      }
+      scopes.forEach(scope -> esClient.prepareRefresh(scope.getIndexName()).get());
     }
-    authorizationScopes.forEach(type -> esClient.prepareRefresh(type.getIndexName()).get());
   }
 
   private static IndexRequest newIndexRequest(PermissionIndexerDao.Dto dto, String indexName) {
@@ -23,20 +23,23 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 import static org.sonar.db.DatabaseUtils.repeatCondition;
 
 /**
- * No streaming because of union of joins -> no need to use ResultSetIterator
+ * Rows of the union of joins are ordered by project when all the projects are selected, so that
+ * they can be streamed project by project.
  */
 public class PermissionIndexerDao {
 
@@ -162,14 +165,51 @@ public class PermissionIndexerDao {
     "        AND group_roles.group_id IS NULL " +
     "    ) project_authorization";
 
+  private static final String ORDER_BY_PROJECT = " ORDER BY project_authorization.project";
+
   List<Dto> selectAll(DbClient dbClient, DbSession session) {
-    return doSelectByProjects(dbClient, session, Collections.emptyList());
+    List<Dto> dtos = new ArrayList<>();
+    selectAll(dbClient, session, dtos::add);
+    return dtos;
+  }
+
+  /**
+   * Streams the authorizations of all the projects. A single project is held in memory at a time.
+   */
+  void selectAll(DbClient dbClient, DbSession session, Consumer<Dto> consumer) {
+    String sql = StringUtils.replace(SQL_TEMPLATE, "{projectsCondition}", "") + ORDER_BY_PROJECT;
+    try (PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      ResultSet rs = stmt.executeQuery()) {
+      Map<String, Dto> current = new HashMap<>();
+      while (rs.next()) {
+        String projectUuid = rs.getString(2);
+        if (!current.isEmpty() && !current.containsKey(projectUuid)) {
+          current.values().forEach(consumer);
+          current.clear();
+        }
+        processRow(rs, current);
+      }
+      current.values().forEach(consumer);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to select authorizations", e);
+    }
   }
 
   List<Dto> selectByUuids(DbClient dbClient, DbSession session, List<String> projectOrViewUuids) {
     return executeLargeInputs(projectOrViewUuids, subProjectOrViewUuids -> doSelectByProjects(dbClient, session, subProjectOrViewUuids));
   }
 
+  /**
+   * Streams the authorizations of the given projects, partition by partition. Projects without
+   * any authorization are not given to the consumer.
+   */
+  void selectByUuids(DbClient dbClient, DbSession session, Collection<String> projectOrViewUuids, Consumer<Dto> consumer) {
+    executeLargeInputsWithoutOutput(projectOrViewUuids, subProjectOrViewUuids -> {
+      doSelectByProjects(dbClient, session, subProjectOrViewUuids).forEach(consumer);
+      return null;
+    });
+  }
+
   private static List<Dto> doSelectByProjects(DbClient dbClient, DbSession session, List<String> projectUuids) {
     try {
       Map<String, Dto> dtosByProjectUuid = new HashMap<>();
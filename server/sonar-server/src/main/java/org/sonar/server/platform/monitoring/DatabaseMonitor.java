@@ -24,11 +24,13 @@ import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbutils.DbUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.pool.ConcurrentConnectionPool;
 import org.sonar.server.platform.db.migration.version.DatabaseVersion;
 
 /**
@@ -117,6 +119,31 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     attributes.put("Pool Max Wait (ms)", getPoolMaxWaitMillis());
     attributes.put("Pool Remove Abandoned", getPoolRemoveAbandoned());
     attributes.put("Pool Remove Abandoned Timeout (seconds)", getPoolRemoveAbandonedTimeoutSeconds());
+    concurrentPool().ifPresent(pool -> {
+      attributes.put("Pool Borrowed Connections", pool.getBorrowCount());
+      attributes.put("Pool Leaked Connections", pool.getLeakCount());
+      attributes.put("Pool Median Wait Time (ms)", toMillis(pool.getWaitTimePercentileMicros(50.0)));
+      attributes.put("Pool 99th Percentile Wait Time (ms)", toMillis(pool.getWaitTimePercentileMicros(99.0)));
+    });
+  }
+
+  /**
+   * Usage statistics are available only with the default connection pool
+   */
+  private Optional<ConcurrentConnectionPool> concurrentPool() {
+    BasicDataSource dataSource = commonsDbcp();
+    try {
+      if (dataSource.isWrapperFor(ConcurrentConnectionPool.class)) {
+        return Optional.of(dataSource.unwrap(ConcurrentConnectionPool.class));
+      }
+      return Optional.empty();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to access connection pool", e);
+    }
+  }
+
+  private static double toMillis(long micros) {
+    return micros / 1_000.0;
   }
 
   private BasicDataSource commonsDbcp() {
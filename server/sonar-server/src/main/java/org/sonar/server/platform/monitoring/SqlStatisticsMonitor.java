@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.db.profiling.SqlStatementStatistics;
+import org.sonar.db.profiling.SqlStatementStatistics.Snapshot;
+
+import static java.lang.String.format;
+
+/**
+ * Statistics of the SQL statements executed by this server, aggregated by MyBatis statement
+ */
+public class SqlStatisticsMonitor extends BaseMonitorMBean implements SqlStatisticsMonitorMBean {
+
+  static final int TOP_STATEMENTS = 20;
+
+  @Override
+  public String name() {
+    return "SQL Statistics";
+  }
+
+  @Override
+  public long getStatementCount() {
+    return SqlStatementStatistics.snapshot().stream().mapToLong(Snapshot::getCount).sum();
+  }
+
+  @Override
+  public long getTotalTimeMillis() {
+    return toMillis(SqlStatementStatistics.snapshot().stream().mapToLong(Snapshot::getTotalMicros).sum());
+  }
+
+  @Override
+  public long getRowCount() {
+    return SqlStatementStatistics.snapshot().stream().mapToLong(Snapshot::getRows).sum();
+  }
+
+  @Override
+  public String[] getTopStatements() {
+    return SqlStatementStatistics.snapshot().stream()
+      .limit(TOP_STATEMENTS)
+      .map(s -> format("%s: count=%d, total=%dms, max=%dms, p50=%dms, p99=%dms, rows=%d", s.getStatementId(), s.getCount(),
+        toMillis(s.getTotalMicros()), toMillis(s.getMaxMicros()), toMillis(s.getPercentileMicros(50.0)), toMillis(s.getPercentileMicros(99.0)),
+        s.getRows()))
+      .toArray(String[]::new);
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    List<Snapshot> snapshots = SqlStatementStatistics.snapshot();
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Statements", snapshots.stream().mapToLong(Snapshot::getCount).sum());
+    attributes.put("Total Time (ms)", toMillis(snapshots.stream().mapToLong(Snapshot::getTotalMicros).sum()));
+    attributes.put("Rows", snapshots.stream().mapToLong(Snapshot::getRows).sum());
+    Map<String, Object> topStatements = new LinkedHashMap<>();
+    snapshots.stream().limit(TOP_STATEMENTS).forEach(s -> topStatements.put(s.getStatementId(), statementAttributes(s)));
+    attributes.put("Top Statements", topStatements);
+    return attributes;
+  }
+
+  private static Map<String, Object> statementAttributes(Snapshot snapshot) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Count", snapshot.getCount());
+    attributes.put("Total Time (ms)", toMillis(snapshot.getTotalMicros()));
+    attributes.put("Max Time (ms)", toMillis(snapshot.getMaxMicros()));
+    attributes.put("Median Time (ms)", toMillis(snapshot.getPercentileMicros(50.0)));
+    attributes.put("99th Percentile Time (ms)", toMillis(snapshot.getPercentileMicros(99.0)));
+    attributes.put("Rows", snapshot.getRows());
+    return attributes;
+  }
+
+  private static long toMillis(long micros) {
+    return micros / 1_000L;
+  }
+}
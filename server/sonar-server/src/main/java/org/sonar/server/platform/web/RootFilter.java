@@ -32,6 +32,8 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
 
 import static java.lang.String.format;
 
@@ -58,6 +60,7 @@ public class RootFilter implements Filter {
     if (request instanceof HttpServletRequest) {
       HttpServletRequest httpRequest = (HttpServletRequest) request;
       HttpServletResponse httpResponse = (HttpServletResponse) response;
+      long start = System.currentTimeMillis();
       try {
         chain.doFilter(new ServletRequestWrapper(httpRequest), httpResponse);
       } catch (Throwable e) {
@@ -65,6 +68,8 @@ public class RootFilter implements Filter {
         if (!response.isCommitted()) {
           httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
+      } finally {
+        ProcessMetrics.record(ProcessMetric.WEB_REQUEST_DURATION, System.currentTimeMillis() - start);
       }
     } else {
       // Not an HTTP request, not profiled
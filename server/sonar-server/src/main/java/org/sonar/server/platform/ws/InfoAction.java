@@ -26,6 +26,7 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.ce.http.CeHttpClient;
+import org.sonar.process.MetricsSnapshot;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.platform.monitoring.Monitor;
 import org.sonar.server.user.UserSession;
@@ -88,6 +89,15 @@ public class InfoAction implements SystemWsAction {
         json.endObject();
       }
     }
+    Optional<MetricsSnapshot> ceMetrics = ceHttpClient.retrieveMetrics();
+    if (ceMetrics.isPresent()) {
+      json.name("Compute Engine Metrics");
+      json.beginObject();
+      for (Map.Entry<String, Object> attribute : ceMetrics.get().toAttributes().entrySet()) {
+        json.name(attribute.getKey()).valueObject(attribute.getValue());
+      }
+      json.endObject();
+    }
     json.endObject();
   }
 
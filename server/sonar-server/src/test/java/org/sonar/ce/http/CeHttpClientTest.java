@@ -34,8 +34,11 @@ import org.sonar.api.config.MapSettings;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.process.DefaultProcessCommands;
+import org.sonar.process.MetricsSnapshot;
 import org.sonar.process.ProcessEntryPoint;
 import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
 import static java.lang.String.format;
@@ -95,6 +98,24 @@ public class CeHttpClientTest {
     underTest.retrieveSystemInfo();
   }
 
+  @Test
+  public void retrieveMetrics_returns_absent_if_process_is_down() {
+    assertThat(underTest.retrieveMetrics().isPresent()).isFalse();
+  }
+
+  @Test
+  public void retrieveMetrics_reads_shared_memory_if_process_is_up() {
+    try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, ProcessId.COMPUTE_ENGINE.getIpcIndex())) {
+      processCommands.setUp();
+      processCommands.setMetrics(ProcessMetrics.snapshot());
+    }
+
+    Optional<MetricsSnapshot> metrics = underTest.retrieveMetrics();
+
+    assertThat(metrics.get().get(ProcessMetric.CE_SUCCESS_TASKS)).isEqualTo(ProcessMetrics.snapshot().get(ProcessMetric.CE_SUCCESS_TASKS));
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
   @Test
   public void changeLogLevel_throws_NPE_if_level_argument_is_null() {
     expectedException.expect(NullPointerException.class);
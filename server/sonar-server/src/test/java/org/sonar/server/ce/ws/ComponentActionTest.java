@@ -141,6 +141,23 @@ public class ComponentActionTest {
     assertThat(response.getCurrent().getId()).isEqualTo("T3");
   }
 
+  @Test
+  public void purge_tasks_must_not_be_picked_as_current_analysis() {
+    dbTester.components().insertComponent(newProjectDto(dbTester.getDefaultOrganization(), "PROJECT_1"));
+    userSession.addComponentUuidPermission(UserRole.USER, "PROJECT_1", "PROJECT_1");
+    insertActivity("T1", "PROJECT_1", CeActivityDto.Status.SUCCESS);
+    insertActivity("T2", "PROJECT_1", CeTaskTypes.PROJECT_PURGE, CeActivityDto.Status.FAILED);
+
+    TestResponse wsResponse = ws.newRequest()
+      .setParam("componentId", "PROJECT_1")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .execute();
+
+    WsCe.ProjectResponse response = Protobuf.read(wsResponse.getInputStream(), WsCe.ProjectResponse.parser());
+    assertThat(response.hasCurrent()).isTrue();
+    assertThat(response.getCurrent().getId()).isEqualTo("T1");
+  }
+
   @Test
   public void fail_with_404_when_component_does_not_exist() throws Exception {
     userSession.addComponentUuidPermission(UserRole.USER, "PROJECT_1", "PROJECT_1");
@@ -189,8 +206,12 @@ public class ComponentActionTest {
   }
 
   private CeActivityDto insertActivity(String taskUuid, String componentUuid, CeActivityDto.Status status) {
+    return insertActivity(taskUuid, componentUuid, CeTaskTypes.REPORT, status);
+  }
+
+  private CeActivityDto insertActivity(String taskUuid, String componentUuid, String taskType, CeActivityDto.Status status) {
     CeQueueDto queueDto = new CeQueueDto();
-    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setTaskType(taskType);
     queueDto.setComponentUuid(componentUuid);
     queueDto.setUuid(taskUuid);
     CeActivityDto activityDto = new CeActivityDto(queueDto);
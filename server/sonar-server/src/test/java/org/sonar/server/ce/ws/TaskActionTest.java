@@ -34,6 +34,7 @@ import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
@@ -42,6 +43,7 @@ import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.WsCe;
 
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonarqube.ws.MediaTypes.PROTOBUF;
 
@@ -208,6 +210,47 @@ public class TaskActionTest {
     assertThat(task.hasScannerContext()).isFalse();
   }
 
+  @Test
+  public void return_stepMetrics_of_activity_when_additionalField_is_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID)
+      .setStepMetrics(CeTaskStepMetrics.toJson(singletonList(new CeTaskStepMetrics("Extract report", 10, 5, 1_000, 3, 2, 1)))));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .setParam("additionalFields", "stepMetrics")
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepMetricsList()).hasSize(1);
+    WsCe.StepMetrics stepMetrics = task.getStepMetrics(0);
+    assertThat(stepMetrics.getStep()).isEqualTo("Extract report");
+    assertThat(stepMetrics.getWallTimeMs()).isEqualTo(10);
+    assertThat(stepMetrics.getCpuTimeMs()).isEqualTo(5);
+    assertThat(stepMetrics.getAllocatedBytes()).isEqualTo(1_000);
+    assertThat(stepMetrics.getSqlStatements()).isEqualTo(3);
+    assertThat(stepMetrics.getSqlRows()).isEqualTo(2);
+    assertThat(stepMetrics.getEsRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_return_stepMetrics_of_activity_when_additionalField_is_not_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID)
+      .setStepMetrics(CeTaskStepMetrics.toJson(singletonList(new CeTaskStepMetrics("Extract report", 10, 5, 1_000, 3, 2, 1)))));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepMetricsList()).isEmpty();
+  }
+
   @Test
   public void do_not_return_stacktrace_of_failed_activity_without_stacktrace() {
     logInAsRoot();
@@ -0,0 +1,216 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.core.util.Protobuf;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.queue.ReportSubmitter;
+import org.sonar.server.computation.queue.ReportUploads;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.platform.ServerFileSystem;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.MediaTypes;
+import org.sonarqube.ws.WsCe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadCommitActionTest {
+
+  private static final CeTask A_CE_TASK = new CeTask.Builder()
+    .setOrganizationUuid("org1")
+    .setUuid("TASK_1")
+    .setType(CeTaskTypes.REPORT)
+    .setComponentUuid("PROJECT_1").setSubmitterLogin("robert")
+    .build();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone().logIn("robert");
+
+  private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.fromUuid("org1");
+  private String organizationKey = defaultOrganizationProvider.get().getKey();
+  private ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
+  private ServerFileSystem fileSystem = mock(ServerFileSystem.class);
+  private ReportUploads reportUploads = new ReportUploads(fileSystem, System2.INSTANCE, new MapSettings());
+  private WsActionTester initTester = new WsActionTester(new UploadInitAction(reportUploads, reportSubmitter, defaultOrganizationProvider));
+  private WsActionTester appendTester = new WsActionTester(new UploadAppendAction(reportUploads, reportSubmitter));
+  private WsActionTester commitTester = new WsActionTester(new UploadCommitAction(reportUploads, reportSubmitter, defaultOrganizationProvider));
+
+  @Before
+  public void setUp() throws Exception {
+    when(fileSystem.getTempDir()).thenReturn(temp.newFolder());
+  }
+
+  @Test
+  public void submit_report_uploaded_in_several_chunks() throws Exception {
+    when(reportSubmitter.submit(eq(organizationKey), eq("my_project"), Matchers.isNull(String.class), eq("My Project"), any(InputStream.class)))
+      .thenAnswer(invocation -> {
+        assertThat(IOUtils.toString(invocation.getArgumentAt(4, InputStream.class), StandardCharsets.UTF_8)).isEqualTo("foobar");
+        return A_CE_TASK;
+      });
+
+    WsCe.UploadResponse init = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+    assertThat(init.getOffset()).isEqualTo(0L);
+    assertThat(append(init.getUploadId(), 0L, "foo").getOffset()).isEqualTo(3L);
+    assertThat(append(init.getUploadId(), 3L, "bar").getOffset()).isEqualTo(6L);
+
+    TestResponse wsResponse = commitTester.newRequest()
+      .setParam("uploadId", init.getUploadId())
+      .setParam("projectKey", "my_project")
+      .setParam("projectName", "My Project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+
+    WsCe.SubmitResponse submitResponse = Protobuf.read(wsResponse.getInputStream(), WsCe.SubmitResponse.parser());
+    assertThat(submitResponse.getTaskId()).isEqualTo("TASK_1");
+    assertThat(submitResponse.getProjectId()).isEqualTo("PROJECT_1");
+    verify(reportSubmitter, times(3)).checkSubmitPermission(organizationKey, "my_project", null);
+  }
+
+  @Test
+  public void upload_report_anonymously_when_allowed_to_submit() {
+    userSession.anonymous();
+
+    WsCe.UploadResponse init = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+
+    assertThat(append(init.getUploadId(), 0L, "foo").getOffset()).isEqualTo(3L);
+    verify(reportSubmitter, times(2)).checkSubmitPermission(organizationKey, "my_project", null);
+  }
+
+  @Test
+  public void keep_upload_when_submission_fails() {
+    WsCe.UploadResponse init = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+    append(init.getUploadId(), 0L, "foo");
+    when(reportSubmitter.submit(eq(organizationKey), eq("my_project"), Matchers.isNull(String.class), eq("my_project"), any(InputStream.class)))
+      .thenThrow(new ForbiddenException("Insufficient privileges"));
+
+    try {
+      commitTester.newRequest()
+        .setParam("uploadId", init.getUploadId())
+        .setParam("projectKey", "my_project")
+        .setMediaType(MediaTypes.PROTOBUF)
+        .setMethod("POST")
+        .execute();
+      throw new AssertionError("submission should fail");
+    } catch (ForbiddenException e) {
+      assertThat(reportUploads.get(init.getUploadId()).getSize()).isEqualTo(3L);
+    }
+  }
+
+  @Test(expected = ForbiddenException.class)
+  public void fail_to_init_upload_without_submit_permission() {
+    doThrow(new ForbiddenException("Insufficient privileges")).when(reportSubmitter).checkSubmitPermission(organizationKey, "my_project", null);
+
+    initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+  }
+
+  @Test(expected = ForbiddenException.class)
+  public void fail_to_append_chunk_when_submit_permission_has_been_dropped() {
+    WsCe.UploadResponse init = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+    doThrow(new ForbiddenException("Insufficient privileges")).when(reportSubmitter).checkSubmitPermission(organizationKey, "my_project", null);
+
+    append(init.getUploadId(), 0L, "foo");
+  }
+
+  @Test
+  public void resume_interrupted_upload() {
+    WsCe.UploadResponse init = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+    append(init.getUploadId(), 0L, "foo");
+
+    WsCe.UploadResponse resumed = Protobuf.read(initTester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("uploadId", init.getUploadId())
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+
+    assertThat(resumed.getUploadId()).isEqualTo(init.getUploadId());
+    assertThat(resumed.getOffset()).isEqualTo(3L);
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void fail_to_commit_unknown_upload() {
+    commitTester.newRequest()
+      .setParam("uploadId", "unknown")
+      .setParam("projectKey", "my_project")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+  }
+
+  private WsCe.UploadResponse append(String uploadId, long offset, String chunk) {
+    return Protobuf.read(appendTester.newRequest()
+      .setParam("uploadId", uploadId)
+      .setParam("offset", String.valueOf(offset))
+      .setParam("chunk", chunk)
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute().getInputStream(), WsCe.UploadResponse.parser());
+  }
+}
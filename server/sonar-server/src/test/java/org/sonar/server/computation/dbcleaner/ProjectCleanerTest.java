@@ -28,6 +28,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
@@ -42,6 +43,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ProjectCleanerTest {
 
@@ -61,7 +63,7 @@ public class ProjectCleanerTest {
   public void no_profiling_when_property_is_false() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, false);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeSupersededAnalysis(mock(DbSession.class), mock(IdUuidPair.class), settings);
 
     verify(profiler, never()).dump(anyLong(), any(Logger.class));
   }
@@ -70,36 +72,37 @@ public class ProjectCleanerTest {
   public void profiling_when_property_is_true() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, true);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeSupersededAnalysis(mock(DbSession.class), mock(IdUuidPair.class), settings);
 
     verify(profiler).dump(anyLong(), any(Logger.class));
   }
 
   @Test
-  public void call_period_cleaner_index_client_and_purge_dao() {
+  public void call_period_cleaner_and_purge_dao_when_purging_history() {
     settings.setProperty(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES, 5);
+    when(periodCleaner.clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeProfiler.class), any(PurgeBudget.class))).thenReturn(true);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, profiler, PurgeBudget.unlimited());
 
-    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
-    verify(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeProfiler.class), any(PurgeBudget.class));
+    verify(dao).purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeBudget.class));
   }
 
   @Test
-  public void if_dao_purge_fails_it_should_not_interrupt_program_execution() {
-    doThrow(RuntimeException.class).when(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+  public void if_purge_of_superseded_analysis_fails_it_should_not_interrupt_program_execution() {
+    doThrow(RuntimeException.class).when(dao).purgeSupersededAnalysis(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeProfiler.class));
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeSupersededAnalysis(mock(DbSession.class), mock(IdUuidPair.class), settings);
 
-    verify(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    verify(dao).purgeSupersededAnalysis(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeProfiler.class));
   }
 
   @Test
-  public void if_profiler_cleaning_fails_it_should_not_interrupt_program_execution() {
-    doThrow(RuntimeException.class).when(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
+  public void if_purge_of_disabled_components_fails_it_should_not_interrupt_program_execution() {
+    doThrow(RuntimeException.class).when(dao).purgeDisabledComponents(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class));
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeDisabledComponents(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
 
-    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
+    verify(dao).purgeDisabledComponents(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class));
   }
 }
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.core.util.UuidFactoryImpl;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectPurgeSubmitterTest {
+
+  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private CeQueueImpl queue = new CeQueueImpl(db.getDbClient(), UuidFactoryImpl.INSTANCE, TestDefaultOrganizationProvider.from(db));
+  private ProjectPurgeSubmitter underTest = new ProjectPurgeSubmitter(db.getDbClient(), queue);
+
+  @Test
+  public void submit_purge_task_of_component() {
+    underTest.submit("PROJECT_1");
+
+    List<CeQueueDto> tasks = db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), "PROJECT_1");
+    assertThat(tasks).extracting(CeQueueDto::getTaskType).containsExactly(CeTaskTypes.PROJECT_PURGE);
+  }
+
+  @Test
+  public void do_not_submit_purge_task_if_one_is_already_pending() {
+    underTest.submit("PROJECT_1");
+    underTest.submit("PROJECT_1");
+    underTest.submit("PROJECT_2");
+
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), "PROJECT_1")).hasSize(1);
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), "PROJECT_2")).hasSize(1);
+  }
+
+  @Test
+  public void submit_purge_task_if_the_one_of_the_component_is_in_progress() {
+    underTest.submit("PROJECT_1");
+    db.getDbClient().ceQueueDao().peek(db.getSession());
+
+    underTest.submit("PROJECT_1");
+
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), "PROJECT_1"))
+      .extracting(CeQueueDto::getStatus)
+      .containsOnly(CeQueueDto.Status.IN_PROGRESS, CeQueueDto.Status.PENDING);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
+import org.sonar.db.purge.PurgeProfiler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ProjectPurgeTaskProcessorTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+  @Rule
+  public LogTester logTester = new LogTester();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private ProjectSettingsFactory projectSettingsFactory = mock(ProjectSettingsFactory.class);
+  private ProjectPurgeSubmitter submitter = mock(ProjectPurgeSubmitter.class);
+  private Settings settings = new MapSettings();
+  private ProjectPurgeTaskProcessor underTest = new ProjectPurgeTaskProcessor(db.getDbClient(), projectCleaner, projectSettingsFactory, submitter, settings, system2);
+
+  @Test
+  public void handle_project_purge_tasks() {
+    assertThat(underTest.getHandledCeTaskTypes()).containsOnly(CeTaskTypes.PROJECT_PURGE);
+  }
+
+  @Test
+  public void purge_history_of_project() {
+    ComponentDto project = db.components().insertProject();
+    Settings projectSettings = new MapSettings();
+    when(projectSettingsFactory.newProjectSettings(project.getKey())).thenReturn(projectSettings);
+    when(projectCleaner.purgeHistory(any(DbSession.class), any(IdUuidPair.class), eq(projectSettings), any(PurgeProfiler.class), any(PurgeBudget.class)))
+      .thenReturn(true);
+
+    assertThat(underTest.process(newTask(project))).isNull();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(new IdUuidPair(project.getId(), project.uuid())), eq(projectSettings), any(PurgeProfiler.class),
+      any(PurgeBudget.class));
+    verifyZeroInteractions(submitter);
+    assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.startsWith("Complete purge of " + project.getKey()));
+  }
+
+  @Test
+  public void resubmit_task_if_purge_is_not_complete() {
+    ComponentDto project = db.components().insertProject();
+    when(projectSettingsFactory.newProjectSettings(project.getKey())).thenReturn(new MapSettings());
+    when(projectCleaner.purgeHistory(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), any(PurgeProfiler.class), any(PurgeBudget.class)))
+      .thenReturn(false);
+
+    underTest.process(newTask(project));
+
+    verify(submitter).submit(project.uuid());
+    assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.startsWith("Partial purge of " + project.getKey()));
+  }
+
+  @Test
+  public void do_nothing_if_component_does_not_exist() {
+    underTest.process(new CeTask.Builder()
+      .setOrganizationUuid("org1")
+      .setUuid("TASK_1")
+      .setType(CeTaskTypes.PROJECT_PURGE)
+      .setComponentUuid("UNKNOWN")
+      .build());
+
+    verifyZeroInteractions(projectCleaner, submitter);
+  }
+
+  @Test
+  public void fail_if_chunk_size_is_not_positive() {
+    ComponentDto project = db.components().insertProject();
+    settings.setProperty(ProjectPurgeTaskProcessor.CHUNK_SIZE_PROPERTY, 0);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.purge.chunkSize must be strictly positive. Got 0.");
+
+    underTest.process(newTask(project));
+  }
+
+  private static CeTask newTask(ComponentDto project) {
+    return new CeTask.Builder()
+      .setOrganizationUuid(project.getOrganizationUuid())
+      .setUuid("TASK_1")
+      .setType(CeTaskTypes.PROJECT_PURGE)
+      .setComponentUuid(project.uuid())
+      .setComponentKey(project.getKey())
+      .build();
+  }
+}
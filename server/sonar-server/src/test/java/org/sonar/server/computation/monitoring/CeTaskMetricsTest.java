@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.List;
+import org.junit.Test;
+import org.sonar.server.es.ThreadEsStatistics;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class CeTaskMetricsTest {
+
+  private CeTaskMetrics underTest = new CeTaskMetrics();
+
+  @Test
+  public void stopTask_returns_steps_added_since_startTask_in_order() {
+    CeTaskStepMetrics step1 = new CeTaskStepMetrics("step1", 10, 5, 100, 1, 2, 0);
+    CeTaskStepMetrics step2 = new CeTaskStepMetrics("step2", 20, 15, 200, 3, 4, 1);
+    underTest.addStep(new CeTaskStepMetrics("before", 1, 1, 1, 1, 1, 1));
+
+    underTest.startTask();
+    underTest.addStep(step1);
+    underTest.addStep(step2);
+
+    assertThat(underTest.stopTask()).containsExactly(step1, step2);
+    assertThat(underTest.stopTask()).isEmpty();
+  }
+
+  @Test
+  public void steps_are_bound_to_current_thread() throws InterruptedException {
+    underTest.startTask();
+
+    Thread thread = new Thread(() -> underTest.addStep(new CeTaskStepMetrics("other thread", 1, 1, 1, 1, 1, 1)));
+    thread.start();
+    thread.join();
+
+    assertThat(underTest.stopTask()).isEmpty();
+    assertThat(underTest.getSqlStatementCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void cumulate_resources_of_all_steps() {
+    underTest.addStep(new CeTaskStepMetrics("step1", 10, 5, 100, 1, 2, 0));
+    underTest.startTask();
+    underTest.addStep(new CeTaskStepMetrics("step2", 20, 15, 200, 3, 4, 1));
+    underTest.stopTask();
+
+    assertThat(underTest.getCpuTime()).isEqualTo(20);
+    assertThat(underTest.getAllocatedBytes()).isEqualTo(300);
+    assertThat(underTest.getSqlStatementCount()).isEqualTo(4);
+    assertThat(underTest.getEsRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void step_metrics_are_serialized_to_json() {
+    List<CeTaskStepMetrics> steps = asList(
+      new CeTaskStepMetrics("step1", 10, 5, 100, 1, 2, 0),
+      new CeTaskStepMetrics("step2", 20, 15, 200, 3, 4, 1));
+
+    String json = CeTaskStepMetrics.toJson(steps);
+    List<CeTaskStepMetrics> read = CeTaskStepMetrics.fromJson(json);
+
+    assertThat(json).contains("\"step\":\"step1\"", "\"cpuTimeMs\":15");
+    assertThat(read).extracting(CeTaskStepMetrics::getStep, CeTaskStepMetrics::getWallTimeMs, CeTaskStepMetrics::getCpuTimeMs,
+      CeTaskStepMetrics::getAllocatedBytes, CeTaskStepMetrics::getSqlStatements, CeTaskStepMetrics::getSqlRows, CeTaskStepMetrics::getEsRequests)
+      .containsExactly(
+        tuple("step1", 10L, 5L, 100L, 1L, 2L, 0L),
+        tuple("step2", 20L, 15L, 200L, 3L, 4L, 1L));
+  }
+
+  @Test
+  public void snapshot_measures_resources_used_by_current_thread() {
+    ThreadResourceSnapshot snapshot = ThreadResourceSnapshot.ofCurrentThread();
+    ThreadEsStatistics.addRequest();
+
+    CeTaskStepMetrics metrics = snapshot.toStepMetrics("step");
+
+    assertThat(metrics.getStep()).isEqualTo("step");
+    assertThat(metrics.getEsRequests()).isEqualTo(1);
+    assertThat(metrics.getSqlStatements()).isEqualTo(0);
+    assertThat(metrics.getWallTimeMs()).isGreaterThanOrEqualTo(0);
+    assertThat(metrics.getCpuTimeMs()).isGreaterThanOrEqualTo(0);
+    assertThat(metrics.getAllocatedBytes()).isGreaterThanOrEqualTo(0);
+  }
+}
@@ -37,9 +37,11 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long WAITING_TIME = 654;
   private static final int WORKER_COUNT = 56;
 
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
+  private CeTaskMetrics taskMetrics = new CeTaskMetrics();
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), taskMetrics);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -59,6 +61,7 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getWaitingTime()).isEqualTo(WAITING_TIME);
   }
 
   @Test
@@ -66,11 +69,21 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
   }
 
+  @Test
+  public void resource_usage_methods_delegate_to_the_CeTaskMetrics_instance() {
+    taskMetrics.addStep(new CeTaskStepMetrics("step", 10, 3, 1_000, 12, 100, 7));
+
+    assertThat(underTest.getCpuTime()).isEqualTo(3);
+    assertThat(underTest.getAllocatedBytes()).isEqualTo(1_000);
+    assertThat(underTest.getSqlStatementCount()).isEqualTo(12);
+    assertThat(underTest.getEsRequestCount()).isEqualTo(7);
+  }
+
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(11);
   }
 
   /**
@@ -119,6 +132,16 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long addWaitingTime(long waitingTime) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getWaitingTime() {
+      return WAITING_TIME;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -27,7 +27,6 @@ import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeTask;
@@ -43,11 +42,14 @@ import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.mock;
@@ -57,7 +59,7 @@ public class InternalCeQueueImplTest {
 
   private static final String AN_ANALYSIS_UUID = "U1";
 
-  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+  private TestSystem2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
@@ -140,7 +142,7 @@ public class InternalCeQueueImplTest {
   public void test_remove() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, null);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, null, emptyList());
 
     // queue is empty
     assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), task.getUuid()).isPresent()).isFalse();
@@ -159,7 +161,7 @@ public class InternalCeQueueImplTest {
     expectedException.expect(IllegalArgumentException.class);
     expectedException.expectMessage("Error can be provided only when status is FAILED");
 
-    underTest.remove(mock(CeTask.class), CeActivityDto.Status.SUCCESS, null, new RuntimeException("Some error"));
+    underTest.remove(mock(CeTask.class), CeActivityDto.Status.SUCCESS, null, new RuntimeException("Some error"), emptyList());
   }
 
   @Test
@@ -167,14 +169,14 @@ public class InternalCeQueueImplTest {
     expectedException.expect(IllegalArgumentException.class);
     expectedException.expectMessage("Error can be provided only when status is FAILED");
 
-    underTest.remove(mock(CeTask.class), CeActivityDto.Status.CANCELED, null, new RuntimeException("Some error"));
+    underTest.remove(mock(CeTask.class), CeActivityDto.Status.CANCELED, null, new RuntimeException("Some error"), emptyList());
   }
 
   @Test
   public void remove_does_not_set_analysisUuid_in_CeActivity_when_CeTaskResult_has_no_analysis_uuid() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(null), null);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(null), null, emptyList());
 
     // available in history
     Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
@@ -187,7 +189,7 @@ public class InternalCeQueueImplTest {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
 
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(AN_ANALYSIS_UUID), null);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(AN_ANALYSIS_UUID), null, emptyList());
 
     // available in history
     Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
@@ -201,7 +203,7 @@ public class InternalCeQueueImplTest {
 
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
-    underTest.remove(peek.get(), CeActivityDto.Status.FAILED, null, error);
+    underTest.remove(peek.get(), CeActivityDto.Status.FAILED, null, error, emptyList());
 
     Optional<CeActivityDto> activityDto = dbTester.getDbClient().ceActivityDao().selectByUuid(session, task.getUuid());
     assertThat(activityDto).isPresent();
@@ -210,6 +212,30 @@ public class InternalCeQueueImplTest {
     assertThat(activityDto.get().getErrorStacktrace()).isEqualToIgnoringWhitespace(stacktraceToString(error));
   }
 
+  @Test
+  public void remove_saves_metrics_of_steps() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    Optional<CeTask> peek = underTest.peek();
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, null,
+      asList(new CeTaskStepMetrics("step1", 10, 5, 1_000, 3, 30, 1), new CeTaskStepMetrics("step2", 20, 15, 2_000, 4, 40, 2)));
+
+    Optional<CeActivityDto> activityDto = dbTester.getDbClient().ceActivityDao().selectByUuid(session, task.getUuid());
+    List<CeTaskStepMetrics> stepMetrics = CeTaskStepMetrics.fromJson(activityDto.get().getStepMetrics());
+    assertThat(stepMetrics).extracting(CeTaskStepMetrics::getStep).containsExactly("step1", "step2");
+    assertThat(stepMetrics.get(1).getCpuTimeMs()).isEqualTo(15);
+    assertThat(stepMetrics.get(1).getEsRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void remove_does_not_save_metrics_when_no_step_is_executed() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    Optional<CeTask> peek = underTest.peek();
+    underTest.remove(peek.get(), CeActivityDto.Status.FAILED, null, null, emptyList());
+
+    Optional<CeActivityDto> activityDto = dbTester.getDbClient().ceActivityDao().selectByUuid(session, task.getUuid());
+    assertThat(activityDto.get().getStepMetrics()).isNull();
+  }
+
   private static String stacktraceToString(Throwable error) {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     error.printStackTrace(new PrintStream(out));
@@ -219,11 +245,11 @@ public class InternalCeQueueImplTest {
   @Test
   public void fail_to_remove_if_not_in_queue() throws Exception {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
-    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null, emptyList());
 
     expectedException.expect(IllegalStateException.class);
 
-    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null, emptyList());
   }
 
   @Test
@@ -241,6 +267,90 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_does_not_return_two_tasks_of_the_same_component_concurrently() {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+
+    underTest.remove(task1, CeActivityDto.Status.SUCCESS, null, null, emptyList());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task2.getUuid());
+  }
+
+  @Test
+  public void peek_serves_components_in_turn() {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task3 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    CeTask task4 = submit("not cpt related", null);
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task3.getUuid());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task4.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+
+    underTest.remove(task1, CeActivityDto.Status.FAILED, null, null, emptyList());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task2.getUuid());
+  }
+
+  @Test
+  public void peek_releases_component_of_task_which_fails_to_be_loaded() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    DefaultOrganizationProvider failingOrganizationProvider = mock(DefaultOrganizationProvider.class);
+    when(failingOrganizationProvider.get())
+      .thenThrow(new IllegalStateException("Fail to load default organization"))
+      .thenReturn(defaultOrganizationProvider.get());
+    InternalCeQueue queue = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, failingOrganizationProvider);
+
+    try {
+      queue.peek();
+      fail("loading of task should have failed");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to load default organization");
+    }
+
+    assertThat(queue.peek().get().getUuid()).isEqualTo(task2.getUuid());
+  }
+
+  @Test
+  public void peek_returns_tasks_submitted_by_other_processes() {
+    CeQueueDto dto = new CeQueueDto()
+      .setUuid("TASK_1")
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid("PROJECT_1")
+      .setStatus(CeQueueDto.Status.PENDING);
+    dbTester.getDbClient().ceQueueDao().insert(session, dto);
+    session.commit();
+
+    Optional<CeTask> peek = underTest.peek();
+    assertThat(peek.isPresent()).isTrue();
+    assertThat(peek.get().getUuid()).isEqualTo("TASK_1");
+  }
+
+  @Test
+  public void peek_ignores_tasks_canceled_by_other_processes() {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    dbTester.getDbClient().ceQueueDao().deleteByUuid(session, task1.getUuid());
+    session.commit();
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task2.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+  }
+
+  @Test
+  public void peek_adds_waiting_time_to_queue_status() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    system2.setNow(1_450_000_000_000L + 5_000L);
+
+    underTest.peek();
+
+    assertThat(queueStatus.getWaitingTime()).isEqualTo(5_000L);
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -344,7 +454,7 @@ public class InternalCeQueueImplTest {
     return ComponentTesting.newProjectDto(dbTester.getDefaultOrganization(), uuid).setName("name_" + uuid).setKey("key_" + uuid);
   }
 
-  private CeTask submit(String reportType, String componentUuid) {
+  private CeTask submit(String reportType, @Nullable String componentUuid) {
     return underTest.submit(createTaskSubmit(reportType, componentUuid, null));
   }
 
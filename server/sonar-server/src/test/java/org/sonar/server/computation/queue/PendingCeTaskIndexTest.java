@@ -0,0 +1,133 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PendingCeTaskIndexTest {
+
+  private PendingCeTaskIndex underTest = new PendingCeTaskIndex();
+
+  @Test
+  public void next_returns_null_if_empty() {
+    assertThat(underTest.next()).isNull();
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void tasks_of_a_component_are_returned_in_order_of_submission() {
+    underTest.add("T1", "P1");
+    underTest.add("T2", "P1");
+
+    assertThat(underTest.next()).isEqualTo("T1");
+    underTest.release("T1");
+    assertThat(underTest.next()).isEqualTo("T2");
+    underTest.release("T2");
+    assertThat(underTest.next()).isNull();
+  }
+
+  @Test
+  public void components_are_served_in_turn() {
+    underTest.add("T1", "P1");
+    underTest.add("T2", "P1");
+    underTest.add("T3", "P1");
+    underTest.add("T4", "P2");
+    underTest.add("T5", "P3");
+
+    assertThat(underTest.next()).isEqualTo("T1");
+    underTest.release("T1");
+    assertThat(underTest.next()).isEqualTo("T4");
+    assertThat(underTest.next()).isEqualTo("T5");
+    assertThat(underTest.next()).isEqualTo("T2");
+    underTest.release("T2");
+    assertThat(underTest.next()).isEqualTo("T3");
+  }
+
+  @Test
+  public void component_with_a_task_in_progress_is_skipped_until_task_is_released() {
+    underTest.add("T1", "P1");
+    underTest.add("T2", "P1");
+    underTest.add("T3", "P2");
+
+    assertThat(underTest.next()).isEqualTo("T1");
+    assertThat(underTest.next()).isEqualTo("T3");
+    assertThat(underTest.next()).isNull();
+
+    underTest.release("T1");
+    assertThat(underTest.next()).isEqualTo("T2");
+  }
+
+  @Test
+  public void tasks_without_component_are_not_exclusive() {
+    underTest.add("T1", null);
+    underTest.add("T2", null);
+
+    assertThat(underTest.next()).isEqualTo("T1");
+    assertThat(underTest.next()).isEqualTo("T2");
+  }
+
+  @Test
+  public void add_ignores_tasks_already_indexed_or_in_progress() {
+    assertThat(underTest.add("T1", "P1")).isTrue();
+    assertThat(underTest.add("T1", "P1")).isFalse();
+    assertThat(underTest.size()).isEqualTo(1);
+
+    underTest.next();
+    assertThat(underTest.add("T1", "P1")).isFalse();
+    assertThat(underTest.contains("T1")).isFalse();
+
+    underTest.release("T1");
+    assertThat(underTest.add("T1", "P1")).isTrue();
+  }
+
+  @Test
+  public void remove_pending_task() {
+    underTest.add("T1", "P1");
+    underTest.add("T2", "P1");
+    underTest.add("T3", "P2");
+
+    underTest.remove("T1");
+    underTest.remove("T3");
+    underTest.remove("UNKNOWN");
+
+    assertThat(underTest.contains("T1")).isFalse();
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.next()).isEqualTo("T2");
+    assertThat(underTest.next()).isNull();
+  }
+
+  @Test
+  public void clear_keeps_tasks_in_progress() {
+    underTest.add("T1", "P1");
+    underTest.add("T2", "P1");
+    underTest.next();
+
+    underTest.clear();
+
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.add("T1", "P1")).isFalse();
+    underTest.add("T2", "P1");
+    assertThat(underTest.next()).isNull();
+    underTest.release("T1");
+    assertThat(underTest.next()).isEqualTo("T2");
+  }
+}
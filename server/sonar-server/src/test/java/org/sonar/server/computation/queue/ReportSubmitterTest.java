@@ -262,6 +262,44 @@ public class ReportSubmitterTest {
     underTest.submit(defaultOrganizationKey, mainProject.key(), branchName, PROJECT_NAME, IOUtils.toInputStream("{binary}"));
   }
 
+  @Test
+  public void checkSubmitPermission_accepts_user_with_scan_permission_on_existing_project() {
+    ComponentDto project = db.components().insertProject(db.getDefaultOrganization());
+    userSession.addProjectUuidPermissions(SCAN_EXECUTION, project.uuid());
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, project.getKey(), null);
+
+    verifyZeroInteractions(queue, componentUpdater);
+  }
+
+  @Test
+  public void checkSubmitPermission_fails_with_forbidden_exception_when_no_scan_permission_on_existing_project() {
+    ComponentDto project = db.components().insertProject(db.getDefaultOrganization());
+
+    thrown.expect(ForbiddenException.class);
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, project.getKey(), null);
+  }
+
+  @Test
+  public void checkSubmitPermission_accepts_user_allowed_to_provision_new_project_without_creating_it() {
+    userSession.addOrganizationPermission(db.getDefaultOrganization(), PROVISIONING);
+    when(permissionTemplateService.wouldUserHavePermissionWithDefaultTemplate(any(DbSession.class), eq(defaultOrganizationUuid), anyLong(), eq(SCAN_EXECUTION), anyString(),
+      eq(PROJECT_KEY), eq(Qualifiers.PROJECT)))
+        .thenReturn(true);
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, PROJECT_KEY, null);
+
+    verifyZeroInteractions(queue, componentUpdater);
+  }
+
+  @Test
+  public void checkSubmitPermission_fails_with_forbidden_exception_on_new_project_without_provisioning_permission() {
+    thrown.expect(ForbiddenException.class);
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, PROJECT_KEY, null);
+  }
+
   private void verifyReportIsPersisted(String taskUuid) {
     assertThat(db.selectFirst("select task_uuid from ce_task_input where task_uuid='" + taskUuid + "'")).isNotNull();
   }
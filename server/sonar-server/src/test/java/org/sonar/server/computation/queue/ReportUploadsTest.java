@@ -0,0 +1,283 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.exceptions.ServerException;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportUploadsTest {
+
+  private static final String ORGANIZATION_KEY = "my-org";
+  private static final String PROJECT_KEY = "my_project";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public Timeout timeout = Timeout.seconds(60);
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private ServerFileSystem fileSystem = mock(ServerFileSystem.class);
+  private MapSettings settings = new MapSettings();
+  private ExecutorService executor = Executors.newFixedThreadPool(2);
+  private ReportUploads underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(fileSystem.getTempDir()).thenReturn(temp.newFolder());
+    underTest = newReportUploads();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void append_chunks_to_upload() throws Exception {
+    ReportUploads.Upload upload = init(null);
+    assertThat(upload.getSize()).isEqualTo(0L);
+    assertThat(upload.getOrganizationKey()).isEqualTo(ORGANIZATION_KEY);
+    assertThat(upload.getProjectKey()).isEqualTo(PROJECT_KEY);
+    assertThat(upload.getProjectBranch()).isNull();
+
+    assertThat(underTest.append(upload.getId(), 0L, stream("foo"))).isEqualTo(3L);
+    assertThat(underTest.append(upload.getId(), 3L, stream("bar"))).isEqualTo(6L);
+
+    assertThat(underTest.submit(upload.getId(), ReportUploadsTest::read)).isEqualTo("foobar");
+    assertThat(upload.getFile()).doesNotExist();
+  }
+
+  @Test
+  public void start_uploads_with_random_ids() {
+    ReportUploads.Upload upload = init(null);
+    ReportUploads.Upload other = init(null);
+
+    assertThat(upload.getId()).hasSize(40).isNotEqualTo(other.getId());
+  }
+
+  @Test
+  public void resume_existing_upload() {
+    ReportUploads.Upload upload = init(null);
+    underTest.append(upload.getId(), 0L, stream("foo"));
+
+    ReportUploads.Upload resumed = init(upload.getId());
+
+    assertThat(resumed.getId()).isEqualTo(upload.getId());
+    assertThat(resumed.getSize()).isEqualTo(3L);
+  }
+
+  @Test
+  public void start_new_upload_when_resuming_unknown_upload() {
+    ReportUploads.Upload upload = init("unknown");
+
+    assertThat(upload.getId()).isNotEqualTo("unknown");
+    assertThat(upload.getSize()).isEqualTo(0L);
+  }
+
+  @Test
+  public void start_new_upload_when_resuming_upload_of_another_project() {
+    ReportUploads.Upload upload = init(null);
+
+    ReportUploads.Upload other = underTest.init(ORGANIZATION_KEY, PROJECT_KEY, "branch", upload.getId());
+
+    assertThat(other.getId()).isNotEqualTo(upload.getId());
+  }
+
+  @Test
+  public void fail_to_start_more_uploads_than_maximum() {
+    settings.setProperty(ReportUploads.MAX_UPLOADS_PROPERTY, 2);
+    underTest = newReportUploads();
+    init(null);
+    init(null);
+
+    expectedException.expect(ServerException.class);
+    expectedException.expectMessage("Too many report uploads are in progress for project my_project (2). Please try again later.");
+
+    underTest.init(ORGANIZATION_KEY, PROJECT_KEY, "branch", null);
+  }
+
+  @Test
+  public void maximum_number_of_uploads_is_per_project() {
+    settings.setProperty(ReportUploads.MAX_UPLOADS_PROPERTY, 1);
+    underTest = newReportUploads();
+    init(null);
+
+    ReportUploads.Upload other = underTest.init(ORGANIZATION_KEY, "other_project", null, null);
+
+    assertThat(other.getProjectKey()).isEqualTo("other_project");
+  }
+
+  @Test
+  public void start_upload_once_another_one_is_submitted() {
+    settings.setProperty(ReportUploads.MAX_UPLOADS_PROPERTY, 1);
+    underTest = newReportUploads();
+    underTest.submit(init(null).getId(), ReportUploadsTest::read);
+
+    assertThat(init(null).getSize()).isEqualTo(0L);
+  }
+
+  @Test
+  public void keep_upload_when_submission_fails() {
+    ReportUploads.Upload upload = init(null);
+    underTest.append(upload.getId(), 0L, stream("foo"));
+
+    try {
+      underTest.submit(upload.getId(), report -> {
+        throw new IllegalStateException("Fail to submit");
+      });
+      throw new AssertionError("submission should fail");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to submit");
+    }
+
+    assertThat(underTest.get(upload.getId()).getSize()).isEqualTo(3L);
+    assertThat(underTest.submit(upload.getId(), ReportUploadsTest::read)).isEqualTo("foo");
+  }
+
+  @Test
+  public void fail_to_append_chunk_at_wrong_offset() {
+    ReportUploads.Upload upload = init(null);
+    underTest.append(upload.getId(), 0L, stream("foo"));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Offset 0 does not match the size of upload '" + upload.getId() + "': 3");
+
+    underTest.append(upload.getId(), 0L, stream("foo"));
+  }
+
+  @Test
+  public void fail_to_append_chunk_to_unknown_upload() {
+    expectedException.expect(NotFoundException.class);
+
+    underTest.append("unknown", 0L, stream("foo"));
+  }
+
+  @Test
+  public void drop_upload_exceeding_maximum_size() {
+    settings.setProperty(ReportUploads.MAX_SIZE_PROPERTY, 1);
+    underTest = newReportUploads();
+    ReportUploads.Upload upload = init(null);
+    underTest.append(upload.getId(), 0L, new ByteArrayInputStream(new byte[1024 * 1024 - 1]));
+
+    try {
+      underTest.append(upload.getId(), 1024 * 1024 - 1, stream("ab"));
+      throw new AssertionError("upload should exceed maximum size");
+    } catch (BadRequestException e) {
+      assertThat(e).hasMessage("Report exceeds the maximum size of 1 MB");
+    }
+
+    assertThat(upload.getFile()).doesNotExist();
+    expectedException.expect(NotFoundException.class);
+    underTest.get(upload.getId());
+  }
+
+  @Test
+  public void submit_waits_for_chunk_being_appended() throws Exception {
+    ReportUploads.Upload upload = init(null);
+    CountDownLatch appending = new CountDownLatch(1);
+    CountDownLatch chunkReceived = new CountDownLatch(1);
+    InputStream slowChunk = new FilterInputStream(stream("foo")) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        appending.countDown();
+        try {
+          chunkReceived.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        return super.read(b, off, len);
+      }
+    };
+
+    Future<Long> append = executor.submit(() -> underTest.append(upload.getId(), 0L, slowChunk));
+    appending.await();
+    Future<String> submit = executor.submit(() -> underTest.submit(upload.getId(), ReportUploadsTest::read));
+    Thread.sleep(100L);
+    assertThat(submit.isDone()).isFalse();
+    chunkReceived.countDown();
+
+    assertThat(append.get()).isEqualTo(3L);
+    assertThat(submit.get(10, TimeUnit.SECONDS)).isEqualTo("foo");
+  }
+
+  @Test
+  public void drop_expired_uploads() {
+    ReportUploads.Upload upload = init(null);
+    system2.setNow(1_000L + ReportUploads.EXPIRATION_DELAY_MS);
+    underTest.dropExpiredUploads();
+    assertThat(underTest.get(upload.getId())).isSameAs(upload);
+
+    system2.setNow(1_000L + ReportUploads.EXPIRATION_DELAY_MS + 1);
+    underTest.dropExpiredUploads();
+
+    assertThat(upload.getFile()).doesNotExist();
+    expectedException.expect(NotFoundException.class);
+    underTest.get(upload.getId());
+  }
+
+  private ReportUploads newReportUploads() {
+    return new ReportUploads(fileSystem, system2, settings);
+  }
+
+  private ReportUploads.Upload init(@Nullable String uploadId) {
+    return underTest.init(ORGANIZATION_KEY, PROJECT_KEY, null, uploadId);
+  }
+
+  private static String read(InputStream report) {
+    try {
+      return IOUtils.toString(report, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static ByteArrayInputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -27,10 +27,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.db.DbTester;
@@ -44,6 +47,7 @@ import org.sonar.scanner.protocol.Constants;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.SettingsRepository;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
@@ -58,6 +62,7 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -85,6 +90,8 @@ public class IntegrateIssuesVisitorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
   @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
@@ -102,10 +109,13 @@ public class IntegrateIssuesVisitorTest {
   ArgumentCaptor<DefaultIssue> defaultIssueCaptor = ArgumentCaptor.forClass(DefaultIssue.class);
 
   IssueFilter issueFilter = mock(IssueFilter.class);
+  MapSettings settings = new MapSettings();
+  SettingsRepository settingsRepository = mock(SettingsRepository.class);
 
   BaseIssuesLoader baseIssuesLoader = new BaseIssuesLoader(treeRootHolder, dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule);
+  TrackerBaseInputStore baseInputStore = new TrackerBaseInputStore(dbTester.getDbClient(), baseIssuesLoader, tempFolder);
   MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
-  TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseIssuesLoader, dbTester.getDbClient(), movedFilesRepository),
+  TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseInputStore, dbTester.getDbClient(), movedFilesRepository),
     new TrackerRawInputFactory(treeRootHolder, reportReader,
       fileSourceRepository, new CommonRuleEngineImpl(), issueFilter),
     new Tracker<>());
@@ -124,7 +134,9 @@ public class IntegrateIssuesVisitorTest {
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
     when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
     when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.<MovedFilesRepository.OriginalFile>absent());
-    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository, movedFilesRepository);
+    when(settingsRepository.getSettings(any(Component.class))).thenReturn(settings);
+    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository, movedFilesRepository,
+      treeRootHolder, settingsRepository);
   }
 
   @Test
@@ -152,6 +164,33 @@ public class IntegrateIssuesVisitorTest {
     assertThat(componentsWithUnprocessedIssues.getUuids()).isEmpty();
   }
 
+  @Test
+  public void process_issues_of_components_in_order_when_tracking_is_parallel() throws Exception {
+    settings.setProperty(IntegrateIssuesVisitor.THREADS_PROPERTY, 2);
+    componentsWithUnprocessedIssues.setUuids(Collections.<String>emptySet());
+
+    ScannerReport.Issue reportIssue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository("xoo")
+      .setRuleKey("S001")
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+    reportReader.putIssues(FILE_REF, asList(reportIssue));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+
+    underTest.visitAny(FILE);
+    underTest.visitAny(PROJECT);
+
+    InOrder inOrder = inOrder(issueVisitor);
+    inOrder.verify(issueVisitor).beforeComponent(FILE);
+    inOrder.verify(issueVisitor).onIssue(eq(FILE), defaultIssueCaptor.capture());
+    inOrder.verify(issueVisitor).afterComponent(FILE);
+    inOrder.verify(issueVisitor).beforeComponent(PROJECT);
+    inOrder.verify(issueVisitor).afterComponent(PROJECT);
+    assertThat(defaultIssueCaptor.getValue().ruleKey().rule()).isEqualTo("S001");
+    assertThat(newArrayList(issueCache.traverse())).hasSize(1);
+  }
+
   @Test
   public void process_existing_issue() throws Exception {
     componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
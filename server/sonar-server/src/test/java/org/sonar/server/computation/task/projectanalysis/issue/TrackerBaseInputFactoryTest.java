@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 import com.google.common.base.Optional;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.core.issue.tracking.LineHashSequence;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
@@ -29,8 +30,11 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,14 +43,14 @@ public class TrackerBaseInputFactoryTest {
   private static final String FILE_UUID = "uuid";
   private static final ReportComponent FILE = ReportComponent.builder(Component.Type.FILE, 1).setUuid(FILE_UUID).build();
 
-  private BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
+  private TrackerBaseInputStore baseInputStore = mock(TrackerBaseInputStore.class);
   private DbClient dbClient = mock(DbClient.class);
   private DbSession dbSession = mock(DbSession.class);
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
-  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(baseIssuesLoader, dbClient, movedFilesRepository);
+  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(baseInputStore, dbClient, movedFilesRepository);
 
   @Before
   public void setUp() throws Exception {
@@ -60,9 +64,20 @@ public class TrackerBaseInputFactoryTest {
   public void create_returns_Input_which_retrieves_lines_hashes_of_specified_file_component_when_it_has_no_original_file() {
     underTest.create(FILE).getLineHashSequence();
 
+    verify(baseInputStore).getLineHashes(FILE_UUID);
     verify(fileSourceDao).selectLineHashes(dbSession, FILE_UUID);
   }
 
+  @Test
+  public void create_returns_Input_which_does_not_query_lines_hashes_when_they_are_prefetched() {
+    when(baseInputStore.getLineHashes(FILE_UUID)).thenReturn(asList("h1", "h2"));
+
+    LineHashSequence lineHashSequence = underTest.create(FILE).getLineHashSequence();
+
+    assertThat(lineHashSequence.length()).isEqualTo(2);
+    verify(fileSourceDao, never()).selectLineHashes(dbSession, FILE_UUID);
+  }
+
   @Test
   public void create_returns_Input_which_retrieves_lines_hashes_of_original_file_of_component_when_it_has_one() {
     String originalUuid = "original uuid";
@@ -81,7 +96,7 @@ public class TrackerBaseInputFactoryTest {
   public void create_returns_Input_which_retrieves_issues_of_specified_file_component_when_it_has_no_original_file() {
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(FILE_UUID);
+    verify(baseInputStore).getIssues(FILE_UUID);
   }
 
   @Test
@@ -94,7 +109,7 @@ public class TrackerBaseInputFactoryTest {
 
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(originalUuid);
-    verify(baseIssuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
+    verify(baseInputStore).getIssues(originalUuid);
+    verify(baseInputStore, times(0)).getIssues(FILE_UUID);
   }
 }
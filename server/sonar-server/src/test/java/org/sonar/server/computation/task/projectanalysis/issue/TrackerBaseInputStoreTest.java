@@ -0,0 +1,149 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.issue.IssueTesting;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleTesting;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRulesHolderRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+
+public class TrackerBaseInputStoreTest {
+
+  private static final String PROJECT_UUID = "PROJECT_UUID";
+  private static final RuleKey RULE_KEY = RuleKey.of("xoo", "S001");
+
+  @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+  @Rule
+  public ActiveRulesHolderRule activeRulesHolderRule = new ActiveRulesHolderRule();
+  @Rule
+  public RuleRepositoryRule ruleRepositoryRule = new RuleRepositoryRule();
+
+  private ComponentDto project;
+  private RuleDto rule;
+
+  private TrackerBaseInputStore underTest = new TrackerBaseInputStore(dbTester.getDbClient(),
+    new BaseIssuesLoader(treeRootHolder, dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule), tempFolder);
+
+  @Before
+  public void setUp() {
+    treeRootHolder.setRoot(builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).build());
+    project = ComponentTesting.newProjectDto(dbTester.organizations().insert(), PROJECT_UUID);
+    dbTester.getDbClient().componentDao().insert(dbTester.getSession(), project);
+    rule = RuleTesting.newDto(RULE_KEY);
+    dbTester.getDbClient().ruleDao().insert(dbTester.getSession(), rule);
+    ruleRepositoryRule.add(RULE_KEY);
+    dbTester.getSession().commit();
+  }
+
+  @Test
+  public void prefetch_open_issues_and_line_hashes_of_all_files() {
+    ComponentDto file1 = insertFile("FILE1", "h1\nh2");
+    ComponentDto file2 = insertFile("FILE2", "h3");
+    ComponentDto file3 = insertFile("FILE3", "h4");
+    insertIssue(file1, "ISSUE1", Issue.STATUS_OPEN);
+    insertIssue(file1, "ISSUE2", Issue.STATUS_CONFIRMED);
+    insertIssue(file2, "ISSUE3", Issue.STATUS_OPEN);
+    insertIssue(file2, "ISSUE4", Issue.STATUS_CLOSED);
+    insertIssue(project, "ISSUE5", Issue.STATUS_OPEN);
+
+    assertThat(underTest.getIssues(file1.uuid())).extracting("key").containsOnly("ISSUE1", "ISSUE2");
+    assertThat(underTest.getIssues(file2.uuid())).extracting("key").containsOnly("ISSUE3");
+    assertThat(underTest.getIssues(project.uuid())).extracting("key").containsOnly("ISSUE5");
+    assertThat(underTest.getIssues(file3.uuid())).isEmpty();
+
+    assertThat(underTest.getLineHashes(file1.uuid())).containsExactly("h1", "h2");
+    assertThat(underTest.getLineHashes(file2.uuid())).containsExactly("h3");
+    // no issues, so line hashes are not prefetched
+    assertThat(underTest.getLineHashes(file3.uuid())).isNull();
+
+    assertThat(underTest.getIssueRows()).isEqualTo(4);
+    assertThat(underTest.getLineHashesRows()).isEqualTo(2);
+    assertThat(underTest.getQueries()).isEqualTo(2);
+    assertThat(underTest.getBytes()).isGreaterThan(0);
+  }
+
+  @Test
+  public void issues_are_read_as_new_instances() {
+    ComponentDto file = insertFile("FILE1", "h1");
+    insertIssue(file, "ISSUE1", Issue.STATUS_OPEN);
+
+    underTest.getIssues(file.uuid()).get(0).setStatus(Issue.STATUS_RESOLVED);
+
+    assertThat(underTest.getIssues(file.uuid()).get(0).status()).isEqualTo(Issue.STATUS_OPEN);
+  }
+
+  @Test
+  public void issues_on_inactive_rule_are_being_closed() {
+    ComponentDto file = insertFile("FILE1", "h1");
+    insertIssue(file, "ISSUE1", Issue.STATUS_OPEN);
+
+    assertThat(underTest.getIssues(file.uuid()).get(0).isBeingClosed()).isTrue();
+    assertThat(underTest.getIssues(file.uuid()).get(0).isOnDisabledRule()).isTrue();
+  }
+
+  @Test
+  public void no_base_data() {
+    assertThat(underTest.getIssues("unknown")).isEmpty();
+    assertThat(underTest.getLineHashes("unknown")).isNull();
+    assertThat(underTest.getQueries()).isEqualTo(1);
+  }
+
+  private ComponentDto insertFile(String uuid, String lineHashes) {
+    ComponentDto file = ComponentTesting.newFileDto(project, null, uuid);
+    dbTester.getDbClient().componentDao().insert(dbTester.getSession(), file);
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(uuid)
+      .setLineHashes(lineHashes)
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+    dbTester.getSession().commit();
+    return file;
+  }
+
+  private void insertIssue(ComponentDto component, String key, String status) {
+    dbTester.getDbClient().issueDao().insert(dbTester.getSession(), IssueTesting.newDto(rule, component, project)
+      .setKee(key)
+      .setStatus(status));
+    dbTester.getSession().commit();
+  }
+}
@@ -46,6 +46,8 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
@@ -62,7 +64,10 @@ import static org.sonar.server.computation.task.projectanalysis.component.Report
 public class ScmInfoRepositoryImplTest {
 
   static final int FILE_REF = 1;
+  static final int FILE_2_REF = 2;
   static final Component FILE = builder(Component.Type.FILE, FILE_REF).setKey("FILE_KEY").setUuid("FILE_UUID").build();
+  static final Component FILE_2 = builder(Component.Type.FILE, FILE_2_REF).setKey("FILE_2_KEY").setUuid("FILE_2_UUID").build();
+  static final Component PROJECT = builder(Component.Type.PROJECT, 10).setKey("PROJECT_KEY").setUuid("PROJECT_UUID").addChildren(FILE, FILE_2).build();
   static final long DATE_1 = 123456789L;
   static final long DATE_2 = 1234567810L;
 
@@ -82,11 +87,13 @@ public class ScmInfoRepositoryImplTest {
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
 
   DbClient dbClient = dbTester.getDbClient();
 
   ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, analysisMetadataHolder, dbClient,
-    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)));
+    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)), treeRootHolder);
 
   @Test
   public void read_from_report() throws Exception {
@@ -163,6 +170,36 @@ public class ScmInfoRepositoryImplTest {
     assertThat(changeset.getRevision()).isEqualTo("rev-1");
   }
 
+  @Test
+  public void read_from_db_all_files_of_project_with_CopyFromPrevious_at_once() throws Exception {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInDb(FILE_2, "paul", DATE_2, "rev-2", computeSourceHash(1));
+    addFileSourceInReport(FILE_REF, 1);
+    addFileSourceInReport(FILE_2_REF, 1);
+    addCopyFromPreviousChangesetInReport(FILE_REF);
+    addCopyFromPreviousChangesetInReport(FILE_2_REF);
+
+    assertThat(underTest.getScmInfo(FILE).get().getChangesetForLine(1).getAuthor()).isEqualTo("henry");
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'", "Reading SCM info from db for file 'FILE_2_KEY'");
+    logTester.clear();
+
+    assertThat(underTest.getScmInfo(FILE_2).get().getChangesetForLine(1).getAuthor()).isEqualTo("paul");
+    assertThat(logTester.logs(TRACE)).isEmpty();
+  }
+
+  @Test
+  public void read_from_db_file_which_is_not_in_component_tree() throws Exception {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    treeRootHolder.setRoot(builder(Component.Type.PROJECT, 10).build());
+    addFileSourceInDb("henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInReport(1);
+    addCopyFromPreviousChangesetInReport();
+
+    assertThat(underTest.getScmInfo(FILE).get().getChangesetForLine(1).getAuthor()).isEqualTo("henry");
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'");
+  }
+
   @Test
   public void return_nothing_when_no_data_in_report_nor_db() throws Exception {
     analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
@@ -210,11 +247,12 @@ public class ScmInfoRepositoryImplTest {
     AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
     DbClient dbClient = mock(DbClient.class);
     SourceHashRepository sourceHashRepository = mock(SourceHashRepository.class);
-    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    TreeRootHolder treeRootHolder = mock(TreeRootHolder.class);
+    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository, treeRootHolder);
 
     assertThat(underTest.getScmInfo(component)).isAbsent();
 
-    verifyNoMoreInteractions(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    verifyNoMoreInteractions(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository, treeRootHolder);
   }
 
   @Test
@@ -243,6 +281,10 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addFileSourceInDb(@Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
+    addFileSourceInDb(FILE, author, date, revision, srcHash);
+  }
+
+  private void addFileSourceInDb(Component file, @Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
     DbFileSources.Data.Builder fileDataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder builder = fileDataBuilder.addLinesBuilder()
       .setLine(1);
@@ -256,15 +298,19 @@ public class ScmInfoRepositoryImplTest {
       builder.setScmRevision(revision);
     }
     dbTester.getDbClient().fileSourceDao().insert(new FileSourceDto()
-      .setFileUuid(FILE.getUuid())
+      .setFileUuid(file.getUuid())
       .setProjectUuid("PROJECT_UUID")
       .setSourceData(fileDataBuilder.build())
       .setSrcHash(srcHash));
   }
 
   private void addCopyFromPreviousChangesetInReport() {
+    addCopyFromPreviousChangesetInReport(FILE_REF);
+  }
+
+  private void addCopyFromPreviousChangesetInReport(int ref) {
     reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
-      .setComponentRef(FILE_REF)
+      .setComponentRef(ref)
       .setCopyFromPrevious(true)
       .build());
   }
@@ -287,9 +333,13 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addFileSourceInReport(int lineCount) {
-    reportReader.putFileSourceLines(FILE_REF, generateLines(lineCount));
+    addFileSourceInReport(FILE_REF, lineCount);
+  }
+
+  private void addFileSourceInReport(int ref, int lineCount) {
+    reportReader.putFileSourceLines(ref, generateLines(lineCount));
     reportReader.putComponent(ScannerReport.Component.newBuilder()
-      .setRef(FILE_REF)
+      .setRef(ref)
       .setLines(lineCount)
       .build());
   }
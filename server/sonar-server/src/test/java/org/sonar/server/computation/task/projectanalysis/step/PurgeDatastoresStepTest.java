@@ -35,6 +35,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeSubmitter;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
@@ -53,6 +54,7 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(DataProviderRunner.class)
@@ -70,8 +72,10 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
   private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
   private SettingsRepository settingsRepository = mock(SettingsRepository.class);
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
+  private ProjectPurgeSubmitter projectPurgeSubmitter = mock(ProjectPurgeSubmitter.class);
 
-  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository, disabledComponentsHolder);
+  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder,
+    settingsRepository, disabledComponentsHolder, projectPurgeSubmitter);
 
   @Test
   public void call_purge_method_of_the_purge_task_for_project() {
@@ -87,6 +91,20 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     verify_call_purge_method_of_the_purge_task(project);
   }
 
+  @Test
+  public void do_not_submit_purge_of_history_if_nothing_to_purge() {
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    when(settingsRepository.getSettings(project)).thenReturn(new MapSettings());
+    dbIdsRepository.setComponentId(project, PROJECT_ID);
+
+    underTest.execute();
+
+    verify(projectCleaner).purgeDisabledComponents(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), anyList());
+    verify(projectCleaner).purgeSupersededAnalysis(any(DbSession.class), any(IdUuidPair.class), any(Settings.class));
+    verifyZeroInteractions(projectPurgeSubmitter);
+  }
+
   @DataProvider
   public static Object[][] nonRootProjectComponentTypes() {
     return dataproviderFromComponentTypeValues(new Predicate<Component.Type>() {
@@ -128,20 +146,23 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
 
     underTest.execute();
 
-    verifyNoMoreInteractions(projectCleaner);
+    verifyNoMoreInteractions(projectCleaner, projectPurgeSubmitter);
   }
 
   private void verify_call_purge_method_of_the_purge_task(Component project) {
     treeRootHolder.setRoot(project);
     when(settingsRepository.getSettings(project)).thenReturn(new MapSettings());
     dbIdsRepository.setComponentId(project, PROJECT_ID);
+    when(projectCleaner.hasHistoryToPurge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class))).thenReturn(true);
 
     underTest.execute();
 
     ArgumentCaptor<IdUuidPair> argumentCaptor = ArgumentCaptor.forClass(IdUuidPair.class);
-    verify(projectCleaner).purge(any(DbSession.class), argumentCaptor.capture(), any(Settings.class), anyList());
+    verify(projectCleaner).purgeDisabledComponents(any(DbSession.class), argumentCaptor.capture(), any(Settings.class), anyList());
     assertThat(argumentCaptor.getValue().getId()).isEqualTo(PROJECT_ID);
     assertThat(argumentCaptor.getValue().getUuid()).isEqualTo(PROJECT_UUID);
+    verify(projectCleaner).purgeSupersededAnalysis(any(DbSession.class), any(IdUuidPair.class), any(Settings.class));
+    verify(projectPurgeSubmitter).submit(PROJECT_UUID);
   }
 
   private static Object[][] dataproviderFromComponentTypeValues(Predicate<Component.Type> predicate) {
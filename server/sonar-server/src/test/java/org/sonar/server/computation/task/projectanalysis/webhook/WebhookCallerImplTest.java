@@ -19,15 +19,18 @@
  */
 package org.sonar.server.computation.task.projectanalysis.webhook;
 
+import java.net.SocketTimeoutException;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.Version;
@@ -35,6 +38,7 @@ import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.server.util.OkHttpClientProvider;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.core.config.WebhookProperties.READ_TIMEOUT_KEY;
 
 
 public class WebhookCallerImplTest {
@@ -107,8 +111,24 @@ public class WebhookCallerImplTest {
     assertThat(delivery.getPayload()).isSameAs(payload);
   }
 
+  @Test
+  public void silently_catch_error_when_external_server_does_not_answer_within_read_timeout() throws Exception {
+    Webhook webhook = new Webhook(PROJECT_UUID, CE_TASK_UUID, "my-webhook", server.url("/ping").toString());
+    WebhookPayload payload = new WebhookPayload("P1", "{the payload}");
+
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    WebhookDelivery delivery = newSender(new MapSettings().setProperty(READ_TIMEOUT_KEY, 100)).call(webhook, payload);
+
+    assertThat(delivery.getHttpStatus()).isEmpty();
+    assertThat(delivery.getError().get()).isInstanceOf(SocketTimeoutException.class);
+  }
+
   private WebhookCaller newSender() {
+    return newSender(new MapSettings());
+  }
+
+  private WebhookCaller newSender(Settings settings) {
     SonarRuntime runtime = SonarRuntimeImpl.forSonarQube(Version.parse("6.2"), SonarQubeSide.SERVER);
-    return new WebhookCallerImpl(system, new OkHttpClientProvider().provide(new MapSettings(), runtime));
+    return new WebhookCallerImpl(system, new OkHttpClientProvider().provide(new MapSettings(), runtime), settings);
   }
 }
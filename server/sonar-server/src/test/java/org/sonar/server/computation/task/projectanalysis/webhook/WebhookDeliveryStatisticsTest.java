@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import org.junit.Test;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebhookDeliveryStatisticsTest {
+
+  private WebhookDeliveryStatistics underTest = new WebhookDeliveryStatistics();
+
+  @Test
+  public void count_deliveries_by_outcome() {
+    underTest.add(newDelivery(200, 10));
+    underTest.add(newDelivery(201, 20));
+    underTest.add(newDelivery(500, 30));
+    underTest.add(newFailedDelivery());
+    underTest.addRetry();
+
+    assertThat(underTest.getSuccessCount()).isEqualTo(2);
+    assertThat(underTest.getFailureCount()).isEqualTo(2);
+    assertThat(underTest.getRetryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void compute_latency_histogram_of_deliveries_with_response() {
+    underTest.add(newDelivery(200, 100));
+    underTest.add(newDelivery(200, 101));
+    underTest.add(newDelivery(200, 700));
+    underTest.add(newDelivery(500, 60_000));
+    underTest.add(newFailedDelivery());
+
+    assertThat(underTest.getLatencyHistogram()).containsExactly(1, 1, 0, 1, 0, 0, 0, 1);
+    assertThat(underTest.getAverageLatencyMs()).isEqualTo((100 + 101 + 700 + 60_000) / 4);
+  }
+
+  @Test
+  public void average_latency_is_zero_when_no_deliveries() {
+    assertThat(underTest.getAverageLatencyMs()).isEqualTo(0);
+  }
+
+  @Test
+  public void export_system_info() {
+    underTest.add(newDelivery(200, 10));
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Compute Engine Webhooks");
+    assertThat(section.getAttributesCount()).isEqualTo(4 + WebhookDeliveryStatistics.LATENCY_BUCKETS_MS.length + 1);
+  }
+
+  private static WebhookDelivery newDelivery(int httpStatus, int durationMs) {
+    return newDeliveryBuilder()
+      .setHttpStatus(httpStatus)
+      .setDurationInMs(durationMs)
+      .build();
+  }
+
+  private static WebhookDelivery newFailedDelivery() {
+    return newDeliveryBuilder()
+      .setError(new IllegalStateException("Fail to connect"))
+      .build();
+  }
+
+  private static WebhookDelivery.Builder newDeliveryBuilder() {
+    return new WebhookDelivery.Builder()
+      .setWebhook(new Webhook("P1_UUID", "CE_UUID1", "First", "http://url1"))
+      .setPayload(new WebhookPayload("P1", "{the payload}"))
+      .setAt(1_500_000_000_000L);
+  }
+}
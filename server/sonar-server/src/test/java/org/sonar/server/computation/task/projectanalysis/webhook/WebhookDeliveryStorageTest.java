@@ -27,7 +27,9 @@ import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.webhook.WebhookDeliveryDto;
+import org.sonar.db.webhook.WebhookDeliveryLiteDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -85,6 +87,37 @@ public class WebhookDeliveryStorageTest {
     assertThat(dto.getErrorStacktrace()).contains("java.io.IOException", "fail to connect");
   }
 
+  @Test
+  public void selectCreatedAfter_returns_latest_deliveries_first() {
+    dbClient.webhookDeliveryDao().insert(dbSession, newDto("D1", "PROJECT_1", TWO_MONTHS_AGO));
+    dbClient.webhookDeliveryDao().insert(dbSession, newDto("D2", "PROJECT_1", NOW));
+    dbClient.webhookDeliveryDao().insert(dbSession, newDto("D3", "PROJECT_2", TWO_WEEKS_AGO));
+    dbSession.commit();
+
+    assertThat(underTest.selectCreatedAfter(TWO_MONTHS_AGO)).extracting(WebhookDeliveryLiteDto::getUuid).containsExactly("D2", "D3");
+  }
+
+  @Test
+  public void selectPayload_returns_persisted_payload_and_project_key() {
+    ComponentDto project = dbTester.components().insertProject(dbTester.organizations().insert());
+    dbClient.webhookDeliveryDao().insert(dbSession, newDto("D1", project.uuid(), NOW).setPayload("{json}"));
+    dbSession.commit();
+
+    WebhookPayload payload = underTest.selectPayload("D1").get();
+
+    assertThat(payload.getProjectKey()).isEqualTo(project.getKey());
+    assertThat(payload.toJson()).isEqualTo("{json}");
+  }
+
+  @Test
+  public void selectPayload_returns_empty_if_delivery_or_project_does_not_exist() {
+    dbClient.webhookDeliveryDao().insert(dbSession, newDto("D1", "DELETED_PROJECT", NOW));
+    dbSession.commit();
+
+    assertThat(underTest.selectPayload("D1")).isEmpty();
+    assertThat(underTest.selectPayload("UNKNOWN")).isEmpty();
+  }
+
   @Test
   public void purge_deletes_records_older_than_one_month_on_the_project() {
     when(system.now()).thenReturn(NOW);
@@ -0,0 +1,198 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.core.util.UuidFactoryFast;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.webhook.WebhookDeliveryDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.webhook.WebhookDbTesting.newWebhookDeliveryDto;
+import static org.sonar.db.webhook.WebhookDbTesting.selectAllDeliveryUuids;
+
+public class WebhookDispatcherTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  private final TestSystem2 system = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public final DbTester dbTester = DbTester.create(system).setDisableDefaultOrganization(true);
+  @Rule
+  public LogTester logTester = new LogTester().setLevel(LoggerLevel.DEBUG);
+  @Rule
+  public Timeout timeout = Timeout.seconds(60);
+
+  private final DbClient dbClient = dbTester.getDbClient();
+  private final DbSession dbSession = dbTester.getSession();
+  private final TestWebhookCaller caller = new TestWebhookCaller();
+  private final WebhookDeliveryStorage deliveryStorage = new WebhookDeliveryStorage(dbClient, system, UuidFactoryFast.getInstance());
+  private final WebhookDeliveryStatistics statistics = new WebhookDeliveryStatistics();
+  private final WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, statistics, system, 1, 0L, 1L);
+  private ComponentDto project;
+  private Webhook webhook;
+  private WebhookPayload payload;
+
+  @Before
+  public void setUp() {
+    project = dbTester.components().insertProject(dbTester.organizations().insert());
+    webhook = new Webhook(project.uuid(), "CE_UUID1", "First", "http://url1");
+    payload = new WebhookPayload(project.getKey(), "{the payload}");
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void deliver_and_persist_webhook() throws Exception {
+    caller.enqueueSuccess(NOW, 200, 1_234);
+    underTest.start();
+
+    underTest.dispatch(webhook, payload);
+    waitForDeliveries(1);
+    underTest.stop();
+
+    assertThat(dbTester.countRowsOfTable(dbSession, "webhook_deliveries")).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Sent webhook 'First' | url=http://url1 | time=1234ms | status=200");
+    assertThat(statistics.getSuccessCount()).isEqualTo(1);
+    assertThat(statistics.getRetryCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_delivery_which_failed_to_connect() throws Exception {
+    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    caller.enqueueSuccess(NOW, 200, 10);
+    underTest.start();
+
+    underTest.dispatch(webhook, payload);
+    waitForDeliveries(2);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(2);
+    assertThat(dbTester.countRowsOfTable(dbSession, "webhook_deliveries")).isEqualTo(2);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains(
+      "Failed to send webhook 'First' | url=http://url1 | message=Fail to connect",
+      "Webhook 'First' is sent again | url=http://url1 | attempt=2",
+      "Sent webhook 'First' | url=http://url1 | time=10ms | status=200");
+    assertThat(statistics.getFailureCount()).isEqualTo(1);
+    assertThat(statistics.getSuccessCount()).isEqualTo(1);
+    assertThat(statistics.getRetryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void retry_delivery_on_server_error_up_to_max_attempts() throws Exception {
+    for (int i = 0; i < WebhookDispatcher.MAX_ATTEMPTS; i++) {
+      caller.enqueueSuccess(NOW, 503, 10);
+    }
+    caller.enqueueSuccess(NOW, 200, 10);
+    underTest.start();
+
+    underTest.dispatch(webhook, payload);
+    waitForDeliveries(WebhookDispatcher.MAX_ATTEMPTS);
+    // give a chance to an unexpected attempt
+    Thread.sleep(100L);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(WebhookDispatcher.MAX_ATTEMPTS);
+    assertThat(statistics.getFailureCount()).isEqualTo(WebhookDispatcher.MAX_ATTEMPTS);
+    assertThat(statistics.getRetryCount()).isEqualTo(WebhookDispatcher.MAX_ATTEMPTS - 1);
+  }
+
+  @Test
+  public void do_not_retry_delivery_on_client_error() throws Exception {
+    caller.enqueueSuccess(NOW, 404, 10);
+    caller.enqueueSuccess(NOW, 200, 10);
+    underTest.start();
+
+    underTest.dispatch(webhook, payload);
+    waitForDeliveries(1);
+    Thread.sleep(100L);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(statistics.getFailureCount()).isEqualTo(1);
+    assertThat(statistics.getRetryCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_at_startup_the_deliveries_which_failed_before() throws Exception {
+    WebhookDeliveryDto failure = newWebhookDeliveryDto()
+      .setComponentUuid(project.uuid())
+      .setCeTaskUuid("CE_UUID1")
+      .setName("First")
+      .setUrl("http://url1")
+      .setSuccess(false)
+      .setHttpStatus(503)
+      .setCreatedAt(NOW - 1_000L);
+    dbClient.webhookDeliveryDao().insert(dbSession, failure);
+    dbSession.commit();
+    caller.enqueueSuccess(NOW, 200, 10);
+
+    underTest.start();
+    waitForDeliveries(1);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(statistics.getSuccessCount()).isEqualTo(1);
+    assertThat(statistics.getRetryCount()).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable(dbSession, "webhook_deliveries")).isEqualTo(2);
+  }
+
+  @Test
+  public void record_failure_when_delivery_can_not_be_queued() {
+    underTest.start();
+    underTest.stop();
+
+    underTest.dispatch(webhook, payload);
+
+    assertThat(caller.countSent()).isEqualTo(0);
+    assertThat(statistics.getFailureCount()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Too many webhook deliveries are pending. Webhook 'First' is not sent | url=http://url1");
+    WebhookDeliveryDto dto = dbClient.webhookDeliveryDao().selectByUuid(dbSession, selectAllDeliveryUuids(dbTester, dbSession).get(0)).get();
+    assertThat(dto.isSuccess()).isFalse();
+    assertThat(dto.getErrorStacktrace()).contains(RejectedExecutionException.class.getName());
+  }
+
+  @Test
+  public void stop_does_nothing_if_not_started() {
+    underTest.stop();
+  }
+
+  private void waitForDeliveries(int count) throws InterruptedException {
+    while (statistics.getSuccessCount() + statistics.getFailureCount() < count) {
+      Thread.sleep(5L);
+    }
+  }
+}
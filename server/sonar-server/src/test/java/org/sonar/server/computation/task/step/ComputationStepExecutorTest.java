@@ -27,6 +27,8 @@ import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.computation.monitoring.CeTaskMetrics;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.computation.task.ChangeLogLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -46,13 +48,14 @@ public class ComputationStepExecutorTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
+  private final CeTaskMetrics taskMetrics = new CeTaskMetrics();
   private final ComputationStep computationStep1 = mockComputationStep("step1");
   private final ComputationStep computationStep2 = mockComputationStep("step2");
   private final ComputationStep computationStep3 = mockComputationStep("step3");
 
   @Test
   public void execute_call_execute_on_each_ComputationStep_in_order_returned_by_instances_method() {
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3))
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), taskMetrics)
       .execute();
 
     InOrder inOrder = inOrder(computationStep1, computationStep2, computationStep3);
@@ -74,7 +77,7 @@ public class ComputationStepExecutorTest {
       .when(computationStep)
       .execute();
 
-    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep));
+    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep), taskMetrics);
 
     expectedException.expect(RuntimeException.class);
     expectedException.expectMessage(message);
@@ -82,6 +85,34 @@ public class ComputationStepExecutorTest {
     computationStepExecutor.execute();
   }
 
+  @Test
+  public void execute_adds_metrics_of_each_ComputationStep_to_current_task() {
+    taskMetrics.startTask();
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), taskMetrics)
+      .execute();
+
+    List<CeTaskStepMetrics> steps = taskMetrics.stopTask();
+    assertThat(steps).extracting(CeTaskStepMetrics::getStep).containsExactly("step1", "step2");
+    assertThat(steps).allMatch(step -> step.getWallTimeMs() >= 0 && step.getSqlStatements() == 0 && step.getEsRequests() == 0);
+  }
+
+  @Test
+  public void execute_adds_metrics_of_failing_ComputationStep_to_current_task() {
+    doThrow(new RuntimeException("simulating failing execute Step method"))
+      .when(computationStep2)
+      .execute();
+    taskMetrics.startTask();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), taskMetrics)
+        .execute();
+      fail("exception should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(taskMetrics.stopTask()).extracting(CeTaskStepMetrics::getStep).containsExactly("step1", "step2");
+    }
+  }
+
   @Test
   public void execute_does_not_log_end_timing_for_each_ComputationStep_called_when_level_is_INFO() {
     List<String> infoLogs = execute_logs_end_timing_for_each_ComputationStep_called_when_(LoggerLevel.INFO);
@@ -108,7 +139,7 @@ public class ComputationStepExecutorTest {
     try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, level);
       ChangeLogLevel step1 = new ChangeLogLevel(computationStep1.getClass(), level);
       ChangeLogLevel step2 = new ChangeLogLevel(computationStep2.getClass(), level)) {
-      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2))
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), taskMetrics)
         .execute();
 
       return logTester.logs(LoggerLevel.DEBUG);
@@ -117,7 +148,7 @@ public class ComputationStepExecutorTest {
 
   @Test
   public void execute_calls_listener_finished_method_with_all_step_runs() {
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener)
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), taskMetrics, listener)
       .execute();
 
     verify(listener).finished(true);
@@ -132,7 +163,7 @@ public class ComputationStepExecutorTest {
       .execute();
 
     try {
-      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener)
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), taskMetrics, listener)
         .execute();
       fail("exception toBeThrown should have been raised");
     } catch (RuntimeException e) {
@@ -149,7 +180,7 @@ public class ComputationStepExecutorTest {
         .when(listener)
         .finished(anyBoolean());
 
-    new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
+    new ComputationStepExecutor(mockComputationSteps(computationStep1), taskMetrics, listener).execute();
   }
 
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
@@ -32,9 +32,13 @@ import org.sonar.ce.log.CeLogging;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.monitoring.CeTaskMetrics;
+import org.sonar.server.computation.monitoring.CeTaskStepMetrics;
 import org.sonar.server.computation.queue.InternalCeQueue;
 import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportTaskProcessor;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -52,7 +56,8 @@ public class CeWorkerCallableImplTest {
   private InternalCeQueue queue = mock(InternalCeQueue.class);
   private ReportTaskProcessor taskProcessor = mock(ReportTaskProcessor.class);
   private CeLogging ceLogging = spy(CeLogging.class);
-  private CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository);
+  private CeTaskMetrics taskMetrics = new CeTaskMetrics();
+  private CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository, taskMetrics);
   private InOrder inOrder = Mockito.inOrder(ceLogging, taskProcessor, queue);
 
   @Test
@@ -73,7 +78,7 @@ public class CeWorkerCallableImplTest {
     assertThat(underTest.call()).isTrue();
 
     inOrder.verify(ceLogging).initForTask(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, null);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, null, emptyList());
     inOrder.verify(ceLogging).clearForTask();
   }
 
@@ -87,10 +92,27 @@ public class CeWorkerCallableImplTest {
 
     inOrder.verify(ceLogging).initForTask(task);
     inOrder.verify(taskProcessor).process(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null, null);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null, null, emptyList());
     inOrder.verify(ceLogging).clearForTask();
   }
 
+  @Test
+  public void remove_task_with_metrics_of_steps_executed_by_processor() throws Exception {
+    CeTask task = createCeTask(null);
+    taskProcessorRepository.setProcessorForTask(task.getType(), taskProcessor);
+    when(queue.peek()).thenReturn(Optional.of(task));
+    CeTaskStepMetrics stepMetrics = new CeTaskStepMetrics("step", 1, 1, 1, 1, 1, 1);
+    when(taskProcessor.process(task)).thenAnswer(invocation -> {
+      taskMetrics.addStep(stepMetrics);
+      return null;
+    });
+
+    underTest.call();
+
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null, null, singletonList(stepMetrics));
+    assertThat(taskMetrics.stopTask()).isEmpty();
+  }
+
   @Test
   public void fail_to_process_task() throws Exception {
     CeTask task = createCeTask(null);
@@ -102,7 +124,7 @@ public class CeWorkerCallableImplTest {
 
     inOrder.verify(ceLogging).initForTask(task);
     inOrder.verify(taskProcessor).process(task);
-    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, error);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.FAILED, null, error, emptyList());
     inOrder.verify(ceLogging).clearForTask();
   }
 
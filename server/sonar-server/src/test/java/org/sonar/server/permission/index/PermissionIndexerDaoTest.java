@@ -115,6 +115,19 @@ public class PermissionIndexerDaoTest {
     assertThat(view2Authorization.getQualifier()).isEqualTo(VIEW);
   }
 
+  @Test
+  public void select_all_streams_each_project_once() {
+    insertTestDataForProjectsAndViews();
+
+    List<PermissionIndexerDao.Dto> dtos = new ArrayList<>();
+    underTest.selectAll(dbClient, dbSession, dtos::add);
+
+    assertThat(dtos).extracting(PermissionIndexerDao.Dto::getProjectUuid)
+      .containsOnly(project1.uuid(), project2.uuid(), view1.uuid(), view2.uuid())
+      .doesNotHaveDuplicates();
+    assertThat(getByProjectUuid(project2.uuid(), dtos).getUserIds()).containsOnly(user1.getId(), user2.getId());
+  }
+
   @Test
   public void selectByUuids() throws Exception {
     insertTestDataForProjectsAndViews();
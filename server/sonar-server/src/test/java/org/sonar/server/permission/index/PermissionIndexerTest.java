@@ -36,6 +36,7 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.tester.UserSessionRule;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.api.web.UserRole.ADMIN;
 import static org.sonar.api.web.UserRole.USER;
@@ -195,6 +196,37 @@ public class PermissionIndexerTest {
     verifyNotAuthorized(project, user2);
   }
 
+  @Test
+  public void indexProjectsByUuids_indexes_only_the_given_projects() {
+    UserDto user = userDbTester.insertUser();
+    ComponentDto project1 = createAndIndexProject();
+    ComponentDto project2 = createAndIndexProject();
+    userDbTester.insertProjectPermissionOnUser(user, USER, project1);
+    userDbTester.insertProjectPermissionOnUser(user, USER, project2);
+
+    underTest.indexProjectsByUuids(dbTester.getSession(), asList(project1.uuid(), project1.uuid()));
+
+    assertThat(esTester.countDocuments(FOO_INDEX, AuthorizationTypeSupport.TYPE_AUTHORIZATION)).isEqualTo(1);
+    verifyAuthorized(project1, user);
+    verifyNotAuthorized(project2, user);
+  }
+
+  @Test
+  public void indexProjectsByUuids_removes_access_to_projects_without_permissions_anymore() {
+    UserDto user = userDbTester.insertUser();
+    ComponentDto project = createAndIndexProject();
+    userDbTester.insertProjectPermissionOnUser(user, USER, project);
+    underTest.indexProjectsByUuids(dbTester.getSession(), asList(project.uuid()));
+    verifyAuthorized(project, user);
+
+    dbTester.executeUpdateSql("delete from user_roles");
+    dbTester.commit();
+    underTest.indexProjectsByUuids(dbTester.getSession(), asList(project.uuid()));
+
+    assertThat(esTester.countDocuments(FOO_INDEX, AuthorizationTypeSupport.TYPE_AUTHORIZATION)).isZero();
+    verifyNotAuthorized(project, user);
+  }
+
   @Test
   public void deleteProject_deletes_the_documents_related_to_the_project() {
     ComponentDto project1 = createAndIndexProject();
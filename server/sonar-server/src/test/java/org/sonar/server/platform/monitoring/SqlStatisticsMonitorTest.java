@@ -0,0 +1,63 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatisticsMonitorTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private SqlStatisticsMonitor underTest = new SqlStatisticsMonitor();
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("SQL Statistics");
+  }
+
+  @Test
+  public void statements_attributes() {
+    dbTester.getDbClient().ceQueueDao().selectAllInAscOrder(dbTester.getSession());
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat((long) attributes.get("Statements")).isGreaterThanOrEqualTo(1L);
+    assertThat(attributes).containsKeys("Total Time (ms)", "Rows");
+    Map topStatements = (Map) attributes.get("Top Statements");
+    assertThat(topStatements.size()).isLessThanOrEqualTo(SqlStatisticsMonitor.TOP_STATEMENTS);
+  }
+
+  @Test
+  public void mbean_attributes() {
+    dbTester.getDbClient().ceQueueDao().selectAllInAscOrder(dbTester.getSession());
+
+    assertThat(underTest.getStatementCount()).isGreaterThanOrEqualTo(1L);
+    assertThat(underTest.getTotalTimeMillis()).isGreaterThanOrEqualTo(0L);
+    assertThat(underTest.getTopStatements()).isNotEmpty();
+    assertThat(underTest.getTopStatements().length).isLessThanOrEqualTo(SqlStatisticsMonitor.TOP_STATEMENTS);
+  }
+}
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 import org.sonar.ce.http.CeHttpClient;
+import org.sonar.process.ProcessMetrics;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.platform.monitoring.Monitor;
 import org.sonar.server.tester.UserSessionRule;
@@ -89,12 +90,30 @@ public class InfoActionTest {
     when(monitor2.name()).thenReturn("Monitor Two");
     when(monitor2.attributes()).thenReturn(attributes2);
     when(ceHttpClient.retrieveSystemInfo()).thenReturn(Optional.empty());
+    when(ceHttpClient.retrieveMetrics()).thenReturn(Optional.empty());
 
     TestResponse response = actionTester.newRequest().execute();
     // response does not contain empty "Monitor Three"
     assertThat(response.getInput()).isEqualTo("{\"Monitor One\":{\"foo\":\"bar\"},\"Monitor Two\":{\"one\":1,\"two\":2}}");
   }
 
+  @Test
+  public void write_metrics_of_compute_engine_read_from_shared_memory() {
+    logInAsSystemAdministrator();
+    when(monitor1.name()).thenReturn("Monitor One");
+    when(monitor2.name()).thenReturn("Monitor Two");
+    when(ceHttpClient.retrieveSystemInfo()).thenReturn(Optional.empty());
+    when(ceHttpClient.retrieveMetrics()).thenReturn(Optional.of(ProcessMetrics.snapshot()));
+
+    TestResponse response = actionTester.newRequest().execute();
+
+    assertThat(response.getInput())
+      .contains("\"Compute Engine Metrics\":{")
+      .contains("\"Pending Tasks\":")
+      .contains("\"Task Duration Count\":")
+      .contains("\"Task Duration > 60000 ms\":");
+  }
+
   private void logInAsSystemAdministrator() {
     userSessionRule.logIn().setSystemAdministrator();
   }
@@ -32,6 +32,9 @@ public class WebhookProperties {
   public static final String PROJECT_KEY = "sonar.webhooks.project";
   public static final String NAME_FIELD = "name";
   public static final String URL_FIELD = "url";
+  public static final String CONNECT_TIMEOUT_KEY = "sonar.webhooks.connectTimeout";
+  public static final String READ_TIMEOUT_KEY = "sonar.webhooks.readTimeout";
+  public static final int DEFAULT_TIMEOUT_MS = 10_000;
 
   /**
    * Maximum allowed number of webhooks per type (globally or per project).
@@ -86,6 +89,22 @@ public class WebhookProperties {
             .name("URL")
             .type(PropertyType.STRING)
             .build())
+        .build(),
+
+      PropertyDefinition.builder(CONNECT_TIMEOUT_KEY)
+        .category(CATEGORY)
+        .name("Connection Timeout")
+        .description("Maximum time in milliseconds to connect to the URL of a webhook.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(DEFAULT_TIMEOUT_MS))
+        .build(),
+
+      PropertyDefinition.builder(READ_TIMEOUT_KEY)
+        .category(CATEGORY)
+        .name("Read Timeout")
+        .description("Maximum time in milliseconds to send the payload of a webhook and to wait for the response.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(DEFAULT_TIMEOUT_MS))
         .build());
   }
 }
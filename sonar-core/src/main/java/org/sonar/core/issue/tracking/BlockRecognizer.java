@@ -20,15 +20,14 @@
 package org.sonar.core.issue.tracking;
 
 import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
 
   /**
@@ -76,24 +75,40 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     }
 
     // Check if remaining number of lines exceeds threshold. It avoids processing too many combinations.
+    // The threshold must not exceed LinePairs.MAX_PAIRS, as the index of each pair is packed in its long.
     if (basesByLine.keySet().size() * rawsByLine.keySet().size() >= 250_000) {
       return;
     }
 
-    List<LinePair> possibleLinePairs = Lists.newArrayList();
-    for (Integer baseLine : basesByLine.keySet()) {
-      for (Integer rawLine : rawsByLine.keySet()) {
+    int[] baseLines = toIntArray(basesByLine.keySet());
+    int[] rawLines = toIntArray(rawsByLine.keySet());
+    long[] possibleLinePairs = new long[baseLines.length * rawLines.length];
+    int index = 0;
+    for (int baseLine : baseLines) {
+      for (int rawLine : rawLines) {
         int weight = lengthOfMaximalBlock(baseInput.getLineHashSequence(), baseLine, rawInput.getLineHashSequence(), rawLine);
-        possibleLinePairs.add(new LinePair(baseLine, rawLine, weight));
+        possibleLinePairs[index] = LinePairs.pack(weight, Math.abs(baseLine - rawLine), index);
+        index++;
       }
     }
-    Collections.sort(possibleLinePairs, LinePairComparator.INSTANCE);
-    for (LinePair linePair : possibleLinePairs) {
+    Arrays.sort(possibleLinePairs);
+    for (long linePair : possibleLinePairs) {
+      int pairIndex = LinePairs.index(linePair);
       // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-      map(rawsByLine.get(linePair.rawLine), basesByLine.get(linePair.baseLine), tracking);
+      map(rawsByLine.get(rawLines[pairIndex % rawLines.length]), basesByLine.get(baseLines[pairIndex / rawLines.length]), tracking);
     }
   }
 
+  private static int[] toIntArray(Collection<Integer> lines) {
+    int[] result = new int[lines.size()];
+    int i = 0;
+    for (Integer line : lines) {
+      result[i] = line;
+      i++;
+    }
+    return result;
+  }
+
   /**
    * @param startLineA number of line from first version of text (numbering starts from 1)
    * @param startLineB number of line from second version of text (numbering starts from 1)
@@ -143,18 +158,6 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     return result;
   }
 
-  private static class LinePair {
-    int baseLine;
-    int rawLine;
-    int weight;
-
-    public LinePair(int baseLine, int rawLine, int weight) {
-      this.baseLine = baseLine;
-      this.rawLine = rawLine;
-      this.weight = weight;
-    }
-  }
-
   private static class HashOccurrence {
     int baseLine;
     int rawLine;
@@ -162,17 +165,30 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     int rawCount;
   }
 
-  private enum LinePairComparator implements Comparator<LinePair> {
-    INSTANCE;
+  /**
+   * Pairs of base and raw lines are packed in longs, so that their natural order is: greatest weight first,
+   * then smallest distance between the lines, then order of creation. Weights and distances greater than
+   * 2^22 lines are capped. Indices are stored on 18 bits, so at most {@link #MAX_PAIRS} pairs can be packed.
+   */
+  static final class LinePairs {
+    private static final int VALUE_BITS = 22;
+    private static final int INDEX_BITS = 18;
+    private static final long MAX_VALUE = (1L << VALUE_BITS) - 1;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    static final int MAX_PAIRS = 1 << INDEX_BITS;
+
+    private LinePairs() {
+      // only static methods
+    }
 
-    @Override
-    public int compare(LinePair o1, LinePair o2) {
-      int weightDiff = o2.weight - o1.weight;
-      if (weightDiff != 0) {
-        return weightDiff;
-      } else {
-        return Math.abs(o1.baseLine - o1.rawLine) - Math.abs(o2.baseLine - o2.rawLine);
-      }
+    static long pack(int weight, int distance, int index) {
+      checkArgument(index >= 0 && index < MAX_PAIRS, "Index of line pair is out of bounds");
+      long invertedWeight = MAX_VALUE - Math.min(weight, MAX_VALUE);
+      return (invertedWeight << (VALUE_BITS + INDEX_BITS)) | (Math.min(distance, MAX_VALUE) << INDEX_BITS) | index;
+    }
+
+    static int index(long linePair) {
+      return (int) (linePair & INDEX_MASK);
     }
   }
 }
@@ -19,38 +19,56 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Objects;
-import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
-import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
-import org.sonar.api.rule.RuleKey;
+import org.sonar.api.batch.ScannerSide;
 
+/**
+ * Matches raw issues with base issues.
+ * <p>
+ * Rule, line, line hash and message of each issue are converted once to integer fingerprints. The matching passes
+ * then use a primitive open-addressing table, so that no object is allocated per issue and per pass.
+ */
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
 public class Tracker<RAW extends Trackable, BASE extends Trackable> {
 
+  private static final int LINE = 1;
+  private static final int LINE_HASH = 2;
+  private static final int MESSAGE = 4;
+
   public Tracking<RAW, BASE> track(Input<RAW> rawInput, Input<BASE> baseInput) {
     Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+    if (tracking.isComplete()) {
+      return tracking;
+    }
+    Dictionary dictionary = new Dictionary();
+    Fingerprints<RAW> raws = new Fingerprints<>(rawInput.getIssues(), dictionary);
+    Fingerprints<BASE> bases = new Fingerprints<>(baseInput.getIssues(), dictionary);
+    SearchTable table = new SearchTable(bases.size());
 
     // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKeyFactory.INSTANCE);
+    match(tracking, raws, bases, table, LINE | LINE_HASH);
 
     // 2. detect code moves by comparing blocks of codes
     detectCodeMoves(rawInput, baseInput, tracking);
 
     // 3. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKeyFactory.INSTANCE);
+    match(tracking, raws, bases, table, LINE_HASH | MESSAGE);
 
     // 4. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKeyFactory.INSTANCE);
+    match(tracking, raws, bases, table, LINE | MESSAGE);
 
     // 5. match issues with same rule and same line hash but different line and different message.
     // See SONAR-2812
-    match(tracking, LineHashKeyFactory.INSTANCE);
+    match(tracking, raws, bases, table, LINE_HASH);
 
     return tracking;
   }
@@ -61,189 +79,166 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private void match(Tracking<RAW, BASE> tracking, SearchKeyFactory factory) {
+  /**
+   * Each unmatched raw issue is matched with the first unmatched base issue having the same rule and the same
+   * given fields.
+   */
+  private void match(Tracking<RAW, BASE> tracking, Fingerprints<RAW> raws, Fingerprints<BASE> bases, SearchTable table, int fields) {
     if (tracking.isComplete()) {
       return;
     }
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    for (BASE base : tracking.getUnmatchedBases()) {
-      baseSearch.put(factory.create(base), base);
-    }
-
-    for (RAW raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = factory.create(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      if (!bases.isEmpty()) {
-        // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
-        // Message could be checked to take the best one.
-        BASE match = bases.iterator().next();
-        tracking.match(raw, match);
-        baseSearch.remove(rawKey, match);
+    table.clear();
+    for (int b = 0; b < bases.size(); b++) {
+      if (tracking.containsUnmatchedBase(bases.get(b))) {
+        table.add(bases, b, fields);
       }
     }
-  }
-
-  private interface SearchKey {
-  }
 
-  private interface SearchKeyFactory {
-    SearchKey create(Trackable trackable);
-  }
-
-  private static class LineAndLineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final Integer line;
-
-    LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+    for (int r = 0; r < raws.size(); r++) {
+      RAW raw = raws.get(r);
+      if (tracking.containsUnmatchedRaw(raw)) {
+        int b = table.poll(raws, r, bases, fields);
+        if (b >= 0) {
+          tracking.match(raw, bases.get(b));
+        }
       }
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
-
-  private enum LineAndLineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndLineHashKey(t);
     }
   }
 
-  private static class LineHashAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final String lineHash;
-
-    LineHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+  /**
+   * Integer identifiers of the rules, line hashes and messages of the raw and base issues of a file
+   */
+  private static class Dictionary {
+    private final Map<Object, Integer> ids = new HashMap<>();
+
+    int idOf(@Nullable Object value) {
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = ids.size();
+        ids.put(value, id);
       }
-      LineHashAndMessageKey that = (LineHashAndMessageKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
+      return id;
     }
   }
 
-  private enum LineHashAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashAndMessageKey(t);
-    }
-  }
-
-  private static class LineAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final Integer line;
-
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+  private static class Fingerprints<T extends Trackable> {
+    private static final int NO_LINE = Integer.MIN_VALUE;
+
+    private final List<T> trackables;
+    private final int[] rules;
+    private final int[] lines;
+    private final int[] lineHashes;
+    private final int[] messages;
+
+    Fingerprints(Collection<T> trackables, Dictionary dictionary) {
+      this.trackables = trackables instanceof List ? (List<T>) trackables : new ArrayList<>(trackables);
+      int size = this.trackables.size();
+      this.rules = new int[size];
+      this.lines = new int[size];
+      this.lineHashes = new int[size];
+      this.messages = new int[size];
+      for (int i = 0; i < size; i++) {
+        T trackable = this.trackables.get(i);
+        Integer line = trackable.getLine();
+        rules[i] = dictionary.idOf(trackable.getRuleKey());
+        lines[i] = line == null ? NO_LINE : line;
+        lineHashes[i] = dictionary.idOf(StringUtils.defaultString(trackable.getLineHash(), ""));
+        messages[i] = dictionary.idOf(trackable.getMessage());
       }
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
+    int size() {
+      return trackables.size();
     }
-  }
-
-  private enum LineAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndMessageKey(t);
-    }
-  }
-
-  private static class LineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
 
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+    T get(int index) {
+      return trackables.get(index);
     }
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+    int hash(int index, int fields) {
+      int result = rules[index];
+      if ((fields & LINE) != 0) {
+        result = 31 * result + lines[index];
       }
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
+      if ((fields & LINE_HASH) != 0) {
+        result = 31 * result + lineHashes[index];
+      }
+      if ((fields & MESSAGE) != 0) {
+        result = 31 * result + messages[index];
+      }
+      // spread the low bits, which are used to select the slot
+      return result ^ (result >>> 16);
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
+    boolean sameKey(int index, Fingerprints<?> other, int otherIndex, int fields) {
+      return rules[index] == other.rules[otherIndex]
+        && ((fields & LINE) == 0 || lines[index] == other.lines[otherIndex])
+        && ((fields & LINE_HASH) == 0 || lineHashes[index] == other.lineHashes[otherIndex])
+        && ((fields & MESSAGE) == 0 || messages[index] == other.messages[otherIndex]);
     }
   }
 
-  private enum LineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashKey(t);
+  /**
+   * Open-addressing table of the base issues by search key. Base issues having the same key are chained
+   * in their original order, so that the first one is matched first.
+   */
+  private static class SearchTable {
+    private static final int EMPTY = -1;
+
+    private final int mask;
+    // index of the first base issue added to the slot, which defines the key of the slot
+    private final int[] keys;
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] next;
+
+    SearchTable(int size) {
+      int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+      this.mask = capacity - 1;
+      this.keys = new int[capacity];
+      this.heads = new int[capacity];
+      this.tails = new int[capacity];
+      this.next = new int[Math.max(1, size)];
+    }
+
+    void clear() {
+      Arrays.fill(keys, EMPTY);
+    }
+
+    void add(Fingerprints<?> bases, int base, int fields) {
+      int slot = bases.hash(base, fields) & mask;
+      while (keys[slot] != EMPTY && !bases.sameKey(keys[slot], bases, base, fields)) {
+        slot = (slot + 1) & mask;
+      }
+      next[base] = EMPTY;
+      if (keys[slot] == EMPTY) {
+        keys[slot] = base;
+        heads[slot] = base;
+      } else if (heads[slot] == EMPTY) {
+        heads[slot] = base;
+      } else {
+        next[tails[slot]] = base;
+      }
+      tails[slot] = base;
+    }
+
+    /**
+     * Removes and returns the first base issue having the same key as the raw issue, or -1 if none.
+     */
+    int poll(Fingerprints<?> raws, int raw, Fingerprints<?> bases, int fields) {
+      int slot = raws.hash(raw, fields) & mask;
+      while (keys[slot] != EMPTY) {
+        if (bases.sameKey(keys[slot], raws, raw, fields)) {
+          int base = heads[slot];
+          if (base != EMPTY) {
+            heads[slot] = next[base];
+          }
+          return base;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return EMPTY;
     }
   }
 }
@@ -72,6 +72,10 @@ public class Tracking<RAW extends Trackable, BASE extends Trackable> {
     return Iterables.filter(bases, unmatchedBasePredicate);
   }
 
+  boolean containsUnmatchedRaw(RAW raw) {
+    return !rawToBase.containsKey(raw);
+  }
+
   boolean containsUnmatchedBase(BASE base) {
     return !baseToRaw.containsKey(base);
   }
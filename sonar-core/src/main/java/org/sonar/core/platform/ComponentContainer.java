@@ -111,8 +111,11 @@ public class ComponentContainer implements ContainerPopulator.Container {
    */
   protected ComponentContainer(ComponentContainer parent) {
     this.parent = parent;
-    this.pico = parent.pico.makeChildContainer();
-    this.parent.children.add(this);
+    // children of a same parent may be created and removed concurrently
+    synchronized (parent.children) {
+      this.pico = parent.pico.makeChildContainer();
+      this.parent.children.add(this);
+    }
     this.propertyDefinitions = parent.propertyDefinitions;
     this.componentKeys = new ComponentKeys();
     addSingleton(this);
@@ -284,25 +287,29 @@ public class ComponentContainer implements ContainerPopulator.Container {
 
   public ComponentContainer removeChild(ComponentContainer childToBeRemoved) {
     requireNonNull(childToBeRemoved);
-    Iterator<ComponentContainer> childrenIterator = children.iterator();
-    while (childrenIterator.hasNext()) {
-      ComponentContainer child = childrenIterator.next();
-      if (child == childToBeRemoved) {
-        if (pico.removeChildContainer(child.pico)) {
-          childrenIterator.remove();
+    synchronized (children) {
+      Iterator<ComponentContainer> childrenIterator = children.iterator();
+      while (childrenIterator.hasNext()) {
+        ComponentContainer child = childrenIterator.next();
+        if (child == childToBeRemoved) {
+          if (pico.removeChildContainer(child.pico)) {
+            childrenIterator.remove();
+          }
+          break;
         }
-        break;
       }
     }
     return this;
   }
 
   private ComponentContainer removeChildren() {
-    Iterator<ComponentContainer> childrenIterator = children.iterator();
-    while (childrenIterator.hasNext()) {
-      ComponentContainer child = childrenIterator.next();
-      if (pico.removeChildContainer(child.pico)) {
-        childrenIterator.remove();
+    synchronized (children) {
+      Iterator<ComponentContainer> childrenIterator = children.iterator();
+      while (childrenIterator.hasNext()) {
+        ComponentContainer child = childrenIterator.next();
+        if (pico.removeChildContainer(child.pico)) {
+          childrenIterator.remove();
+        }
       }
     }
     return this;
@@ -330,7 +337,9 @@ public class ComponentContainer implements ContainerPopulator.Container {
   }
 
   public List<ComponentContainer> getChildren() {
-    return copyOf(children);
+    synchronized (children) {
+      return copyOf(children);
+    }
   }
 
   public MutablePicoContainer getPicoContainer() {
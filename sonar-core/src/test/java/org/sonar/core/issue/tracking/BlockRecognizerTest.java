@@ -20,6 +20,7 @@
 package org.sonar.core.issue.tracking;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Test;
 
@@ -41,6 +42,31 @@ public class BlockRecognizerTest {
     assertThat(compute(seq("bcde"), seq("abcde"), 3, 4)).isEqualTo(4);
   }
 
+  @Test
+  public void line_pairs_are_ordered_by_weight_then_distance_then_index() {
+    long[] pairs = {
+      BlockRecognizer.LinePairs.pack(1, 0, 0),
+      BlockRecognizer.LinePairs.pack(3, 10, 1),
+      BlockRecognizer.LinePairs.pack(3, 2, 2),
+      BlockRecognizer.LinePairs.pack(0, 0, 3),
+      BlockRecognizer.LinePairs.pack(3, 2, 4),
+      BlockRecognizer.LinePairs.pack(Integer.MAX_VALUE, Integer.MAX_VALUE, 249_999)
+    };
+
+    Arrays.sort(pairs);
+
+    int[] indexes = new int[pairs.length];
+    for (int i = 0; i < pairs.length; i++) {
+      indexes[i] = BlockRecognizer.LinePairs.index(pairs[i]);
+    }
+    assertThat(indexes).containsExactly(249_999, 2, 4, 1, 0, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_to_pack_line_pair_whose_index_does_not_fit() {
+    BlockRecognizer.LinePairs.pack(1, 0, BlockRecognizer.LinePairs.MAX_PAIRS);
+  }
+
   private int compute(LineHashSequence seqA, LineHashSequence seqB, int ai, int bi) {
     return BlockRecognizer.lengthOfMaximalBlock(seqA, ai, seqB, bi);
   }
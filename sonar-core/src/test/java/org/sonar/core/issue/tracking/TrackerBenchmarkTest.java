@@ -0,0 +1,187 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.test.Benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link Tracker} with the former {@link MultimapTracker} on synthetic files.
+ *
+ * @see Benchmark
+ */
+public class TrackerBenchmarkTest {
+
+  private static final int ISSUES = Benchmark.size(1_000, 10_000);
+  private static final int LINES = 2 * ISSUES;
+  private static final int ITERATIONS = Benchmark.size(2, 20);
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void same_matches_as_multimap_tracker() {
+    for (int i = 0; i < 10; i++) {
+      SyntheticFile file = new SyntheticFile(ISSUES / 10);
+
+      Tracking<Issue, Issue> expected = new MultimapTracker<Issue, Issue>().track(file.raw, file.base);
+      Tracking<Issue, Issue> tracking = new Tracker<Issue, Issue>().track(file.raw, file.base);
+
+      for (Issue raw : file.raw.getIssues()) {
+        assertThat(tracking.baseFor(raw)).isSameAs(expected.baseFor(raw));
+      }
+    }
+  }
+
+  @Test
+  public void compare_with_multimap_tracker() throws Exception {
+    SyntheticFile file = new SyntheticFile(ISSUES);
+    MultimapTracker<Issue, Issue> multimapTracker = new MultimapTracker<>();
+    Tracker<Issue, Issue> tracker = new Tracker<>();
+
+    // warm-up
+    multimapTracker.track(file.raw, file.base);
+    tracker.track(file.raw, file.base);
+
+    long multimapNs = 0L;
+    long trackerNs = 0L;
+    for (int i = 0; i < ITERATIONS; i++) {
+      multimapNs += Benchmark.nanos(() -> multimapTracker.track(file.raw, file.base));
+      trackerNs += Benchmark.nanos(() -> tracker.track(file.raw, file.base));
+    }
+
+    Benchmark.assertFaster(ITERATIONS + " trackings of " + ISSUES + " issues by tracker", trackerNs, "multimap tracker", multimapNs);
+  }
+
+  /**
+   * Base and raw versions of a file: a block of lines is inserted at the beginning of the raw version, some
+   * messages are changed, some base issues are fixed and some raw issues are new.
+   */
+  private class SyntheticFile {
+    private final FakeInput base;
+    private final FakeInput raw;
+
+    SyntheticFile(int issues) {
+      List<String> baseHashes = new ArrayList<>();
+      for (int line = 0; line < LINES; line++) {
+        // duplicated lines are frequent
+        baseHashes.add("h" + random.nextInt(LINES / 4));
+      }
+      List<String> rawHashes = new ArrayList<>();
+      int shift = random.nextInt(100);
+      for (int line = 0; line < shift; line++) {
+        rawHashes.add("new" + line);
+      }
+      rawHashes.addAll(baseHashes);
+
+      base = new FakeInput(baseHashes);
+      raw = new FakeInput(rawHashes);
+      for (int i = 0; i < issues; i++) {
+        int line = 1 + random.nextInt(LINES);
+        RuleKey ruleKey = RuleKey.of("java", "S" + random.nextInt(20));
+        String message = "message " + random.nextInt(100);
+        int dice = random.nextInt(10);
+        if (dice != 0) {
+          base.createIssueOnLine(line, ruleKey, message);
+        }
+        if (dice != 1) {
+          raw.createIssueOnLine(line + shift, ruleKey, dice == 2 ? "changed " + message : message);
+        }
+      }
+      base.createIssue(RuleKey.of("java", "S0"), "file issue");
+      raw.createIssue(RuleKey.of("java", "S0"), "file issue");
+    }
+  }
+
+  private static class Issue implements Trackable {
+    private final Integer line;
+    private final String lineHash;
+    private final RuleKey ruleKey;
+    private final String message;
+
+    Issue(@Nullable Integer line, String lineHash, RuleKey ruleKey, String message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.ruleKey = ruleKey;
+      this.message = message;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+
+  private static class FakeInput implements Input<Issue> {
+    private final List<Issue> issues = new ArrayList<>();
+    private final LineHashSequence lineHashSequence;
+    private final BlockHashSequence blockHashSequence;
+
+    FakeInput(List<String> lineHashes) {
+      this.lineHashSequence = new LineHashSequence(lineHashes);
+      this.blockHashSequence = BlockHashSequence.create(lineHashSequence);
+    }
+
+    void createIssueOnLine(int line, RuleKey ruleKey, String message) {
+      issues.add(new Issue(line, lineHashSequence.getHashForLine(line), ruleKey, message));
+    }
+
+    void createIssue(RuleKey ruleKey, String message) {
+      issues.add(new Issue(null, "", ruleKey, message));
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashSequence;
+    }
+
+    @Override
+    public Collection<Issue> getIssues() {
+      return issues;
+    }
+  }
+}
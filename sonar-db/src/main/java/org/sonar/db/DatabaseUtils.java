@@ -20,10 +20,12 @@
 package org.sonar.db;
 
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
@@ -37,12 +39,20 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 
@@ -50,6 +60,15 @@ public class DatabaseUtils {
 
   public static final int PARTITION_SIZE_FOR_ORACLE = 1000;
 
+  /**
+   * Threads of {@link #executeLargeInputsInParallel(DbClient, Collection, BiFunction, int)}. The degree of
+   * parallelism is bounded by each caller.
+   */
+  private static final ExecutorService PARALLEL_READERS = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+    .setNameFormat("DatabaseUtils-reader-%d")
+    .setDaemon(true)
+    .build());
+
   /**
    * @see DatabaseMetaData#getTableTypes()
    */
@@ -153,6 +172,72 @@ public class DatabaseUtils {
     return results;
   }
 
+  /**
+   * Same as {@link #executeLargeInputs(Collection, Function)}, except that up to {@code parallelism} partitions are
+   * read concurrently, each thread using its own {@link DbSession}. Partitions are sized according to the limits of
+   * the database, see {@link org.sonar.db.dialect.Dialect#getMaxInputPartitionSize()}.
+   * <p>
+   * As sessions are distinct, {@code function} must be read-only and does not see the changes which are not
+   * committed yet by the session of the caller. Results are returned in the order of the sorted inputs.
+   * Each thread holds a connection of the pool during the whole execution, so {@code parallelism} must stay
+   * small compared to the size of the pool.
+   */
+  public static <OUTPUT, INPUT extends Comparable<INPUT>> List<OUTPUT> executeLargeInputsInParallel(DbClient dbClient, Collection<INPUT> input,
+    BiFunction<DbSession, List<INPUT>, List<OUTPUT>> function, int parallelism) {
+    checkArgument(parallelism > 0, "Parallelism must be strictly positive: %s", parallelism);
+    if (input.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<List<INPUT>> partitions = Lists.partition(toUniqueAndSortedList(input), dbClient.getDatabase().getDialect().getMaxInputPartitionSize());
+    AtomicReferenceArray<List<OUTPUT>> partitionResults = new AtomicReferenceArray<>(partitions.size());
+    AtomicInteger nextPartition = new AtomicInteger();
+    Runnable reader = () -> {
+      try (DbSession session = dbClient.openSession(false)) {
+        int index = nextPartition.getAndIncrement();
+        while (index < partitions.size()) {
+          partitionResults.set(index, function.apply(session, partitions.get(index)));
+          index = nextPartition.getAndIncrement();
+        }
+      } catch (RuntimeException e) {
+        // other readers stop after their current partition
+        nextPartition.set(partitions.size());
+        throw e;
+      }
+    };
+
+    // the calling thread is one of the readers
+    int workers = Math.min(parallelism, partitions.size()) - 1;
+    List<Future<?>> futures = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      futures.add(PARALLEL_READERS.submit(reader));
+    }
+    reader.run();
+    waitFor(futures);
+
+    List<OUTPUT> results = new ArrayList<>(input.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      List<OUTPUT> subResults = partitionResults.get(i);
+      if (subResults != null) {
+        results.addAll(subResults);
+      }
+    }
+    return results;
+  }
+
+  private static void waitFor(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for partitions to be read", e);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause());
+        throw new IllegalStateException("Fail to read partition", e.getCause());
+      }
+    }
+  }
+
   /**
    * Partition by 1000 elements a list of input and execute a consumer on each part.
    *
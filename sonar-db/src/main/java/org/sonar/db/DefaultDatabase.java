@@ -37,6 +37,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.dialect.Dialect;
 import org.sonar.db.dialect.DialectUtils;
+import org.sonar.db.pool.ConcurrentConnectionPool;
 import org.sonar.db.profiling.NullConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledDataSource;
@@ -55,6 +56,9 @@ public class DefaultDatabase implements Database {
   private static final String SONAR_JDBC = "sonar.jdbc.";
   private static final String SONAR_JDBC_DIALECT = "sonar.jdbc.dialect";
   private static final String SONAR_JDBC_URL = "sonar.jdbc.url";
+  static final String SONAR_JDBC_POOL = "sonar.jdbc.pool";
+  static final String CONCURRENT_POOL = "concurrent";
+  static final String COMMONS_DBCP_POOL = "commons-dbcp";
 
   private final LogbackHelper logbackHelper;
   private final Settings settings;
@@ -93,13 +97,30 @@ public class DefaultDatabase implements Database {
   private void initDataSource() throws Exception {
     // but it's correctly caught by start()
     LOG.info("Create JDBC data source for {}", properties.getProperty(DatabaseProperties.PROP_URL, DEFAULT_URL));
-    BasicDataSource basicDataSource = (BasicDataSource) BasicDataSourceFactory.createDataSource(extractCommonsDbcpProperties(properties));
-    datasource = new ProfiledDataSource(basicDataSource, NullConnectionInterceptor.INSTANCE);
+    datasource = new ProfiledDataSource(createPool(), NullConnectionInterceptor.INSTANCE);
     datasource.setConnectionInitSqls(dialect.getConnectionInitStatements());
     datasource.setValidationQuery(dialect.getValidationQuery());
     enableSqlLogging(datasource, logbackHelper.getLoggerLevel("sql") == Level.TRACE);
   }
 
+  /**
+   * The connection pool is selected by the property {@link #SONAR_JDBC_POOL}, commons-dbcp by default. Both
+   * implementations are configured by the same properties.
+   */
+  private BasicDataSource createPool() throws Exception {
+    String pool = properties.getProperty(SONAR_JDBC_POOL, COMMONS_DBCP_POOL);
+    Properties poolProperties = extractCommonsDbcpProperties(properties);
+    switch (pool) {
+      case CONCURRENT_POOL:
+        return ConcurrentConnectionPool.create(poolProperties);
+      case COMMONS_DBCP_POOL:
+        return (BasicDataSource) BasicDataSourceFactory.createDataSource(poolProperties);
+      default:
+        throw new IllegalArgumentException(format("Unsupported connection pool '%s'. Supported values of property %s are '%s' and '%s'",
+          pool, SONAR_JDBC_POOL, CONCURRENT_POOL, COMMONS_DBCP_POOL));
+    }
+  }
+
   private void checkConnection() {
     Connection connection = null;
     try {
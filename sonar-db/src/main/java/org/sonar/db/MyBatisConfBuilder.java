@@ -30,6 +30,7 @@ import org.apache.ibatis.type.JdbcType;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.dialect.Dialect;
+import org.sonar.db.profiling.SqlStatisticsInterceptor;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -49,6 +50,7 @@ public final class MyBatisConfBuilder {
     this.conf.getVariables().setProperty("_false", dialect.getFalseSqlValue());
     this.conf.getVariables().setProperty("_scrollFetchSize", String.valueOf(dialect.getScrollDefaultFetchSize()));
     this.conf.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    this.conf.addInterceptor(new SqlStatisticsInterceptor());
   }
 
   public void loadAlias(String alias, Class dtoClass) {
@@ -115,10 +115,23 @@ public class CeQueueDao implements Dao {
     }
 
     String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return peek(session, taskUuid);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * Pending tasks submitted at or after the given date, in order of submission. Contrary to {@link #peek(DbSession)},
+   * tasks of components which already have a task in progress are not excluded.
+   */
+  public List<CeQueueDto> selectPendingCreatedFrom(DbSession session, long createdAt) {
+    return mapper(session).selectPendingCreatedFrom(createdAt);
+  }
+
+  /**
+   * Marks the given task as in progress if it is still pending.
+   *
+   * @return the task in progress, or {@link Optional#absent()} if it does not exist or is not pending anymore
+   */
+  public Optional<CeQueueDto> peek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
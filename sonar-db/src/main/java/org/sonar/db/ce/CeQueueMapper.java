@@ -37,6 +37,8 @@ public interface CeQueueMapper {
 
   List<String> selectEligibleForPeek(RowBounds rowBounds);
 
+  List<CeQueueDto> selectPendingCreatedFrom(@Param("createdAt") long createdAt);
+
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
 
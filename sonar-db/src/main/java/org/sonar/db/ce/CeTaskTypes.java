@@ -23,6 +23,11 @@ public final class CeTaskTypes {
   
   public static final String REPORT = "REPORT";
 
+  /**
+   * Incremental purge of the history of a project, submitted after the analysis of a report
+   */
+  public static final String PROJECT_PURGE = "PROJECT_PURGE";
+
   private CeTaskTypes() {
     // only statics
   }
@@ -21,6 +21,7 @@ package org.sonar.db.dialect;
 
 import java.util.Collections;
 import java.util.List;
+import org.sonar.db.DatabaseUtils;
 
 /**
  * @since 3.2
@@ -87,4 +88,13 @@ abstract class AbstractDialect implements Dialect {
   public int getScrollSingleRowFetchSize() {
     return 1;
   }
+
+  /**
+   * Conservative limit, suitable for the 1000 elements of a Oracle {@code IN} clause and the 2100
+   * parameters of a MsSQL statement
+   */
+  @Override
+  public int getMaxInputPartitionSize() {
+    return DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+  }
 }
@@ -89,4 +89,13 @@ public interface Dialect {
    * @return a boolean
    */
   boolean supportsMigration();
+
+  /**
+   * Maximum number of values bound in a single statement when large inputs are partitioned,
+   * for example in a {@code IN (...)} clause.
+   *
+   * @see org.sonar.db.DatabaseUtils#executeLargeInputsInParallel
+   * @since 6.4
+   */
+  int getMaxInputPartitionSize();
 }
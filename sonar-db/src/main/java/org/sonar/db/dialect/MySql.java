@@ -51,4 +51,12 @@ public class MySql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * The size of statements is only limited by the server variable max_allowed_packet
+   */
+  @Override
+  public int getMaxInputPartitionSize() {
+    return 5_000;
+  }
 }
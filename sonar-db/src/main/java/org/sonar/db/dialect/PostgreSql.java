@@ -49,4 +49,12 @@ public class PostgreSql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * The JDBC driver supports up to 32767 bind parameters per statement
+   */
+  @Override
+  public int getMaxInputPartitionSize() {
+    return 5_000;
+  }
 }
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
@@ -90,6 +91,14 @@ public class IssueDao implements Dao {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
+  /**
+   * Streams the non-closed issues of all the components of a project, ordered by component uuid,
+   * so that the issues of a given component are consecutive.
+   */
+  public void scrollNonClosedByProjectUuid(DbSession session, String projectUuid, ResultHandler handler) {
+    mapper(session).scrollNonClosedByProjectUuid(projectUuid, handler);
+  }
+
   public void insert(DbSession session, IssueDto dto) {
     mapper(session).insert(dto);
   }
@@ -21,12 +21,13 @@ package org.sonar.db.measure;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -38,8 +39,10 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DatabaseUtils;
+import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS_KEY;
 import static org.sonar.api.measures.Metric.ValueType.BOOL;
 import static org.sonar.api.measures.Metric.ValueType.FLOAT;
@@ -58,45 +61,95 @@ public class ProjectMeasuresIndexerIterator extends CloseableIterator<ProjectMea
 
   private static final Joiner METRICS_JOINER = Joiner.on("','");
 
-  private static final String SQL_PROJECTS = "SELECT p.organization_uuid, p.uuid, p.kee, p.name, s.uuid, s.created_at FROM projects p " +
+  private static final String SQL_PROJECT_MEASURES = "SELECT p.organization_uuid, p.uuid, p.kee, p.name, s.uuid, s.created_at, " +
+    "pm.metric_id, pm.value, pm.variation_value_1, pm.text_value FROM projects p " +
     "LEFT OUTER JOIN snapshots s ON s.component_uuid=p.uuid AND s.islast=? " +
+    "LEFT OUTER JOIN project_measures pm ON pm.component_uuid=p.uuid AND pm.analysis_uuid=s.uuid " +
+    "AND {metricFilter} " +
+    "AND (pm.value IS NOT NULL OR pm.variation_value_1 IS NOT NULL OR pm.text_value IS NOT NULL) " +
+    "AND pm.person_id IS NULL " +
     "WHERE p.enabled=? AND p.scope=? AND p.qualifier=?";
 
   private static final String DATE_FILTER = " AND s.created_at>?";
 
   private static final String PROJECT_FILTER = " AND p.uuid=?";
 
+  private static final String PROJECT_ID_RANGE_FILTER = " AND p.id>=? AND p.id<?";
+
+  // rows of a project must be consecutive to be grouped into a single document
+  private static final String ORDER_BY_PROJECT = " ORDER BY p.uuid";
+
+  private static final String SQL_PROJECT_ID_BOUNDS = "SELECT MIN(p.id), MAX(p.id) FROM projects p " +
+    "WHERE p.enabled=? AND p.scope=? AND p.qualifier=?";
+
   private static final String SQL_METRICS = "SELECT m.id, m.name FROM metrics m " +
     "WHERE m.val_type IN ('" + METRICS_JOINER.join(METRIC_TYPES) + "') " +
     "AND m.enabled=?";
 
-  private static final String SQL_MEASURES = "SELECT pm.metric_id, pm.value, pm.variation_value_1, pm.text_value FROM project_measures pm " +
-    "WHERE pm.component_uuid = ? AND pm.analysis_uuid = ? " +
-    "AND pm.metric_id IN ({metricIds}) " +
-    "AND (pm.value IS NOT NULL OR pm.variation_value_1 IS NOT NULL OR pm.text_value IS NOT NULL) " +
-    "AND pm.person_id IS NULL ";
-
-  private final PreparedStatement measuresStatement;
+  private final PreparedStatement stmt;
+  private final ResultSet rs;
   private final Map<Long, String> metricKeysByIds;
-  private final Iterator<Project> projects;
+  // whether the result set is positioned on a row which has not been read yet
+  private boolean hasRow;
 
-  private ProjectMeasuresIndexerIterator(PreparedStatement measuresStatement, Map<Long, String> metricKeysByIds, List<Project> projects) throws SQLException {
-    this.measuresStatement = measuresStatement;
+  private ProjectMeasuresIndexerIterator(PreparedStatement stmt, Map<Long, String> metricKeysByIds) throws SQLException {
+    this.stmt = stmt;
     this.metricKeysByIds = metricKeysByIds;
-    this.projects = projects.iterator();
+    this.rs = stmt.executeQuery();
+    this.hasRow = rs.next();
+  }
+
+  public static ProjectMeasuresIndexerIterator create(DbClient dbClient, DbSession session, long afterDate, @Nullable String projectUuid) {
+    return create(dbClient, session, afterDate, projectUuid, null);
   }
 
-  public static ProjectMeasuresIndexerIterator create(DbSession session, long afterDate, @Nullable String projectUuid) {
+  /**
+   * Iterator on the projects whose id is in the given range. Ranges returned by {@link #partitionProjectIds(DbSession, int)}
+   * can be iterated in parallel, each with its own session.
+   */
+  public static ProjectMeasuresIndexerIterator createPartition(DbClient dbClient, DbSession session, long afterDate, Range<Long> projectIds) {
+    return create(dbClient, session, afterDate, null, projectIds);
+  }
+
+  private static ProjectMeasuresIndexerIterator create(DbClient dbClient, DbSession session, long afterDate, @Nullable String projectUuid,
+    @Nullable Range<Long> projectIds) {
+    Map<Long, String> metrics = selectMetricKeysByIds(session);
+    PreparedStatement stmt = createProjectMeasuresStatement(dbClient, session, metrics.keySet(), afterDate, projectUuid, projectIds);
     try {
-      Map<Long, String> metrics = selectMetricKeysByIds(session);
-      List<Project> projects = selectProjects(session, afterDate, projectUuid);
-      PreparedStatement projectsStatement = createMeasuresStatement(session, metrics.keySet());
-      return new ProjectMeasuresIndexerIterator(projectsStatement, metrics, projects);
+      return new ProjectMeasuresIndexerIterator(stmt, metrics);
     } catch (SQLException e) {
+      DatabaseUtils.closeQuietly(stmt);
       throw new IllegalStateException("Fail to execute request to select all project measures", e);
     }
   }
 
+  /**
+   * Splits the ids of the projects into at most {@code count} contiguous ranges of the same length.
+   */
+  public static List<Range<Long>> partitionProjectIds(DbSession session, int count) {
+    checkArgument(count > 0, "Count of partitions must be positive");
+    try (PreparedStatement stmt = session.getConnection().prepareStatement(SQL_PROJECT_ID_BOUNDS)) {
+      stmt.setBoolean(1, true);
+      stmt.setString(2, Scopes.PROJECT);
+      stmt.setString(3, Qualifiers.PROJECT);
+      try (ResultSet rs = stmt.executeQuery()) {
+        Long min = rs.next() ? DatabaseUtils.getLong(rs, 1) : null;
+        if (min == null) {
+          return Collections.emptyList();
+        }
+        long max = rs.getLong(2);
+        long length = (max - min) / count + 1;
+        List<Range<Long>> ranges = new ArrayList<>(count);
+        for (long from = min; from <= max; from += length) {
+          ranges.add(Range.closedOpen(from, Math.min(from + length, max + 1)));
+        }
+        return ranges;
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to execute request to select bounds of project ids", e);
+    }
+  }
+
   private static Map<Long, String> selectMetricKeysByIds(DbSession session) {
     Map<Long, String> metrics = new HashMap<>();
     try (PreparedStatement stmt = createMetricsStatement(session);
@@ -116,105 +169,88 @@ public class ProjectMeasuresIndexerIterator extends CloseableIterator<ProjectMea
     return stmt;
   }
 
-  private static List<Project> selectProjects(DbSession session, long afterDate, @Nullable String projectUuid) {
-    List<Project> projects = new ArrayList<>();
-    try (PreparedStatement stmt = createProjectsStatement(session, afterDate, projectUuid);
-      ResultSet rs = stmt.executeQuery()) {
-      while (rs.next()) {
-        String orgUuid = rs.getString(1);
-        String uuid = rs.getString(2);
-        String key = rs.getString(3);
-        String name = rs.getString(4);
-        String analysisUuid = DatabaseUtils.getString(rs, 5);
-        Long analysisDate = DatabaseUtils.getLong(rs, 6);
-        Project project = new Project(orgUuid, uuid, key, name, analysisUuid, analysisDate);
-        projects.add(project);
-      }
-      return projects;
-    } catch (SQLException e) {
-      throw new IllegalStateException("Fail to execute request to select all projects", e);
-    }
-  }
-
-  private static PreparedStatement createProjectsStatement(DbSession session, long afterDate, @Nullable String projectUuid) {
+  private static PreparedStatement createProjectMeasuresStatement(DbClient dbClient, DbSession session, Set<Long> metricIds, long afterDate,
+    @Nullable String projectUuid, @Nullable Range<Long> projectIds) {
+    String metricFilter = metricIds.isEmpty() ? "1=0" : ("pm.metric_id IN (" + repeatCondition("?", metricIds.size(), ",") + ")");
+    String sql = StringUtils.replace(SQL_PROJECT_MEASURES, "{metricFilter}", metricFilter);
+    sql += afterDate <= 0L ? "" : DATE_FILTER;
+    sql += projectUuid == null ? "" : PROJECT_FILTER;
+    sql += projectIds == null ? "" : PROJECT_ID_RANGE_FILTER;
+    sql += ORDER_BY_PROJECT;
+    PreparedStatement stmt = null;
     try {
-      String sql = SQL_PROJECTS;
-      sql += afterDate <= 0L ? "" : DATE_FILTER;
-      sql += projectUuid == null ? "" : PROJECT_FILTER;
-      PreparedStatement stmt = session.getConnection().prepareStatement(sql);
-      stmt.setBoolean(1, true);
-      stmt.setBoolean(2, true);
-      stmt.setString(3, Scopes.PROJECT);
-      stmt.setString(4, Qualifiers.PROJECT);
-      int index = 5;
+      stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      int index = 1;
+      stmt.setBoolean(index++, true);
+      for (Long metricId : metricIds) {
+        stmt.setLong(index++, metricId);
+      }
+      stmt.setBoolean(index++, true);
+      stmt.setString(index++, Scopes.PROJECT);
+      stmt.setString(index++, Qualifiers.PROJECT);
       if (afterDate > 0L) {
-        stmt.setLong(index, afterDate);
-        index++;
+        stmt.setLong(index++, afterDate);
       }
       if (projectUuid != null) {
-        stmt.setString(index, projectUuid);
+        stmt.setString(index++, projectUuid);
       }
-      return stmt;
-    } catch (SQLException e) {
-      throw new IllegalStateException("Fail to prepare SQL request to select all project measures", e);
-    }
-  }
-
-  private static PreparedStatement createMeasuresStatement(DbSession session, Set<Long> metricIds) throws SQLException {
-    try {
-      String sql = StringUtils.replace(SQL_MEASURES, "{metricIds}", repeatCondition("?", metricIds.size(), ","));
-      PreparedStatement stmt = session.getConnection().prepareStatement(sql);
-      int index = 3;
-      for (Long metricId : metricIds) {
-        stmt.setLong(index, metricId);
-        index++;
+      if (projectIds != null) {
+        stmt.setLong(index++, projectIds.lowerEndpoint());
+        stmt.setLong(index, projectIds.upperEndpoint());
       }
       return stmt;
     } catch (SQLException e) {
-      throw new IllegalStateException("Fail to prepare SQL request to select measures", e);
+      DatabaseUtils.closeQuietly(stmt);
+      throw new IllegalStateException("Fail to prepare SQL request to select all project measures", e);
     }
   }
 
+  /**
+   * Pivots the consecutive rows of the next project into a single document
+   */
   @Override
   @CheckForNull
   protected ProjectMeasures doNext() {
-    if (!projects.hasNext()) {
+    if (!hasRow) {
       return null;
     }
-    Project project = projects.next();
-    Measures measures = selectMeasures(project.getUuid(), project.getAnalysisUuid());
-    return new ProjectMeasures(project, measures);
-  }
-
-  private Measures selectMeasures(String projectUuid, @Nullable String analysisUuid) {
-    Measures measures = new Measures();
-    if (analysisUuid == null || metricKeysByIds.isEmpty()) {
-      return measures;
-    }
-    ResultSet rs = null;
+    Project project = null;
     try {
-      measuresStatement.setString(1, projectUuid);
-      measuresStatement.setString(2, analysisUuid);
-      rs = measuresStatement.executeQuery();
-      while (rs.next()) {
-        readMeasure(rs, measures);
-      }
-      return measures;
+      project = readProject(rs);
+      Measures measures = new Measures();
+      do {
+        rs.getLong(7);
+        if (!rs.wasNull()) {
+          readMeasure(rs, measures);
+        }
+        hasRow = rs.next();
+      } while (hasRow && project.getUuid().equals(rs.getString(2)));
+      return new ProjectMeasures(project, measures);
     } catch (Exception e) {
-      throw new IllegalStateException(String.format("Fail to execute request to select measures of project %s, analysis %s", projectUuid, analysisUuid), e);
-    } finally {
-      DatabaseUtils.closeQuietly(rs);
+      String message = project == null ? "Fail to read project measures"
+        : String.format("Fail to execute request to select measures of project %s, analysis %s", project.getUuid(), project.getAnalysisUuid());
+      throw new IllegalStateException(message, e);
     }
   }
 
+  private static Project readProject(ResultSet rs) throws SQLException {
+    String orgUuid = rs.getString(1);
+    String uuid = rs.getString(2);
+    String key = rs.getString(3);
+    String name = rs.getString(4);
+    String analysisUuid = DatabaseUtils.getString(rs, 5);
+    Long analysisDate = DatabaseUtils.getLong(rs, 6);
+    return new Project(orgUuid, uuid, key, name, analysisUuid, analysisDate);
+  }
+
   private void readMeasure(ResultSet rs, Measures measures) throws SQLException {
-    String metricKey = metricKeysByIds.get(rs.getLong(1));
-    Optional<Double> value = metricKey.startsWith("new_") ? getDouble(rs, 3) : getDouble(rs, 2);
+    String metricKey = metricKeysByIds.get(rs.getLong(7));
+    Optional<Double> value = metricKey.startsWith("new_") ? getDouble(rs, 9) : getDouble(rs, 8);
     if (value.isPresent()) {
       measures.addNumericMeasure(metricKey, value.get());
       return;
     } else if (ALERT_STATUS_KEY.equals(metricKey)) {
-      String textValue = rs.getString(4);
+      String textValue = rs.getString(10);
       if (!rs.wasNull()) {
         measures.setQualityGateStatus(textValue);
         return;
@@ -225,7 +261,8 @@ public class ProjectMeasuresIndexerIterator extends CloseableIterator<ProjectMea
 
   @Override
   protected void doClose() throws Exception {
-    measuresStatement.close();
+    DatabaseUtils.closeQuietly(rs);
+    stmt.close();
   }
 
   private static Optional<Double> getDouble(ResultSet rs, int index) {
@@ -0,0 +1,501 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.pool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.BasicDataSourceFactory;
+import org.apache.commons.dbcp.ConnectionFactory;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * JDBC connection pool which borrows and returns connections without any global lock, contrary to
+ * commons-dbcp whose pool is synchronized. Idle connections are kept in a lock-free deque, most recently
+ * used first, and the number of connections in use is bounded by a non-fair semaphore.
+ * <p>
+ * It is configured by the same properties as {@link BasicDataSource}, for example {@code maxActive},
+ * {@code maxIdle}, {@code minIdle} or {@code maxWait}, so that it can replace it transparently. Differences are:
+ * <ul>
+ *   <li>idle connections are validated when borrowed only if they have not been used for {@link #VALIDATION_BYPASS_MS} ms</li>
+ *   <li>connections borrowed for more than {@code removeAbandonedTimeout} seconds are logged as leaks but are not closed</li>
+ *   <li>prepared statements are not pooled</li>
+ * </ul>
+ */
+public class ConcurrentConnectionPool extends BasicDataSource {
+
+  static final int UNKNOWN_TRANSACTION_ISOLATION = -1;
+  static final long VALIDATION_BYPASS_MS = 500L;
+  private static final long DEFAULT_HOUSEKEEPING_PERIOD_MS = 30_000L;
+  // wait times are counted in buckets of powers of two microseconds
+  private static final int WAIT_TIME_BUCKETS = 64;
+  private static final Logger LOG = Loggers.get(ConcurrentConnectionPool.class);
+
+  private final System2 system2;
+  private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder leakCount = new LongAdder();
+  private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(WAIT_TIME_BUCKETS);
+
+  private volatile State state;
+  private volatile boolean closed = false;
+  private PrintWriter logWriter;
+  private int loginTimeout;
+
+  public ConcurrentConnectionPool() {
+    this(System2.INSTANCE);
+  }
+
+  ConcurrentConnectionPool(System2 system2) {
+    this.system2 = system2;
+  }
+
+  /**
+   * Creates a pool configured by the properties supported by {@link BasicDataSourceFactory}.
+   */
+  public static ConcurrentConnectionPool create(Properties properties) throws Exception {
+    Properties copy = new Properties();
+    copy.putAll(properties);
+    // commons-dbcp opens its own connections when the initial size is positive
+    String initialSize = (String) copy.remove("initialSize");
+    BasicDataSource configuration = (BasicDataSource) BasicDataSourceFactory.createDataSource(copy);
+
+    ConcurrentConnectionPool pool = new ConcurrentConnectionPool();
+    pool.copyConfiguration(configuration);
+    if (initialSize != null) {
+      pool.setInitialSize(Integer.parseInt(initialSize));
+    }
+    String connectionProperties = copy.getProperty("connectionProperties");
+    if (connectionProperties != null) {
+      pool.setConnectionProperties(connectionProperties);
+    }
+    return pool;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    State current = start();
+    long startNanos = System.nanoTime();
+    acquire(current);
+    PooledConnection connection;
+    try {
+      connection = idleOrNewConnection(current);
+    } catch (SQLException | RuntimeException e) {
+      current.permits.release();
+      throw e;
+    }
+    recordWaitTime(System.nanoTime() - startNanos);
+    borrowCount.increment();
+    borrowedConnections.add(connection);
+    Throwable trace = current.logAbandoned ? new IllegalStateException("Connection borrowed by thread " + Thread.currentThread().getName()) : null;
+    return connection.borrow(system2.now(), trace);
+  }
+
+  @Override
+  public Connection getConnection(String user, String password) throws SQLException {
+    throw new UnsupportedOperationException("Not supported by " + getClass().getSimpleName());
+  }
+
+  /**
+   * Called when the borrower closes the connection
+   */
+  void release(PooledConnection connection) {
+    State current = state;
+    borrowedConnections.remove(connection);
+    try {
+      if (closed || !connection.passivate(current.defaultAutoCommit) || !offerIdle(connection, current.maxIdle)) {
+        connection.destroy();
+        return;
+      }
+      if (closed) {
+        // close() may have drained the idle connections before this one has been offered
+        closeIdleConnections();
+      }
+    } finally {
+      current.permits.release();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws SQLException {
+    closed = true;
+    State current = state;
+    if (current != null) {
+      current.housekeeper.shutdownNow();
+    }
+    closeIdleConnections();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public int getNumActive() {
+    return borrowedConnections.size();
+  }
+
+  @Override
+  public int getNumIdle() {
+    return Math.max(idleCount.get(), 0);
+  }
+
+  /**
+   * Number of connections borrowed since the pool has been started
+   */
+  public long getBorrowCount() {
+    return borrowCount.sum();
+  }
+
+  /**
+   * Number of connections which have been borrowed for more than {@link #getRemoveAbandonedTimeout()} seconds
+   */
+  public long getLeakCount() {
+    return leakCount.sum();
+  }
+
+  /**
+   * Estimated time, in microseconds, under which the given percentage of borrowers got a connection. Estimate
+   * is at most twice the exact value.
+   *
+   * @param percentile between 0 (exclusive) and 100 (inclusive)
+   */
+  public long getWaitTimePercentileMicros(double percentile) {
+    checkArgument(percentile > 0.0 && percentile <= 100.0, "Percentile must be in ]0, 100]: %s", percentile);
+    long[] counts = new long[WAIT_TIME_BUCKETS];
+    long total = 0L;
+    for (int i = 0; i < WAIT_TIME_BUCKETS; i++) {
+      counts[i] = waitTimeHistogram.get(i);
+      total += counts[i];
+    }
+    long rank = (long) Math.ceil(total * percentile / 100.0);
+    long cumulated = 0L;
+    for (int bucket = 0; bucket < WAIT_TIME_BUCKETS; bucket++) {
+      cumulated += counts[bucket];
+      if (cumulated >= rank && cumulated > 0L) {
+        return (1L << bucket) - 1L;
+      }
+    }
+    return 0L;
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return logWriter;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter logWriter) {
+    this.logWriter = logWriter;
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return loginTimeout;
+  }
+
+  @Override
+  public void setLoginTimeout(int loginTimeout) {
+    this.loginTimeout = loginTimeout;
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    throw new SQLFeatureNotSupportedException(format("%s is not a wrapper for %s", getClass().getSimpleName(), iface.getName()));
+  }
+
+  /**
+   * Evicts the connections idle for more than {@link #getMinEvictableIdleTimeMillis()}, opens connections
+   * up to {@link #getMinIdle()} and reports leaks. Executed periodically by a daemon thread.
+   */
+  void housekeep() {
+    State current = state;
+    if (current == null || closed) {
+      return;
+    }
+    long now = system2.now();
+    evictIdleConnections(now);
+    fillIdleConnections(current, getMinIdle());
+    detectLeaks(now);
+  }
+
+  private State start() throws SQLException {
+    State current = state;
+    if (current == null) {
+      synchronized (this) {
+        current = state;
+        if (current == null && !closed) {
+          current = new State(this);
+          state = current;
+          fillIdleConnections(current, Math.max(getInitialSize(), getMinIdle()));
+          long period = getTimeBetweenEvictionRunsMillis() > 0 ? getTimeBetweenEvictionRunsMillis() : DEFAULT_HOUSEKEEPING_PERIOD_MS;
+          current.housekeeper.scheduleWithFixedDelay(this::housekeepQuietly, period, period, MILLISECONDS);
+        }
+      }
+    }
+    if (closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+    return current;
+  }
+
+  private static void acquire(State current) throws SQLException {
+    try {
+      if (current.maxWaitMs <= 0) {
+        current.permits.acquire();
+      } else if (!current.permits.tryAcquire(current.maxWaitMs, MILLISECONDS)) {
+        throw new SQLException(format("Cannot get a connection, pool exhausted after waiting %d ms", current.maxWaitMs));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+  }
+
+  private PooledConnection idleOrNewConnection(State current) throws SQLException {
+    PooledConnection connection = pollIdle();
+    while (connection != null) {
+      if (!current.testOnBorrow
+        || system2.now() - connection.getLastUsedAt() < VALIDATION_BYPASS_MS
+        || connection.isValid(current.validationQuery, current.validationQueryTimeout)) {
+        return connection;
+      }
+      connection.destroy();
+      connection = pollIdle();
+    }
+    return newConnection(current);
+  }
+
+  private PooledConnection newConnection(State current) throws SQLException {
+    Connection physical = current.connectionFactory.createConnection();
+    if (physical == null) {
+      throw new SQLException("JDBC driver returned no connection");
+    }
+    PooledConnection connection = new PooledConnection(this, physical);
+    try {
+      connection.initialize(initSqls(), current.defaultAutoCommit, getDefaultReadOnly(), getDefaultTransactionIsolation(), getDefaultCatalog());
+    } catch (SQLException | RuntimeException e) {
+      connection.destroy();
+      throw e;
+    }
+    return connection;
+  }
+
+  @CheckForNull
+  private PooledConnection pollIdle() {
+    PooledConnection connection = idleConnections.pollFirst();
+    if (connection != null) {
+      idleCount.decrementAndGet();
+    }
+    return connection;
+  }
+
+  private boolean offerIdle(PooledConnection connection, int maxIdle) {
+    int count = idleCount.incrementAndGet();
+    if (maxIdle >= 0 && count > maxIdle) {
+      idleCount.decrementAndGet();
+      return false;
+    }
+    connection.setIdleSince(system2.now());
+    idleConnections.offerFirst(connection);
+    return true;
+  }
+
+  private void evictIdleConnections(long now) {
+    long minEvictableIdleMs = getMinEvictableIdleTimeMillis();
+    if (minEvictableIdleMs <= 0) {
+      return;
+    }
+    int minIdle = getMinIdle();
+    // least recently used connections are at the end of the deque
+    Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+    while (oldestFirst.hasNext() && idleCount.get() > minIdle) {
+      PooledConnection connection = oldestFirst.next();
+      if (now - connection.getLastUsedAt() > minEvictableIdleMs && idleConnections.remove(connection)) {
+        idleCount.decrementAndGet();
+        connection.destroy();
+      }
+    }
+  }
+
+  private void fillIdleConnections(State current, int targetIdle) {
+    while (!closed && idleCount.get() < targetIdle && current.permits.tryAcquire()) {
+      try {
+        PooledConnection connection = newConnection(current);
+        if (!offerIdle(connection, current.maxIdle)) {
+          // connections returned concurrently already filled the idle slots
+          connection.destroy();
+          return;
+        }
+        if (closed) {
+          closeIdleConnections();
+        }
+      } catch (SQLException e) {
+        LOG.warn("Fail to open idle database connection", e);
+        return;
+      } finally {
+        current.permits.release();
+      }
+    }
+  }
+
+  private void detectLeaks(long now) {
+    long leakThresholdMs = TimeUnit.SECONDS.toMillis(getRemoveAbandonedTimeout());
+    for (PooledConnection connection : borrowedConnections) {
+      if (now - connection.getLastUsedAt() > leakThresholdMs && connection.markLeakReported()) {
+        leakCount.increment();
+        Throwable trace = connection.getBorrowTrace();
+        if (trace == null) {
+          LOG.warn("Database connection {} is borrowed for more than {} seconds. Set property sonar.jdbc.logAbandoned=true to log where it is borrowed.",
+            connection, getRemoveAbandonedTimeout());
+        } else {
+          LOG.warn(format("Database connection %s is borrowed for more than %d seconds", connection, getRemoveAbandonedTimeout()), trace);
+        }
+      }
+    }
+  }
+
+  private void housekeepQuietly() {
+    try {
+      housekeep();
+    } catch (RuntimeException e) {
+      LOG.warn("Fail to maintain database connection pool", e);
+    }
+  }
+
+  private void closeIdleConnections() {
+    PooledConnection connection = pollIdle();
+    while (connection != null) {
+      connection.destroy();
+      connection = pollIdle();
+    }
+  }
+
+  private void recordWaitTime(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0L));
+    waitTimeHistogram.incrementAndGet(64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  private List<String> initSqls() {
+    Collection<?> sqls = getConnectionInitSqls();
+    List<String> result = new ArrayList<>(sqls.size());
+    for (Object sql : sqls) {
+      result.add((String) sql);
+    }
+    return result;
+  }
+
+  private void copyConfiguration(BasicDataSource configuration) {
+    setDriverClassName(configuration.getDriverClassName());
+    setDriverClassLoader(configuration.getDriverClassLoader());
+    setUrl(configuration.getUrl());
+    setUsername(configuration.getUsername());
+    setPassword(configuration.getPassword());
+    setDefaultAutoCommit(configuration.getDefaultAutoCommit());
+    setDefaultReadOnly(configuration.getDefaultReadOnly());
+    setDefaultTransactionIsolation(configuration.getDefaultTransactionIsolation());
+    setDefaultCatalog(configuration.getDefaultCatalog());
+    setMaxActive(configuration.getMaxActive());
+    setMaxIdle(configuration.getMaxIdle());
+    setMinIdle(configuration.getMinIdle());
+    setMaxWait(configuration.getMaxWait());
+    setTestOnBorrow(configuration.getTestOnBorrow());
+    setValidationQuery(configuration.getValidationQuery());
+    setValidationQueryTimeout(configuration.getValidationQueryTimeout());
+    setConnectionInitSqls(configuration.getConnectionInitSqls());
+    setMinEvictableIdleTimeMillis(configuration.getMinEvictableIdleTimeMillis());
+    setTimeBetweenEvictionRunsMillis(configuration.getTimeBetweenEvictionRunsMillis());
+    setRemoveAbandoned(configuration.getRemoveAbandoned());
+    setRemoveAbandonedTimeout(configuration.getRemoveAbandonedTimeout());
+    setLogAbandoned(configuration.getLogAbandoned());
+  }
+
+  /**
+   * Settings read on each borrow and return. They are copied when the pool is started, as the getters of
+   * {@link BasicDataSource} are synchronized.
+   */
+  private static class State {
+    private final Semaphore permits;
+    private final ConnectionFactory connectionFactory;
+    private final ScheduledExecutorService housekeeper;
+    private final long maxWaitMs;
+    private final int maxIdle;
+    private final boolean testOnBorrow;
+    @Nullable
+    private final String validationQuery;
+    private final int validationQueryTimeout;
+    private final boolean defaultAutoCommit;
+    private final boolean logAbandoned;
+
+    private State(ConcurrentConnectionPool pool) throws SQLException {
+      this.permits = new Semaphore(pool.getMaxActive() > 0 ? pool.getMaxActive() : Integer.MAX_VALUE);
+      this.connectionFactory = pool.createConnectionFactory();
+      this.housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("ConnectionPool-housekeeper-%d")
+        .build());
+      this.maxWaitMs = pool.getMaxWait();
+      this.maxIdle = pool.getMaxIdle();
+      this.testOnBorrow = pool.getTestOnBorrow();
+      this.validationQuery = pool.getValidationQuery();
+      this.validationQueryTimeout = pool.getValidationQueryTimeout();
+      this.defaultAutoCommit = pool.getDefaultAutoCommit();
+      this.logAbandoned = pool.getLogAbandoned();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.dbutils.DbUtils;
+
+/**
+ * Physical connection of {@link ConcurrentConnectionPool}. Each borrower gets its own proxy of the connection,
+ * so that closing it returns the connection to the pool only once, and that a proxy can't be used anymore once
+ * closed, even if the physical connection has been borrowed again.
+ */
+class PooledConnection {
+
+  private final ConcurrentConnectionPool pool;
+  private final Connection physical;
+  // date of borrowing when the connection is in use, date of release when it is idle
+  private volatile long lastUsedAt;
+  @Nullable
+  private volatile Throwable borrowTrace;
+  private volatile boolean leakReported;
+
+  PooledConnection(ConcurrentConnectionPool pool, Connection physical) {
+    this.pool = pool;
+    this.physical = physical;
+  }
+
+  void initialize(Collection<String> initSqls, boolean autoCommit, boolean readOnly, int transactionIsolation, @Nullable String catalog) throws SQLException {
+    for (String sql : initSqls) {
+      try (Statement statement = physical.createStatement()) {
+        statement.execute(sql);
+      }
+    }
+    if (physical.getAutoCommit() != autoCommit) {
+      physical.setAutoCommit(autoCommit);
+    }
+    if (readOnly) {
+      physical.setReadOnly(true);
+    }
+    if (transactionIsolation != ConcurrentConnectionPool.UNKNOWN_TRANSACTION_ISOLATION) {
+      physical.setTransactionIsolation(transactionIsolation);
+    }
+    if (catalog != null) {
+      physical.setCatalog(catalog);
+    }
+  }
+
+  Connection borrow(long now, @Nullable Throwable trace) {
+    this.lastUsedAt = now;
+    this.borrowTrace = trace;
+    this.leakReported = false;
+    return (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(), new Class[] {Connection.class}, new Handle());
+  }
+
+  void setIdleSince(long now) {
+    this.lastUsedAt = now;
+    this.borrowTrace = null;
+  }
+
+  long getLastUsedAt() {
+    return lastUsedAt;
+  }
+
+  @CheckForNull
+  Throwable getBorrowTrace() {
+    return borrowTrace;
+  }
+
+  /**
+   * @return true the first time it's called since the connection has been borrowed
+   */
+  boolean markLeakReported() {
+    if (leakReported) {
+      return false;
+    }
+    leakReported = true;
+    return true;
+  }
+
+  boolean isValid(@Nullable String validationQuery, int timeoutSeconds) {
+    try {
+      if (validationQuery == null) {
+        return physical.isValid(Math.max(timeoutSeconds, 0));
+      }
+      try (Statement statement = physical.createStatement()) {
+        if (timeoutSeconds > 0) {
+          statement.setQueryTimeout(timeoutSeconds);
+        }
+        statement.execute(validationQuery);
+      }
+      return true;
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Rolls back the pending transaction and restores the default auto-commit mode before the connection
+   * is reused.
+   *
+   * @return false if the connection is broken and must be destroyed
+   */
+  boolean passivate(boolean defaultAutoCommit) {
+    try {
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+      }
+      physical.clearWarnings();
+      if (physical.getAutoCommit() != defaultAutoCommit) {
+        physical.setAutoCommit(defaultAutoCommit);
+      }
+      return true;
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  void destroy() {
+    DbUtils.closeQuietly(physical);
+  }
+
+  @Override
+  public String toString() {
+    return physical.toString();
+  }
+
+  private class Handle implements InvocationHandler {
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (closed.compareAndSet(false, true)) {
+            pool.release(PooledConnection.this);
+          }
+          return null;
+        case "isClosed":
+          return closed.get();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled " + physical;
+        default:
+          if (closed.get()) {
+            throw new SQLException("Connection is closed");
+          }
+          try {
+            return method.invoke(physical, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Statistics of the statements executed through MyBatis since the start of the JVM, aggregated by
+ * MyBatis statement id (for example {@code org.sonar.db.ce.CeQueueMapper.selectByUuid}). Contrary to the
+ * logs of {@link ProfiledDataSource}, they are always collected, so recording a statement only updates
+ * striped counters and a latency histogram, without any lock nor allocation once the statement is known.
+ * <p>
+ * Durations are stored in a histogram of microseconds whose buckets are powers of two split in
+ * {@link #SUB_BUCKETS} linear sub-buckets, so that percentiles are estimated with a relative error
+ * lower than 25%.
+ *
+ * @see SqlStatisticsInterceptor
+ */
+public final class SqlStatementStatistics {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // up to 2^40 microseconds, which is about 12 days
+  private static final int MAX_MAGNITUDE = 40;
+  static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private static final ConcurrentMap<String, Counters> COUNTERS_BY_STATEMENT = new ConcurrentHashMap<>();
+
+  private SqlStatementStatistics() {
+    // only static methods
+  }
+
+  /**
+   * Snapshot of the statistics of all the statements executed so far, the most expensive ones (in total
+   * execution time) first.
+   */
+  public static List<Snapshot> snapshot() {
+    List<Snapshot> snapshots = new ArrayList<>(COUNTERS_BY_STATEMENT.size());
+    COUNTERS_BY_STATEMENT.forEach((statementId, counters) -> snapshots.add(counters.snapshot(statementId)));
+    snapshots.sort(Comparator.comparingLong(Snapshot::getTotalMicros).reversed().thenComparing(Snapshot::getStatementId));
+    return snapshots;
+  }
+
+  static void record(String statementId, long durationNanos, long rows) {
+    Counters counters = COUNTERS_BY_STATEMENT.get(statementId);
+    if (counters == null) {
+      counters = COUNTERS_BY_STATEMENT.computeIfAbsent(statementId, id -> new Counters());
+    }
+    counters.record(TimeUnit.NANOSECONDS.toMicros(Math.max(durationNanos, 0L)), Math.max(rows, 0L));
+  }
+
+  static void clear() {
+    COUNTERS_BY_STATEMENT.clear();
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+    if (magnitude > MAX_MAGNITUDE) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Smallest duration, in microseconds, of the given bucket
+   */
+  static long lowerBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket & (SUB_BUCKETS - 1);
+    return (SUB_BUCKETS + subBucket) << (magnitude - SUB_BUCKET_BITS);
+  }
+
+  private static class Counters {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    void record(long micros, long rowCount) {
+      count.increment();
+      totalMicros.add(micros);
+      rows.add(rowCount);
+      histogram.incrementAndGet(bucketOf(micros));
+      long max = maxMicros.get();
+      while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+        max = maxMicros.get();
+      }
+    }
+
+    Snapshot snapshot(String statementId) {
+      long[] buckets = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = histogram.get(i);
+      }
+      return new Snapshot(statementId, count.sum(), totalMicros.sum(), maxMicros.get(), rows.sum(), buckets);
+    }
+  }
+
+  /**
+   * Statistics of a statement at a given time. As counters are not updated atomically together, they
+   * may be slightly inconsistent with each other while the statement is being executed.
+   */
+  public static final class Snapshot {
+    private final String statementId;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+    private final long rows;
+    private final long[] histogram;
+
+    private Snapshot(String statementId, long count, long totalMicros, long maxMicros, long rows, long[] histogram) {
+      this.statementId = statementId;
+      this.count = count;
+      this.totalMicros = totalMicros;
+      this.maxMicros = maxMicros;
+      this.rows = rows;
+      this.histogram = histogram;
+    }
+
+    public String getStatementId() {
+      return statementId;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalMicros() {
+      return totalMicros;
+    }
+
+    public long getMaxMicros() {
+      return maxMicros;
+    }
+
+    /**
+     * Number of rows fetched by queries, or updated by inserts, updates and deletes
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    /**
+     * Estimated duration, in microseconds, under which the given percentage of executions completed.
+     *
+     * @param percentile between 0 (exclusive) and 100 (inclusive)
+     */
+    public long getPercentileMicros(double percentile) {
+      checkArgument(percentile > 0.0 && percentile <= 100.0, "Percentile must be in ]0, 100]: %s", percentile);
+      long total = 0L;
+      for (long bucketCount : histogram) {
+        total += bucketCount;
+      }
+      long rank = (long) Math.ceil(total * percentile / 100.0);
+      long cumulated = 0L;
+      for (int bucket = 0; bucket < histogram.length; bucket++) {
+        cumulated += histogram[bucket];
+        if (cumulated >= rank && cumulated > 0L) {
+          long upperBound = bucket + 1 < BUCKETS ? (lowerBoundOf(bucket + 1) - 1) : maxMicros;
+          return Math.min(upperBound, maxMicros);
+        }
+      }
+      return 0L;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.List;
+import java.util.Properties;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Feeds {@link ThreadSqlStatistics} and {@link SqlStatementStatistics} with the statements executed by MyBatis.
+ * Contrary to {@link ProfiledDataSource}, it is always enabled, so it only increments counters.
+ * <p>
+ * Durations are measured around the MyBatis executor, so they include the mapping of results, and the
+ * consumption of rows when a {@link ResultHandler} is given.
+ */
+@Intercepts({
+  @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+})
+public class SqlStatisticsInterceptor implements Interceptor {
+
+  private static final int MAPPED_STATEMENT_ARG = 0;
+  private static final int RESULT_HANDLER_ARG = 3;
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    ThreadSqlStatistics.addStatement();
+    Object[] args = invocation.getArgs();
+    boolean query = args.length > RESULT_HANDLER_ARG;
+    CountingResultHandler countingHandler = null;
+    if (query && args[RESULT_HANDLER_ARG] != null) {
+      countingHandler = new CountingResultHandler((ResultHandler) args[RESULT_HANDLER_ARG]);
+      args[RESULT_HANDLER_ARG] = countingHandler;
+    }
+    long rows = 0L;
+    long start = System.nanoTime();
+    try {
+      Object result = invocation.proceed();
+      if (result instanceof List) {
+        rows = ((List) result).size();
+      } else if (!query && result instanceof Integer) {
+        // batch executors return a negative value
+        rows = Math.max((Integer) result, 0);
+      }
+      ThreadSqlStatistics.addRows(rows);
+      return result;
+    } finally {
+      if (countingHandler != null) {
+        rows += countingHandler.count;
+      }
+      SqlStatementStatistics.record(((MappedStatement) args[MAPPED_STATEMENT_ARG]).getId(), System.nanoTime() - start, rows);
+    }
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+
+  private static class CountingResultHandler implements ResultHandler {
+    private final ResultHandler delegate;
+    private long count = 0L;
+
+    CountingResultHandler(ResultHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void handleResult(ResultContext context) {
+      count++;
+      ThreadSqlStatistics.addRows(1);
+      delegate.handleResult(context);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+/**
+ * Counters of the SQL statements executed through MyBatis by the current thread, and of the rows they
+ * fetched or updated. Counters are never reset: callers are expected to compute the difference between
+ * two readings.
+ *
+ * @see SqlStatisticsInterceptor
+ */
+public final class ThreadSqlStatistics {
+
+  private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+  private static final int STATEMENTS = 0;
+  private static final int ROWS = 1;
+
+  private ThreadSqlStatistics() {
+    // only static methods
+  }
+
+  public static long statementCount() {
+    return COUNTERS.get()[STATEMENTS];
+  }
+
+  public static long rowCount() {
+    return COUNTERS.get()[ROWS];
+  }
+
+  static void addStatement() {
+    COUNTERS.get()[STATEMENTS]++;
+  }
+
+  static void addRows(long rows) {
+    if (rows > 0) {
+      COUNTERS.get()[ROWS] += rows;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import org.sonar.api.utils.System2;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+
+/**
+ * Bounds the work done by an incremental purge: data is deleted by chunks of analyses or issues,
+ * each chunk being committed, and no new chunk is started once the deadline is passed. Work which is
+ * left is found again by the next purge of the project.
+ */
+public class PurgeBudget {
+
+  private static final PurgeBudget UNLIMITED = new PurgeBudget(PARTITION_SIZE_FOR_ORACLE, Long.MAX_VALUE, System2.INSTANCE);
+
+  private final int chunkSize;
+  private final long deadline;
+  private final System2 system2;
+
+  public PurgeBudget(int chunkSize, long deadline, System2 system2) {
+    checkArgument(chunkSize > 0, "Chunk size must be strictly positive: %s", chunkSize);
+    this.chunkSize = chunkSize;
+    this.deadline = deadline;
+    this.system2 = system2;
+  }
+
+  /**
+   * No deadline and chunks of 1000 elements, as when purging during the analysis of a project
+   */
+  public static PurgeBudget unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Maximum number of analyses or issues deleted in a single transaction
+   */
+  public int chunkSize() {
+    return chunkSize;
+  }
+
+  public boolean isExhausted() {
+    return system2.now() >= deadline;
+  }
+}
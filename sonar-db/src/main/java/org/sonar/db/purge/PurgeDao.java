@@ -39,6 +39,7 @@ import org.sonar.db.component.ComponentTreeQuery.Strategy;
 import static java.util.Collections.emptyList;
 import static org.sonar.api.utils.DateUtils.dateToLong;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 
 /**
  * @since 2.14
@@ -56,38 +57,107 @@ public class PurgeDao implements Dao {
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
+    purgeHistory(session, conf, listener, profiler, PurgeBudget.unlimited());
+    purgeDisabledComponents(session, conf, listener);
+  }
+
+  /**
+   * Deletes the data which is not needed anymore by the history of the project: aborted analyses, measures
+   * which are not kept by past analyses and old closed issues. Analyses and issues are processed by chunks
+   * which are committed one after the other, so that the purge can stop when the budget is exhausted and be
+   * resumed later.
+   *
+   * @return {@code true} if the purge is complete, {@code false} if data is left to be purged
+   */
+  public boolean purgeHistory(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler, PurgeBudget budget) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
     PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     deleteAbortedAnalyses(rootUuid, commands);
-    deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData(), commands);
-    purgeAnalyses(commands, rootUuid);
+    return purgeAnalyses(session, rootUuid, conf.scopesWithoutHistoricalData(), commands, budget)
+      && deleteOldClosedIssues(session, conf, mapper, listener, budget);
+  }
+
+  /**
+   * Deletes the measures which are not kept by the analysis superseded by the last one. Nothing is done when several
+   * analyses are left to be purged, this backlog being handled by
+   * {@link #purgeHistory(DbSession, PurgeConfiguration, PurgeListener, PurgeProfiler, PurgeBudget)}.
+   */
+  public void purgeSupersededAnalysis(DbSession session, PurgeConfiguration conf, PurgeProfiler profiler) {
+    PurgeCommands commands = new PurgeCommands(session, mapper(session), profiler);
+    String rootUuid = conf.rootProjectIdUuid().getUuid();
+    List<IdUuidPair> analysisIdUuids = commands.selectSnapshotIdUuids(newNotPurgedAnalysesQuery(rootUuid));
+    if (analysisIdUuids.size() == 1) {
+      List<String> componentWithoutHistoricalDataUuids = selectComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData());
+      commands.deleteComponentMeasures(IdUuidPairs.uuids(analysisIdUuids), componentWithoutHistoricalDataUuids);
+      commands.purgeAnalyses(analysisIdUuids);
+    }
+  }
+
+  /**
+   * Whether {@link #purgeHistory(DbSession, PurgeConfiguration, PurgeListener, PurgeProfiler, PurgeBudget)} has
+   * something to delete.
+   */
+  public boolean hasHistoryToPurge(DbSession session, PurgeConfiguration conf) {
+    PurgeMapper mapper = session.getMapper(PurgeMapper.class);
+    String rootUuid = conf.rootProjectIdUuid().getUuid();
+    return !mapper.selectAnalysisIdsAndUuids(new PurgeSnapshotQuery()
+      .setComponentUuid(rootUuid)
+      .setIslast(false)
+      .setStatus(UNPROCESSED_STATUS)).isEmpty()
+      || !mapper.selectAnalysisIdsAndUuids(newNotPurgedAnalysesQuery(rootUuid)).isEmpty()
+      || !mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(conf.maxLiveDateOfClosedIssues())).isEmpty();
+  }
+
+  /**
+   * Deletes the sources and resolves the issues of the components which have been disabled by the last analysis.
+   */
+  public void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
     purgeDisabledComponents(session, conf.getDisabledComponentUuids(), listener);
-    deleteOldClosedIssues(conf, mapper, listener);
   }
 
-  private static void purgeAnalyses(PurgeCommands commands, String rootUuid) {
-    List<IdUuidPair> analysisUuids = commands.selectSnapshotIdUuids(
-      new PurgeSnapshotQuery()
-        .setComponentUuid(rootUuid)
-        .setIslast(false)
-        .setNotPurged(true));
-    commands.purgeAnalyses(analysisUuids);
+  private boolean purgeAnalyses(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData, PurgeCommands commands, PurgeBudget budget) {
+    List<IdUuidPair> analysisIdUuids = commands.selectSnapshotIdUuids(newNotPurgedAnalysesQuery(rootUuid));
+    if (analysisIdUuids.isEmpty()) {
+      return true;
+    }
+    List<String> componentWithoutHistoricalDataUuids = selectComponentsWithoutHistoricalData(dbSession, rootUuid, scopesWithoutHistoricalData);
+    List<List<IdUuidPair>> chunks = Lists.partition(analysisIdUuids, budget.chunkSize());
+    for (int i = 0; i < chunks.size(); i++) {
+      List<IdUuidPair> chunk = chunks.get(i);
+      // purge status of analyses is updated last, so that the measures of the chunk are deleted again if the purge is interrupted
+      commands.deleteComponentMeasures(IdUuidPairs.uuids(chunk), componentWithoutHistoricalDataUuids);
+      commands.purgeAnalyses(chunk);
+      if (i < chunks.size() - 1 && budget.isExhausted()) {
+        return false;
+      }
+    }
+    return true;
   }
 
-  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
+  private static boolean deleteOldClosedIssues(DbSession session, PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener, PurgeBudget budget) {
     Date toDate = conf.maxLiveDateOfClosedIssues();
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     List<String> issueKeys = mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(toDate));
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssueChangesFromIssueKeys(input);
-      return emptyList();
-    });
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssuesFromKeys(input);
-      return emptyList();
-    });
-    listener.onIssuesRemoval(rootUuid, issueKeys);
+    List<List<String>> chunks = Lists.partition(issueKeys, budget.chunkSize());
+    for (int i = 0; i < chunks.size(); i++) {
+      List<String> chunk = chunks.get(i);
+      executeLargeUpdates(chunk, mapper::deleteIssueChangesFromIssueKeys);
+      executeLargeUpdates(chunk, mapper::deleteIssuesFromKeys);
+      session.commit();
+      listener.onIssuesRemoval(rootUuid, chunk);
+      if (i < chunks.size() - 1 && budget.isExhausted()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static PurgeSnapshotQuery newNotPurgedAnalysesQuery(String rootUuid) {
+    return new PurgeSnapshotQuery()
+      .setComponentUuid(rootUuid)
+      .setIslast(false)
+      .setNotPurged(true);
   }
 
   private static void deleteAbortedAnalyses(String rootUuid, PurgeCommands commands) {
@@ -99,17 +169,11 @@ public class PurgeDao implements Dao {
     commands.deleteAnalyses(query);
   }
 
-  private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
+  private List<String> selectComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData) {
     if (scopesWithoutHistoricalData.length == 0) {
-      return;
+      return emptyList();
     }
-
-    List<String> analysisUuids = purgeCommands.selectSnapshotUuids(
-      new PurgeSnapshotQuery()
-        .setComponentUuid(rootUuid)
-        .setIslast(false)
-        .setNotPurged(true));
-    List<String> componentWithoutHistoricalDataUuids = componentDao
+    return componentDao
       .selectDescendants(
         dbSession,
         ComponentTreeQuery.builder()
@@ -119,8 +183,6 @@ public class PurgeDao implements Dao {
           .build())
       .stream().map(ComponentDto::uuid)
       .collect(Collectors.toList());
-
-    purgeCommands.deleteComponentMeasures(analysisUuids, componentWithoutHistoricalDataUuids);
   }
 
   private void purgeDisabledComponents(DbSession session, Collection<String> uuids, PurgeListener listener) {
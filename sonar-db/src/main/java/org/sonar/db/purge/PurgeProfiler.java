@@ -28,11 +28,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
+import org.sonar.db.profiling.ThreadSqlStatistics;
 
 public class PurgeProfiler {
 
   private Map<String, Long> durations = new HashMap<>();
+  private Map<String, Long> deletedRows = new HashMap<>();
   private long startTime;
+  private long startRowCount;
   private String currentTable;
   private final Clock clock;
 
@@ -47,10 +50,12 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    deletedRows.clear();
   }
 
   void start(String table) {
     this.startTime = clock.now();
+    this.startRowCount = ThreadSqlStatistics.rowCount();
     this.currentTable = table;
   }
 
@@ -62,6 +67,18 @@ public class PurgeProfiler {
       cumulatedDuration = 0L;
     }
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
+    long rows = ThreadSqlStatistics.rowCount() - startRowCount;
+    if (rows > 0) {
+      deletedRows.merge(currentTable, rows, Long::sum);
+    }
+  }
+
+  /**
+   * Number of rows deleted or updated by each step since the last {@link #reset()}. Rows are not counted
+   * when statements are executed in batch mode.
+   */
+  public Map<String, Long> getDeletedRows() {
+    return Collections.unmodifiableMap(deletedRows);
   }
 
   public void dump(long totalTime, Logger logger) {
@@ -72,6 +89,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long rows = deletedRows.get(entry.getKey());
+      if (rows != null) {
+        sb.append(", ").append(rows).append(" rows");
+      }
       logger.info(sb.toString());
     }
   }
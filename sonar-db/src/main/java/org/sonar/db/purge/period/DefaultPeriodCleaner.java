@@ -21,6 +21,7 @@ package org.sonar.db.purge.period;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.List;
 import org.sonar.api.config.Settings;
@@ -30,6 +31,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.PurgeableAnalysisDto;
@@ -48,19 +50,53 @@ public class DefaultPeriodCleaner {
   }
 
   public void clean(DbSession session, String rootUuid, Settings settings) {
-    doClean(rootUuid, new Filters(settings).all(), session);
+    clean(session, rootUuid, settings, profiler, PurgeBudget.unlimited());
+  }
+
+  /**
+   * Deletes the analyses which are not kept by the history settings of the project, by chunks which
+   * are committed one after the other.
+   *
+   * @return {@code true} if all the analyses to be deleted have been deleted, {@code false} if the
+   *         budget has been exhausted before
+   */
+  public boolean clean(DbSession session, String rootUuid, Settings settings, PurgeProfiler purgeProfiler, PurgeBudget budget) {
+    return doClean(rootUuid, new Filters(settings).all(), session, purgeProfiler, budget);
+  }
+
+  /**
+   * Whether some analyses are not kept by the history settings of the project.
+   */
+  public boolean hasAnalysesToDelete(DbSession session, String rootUuid, Settings settings) {
+    return hasAnalysesToDelete(rootUuid, new Filters(settings).all(), session);
+  }
+
+  @VisibleForTesting
+  boolean hasAnalysesToDelete(String rootUuid, List<Filter> filters, DbSession session) {
+    List<PurgeableAnalysisDto> history = selectAnalysesOfComponent(rootUuid, session);
+    return filters.stream().anyMatch(filter -> !filter.filter(history).isEmpty());
   }
 
   @VisibleForTesting
   void doClean(String rootUuid, List<Filter> filters, DbSession session) {
+    doClean(rootUuid, filters, session, profiler, PurgeBudget.unlimited());
+  }
+
+  private boolean doClean(String rootUuid, List<Filter> filters, DbSession session, PurgeProfiler purgeProfiler, PurgeBudget budget) {
     List<PurgeableAnalysisDto> history = new ArrayList<>(selectAnalysesOfComponent(rootUuid, session));
     for (Filter filter : filters) {
       filter.log();
-      history.removeAll(delete(rootUuid, filter.filter(history), session));
+      for (List<PurgeableAnalysisDto> chunk : Lists.partition(filter.filter(history), budget.chunkSize())) {
+        if (budget.isExhausted()) {
+          return false;
+        }
+        history.removeAll(delete(rootUuid, chunk, session, purgeProfiler));
+      }
     }
+    return true;
   }
 
-  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session) {
+  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session, PurgeProfiler purgeProfiler) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("<- Delete analyses of component {}: {}",
         rootUuid,
@@ -70,7 +106,7 @@ public class DefaultPeriodCleaner {
             .collect(Collectors.toArrayList(snapshots.size()))));
     }
     purgeDao.deleteAnalyses(
-      session, profiler,
+      session, purgeProfiler,
       snapshots.stream().map(DefaultPeriodCleaner::toIdUuidPair).collect(Collectors.toList(snapshots.size())));
     return snapshots;
   }
@@ -25,17 +25,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -85,6 +89,31 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Streams the line hashes of the source files with the given uuids, in as many queries as required by the
+   * maximum size of SQL "in" clauses. Handled {@link FileSourceDto} only have fields fileUuid and lineHashes set.
+   */
+  public void scrollLineHashes(DbSession dbSession, Collection<String> fileUuids, ResultHandler handler) {
+    FileSourceMapper mapper = mapper(dbSession);
+    executeLargeInputsWithoutOutput(fileUuids, partition -> {
+      mapper.scrollLineHashes(partition, Type.SOURCE, handler);
+      return null;
+    });
+  }
+
+  /**
+   * Streams the source data of the source files with the given uuids, in as many queries as required by the
+   * maximum size of SQL "in" clauses. Handled {@link FileSourceDto} only have fields id, projectUuid, fileUuid,
+   * binaryData and srcHash set.
+   */
+  public void scrollSourceData(DbSession dbSession, Collection<String> fileUuids, ResultHandler handler) {
+    FileSourceMapper mapper = mapper(dbSession);
+    executeLargeInputsWithoutOutput(fileUuids, partition -> {
+      mapper.scrollSourceData(partition, Type.SOURCE, handler);
+      return null;
+    });
+  }
+
   public <T> void readLineHashesStream(DbSession dbSession, String fileUuid, Function<Reader, T> function) {
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
@@ -21,6 +21,7 @@ package org.sonar.db.source;
 
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -41,6 +42,12 @@ public class FileSourceDto {
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
+  private static final int LINES_TAG = tag(DbFileSources.Data.LINES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int LINE_TAG = tag(DbFileSources.Line.LINE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+  private static final int SCM_REVISION_TAG = tag(DbFileSources.Line.SCM_REVISION_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int SCM_AUTHOR_TAG = tag(DbFileSources.Line.SCM_AUTHOR_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int SCM_DATE_TAG = tag(DbFileSources.Line.SCM_DATE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+
   private Long id;
   private String projectUuid;
   private String fileUuid;
@@ -122,6 +129,65 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Decompress the column BINARY_DATA and read only the line numbers and SCM fields of its lines. Other fields
+   * (source, highlighting, symbols, coverage, ...) are skipped without being parsed, so that SCM information
+   * of a file can be loaded without building the whole {@link org.sonar.db.protobuf.DbFileSources.Data}.
+   */
+  public List<DbFileSources.Line> decodeScmData(byte[] binaryData) {
+    try {
+      return decodeScmLines(binaryData);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize SCM data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  private static List<DbFileSources.Line> decodeScmLines(byte[] binaryData) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+      CodedInputStream input = CodedInputStream.newInstance(lz4Input);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      List<DbFileSources.Line> lines = new ArrayList<>();
+      DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
+      int tag = input.readTag();
+      while (tag != 0) {
+        if (tag == LINES_TAG) {
+          int oldLimit = input.pushLimit(input.readRawVarint32());
+          lines.add(readScmLine(input, lineBuilder.clear()));
+          input.popLimit(oldLimit);
+        } else {
+          input.skipField(tag);
+        }
+        tag = input.readTag();
+      }
+      return lines;
+    }
+  }
+
+  private static DbFileSources.Line readScmLine(CodedInputStream input, DbFileSources.Line.Builder lineBuilder) throws IOException {
+    int tag = input.readTag();
+    while (tag != 0) {
+      if (tag == LINE_TAG) {
+        lineBuilder.setLine(input.readInt32());
+      } else if (tag == SCM_REVISION_TAG) {
+        lineBuilder.setScmRevision(input.readString());
+      } else if (tag == SCM_AUTHOR_TAG) {
+        lineBuilder.setScmAuthor(input.readString());
+      } else if (tag == SCM_DATE_TAG) {
+        lineBuilder.setScmDate(input.readInt64());
+      } else {
+        input.skipField(tag);
+      }
+      tag = input.readTag();
+    }
+    return lineBuilder.build();
+  }
+
+  private static int tag(int fieldNumber, int wireType) {
+    return (fieldNumber << 3) | wireType;
+  }
+
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
@@ -212,6 +278,16 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * Lines of the protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data} with only the fields line,
+   * scmRevision, scmAuthor and scmDate set.
+   *
+   * @see #decodeScmData(byte[])
+   */
+  public List<DbFileSources.Line> getScmData() {
+    return decodeScmData(binaryData);
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.dataType = Type.SOURCE;
     this.binaryData = encodeSourceData(data);
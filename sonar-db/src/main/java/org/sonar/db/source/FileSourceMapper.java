@@ -22,11 +22,16 @@ package org.sonar.db.source;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface FileSourceMapper {
 
   List<FileSourceDto> selectHashesForProject(@Param("projectUuid") String projectUuid, @Param("dataType") String dataType);
 
+  void scrollLineHashes(@Param("fileUuids") List<String> fileUuids, @Param("dataType") String dataType, ResultHandler handler);
+
+  void scrollSourceData(@Param("fileUuids") List<String> fileUuids, @Param("dataType") String dataType, ResultHandler handler);
+
   @CheckForNull
   FileSourceDto select(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
 
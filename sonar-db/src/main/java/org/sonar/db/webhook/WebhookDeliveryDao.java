@@ -44,6 +44,13 @@ public class WebhookDeliveryDao implements Dao {
     return mapper(dbSession).selectOrderedByCeTaskUuid(ceTaskUuid);
   }
 
+  /**
+   * All the deliveries created after the specified date. Results are ordered by descending date.
+   */
+  public List<WebhookDeliveryLiteDto> selectOrderedCreatedAfter(DbSession dbSession, long createdAfter) {
+    return mapper(dbSession).selectOrderedCreatedAfter(createdAfter);
+  }
+
   public void insert(DbSession dbSession, WebhookDeliveryDto dto) {
     mapper(dbSession).insert(dto);
   }
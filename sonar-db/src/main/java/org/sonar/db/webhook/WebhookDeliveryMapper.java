@@ -32,6 +32,8 @@ public interface WebhookDeliveryMapper {
 
   List<WebhookDeliveryLiteDto> selectOrderedByCeTaskUuid(@Param("ceTaskUuid") String ceTaskUuid);
 
+  List<WebhookDeliveryLiteDto> selectOrderedCreatedAfter(@Param("createdAfter") long createdAfter);
+
   void insert(WebhookDeliveryDto dto);
 
   void deleteComponentBeforeDate(@Param("componentUuid") String componentUuid, @Param("beforeDate") long beforeDate);
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -285,6 +286,60 @@ public class DatabaseUtilsTest {
     assertThat(outputs).isEmpty();
   }
 
+  @Test
+  public void executeLargeInputsInParallel() {
+    List<Integer> inputs = newArrayList();
+    List<String> expectedOutputs = newArrayList();
+    for (int i = 0; i < 5010; i++) {
+      inputs.add(i);
+      expectedOutputs.add(Integer.toString(i));
+    }
+    Set<DbSession> sessions = Collections.synchronizedSet(new HashSet<>());
+
+    List<String> outputs = DatabaseUtils.executeLargeInputsInParallel(dbTester.getDbClient(), inputs, (session, input) -> {
+      assertThat(input.size()).isLessThanOrEqualTo(dbTester.getDbClient().getDatabase().getDialect().getMaxInputPartitionSize());
+      sessions.add(session);
+      return input.stream().map(String::valueOf).collect(Collectors.toList());
+    }, 3);
+
+    assertThat(outputs).isEqualTo(expectedOutputs);
+    assertThat(sessions).isNotEmpty().doesNotContain(dbTester.getSession());
+    assertThat(sessions.size()).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  public void executeLargeInputsInParallel_on_empty_list() {
+    List<String> outputs = DatabaseUtils.executeLargeInputsInParallel(dbTester.getDbClient(), Collections.<Integer>emptyList(), (session, input) -> {
+      fail("No partition should be made on empty list");
+      return Collections.emptyList();
+    }, 2);
+
+    assertThat(outputs).isEmpty();
+  }
+
+  @Test
+  public void executeLargeInputsInParallel_propagates_failures() {
+    List<Integer> inputs = newArrayList();
+    for (int i = 0; i < 5010; i++) {
+      inputs.add(i);
+    }
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("failure");
+
+    DatabaseUtils.executeLargeInputsInParallel(dbTester.getDbClient(), inputs, (session, input) -> {
+      throw new IllegalArgumentException("failure");
+    }, 2);
+  }
+
+  @Test
+  public void executeLargeInputsInParallel_fails_if_parallelism_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parallelism must be strictly positive: 0");
+
+    DatabaseUtils.executeLargeInputsInParallel(dbTester.getDbClient(), asList(1, 2), (session, input) -> input, 0);
+  }
+
   @Test
   public void executeLargeUpdates() {
     List<Integer> inputs = newArrayList();
@@ -19,15 +19,18 @@
  */
 package org.sonar.db;
 
+import java.sql.SQLException;
 import java.util.Properties;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.junit.Test;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
 import org.sonar.db.dialect.PostgreSql;
+import org.sonar.db.pool.ConcurrentConnectionPool;
 import org.sonar.process.logging.LogbackHelper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 public class DefaultDatabaseTest {
@@ -76,7 +79,7 @@ public class DefaultDatabaseTest {
   }
 
   @Test
-  public void shouldStart() {
+  public void shouldStart() throws SQLException {
     Settings settings = new MapSettings();
     settings.setProperty("sonar.jdbc.url", "jdbc:h2:mem:sonar");
     settings.setProperty("sonar.jdbc.driverClassName", "org.h2.Driver");
@@ -90,6 +93,45 @@ public class DefaultDatabaseTest {
 
     assertThat(db.getDialect().getId()).isEqualTo("h2");
     assertThat(((BasicDataSource) db.getDataSource()).getMaxActive()).isEqualTo(1);
+    assertThat(db.getDataSource().isWrapperFor(ConcurrentConnectionPool.class)).isFalse();
+  }
+
+  @Test
+  public void shouldStartWithCommonsDbcpPool() throws SQLException {
+    Settings settings = newH2Settings();
+    settings.setProperty("sonar.jdbc.pool", "commons-dbcp");
+
+    DefaultDatabase db = new DefaultDatabase(logbackHelper, settings);
+    db.start();
+    db.stop();
+
+    assertThat(db.getDataSource().isWrapperFor(ConcurrentConnectionPool.class)).isFalse();
+  }
+
+  @Test
+  public void shouldStartWithConcurrentPool() throws SQLException {
+    Settings settings = newH2Settings();
+    settings.setProperty("sonar.jdbc.pool", "concurrent");
+
+    DefaultDatabase db = new DefaultDatabase(logbackHelper, settings);
+    db.start();
+    db.stop();
+
+    assertThat(db.getDataSource().isWrapperFor(ConcurrentConnectionPool.class)).isTrue();
+  }
+
+  @Test
+  public void shouldFailIfPoolIsNotSupported() {
+    Settings settings = newH2Settings();
+    settings.setProperty("sonar.jdbc.pool", "c3p0");
+
+    DefaultDatabase db = new DefaultDatabase(logbackHelper, settings);
+    try {
+      db.start();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getCause()).hasMessage("Unsupported connection pool 'c3p0'. Supported values of property sonar.jdbc.pool are 'concurrent' and 'commons-dbcp'");
+    }
   }
 
   @Test
@@ -113,4 +155,11 @@ public class DefaultDatabaseTest {
 
     assertThat(database.getProperties().getProperty("sonar.jdbc.driverClassName")).isEqualTo("org.postgresql.Driver");
   }
+
+  private static Settings newH2Settings() {
+    Settings settings = new MapSettings();
+    settings.setProperty("sonar.jdbc.url", "jdbc:h2:mem:sonar");
+    settings.setProperty("sonar.jdbc.driverClassName", "org.h2.Driver");
+    return settings;
+  }
 }
@@ -109,6 +109,18 @@ public class CeActivityDaoTest {
     assertThat(read.getErrorStacktrace()).isEqualTo(dto.getErrorStacktrace());
   }
 
+  @Test
+  public void test_insert_step_metrics() {
+    CeActivityDto dto = createActivityDto("TASK_1", REPORT, "PROJECT_1", SUCCESS)
+      .setStepMetrics("[{\"step\":\"Load report\"}]");
+    underTest.insert(db.getSession(), dto);
+
+    CeActivityDto read = underTest.selectByUuid(db.getSession(), "TASK_1").get();
+    assertThat(read.getStepMetrics()).isEqualTo(dto.getStepMetrics());
+    assertThat(underTest.selectByQuery(db.getSession(), new CeTaskQuery().setComponentUuid("PROJECT_1"), 0, 100))
+      .extracting("stepMetrics").containsOnly((String) null);
+  }
+
   @Test
   public void test_insert_error_message_only() {
     CeActivityDto dto = createActivityDto("TASK_1", REPORT, "PROJECT_1", CeActivityDto.Status.FAILED);
@@ -182,6 +182,38 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void peek_given_task_only_if_pending() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, IN_PROGRESS);
+
+    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), TASK_UUID_1);
+    assertThat(peek.isPresent()).isTrue();
+    assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
+    assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
+    assertThat(peek.get().getStartedAt()).isEqualTo(INIT_TIME);
+
+    assertThat(underTest.peek(db.getSession(), TASK_UUID_1).isPresent()).isFalse();
+    assertThat(underTest.peek(db.getSession(), TASK_UUID_2).isPresent()).isFalse();
+    assertThat(underTest.peek(db.getSession(), "unknown").isPresent()).isFalse();
+  }
+
+  @Test
+  public void selectPendingCreatedFrom_returns_pending_tasks_in_order_of_submission() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, IN_PROGRESS);
+    system2.setNow(INIT_TIME + 2_000);
+    insert("TASK_4", COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectPendingCreatedFrom(db.getSession(), 0L)).extracting(CeQueueDto::getUuid)
+      .containsExactly(TASK_UUID_1, TASK_UUID_2, "TASK_4");
+    assertThat(underTest.selectPendingCreatedFrom(db.getSession(), INIT_TIME + 1_000)).extracting(CeQueueDto::getUuid)
+      .containsExactly(TASK_UUID_2, "TASK_4");
+    assertThat(underTest.selectPendingCreatedFrom(db.getSession(), INIT_TIME + 3_000)).isEmpty();
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
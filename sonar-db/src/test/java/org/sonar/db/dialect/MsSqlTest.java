@@ -59,4 +59,9 @@ public class MsSqlTest {
   public void msSql_does_supportMigration() {
     assertThat(msSql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void max_input_partition_size() {
+    assertThat(msSql.getMaxInputPartitionSize()).isEqualTo(1_000);
+  }
 }
@@ -60,4 +60,9 @@ public class MySqlTest {
   public void mysql_does_supportMigration() {
     assertThat(mySql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void max_input_partition_size() {
+    assertThat(mySql.getMaxInputPartitionSize()).isEqualTo(5_000);
+  }
 }
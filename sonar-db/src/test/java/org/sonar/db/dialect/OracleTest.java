@@ -57,4 +57,9 @@ public class OracleTest {
   public void oracle_does_supportMigration() {
     assertThat(underTest.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void max_input_partition_size() {
+    assertThat(underTest.getMaxInputPartitionSize()).isEqualTo(1_000);
+  }
 }
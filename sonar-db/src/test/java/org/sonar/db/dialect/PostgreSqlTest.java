@@ -61,4 +61,9 @@ public class PostgreSqlTest {
   public void postgres_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void max_input_partition_size() {
+    assertThat(dialect.getMaxInputPartitionSize()).isEqualTo(5_000);
+  }
 }
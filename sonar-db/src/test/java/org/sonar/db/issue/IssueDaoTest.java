@@ -19,6 +19,7 @@
  */
 package org.sonar.db.issue;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -122,6 +123,26 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsExactly("I2", "I1");
   }
 
+  @Test
+  public void scrollNonClosedByProjectUuid() {
+    prepareTables();
+    underTest.insert(dbTester.getSession(), newIssueDto("I3")
+      .setStatus("CLOSED")
+      .setRuleId(RULE.getId())
+      .setComponentUuid(FILE_UUID)
+      .setProjectUuid(PROJECT_UUID));
+    dbTester.getSession().commit();
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByProjectUuid(dbTester.getSession(), PROJECT_UUID, context -> issues.add((IssueDto) context.getResultObject()));
+    assertThat(issues).extracting("key").containsOnly(ISSUE_KEY1, ISSUE_KEY2);
+    assertThat(issues).extracting("componentUuid").containsOnly(FILE_UUID);
+
+    issues.clear();
+    underTest.scrollNonClosedByProjectUuid(dbTester.getSession(), "unknown", context -> issues.add((IssueDto) context.getResultObject()));
+    assertThat(issues).isEmpty();
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setKey("struts:Action").setId(123L).setUuid("component-uuid"));
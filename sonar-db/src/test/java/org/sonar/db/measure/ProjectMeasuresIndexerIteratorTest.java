@@ -20,6 +20,9 @@
 package org.sonar.db.measure;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.junit.Rule;
@@ -165,6 +168,54 @@ public class ProjectMeasuresIndexerIteratorTest {
     assertThat(createResultSetAndReturnDocsById()).hasSize(3);
   }
 
+  @Test
+  public void return_measures_of_each_project() {
+    MetricDto metric = insertIntMetric("ncloc");
+    ComponentDto project1 = newProjectDto(dbTester.getDefaultOrganization());
+    SnapshotDto analysis1 = dbTester.components().insertProjectAndSnapshot(project1);
+    insertMeasure(project1, analysis1, metric, 10d);
+    ComponentDto project2 = newProjectDto(dbTester.getDefaultOrganization());
+    dbTester.components().insertProjectAndSnapshot(project2);
+    ComponentDto project3 = newProjectDto(dbTester.getDefaultOrganization());
+    SnapshotDto analysis3 = dbTester.components().insertProjectAndSnapshot(project3);
+    insertMeasure(project3, analysis3, metric, 30d);
+
+    Map<String, ProjectMeasures> docsById = createResultSetAndReturnDocsById();
+
+    assertThat(docsById).hasSize(3);
+    assertThat(docsById.get(project1.uuid()).getMeasures().getNumericMeasures()).containsOnly(entry("ncloc", 10d));
+    assertThat(docsById.get(project2.uuid()).getMeasures().getNumericMeasures()).isEmpty();
+    assertThat(docsById.get(project3.uuid()).getMeasures().getNumericMeasures()).containsOnly(entry("ncloc", 30d));
+  }
+
+  @Test
+  public void return_each_project_in_a_single_partition() {
+    MetricDto metric = insertIntMetric("ncloc");
+    List<String> projectUuids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ComponentDto project = newProjectDto(dbTester.getDefaultOrganization());
+      SnapshotDto analysis = dbTester.components().insertProjectAndSnapshot(project);
+      insertMeasure(project, analysis, metric, i);
+      projectUuids.add(project.uuid());
+    }
+
+    List<Range<Long>> partitions = ProjectMeasuresIndexerIterator.partitionProjectIds(dbSession, 2);
+
+    assertThat(partitions).hasSize(2);
+    List<String> indexedUuids = new ArrayList<>();
+    for (Range<Long> partition : partitions) {
+      try (ProjectMeasuresIndexerIterator it = ProjectMeasuresIndexerIterator.createPartition(dbTester.getDbClient(), dbSession, 0L, partition)) {
+        it.forEachRemaining(doc -> indexedUuids.add(doc.getProject().getUuid()));
+      }
+    }
+    assertThat(indexedUuids).containsOnlyElementsOf(projectUuids).hasSize(5);
+  }
+
+  @Test
+  public void no_partition_when_there_is_no_project() {
+    assertThat(ProjectMeasuresIndexerIterator.partitionProjectIds(dbSession, 4)).isEmpty();
+  }
+
   @Test
   public void return_project_without_analysis() throws Exception {
     ComponentDto project = dbTester.components().insertComponent(newProjectDto(dbTester.organizations().insert()));
@@ -247,7 +298,7 @@ public class ProjectMeasuresIndexerIteratorTest {
   }
 
   private Map<String, ProjectMeasures> createResultSetAndReturnDocsById(long date, @Nullable String projectUuid) {
-    ProjectMeasuresIndexerIterator it = ProjectMeasuresIndexerIterator.create(dbTester.getSession(), date, projectUuid);
+    ProjectMeasuresIndexerIterator it = ProjectMeasuresIndexerIterator.create(dbTester.getDbClient(), dbTester.getSession(), date, projectUuid);
     Map<String, ProjectMeasures> docsById = Maps.uniqueIndex(it, pm -> pm.getProject().getUuid());
     it.close();
     return docsById;
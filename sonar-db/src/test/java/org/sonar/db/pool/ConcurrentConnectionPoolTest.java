@@ -0,0 +1,336 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.pool;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentConnectionPoolTest {
+
+  private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000_000L);
+  private ConcurrentConnectionPool underTest = newPool(system2);
+
+  @After
+  public void tearDown() throws SQLException {
+    underTest.close();
+  }
+
+  @Test
+  public void reuse_returned_connection() throws SQLException {
+    Connection connection = underTest.getConnection();
+    String physical = physicalOf(connection);
+    assertThat(underTest.getNumActive()).isEqualTo(1);
+    assertThat(underTest.getNumIdle()).isEqualTo(0);
+
+    connection.close();
+    assertThat(connection.isClosed()).isTrue();
+    assertThat(underTest.getNumActive()).isEqualTo(0);
+    assertThat(underTest.getNumIdle()).isEqualTo(1);
+
+    try (Connection other = underTest.getConnection()) {
+      assertThat(other).isNotSameAs(connection);
+      assertThat(physicalOf(other)).isEqualTo(physical);
+    }
+    assertThat(underTest.getBorrowCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void closing_a_connection_twice_returns_it_only_once() throws SQLException {
+    Connection connection = underTest.getConnection();
+    connection.close();
+    connection.close();
+
+    assertThat(underTest.getNumIdle()).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_to_use_a_returned_connection() throws SQLException {
+    Connection connection = underTest.getConnection();
+    connection.close();
+
+    expectedException.expect(SQLException.class);
+    expectedException.expectMessage("Connection is closed");
+
+    connection.createStatement();
+  }
+
+  @Test
+  public void rollback_pending_transaction_when_connection_is_returned() throws SQLException {
+    try (Connection connection = underTest.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("create table foo (id int)");
+    }
+    try (Connection connection = underTest.getConnection(); Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(false);
+      statement.execute("insert into foo values (1)");
+    }
+
+    try (Connection connection = underTest.getConnection();
+      Statement statement = connection.createStatement();
+      ResultSet resultSet = statement.executeQuery("select count(*) from foo")) {
+      assertThat(connection.getAutoCommit()).isTrue();
+      assertThat(resultSet.next()).isTrue();
+      assertThat(resultSet.getInt(1)).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void fail_when_pool_is_exhausted() throws SQLException {
+    underTest.setMaxActive(1);
+    underTest.setMaxWait(10L);
+
+    try (Connection connection = underTest.getConnection()) {
+      expectedException.expect(SQLException.class);
+      expectedException.expectMessage("Cannot get a connection, pool exhausted after waiting 10 ms");
+
+      underTest.getConnection();
+    }
+  }
+
+  @Test
+  public void do_not_keep_more_than_max_idle_connections() throws SQLException {
+    underTest.setMaxIdle(1);
+
+    Connection first = underTest.getConnection();
+    Connection second = underTest.getConnection();
+    first.close();
+    second.close();
+
+    assertThat(underTest.getNumIdle()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_open_more_than_max_active_connections_when_concurrently_borrowed() throws Exception {
+    int maxActive = 3;
+    underTest.setMaxActive(maxActive);
+    underTest.setMaxWait(-1L);
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxObserved = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < 50; j++) {
+            try (Connection connection = underTest.getConnection()) {
+              maxObserved.accumulateAndGet(active.incrementAndGet(), Math::max);
+              active.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(maxObserved.get()).isLessThanOrEqualTo(maxActive);
+    assertThat(underTest.getNumActive()).isEqualTo(0);
+    assertThat(underTest.getNumIdle()).isBetween(1, maxActive);
+    assertThat(underTest.getBorrowCount()).isEqualTo(500);
+    assertThat(underTest.getWaitTimePercentileMicros(100.0)).isGreaterThanOrEqualTo(underTest.getWaitTimePercentileMicros(50.0));
+  }
+
+  @Test
+  public void report_connections_borrowed_for_longer_than_remove_abandoned_timeout() throws SQLException {
+    underTest.setRemoveAbandonedTimeout(60);
+    underTest.setLogAbandoned(true);
+
+    try (Connection connection = underTest.getConnection()) {
+      system2.setNow(system2.now() + 60_000L);
+      underTest.housekeep();
+      assertThat(underTest.getLeakCount()).isEqualTo(0);
+
+      system2.setNow(system2.now() + 1L);
+      underTest.housekeep();
+      underTest.housekeep();
+      assertThat(underTest.getLeakCount()).isEqualTo(1);
+      assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+      assertThat(logTester.logs(LoggerLevel.WARN).get(0)).startsWith("Database connection ").endsWith(" is borrowed for more than 60 seconds");
+    }
+  }
+
+  @Test
+  public void evict_connections_idle_for_longer_than_min_evictable_idle_time() throws SQLException {
+    underTest.setMinEvictableIdleTimeMillis(1_000L);
+    underTest.setMinIdle(1);
+    Connection first = underTest.getConnection();
+    Connection second = underTest.getConnection();
+    first.close();
+    second.close();
+    assertThat(underTest.getNumIdle()).isEqualTo(2);
+
+    system2.setNow(system2.now() + 1_001L);
+    underTest.housekeep();
+
+    assertThat(underTest.getNumIdle()).isEqualTo(1);
+  }
+
+  @Test
+  public void open_initial_connections_when_started() throws SQLException {
+    underTest.setInitialSize(2);
+
+    underTest.getConnection().close();
+
+    assertThat(underTest.getNumIdle()).isEqualTo(2);
+  }
+
+  @Test
+  public void fail_to_borrow_connection_when_closed() throws SQLException {
+    underTest.getConnection().close();
+    underTest.close();
+    assertThat(underTest.isClosed()).isTrue();
+    assertThat(underTest.getNumIdle()).isEqualTo(0);
+
+    expectedException.expect(SQLException.class);
+    expectedException.expectMessage("Connection pool is closed");
+
+    underTest.getConnection();
+  }
+
+  @Test
+  public void destroy_connection_returned_after_pool_is_closed() throws SQLException {
+    Connection connection = underTest.getConnection();
+    underTest.close();
+
+    connection.close();
+
+    assertThat(underTest.getNumActive()).isEqualTo(0);
+    assertThat(underTest.getNumIdle()).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_keep_idle_connections_returned_while_pool_is_closed() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+    try {
+      for (int round = 0; round < 20; round++) {
+        ConcurrentConnectionPool pool = newPool(system2);
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          connections.add(pool.getConnection());
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Connection connection : connections) {
+          futures.add(executor.submit(() -> {
+            start.await();
+            connection.close();
+            return null;
+          }));
+        }
+        futures.add(executor.submit(() -> {
+          start.await();
+          pool.close();
+          return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(pool.getNumActive()).isEqualTo(0);
+        assertThat(pool.getNumIdle()).isEqualTo(0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void create_from_commons_dbcp_properties() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("driverClassName", "org.h2.Driver");
+    properties.setProperty("url", "jdbc:h2:mem:pool_create");
+    properties.setProperty("maxActive", "7");
+    properties.setProperty("initialSize", "2");
+
+    ConcurrentConnectionPool pool = ConcurrentConnectionPool.create(properties);
+
+    assertThat(pool.getMaxActive()).isEqualTo(7);
+    assertThat(pool.getInitialSize()).isEqualTo(2);
+    assertThat(pool.getUrl()).isEqualTo("jdbc:h2:mem:pool_create");
+    assertThat(pool.getNumIdle()).isEqualTo(0);
+    pool.close();
+  }
+
+  @Test
+  public void fail_to_get_percentile_out_of_range() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Percentile must be in ]0, 100]: 0.0");
+
+    underTest.getWaitTimePercentileMicros(0.0);
+  }
+
+  @Test
+  public void unwrap_to_pool() throws SQLException {
+    assertThat(underTest.isWrapperFor(ConcurrentConnectionPool.class)).isTrue();
+    assertThat(underTest.unwrap(ConcurrentConnectionPool.class)).isSameAs(underTest);
+    assertThat(underTest.isWrapperFor(String.class)).isFalse();
+  }
+
+  private static ConcurrentConnectionPool newPool(TestSystem2 system2) {
+    ConcurrentConnectionPool pool = new ConcurrentConnectionPool(system2);
+    pool.setDriverClassName("org.h2.Driver");
+    pool.setUrl("jdbc:h2:mem:pool_" + DB_COUNTER.incrementAndGet());
+    pool.setMaxActive(10);
+    pool.setMaxIdle(10);
+    return pool;
+  }
+
+  /**
+   * Borrowed connections are proxies whose {@link Object#toString()} is the one of the physical connection
+   */
+  private static String physicalOf(Connection connection) {
+    return connection.toString();
+  }
+}
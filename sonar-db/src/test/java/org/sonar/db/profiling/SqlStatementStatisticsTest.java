@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.profiling.SqlStatementStatistics.Snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementStatisticsTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @After
+  public void tearDown() {
+    SqlStatementStatistics.clear();
+  }
+
+  @Test
+  public void aggregate_executions_by_statement() {
+    SqlStatementStatistics.record("foo", 2_000_000L, 3L);
+    SqlStatementStatistics.record("foo", 5_000_000L, 1L);
+    SqlStatementStatistics.record("bar", 1_000_000L, 0L);
+
+    List<Snapshot> snapshots = SqlStatementStatistics.snapshot();
+
+    assertThat(snapshots).extracting(Snapshot::getStatementId).containsExactly("foo", "bar");
+    Snapshot foo = snapshots.get(0);
+    assertThat(foo.getCount()).isEqualTo(2L);
+    assertThat(foo.getTotalMicros()).isEqualTo(7_000L);
+    assertThat(foo.getMaxMicros()).isEqualTo(5_000L);
+    assertThat(foo.getRows()).isEqualTo(4L);
+  }
+
+  @Test
+  public void ignore_negative_values() {
+    SqlStatementStatistics.record("foo", -1L, -1L);
+
+    Snapshot foo = SqlStatementStatistics.snapshot().get(0);
+    assertThat(foo.getCount()).isEqualTo(1L);
+    assertThat(foo.getTotalMicros()).isZero();
+    assertThat(foo.getRows()).isZero();
+  }
+
+  @Test
+  public void estimate_percentiles() {
+    for (int i = 1; i <= 100; i++) {
+      SqlStatementStatistics.record("foo", i * 1_000_000L, 1L);
+    }
+
+    Snapshot foo = SqlStatementStatistics.snapshot().get(0);
+    assertThat(foo.getPercentileMicros(50.0)).isBetween(50_000L, 62_500L);
+    assertThat(foo.getPercentileMicros(99.0)).isBetween(99_000L, 100_000L);
+    assertThat(foo.getPercentileMicros(100.0)).isEqualTo(100_000L);
+  }
+
+  @Test
+  public void fail_if_percentile_is_out_of_range() {
+    SqlStatementStatistics.record("foo", 1_000L, 1L);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Percentile must be in ]0, 100]: 0.0");
+
+    SqlStatementStatistics.snapshot().get(0).getPercentileMicros(0.0);
+  }
+
+  @Test
+  public void buckets_are_contiguous() {
+    assertThat(SqlStatementStatistics.bucketOf(0L)).isEqualTo(0);
+    for (int bucket = 1; bucket < SqlStatementStatistics.BUCKETS; bucket++) {
+      long lowerBound = SqlStatementStatistics.lowerBoundOf(bucket);
+      assertThat(SqlStatementStatistics.bucketOf(lowerBound)).isEqualTo(bucket);
+      assertThat(SqlStatementStatistics.bucketOf(lowerBound - 1)).isEqualTo(bucket - 1);
+    }
+    assertThat(SqlStatementStatistics.bucketOf(Long.MAX_VALUE)).isEqualTo(SqlStatementStatistics.BUCKETS - 1);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDao;
+import org.sonar.db.ce.CeQueueDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatisticsInterceptorTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private CeQueueDao dao = db.getDbClient().ceQueueDao();
+
+  @Test
+  public void count_statements_and_updated_rows() {
+    long statements = ThreadSqlStatistics.statementCount();
+    long rows = ThreadSqlStatistics.rowCount();
+
+    insertTask("T1");
+    insertTask("T2");
+
+    assertThat(ThreadSqlStatistics.statementCount()).isEqualTo(statements + 2);
+    assertThat(ThreadSqlStatistics.rowCount()).isEqualTo(rows + 2);
+  }
+
+  @Test
+  public void count_statements_and_selected_rows() {
+    insertTask("T1");
+    insertTask("T2");
+    long statements = ThreadSqlStatistics.statementCount();
+    long rows = ThreadSqlStatistics.rowCount();
+
+    assertThat(dao.selectAllInAscOrder(dbSession)).hasSize(2);
+    dao.selectByUuid(dbSession, "UNKNOWN");
+
+    assertThat(ThreadSqlStatistics.statementCount()).isEqualTo(statements + 2);
+    assertThat(ThreadSqlStatistics.rowCount()).isEqualTo(rows + 2);
+  }
+
+  @Test
+  public void count_rows_passed_to_result_handler() {
+    insertTask("T1");
+    insertTask("T2");
+    long statements = ThreadSqlStatistics.statementCount();
+    long rows = ThreadSqlStatistics.rowCount();
+
+    List<Object> handled = new ArrayList<>();
+    dbSession.select("org.sonar.db.ce.CeQueueMapper.selectAllInAscOrder", context -> handled.add(context.getResultObject()));
+
+    assertThat(handled).hasSize(2);
+    assertThat(ThreadSqlStatistics.statementCount()).isEqualTo(statements + 1);
+    assertThat(ThreadSqlStatistics.rowCount()).isEqualTo(rows + 2);
+  }
+
+  @Test
+  public void aggregate_statistics_by_mapper_statement() {
+    insertTask("T1");
+    insertTask("T2");
+
+    assertThat(dao.selectAllInAscOrder(dbSession)).hasSize(2);
+
+    assertThat(SqlStatementStatistics.snapshot())
+      .filteredOn(s -> s.getStatementId().equals("org.sonar.db.ce.CeQueueMapper.selectAllInAscOrder"))
+      .hasSize(1)
+      .allMatch(s -> s.getCount() >= 1 && s.getRows() >= 2);
+  }
+
+  @Test
+  public void counters_are_bound_to_current_thread() throws InterruptedException {
+    long statements = ThreadSqlStatistics.statementCount();
+
+    Thread thread = new Thread(() -> {
+      try (DbSession otherSession = db.getDbClient().openSession(false)) {
+        dao.selectAllInAscOrder(otherSession);
+      }
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(ThreadSqlStatistics.statementCount()).isEqualTo(statements);
+  }
+
+  private void insertTask(String uuid) {
+    dao.insert(dbSession, new CeQueueDto()
+      .setUuid(uuid)
+      .setTaskType("REPORT")
+      .setStatus(CeQueueDto.Status.PENDING));
+    dbSession.commit();
+  }
+}
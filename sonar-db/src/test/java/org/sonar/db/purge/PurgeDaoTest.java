@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -37,12 +38,14 @@ import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.db.ce.CeTaskTypes.REPORT;
+import static org.sonar.db.component.SnapshotTesting.newAnalysis;
 import static org.sonar.db.webhook.WebhookDbTesting.newWebhookDeliveryDto;
 import static org.sonar.db.webhook.WebhookDbTesting.selectAllDeliveryUuids;
 
@@ -78,6 +81,73 @@ public class PurgeDaoTest {
     dbTester.assertDbUnit(getClass(), "shouldPurgeProject-result.xml", "projects", "snapshots");
   }
 
+  @Test
+  public void purgeHistory_resumes_purge_of_analyses_when_budget_is_exhausted() {
+    ComponentDto project = dbTester.components().insertProject();
+    SnapshotDto analysis1 = dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+    SnapshotDto analysis2 = dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+    SnapshotDto lastAnalysis = dbTester.components().insertSnapshot(newAnalysis(project).setLast(true));
+    PurgeConfiguration conf = new PurgeConfiguration(new IdUuidPair(project.getId(), project.uuid()), new String[0], 30, System2.INSTANCE, Collections.emptyList());
+    // deadline is already passed, only the first chunk is purged
+    PurgeBudget exhaustedBudget = new PurgeBudget(1, 0L, system2);
+
+    boolean complete = underTest.purgeHistory(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler(), exhaustedBudget);
+
+    assertThat(complete).isFalse();
+    assertThat(selectPurgeStatuses(analysis1, analysis2)).containsOnly(1, null);
+
+    complete = underTest.purgeHistory(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler(), PurgeBudget.unlimited());
+
+    assertThat(complete).isTrue();
+    assertThat(selectPurgeStatuses(analysis1, analysis2)).containsOnly(1);
+    assertThat(selectPurgeStatuses(lastAnalysis)).containsOnly((Integer) null);
+  }
+
+  @Test
+  public void purgeSupersededAnalysis_purges_the_single_analysis_left_to_purge() {
+    ComponentDto project = dbTester.components().insertProject();
+    SnapshotDto supersededAnalysis = dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+    SnapshotDto lastAnalysis = dbTester.components().insertSnapshot(newAnalysis(project).setLast(true));
+    PurgeConfiguration conf = new PurgeConfiguration(new IdUuidPair(project.getId(), project.uuid()), new String[0], 30, System2.INSTANCE, Collections.emptyList());
+
+    underTest.purgeSupersededAnalysis(dbSession, conf, new PurgeProfiler());
+
+    assertThat(selectPurgeStatuses(supersededAnalysis)).containsOnly(1);
+    assertThat(selectPurgeStatuses(lastAnalysis)).containsOnly((Integer) null);
+    assertThat(underTest.hasHistoryToPurge(dbSession, conf)).isFalse();
+  }
+
+  @Test
+  public void purgeSupersededAnalysis_leaves_backlog_of_analyses_to_history_purge() {
+    ComponentDto project = dbTester.components().insertProject();
+    SnapshotDto analysis1 = dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+    SnapshotDto analysis2 = dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+    dbTester.components().insertSnapshot(newAnalysis(project).setLast(true));
+    PurgeConfiguration conf = new PurgeConfiguration(new IdUuidPair(project.getId(), project.uuid()), new String[0], 30, System2.INSTANCE, Collections.emptyList());
+
+    underTest.purgeSupersededAnalysis(dbSession, conf, new PurgeProfiler());
+
+    assertThat(selectPurgeStatuses(analysis1, analysis2)).containsOnly((Integer) null);
+    assertThat(underTest.hasHistoryToPurge(dbSession, conf)).isTrue();
+  }
+
+  @Test
+  public void hasHistoryToPurge_is_true_until_history_is_purged() {
+    ComponentDto project = dbTester.components().insertProject();
+    dbTester.components().insertSnapshot(newAnalysis(project).setLast(true));
+    PurgeConfiguration conf = new PurgeConfiguration(new IdUuidPair(project.getId(), project.uuid()), new String[0], 30, System2.INSTANCE, Collections.emptyList());
+
+    assertThat(underTest.hasHistoryToPurge(dbSession, conf)).isFalse();
+
+    dbTester.components().insertSnapshot(newAnalysis(project).setLast(false));
+
+    assertThat(underTest.hasHistoryToPurge(dbSession, conf)).isTrue();
+
+    underTest.purgeHistory(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler(), PurgeBudget.unlimited());
+
+    assertThat(underTest.hasHistoryToPurge(dbSession, conf)).isFalse();
+  }
+
   @Test
   public void shouldDeleteHistoricalDataOfDirectoriesAndFiles() {
     dbTester.prepareDbUnit(getClass(), "shouldDeleteHistoricalDataOfDirectoriesAndFiles.xml");
@@ -239,6 +309,12 @@ public class PurgeDaoTest {
     return dto;
   }
 
+  private List<Integer> selectPurgeStatuses(SnapshotDto... analyses) {
+    return Arrays.stream(analyses)
+      .map(analysis -> dbClient.snapshotDao().selectByUuid(dbSession, analysis.getUuid()).get().getPurgeStatus())
+      .collect(Collectors.toList());
+  }
+
   private static PurgeableAnalysisDto getById(List<PurgeableAnalysisDto> snapshots, String uuid) {
     return snapshots.stream()
       .filter(snapshot -> uuid.equals(snapshot.getAnalysisUuid()))
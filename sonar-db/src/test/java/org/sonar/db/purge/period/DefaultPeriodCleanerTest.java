@@ -33,10 +33,14 @@ import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.PurgeableAnalysisDto;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyListOf;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultPeriodCleanerTest {
@@ -64,6 +68,21 @@ public class DefaultPeriodCleanerTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void hasAnalysesToDelete() {
+    PurgeDao dao = mock(PurgeDao.class);
+    DbSession session = mock(DbSession.class);
+    when(dao.selectPurgeableAnalyses("uuid_123", session)).thenReturn(Arrays.asList(
+      new PurgeableAnalysisDto().setAnalysisId(999).setAnalysisUuid("u999").setDate(System2.INSTANCE.now())));
+    Filter emptyFilter = mock(Filter.class);
+    when(emptyFilter.filter(anyListOf(PurgeableAnalysisDto.class))).thenReturn(Collections.emptyList());
+    DefaultPeriodCleaner cleaner = new DefaultPeriodCleaner(dao, new PurgeProfiler());
+
+    assertThat(cleaner.hasAnalysesToDelete("uuid_123", Arrays.asList(emptyFilter), session)).isFalse();
+    assertThat(cleaner.hasAnalysesToDelete("uuid_123", Arrays.asList(emptyFilter, newFirstSnapshotInListFilter()), session)).isTrue();
+    verify(dao, never()).deleteAnalyses(eq(session), any(PurgeProfiler.class), anyListOf(IdUuidPair.class));
+  }
+
   private Filter newFirstSnapshotInListFilter() {
     Filter filter1 = mock(Filter.class);
     when(filter1.filter(anyListOf(PurgeableAnalysisDto.class))).thenAnswer(invocation -> Collections.singletonList(((List) invocation.getArguments()[0]).iterator().next()));
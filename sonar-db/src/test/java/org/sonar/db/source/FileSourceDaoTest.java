@@ -21,6 +21,8 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -29,8 +31,10 @@ import org.junit.Test;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
@@ -69,6 +73,41 @@ public class FileSourceDaoTest {
     assertThat(fn.result).isEqualTo("ABC\\nDEF\\nGHI");
   }
 
+  @Test
+  public void scroll_line_hashes() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollLineHashes(dbTester.getSession(), asList("FILE1_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).hasSize(1);
+    assertThat(dtos.get(0).getFileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(dtos.get(0).getLineHashes()).isEqualTo("ABC\\nDEF\\nGHI");
+  }
+
+  @Test
+  public void scroll_source_data() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setScmAuthor("john").build())
+      .build();
+    underTest.insert(new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setSourceData(data)
+      .setSrcHash("FILE2_HASH")
+      .setDataHash("FILE2_DATA_HASH")
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollSourceData(dbTester.getSession(), asList("FILE2_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).hasSize(1);
+    assertThat(dtos.get(0).getFileUuid()).isEqualTo("FILE2_UUID");
+    assertThat(dtos.get(0).getSrcHash()).isEqualTo("FILE2_HASH");
+    assertThat(dtos.get(0).getScmData()).extracting(DbFileSources.Line::getScmAuthor).containsExactly("john");
+  }
+
   @Test
   public void no_line_hashes_on_unknown_file() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
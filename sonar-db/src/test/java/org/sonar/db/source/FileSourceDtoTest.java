@@ -80,6 +80,46 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void decodeScmData_reads_only_line_and_scm_fields() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder()
+        .setLine(1)
+        .setSource("foo")
+        .setScmRevision("rev-1")
+        .setScmAuthor("john")
+        .setScmDate(123456789L)
+        .setHighlighting("0,3,k")
+        .setLineHits(2)
+        .addDuplication(3)
+        .build())
+      .addLines(DbFileSources.Line.newBuilder()
+        .setLine(2)
+        .setSource("bar")
+        .build())
+      .build();
+
+    List<DbFileSources.Line> lines = new FileSourceDto().setSourceData(data).getScmData();
+
+    assertThat(lines).containsExactly(
+      DbFileSources.Line.newBuilder().setLine(1).setScmRevision("rev-1").setScmAuthor("john").setScmDate(123456789L).build(),
+      DbFileSources.Line.newBuilder().setLine(2).build());
+  }
+
+  @Test
+  public void getScmData_throws_ISE_with_id_fileUuid_and_projectUuid_in_message_when_data_cant_be_read() {
+    FileSourceDto underTest = new FileSourceDto()
+      .setBinaryData(new byte[] {1, 2, 3, 4, 5})
+      .setId(12L)
+      .setFileUuid("file uuid")
+      .setProjectUuid("project uuid");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to decompress and deserialize SCM data [id=12,fileUuid=file uuid,projectUuid=project uuid]");
+
+    underTest.getScmData();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -99,6 +99,18 @@ public class WebhookDeliveryDaoTest {
     assertThat(deliveries).extracting(WebhookDeliveryLiteDto::getUuid).containsExactly("D2", "D1");
   }
 
+  @Test
+  public void selectOrderedCreatedAfter_returns_records_created_after_date_ordered_by_date() {
+    underTest.insert(dbSession, newDto("D1", "COMPONENT_1", "TASK_1").setCreatedAt(BEFORE));
+    underTest.insert(dbSession, newDto("D2", "COMPONENT_1", "TASK_1").setCreatedAt(NOW));
+    underTest.insert(dbSession, newDto("D3", "COMPONENT_2", "TASK_2").setCreatedAt(NOW + 1));
+    underTest.insert(dbSession, newDto("D4", "COMPONENT_2", "TASK_2").setCreatedAt(NOW - 1));
+
+    List<WebhookDeliveryLiteDto> deliveries = underTest.selectOrderedCreatedAfter(dbSession, NOW - 1);
+
+    assertThat(deliveries).extracting(WebhookDeliveryLiteDto::getUuid).containsExactly("D3", "D2");
+  }
+
   @Test
   public void insert_row_with_only_mandatory_columns() {
     WebhookDeliveryDto dto = newDto("DELIVERY_1", "COMPONENT_1", "TASK_1")
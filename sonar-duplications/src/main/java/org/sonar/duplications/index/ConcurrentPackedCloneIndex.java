@@ -0,0 +1,314 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Index of blocks with 8-byte hashes which can be fed concurrently, one resource at a time.
+ * <p>
+ * Contrary to {@link PackedMemoryCloneIndex}, blocks of each resource are packed in their own arrays, hashes
+ * being stored as primitive {@code long}s, so that blocks of a resource are found in constant time and that
+ * resources can be inserted by several threads without lock. Index by hash is built once, on the first
+ * query after insertions.
+ * </p>
+ * <p>
+ * Insertions must not be concurrent with queries.
+ * </p>
+ */
+public class ConcurrentPackedCloneIndex extends AbstractCloneIndex {
+
+  private static final int HASH_BYTES = 8;
+  // index in file, first line, last line, first unit, last unit
+  private static final int BLOCK_INTS = 5;
+
+  private final ConcurrentMap<String, ResourceData> resources = new ConcurrentHashMap<>();
+  private volatile HashIndex hashIndex;
+
+  /**
+   * Adds all the blocks of a resource. Can be called concurrently for different resources.
+   */
+  public void insert(String resourceId, Collection<Block> blocks) {
+    ResourceData data = ResourceData.of(blocks);
+    hashIndex = null;
+    resources.merge(resourceId, data, ResourceData::concat);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Blocks of the resource are copied on each call, prefer {@link #insert(String, Collection)}.</strong>
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    insert(block.getResourceId(), Collections.singletonList(block));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Blocks are returned in order of insertion.
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ResourceData data = resources.get(resourceId);
+    if (data == null) {
+      return Collections.emptyList();
+    }
+    return data.toBlocks(resourceId);
+  }
+
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    return hashIndex().getBlocks(sequenceHash);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resources are sorted by id.
+   * </p>
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    HashIndex index = hashIndex();
+    return new Iterator<ResourceBlocks>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < index.resourceIds.length;
+      }
+
+      @Override
+      public ResourceBlocks next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        String resourceId = index.resourceIds[next];
+        ResourceData data = index.resources[next];
+        next++;
+        return new ResourceBlocks(resourceId, data.toBlocks(resourceId));
+      }
+    };
+  }
+
+  @Override
+  public int noResources() {
+    return resources.size();
+  }
+
+  private HashIndex hashIndex() {
+    HashIndex index = hashIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = hashIndex;
+        if (index == null) {
+          index = new HashIndex(resources);
+          hashIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  static long toLong(ByteArray hash) {
+    byte[] bytes = hash.getBytes();
+    if (bytes.length != HASH_BYTES) {
+      throw new IllegalArgumentException("Expected " + HASH_BYTES + " bytes in hash, but got " + bytes.length);
+    }
+    long result = 0L;
+    for (byte b : bytes) {
+      result = (result << 8) | (b & 0xFFL);
+    }
+    return result;
+  }
+
+  private static final class ResourceData {
+    private final long[] hashes;
+    private final int[] blockData;
+
+    private ResourceData(long[] hashes, int[] blockData) {
+      this.hashes = hashes;
+      this.blockData = blockData;
+    }
+
+    static ResourceData of(Collection<Block> blocks) {
+      long[] hashes = new long[blocks.size()];
+      int[] blockData = new int[blocks.size() * BLOCK_INTS];
+      int i = 0;
+      int offset = 0;
+      for (Block block : blocks) {
+        hashes[i] = toLong(block.getBlockHash());
+        blockData[offset++] = block.getIndexInFile();
+        blockData[offset++] = block.getStartLine();
+        blockData[offset++] = block.getEndLine();
+        blockData[offset++] = block.getStartUnit();
+        blockData[offset++] = block.getEndUnit();
+        i++;
+      }
+      return new ResourceData(hashes, blockData);
+    }
+
+    static ResourceData concat(ResourceData first, ResourceData second) {
+      long[] hashes = new long[first.hashes.length + second.hashes.length];
+      System.arraycopy(first.hashes, 0, hashes, 0, first.hashes.length);
+      System.arraycopy(second.hashes, 0, hashes, first.hashes.length, second.hashes.length);
+      int[] blockData = new int[first.blockData.length + second.blockData.length];
+      System.arraycopy(first.blockData, 0, blockData, 0, first.blockData.length);
+      System.arraycopy(second.blockData, 0, blockData, first.blockData.length, second.blockData.length);
+      return new ResourceData(hashes, blockData);
+    }
+
+    int size() {
+      return hashes.length;
+    }
+
+    List<Block> toBlocks(String resourceId) {
+      Block.Builder builder = Block.builder();
+      List<Block> blocks = new ArrayList<>(hashes.length);
+      for (int i = 0; i < hashes.length; i++) {
+        blocks.add(toBlock(builder, resourceId, i, new ByteArray(hashes[i])));
+      }
+      return blocks;
+    }
+
+    Block toBlock(Block.Builder builder, String resourceId, int index, ByteArray hash) {
+      int offset = index * BLOCK_INTS;
+      return builder
+        .setResourceId(resourceId)
+        .setBlockHash(hash)
+        .setIndexInFile(blockData[offset])
+        .setLines(blockData[offset + 1], blockData[offset + 2])
+        .setUnit(blockData[offset + 3], blockData[offset + 4])
+        .build();
+    }
+  }
+
+  /**
+   * Resources sorted by id, and references to their blocks sorted by hash. A reference is made of the
+   * position of the resource (high 32 bits) and of the position of the block in the resource (low 32 bits).
+   */
+  private static final class HashIndex {
+    private final String[] resourceIds;
+    private final ResourceData[] resources;
+    private final long[] hashes;
+    private final long[] references;
+
+    HashIndex(Map<String, ResourceData> resourcesById) {
+      List<String> ids = new ArrayList<>(resourcesById.keySet());
+      ids.sort(FastStringComparator.INSTANCE);
+      this.resourceIds = ids.toArray(new String[ids.size()]);
+      this.resources = new ResourceData[resourceIds.length];
+      int size = 0;
+      for (int i = 0; i < resourceIds.length; i++) {
+        resources[i] = resourcesById.get(resourceIds[i]);
+        size += resources[i].size();
+      }
+
+      this.hashes = new long[size];
+      this.references = new long[size];
+      int position = 0;
+      for (int r = 0; r < resources.length; r++) {
+        long[] resourceHashes = resources[r].hashes;
+        for (int b = 0; b < resourceHashes.length; b++) {
+          hashes[position] = resourceHashes[b];
+          references[position] = ((long) r << 32) | b;
+          position++;
+        }
+      }
+      DataUtils.sort(byHash());
+    }
+
+    Collection<Block> getBlocks(ByteArray sequenceHash) {
+      long hash = toLong(sequenceHash);
+      int index = firstIndexOf(hash);
+      if (index == hashes.length || hashes[index] != hash) {
+        return Collections.emptyList();
+      }
+      Block.Builder builder = Block.builder();
+      List<Block> result = new ArrayList<>();
+      while (index < hashes.length && hashes[index] == hash) {
+        int resource = (int) (references[index] >>> 32);
+        int block = (int) references[index];
+        result.add(resources[resource].toBlock(builder, resourceIds[resource], block, sequenceHash));
+        index++;
+      }
+      return result;
+    }
+
+    /**
+     * Position of the first hash which is not less than the given one. Contrary to
+     * {@link DataUtils#binarySearch(DataUtils.Sortable)}, it does not write in the arrays, so that
+     * queries can be concurrent.
+     */
+    private int firstIndexOf(long hash) {
+      int lower = 0;
+      int upper = hashes.length;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (hashes[mid] < hash) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      return lower;
+    }
+
+    private DataUtils.Sortable byHash() {
+      return new DataUtils.Sortable() {
+        @Override
+        public int size() {
+          return hashes.length;
+        }
+
+        @Override
+        public void swap(int i, int j) {
+          long hash = hashes[i];
+          hashes[i] = hashes[j];
+          hashes[j] = hash;
+          long reference = references[i];
+          references[i] = references[j];
+          references[j] = reference;
+        }
+
+        @Override
+        public boolean isLess(int i, int j) {
+          return hashes[i] < hashes[j];
+        }
+      };
+    }
+  }
+}
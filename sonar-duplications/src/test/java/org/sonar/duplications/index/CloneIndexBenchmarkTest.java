@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.test.Benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link ConcurrentPackedCloneIndex} with {@link PackedMemoryCloneIndex} on the access pattern of
+ * the scanner: all the files are indexed, then the blocks of each file are loaded and looked up by hash.
+ *
+ * @see Benchmark
+ */
+public class CloneIndexBenchmarkTest {
+
+  private static final int FILES = Benchmark.size(100, 10_000);
+  private static final int BLOCKS_PER_FILE = 200;
+  private static final int DISTINCT_HASHES = FILES * BLOCKS_PER_FILE / 4;
+  private static final int THREADS = 4;
+
+  @Test
+  public void compare_with_packed_memory_index() throws Exception {
+    List<List<Block>> files = generateFiles();
+
+    long packedNs = Benchmark.nanos(() -> packedMemoryIndex(files));
+    long concurrentNs = Benchmark.nanos(() -> concurrentIndex(files, 1));
+    long concurrentWithThreadsNs = Benchmark.nanos(() -> concurrentIndex(files, THREADS));
+
+    String blocks = FILES * BLOCKS_PER_FILE + " blocks indexed and queried by ";
+    Benchmark.assertFaster(blocks + "concurrent index", concurrentNs, "packed index", packedNs);
+    Benchmark.assertFaster(blocks + "concurrent index with " + THREADS + " threads", concurrentWithThreadsNs, "packed index", packedNs);
+  }
+
+  private static void packedMemoryIndex(List<List<Block>> files) {
+    PackedMemoryCloneIndex index = new PackedMemoryCloneIndex();
+    for (List<Block> blocks : files) {
+      for (Block block : blocks) {
+        index.insert(block);
+      }
+    }
+    assertThat(query(index, files)).isGreaterThanOrEqualTo(FILES * BLOCKS_PER_FILE);
+  }
+
+  private static void concurrentIndex(List<List<Block>> files, int threads) throws Exception {
+    ConcurrentPackedCloneIndex index = new ConcurrentPackedCloneIndex();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int f = thread; f < files.size(); f += threads) {
+            List<Block> blocks = files.get(f);
+            index.insert(blocks.get(0).getResourceId(), blocks);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(query(index, files)).isGreaterThanOrEqualTo(FILES * BLOCKS_PER_FILE);
+  }
+
+  private static long query(CloneIndex index, List<List<Block>> files) {
+    long matches = 0;
+    for (List<Block> blocks : files) {
+      for (Block block : index.getByResourceId(blocks.get(0).getResourceId())) {
+        matches += index.getBySequenceHash(block.getBlockHash()).size();
+      }
+    }
+    return matches;
+  }
+
+  private static List<List<Block>> generateFiles() {
+    Random random = new Random(42);
+    List<List<Block>> files = new ArrayList<>(FILES);
+    for (int f = 0; f < FILES; f++) {
+      String resourceId = "project:src/File" + f + ".java";
+      List<Block> blocks = new ArrayList<>(BLOCKS_PER_FILE);
+      for (int b = 0; b < BLOCKS_PER_FILE; b++) {
+        blocks.add(Block.builder()
+          .setResourceId(resourceId)
+          .setBlockHash(new ByteArray((long) random.nextInt(DISTINCT_HASHES)))
+          .setIndexInFile(b)
+          .setLines(b + 1, b + 10)
+          .setUnit(b, b + 10)
+          .build());
+      }
+      files.add(blocks);
+    }
+    return files;
+  }
+
+}
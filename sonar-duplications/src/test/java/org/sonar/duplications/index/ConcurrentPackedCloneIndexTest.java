@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentPackedCloneIndexTest {
+
+  private ConcurrentPackedCloneIndex index;
+
+  @Before
+  public void setUp() {
+    index = new ConcurrentPackedCloneIndex();
+  }
+
+  @Test
+  public void test() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("a", 2));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("d", 1));
+    index.insert(newBlock("e", 1));
+    index.insert(newBlock("e", 2));
+    index.insert(newBlock("e", 3));
+
+    assertThat(index.noResources()).isEqualTo(5);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(5);
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(index.getByResourceId("a")).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(1);
+    assertThat(index.getByResourceId("e")).hasSize(3);
+    assertThat(index.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void should_return_blocks_of_resource_in_insertion_order() {
+    Block first = newBlock("a", 3, 1, 10, 12);
+    Block second = newBlock("a", 1, 2, 11, 13);
+    index.insert("a", asList(first, second));
+    index.insert("a", Collections.singletonList(newBlock("a", 2, 3, 12, 14)));
+
+    List<Block> blocks = new ArrayList<>(index.getByResourceId("a"));
+
+    assertThat(blocks).extracting(Block::getIndexInFile).containsExactly(1, 2, 3);
+    assertThat(blocks).extracting(Block::getBlockHash).containsExactly(new ByteArray(3L), new ByteArray(1L), new ByteArray(2L));
+    Block block = blocks.get(0);
+    assertThat(block.getResourceId()).isEqualTo("a");
+    assertThat(block.getStartLine()).isEqualTo(10);
+    assertThat(block.getEndLine()).isEqualTo(12);
+    assertThat(block.getStartUnit()).isEqualTo(100);
+    assertThat(block.getEndUnit()).isEqualTo(120);
+  }
+
+  /**
+   * When: query by a hash value.
+   * Expected: all blocks should have same hash, which presented in the form of the same object.
+   */
+  @Test
+  public void should_construct_blocks_with_normalized_hash() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    ByteArray requestedHash = new ByteArray(1L);
+    Collection<Block> blocks = index.getBySequenceHash(requestedHash);
+    assertThat(blocks).hasSize(3);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isSameAs(requestedHash);
+    }
+  }
+
+  @Test
+  public void iterate() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 2));
+    index.insert(newBlock("a", 2));
+
+    Iterator<ResourceBlocks> it = index.iterator();
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    while (it.hasNext()) {
+      resourcesBlocks.add(it.next());
+    }
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "b", "c");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(1);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(2);
+  }
+
+  @Test
+  public void should_find_blocks_inserted_after_a_query() {
+    index.insert(newBlock("a", 1));
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(1);
+
+    index.insert(newBlock("b", 1));
+
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).extracting(Block::getResourceId).containsOnly("a", "b");
+  }
+
+  @Test
+  public void should_accept_concurrent_insertions() throws Exception {
+    int threads = 4;
+    int resourcesPerThread = 100;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int r = 0; r < resourcesPerThread; r++) {
+            String resourceId = "r" + thread + "-" + r;
+            index.insert(resourceId, asList(newBlock(resourceId, r), newBlock(resourceId, -1L)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(index.noResources()).isEqualTo(threads * resourcesPerThread);
+    assertThat(index.getBySequenceHash(new ByteArray(-1L))).hasSize(threads * resourcesPerThread);
+    assertThat(index.getBySequenceHash(new ByteArray(5L))).hasSize(threads);
+    assertThat(index.getByResourceId("r2-7")).hasSize(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_insert_hash_of_incorrect_size() {
+    index.insert(Block.builder()
+      .setResourceId("a")
+      .setBlockHash(new ByteArray("abcd".getBytes()))
+      .setIndexInFile(1)
+      .setLines(1, 2)
+      .build());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_find_hash_of_incorrect_size() {
+    index.getBySequenceHash(new ByteArray("abcd".getBytes()));
+  }
+
+  private static Block newBlock(String resourceId, long hash) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(1)
+      .setLines(1, 2)
+      .build();
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile, int startLine, int endLine) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(startLine, endLine)
+      .setUnit(startLine * 10, endLine * 10)
+      .build();
+  }
+
+}
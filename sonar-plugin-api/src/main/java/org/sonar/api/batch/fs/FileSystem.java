@@ -22,6 +22,7 @@ package org.sonar.api.batch.fs;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.SortedSet;
+import java.util.stream.StreamSupport;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
 
@@ -173,5 +174,16 @@ public interface FileSystem {
      * @since 6.3
      */
     Iterable<InputFile> getFilesByExtension(String extension);
+
+    /**
+     * Files whose relative path starts with the given prefix. This default implementation iterates over all
+     * the files, indexes sorted by relative path should override it.
+     * @since 6.4
+     */
+    default Iterable<InputFile> getFilesByRelativePathPrefix(String prefix) {
+      return () -> StreamSupport.stream(inputFiles().spliterator(), false)
+        .filter(inputFile -> inputFile.relativePath().startsWith(prefix))
+        .iterator();
+    }
   }
 }
@@ -32,7 +32,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -251,7 +253,7 @@ public class DefaultFileSystem implements FileSystem {
    * Used only for testing
    */
   private static class MapCache extends Cache {
-    private final Map<String, InputFile> fileMap = new HashMap<>();
+    private final NavigableMap<String, InputFile> fileMap = new TreeMap<>();
     private final Map<String, InputDir> dirMap = new HashMap<>();
     private final SetMultimap<String, InputFile> filesByNameCache = LinkedHashMultimap.create();
     private final SetMultimap<String, InputFile> filesByExtensionCache = LinkedHashMultimap.create();
@@ -281,6 +283,11 @@ public class DefaultFileSystem implements FileSystem {
       return filesByExtensionCache.get(extension);
     }
 
+    @Override
+    public Iterable<InputFile> getFilesByRelativePathPrefix(String prefix) {
+      return new ArrayList<>(fileMap.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
     @Override
     protected void doAdd(InputFile inputFile) {
       fileMap.put(inputFile.relativePath(), inputFile);
@@ -40,8 +40,9 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private final Consumer<DefaultInputFile> metadataGenerator;
   private Status status;
   private Charset charset;
-  private Metadata metadata;
-  private boolean publish;
+  // written last by the metadata generator, so that status and charset are visible once it is set
+  private volatile Metadata metadata;
+  private volatile boolean publish;
 
   public DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator) {
     super(indexedFile.batchId());
@@ -53,7 +54,11 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
 
   public void checkMetadata() {
     if (metadata == null) {
-      metadataGenerator.accept(this);
+      synchronized (this) {
+        if (metadata == null) {
+          metadataGenerator.accept(this);
+        }
+      }
     }
   }
 
@@ -171,6 +176,17 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     return metadata.nonBlankLines();
   }
 
+  /**
+   * Line hashes used by issue tracking, if computed when reading the metadata.
+   * @see Metadata#lineHashes()
+   * @since 6.4
+   */
+  @CheckForNull
+  public byte[] lineHashes() {
+    checkMetadata();
+    return metadata.lineHashes();
+  }
+
   public int[] originalLineOffsets() {
     checkMetadata();
     Preconditions.checkState(metadata.originalLineOffsets() != null, "InputFile is not properly initialized.");
@@ -19,10 +19,10 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
@@ -33,6 +33,7 @@ import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
@@ -56,6 +57,13 @@ public class FileMetadata {
 
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * Size in bytes of a line hash computed for issue tracking (MD5)
+   * @since 6.4
+   */
+  public static final int LINE_HASH_SIZE = 16;
 
   public abstract static class CharHandler {
 
@@ -266,6 +274,28 @@ public class FileMetadata {
 
   }
 
+  /**
+   * Packs line hashes in a single array, {@link #LINE_HASH_SIZE} bytes per line
+   */
+  private static class LineHashCollector implements LineHashConsumer {
+    private byte[] hashes = new byte[64 * LINE_HASH_SIZE];
+
+    @Override
+    public void consume(int lineIdx, @Nullable byte[] hash) {
+      int offset = (lineIdx - 1) * LINE_HASH_SIZE;
+      if (offset + LINE_HASH_SIZE > hashes.length) {
+        hashes = Arrays.copyOf(hashes, Math.max(2 * hashes.length, offset + LINE_HASH_SIZE));
+      }
+      if (hash != null) {
+        System.arraycopy(hash, 0, hashes, offset, LINE_HASH_SIZE);
+      }
+    }
+
+    byte[] getHashes(int lines) {
+      return Arrays.copyOf(hashes, lines * LINE_HASH_SIZE);
+    }
+  }
+
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
@@ -279,6 +309,31 @@ public class FileMetadata {
       lineOffsetCounter.getLastValidOffset());
   }
 
+  /**
+   * Compute metadata of a file in a single pass over the given stream, which must be positioned after the BOM, if any.
+   * The stream is not closed.
+   * @param computeLineHashes whether the line hashes used by issue tracking must also be computed, see {@link Metadata#lineHashes()}
+   * @since 6.4
+   */
+  public Metadata readMetadata(InputStream stream, Charset encoding, File file, boolean computeLineHashes) {
+    LineCounter lineCounter = new LineCounter(file, encoding);
+    FileHashComputer fileHashComputer = new FileHashComputer(file);
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    LineHashCollector lineHashCollector = new LineHashCollector();
+    try {
+      Reader reader = new InputStreamReader(stream, encoding);
+      if (computeLineHashes) {
+        read(reader, lineCounter, fileHashComputer, lineOffsetCounter, new LineHashComputer(lineHashCollector, file));
+      } else {
+        read(reader, lineCounter, fileHashComputer, lineOffsetCounter);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
+      lineOffsetCounter.getLastValidOffset(), computeLineHashes ? lineHashCollector.getHashes(lineCounter.lines()) : null);
+  }
+
   /**
    * For testing purpose
    */
@@ -298,7 +353,7 @@ public class FileMetadata {
   public static void readFile(File file, Charset encoding, CharHandler... handlers) {
     try (BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file),
       ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
-      Reader reader = new BufferedReader(new InputStreamReader(bomIn, encoding))) {
+      Reader reader = new InputStreamReader(bomIn, encoding)) {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
@@ -306,43 +361,45 @@ public class FileMetadata {
   }
 
   private static void read(Reader reader, CharHandler... handlers) throws IOException {
-    char c;
-    int i = reader.read();
+    char[] buffer = new char[BUFFER_SIZE];
     boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
-      if (afterCR) {
-        for (CharHandler handler : handlers) {
-          if (c == CARRIAGE_RETURN) {
-            handler.newLine();
-            handler.handleAll(c);
-          } else if (c == LINE_FEED) {
+    int n = reader.read(buffer);
+    while (n != -1) {
+      for (int j = 0; j < n; j++) {
+        char c = buffer[j];
+        if (afterCR) {
+          for (CharHandler handler : handlers) {
+            if (c == CARRIAGE_RETURN) {
+              handler.newLine();
+              handler.handleAll(c);
+            } else if (c == LINE_FEED) {
+              handler.handleAll(c);
+              handler.newLine();
+            } else {
+              handler.newLine();
+              handler.handleIgnoreEoL(c);
+              handler.handleAll(c);
+            }
+          }
+          afterCR = c == CARRIAGE_RETURN;
+        } else if (c == LINE_FEED) {
+          for (CharHandler handler : handlers) {
             handler.handleAll(c);
             handler.newLine();
-          } else {
-            handler.newLine();
+          }
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+          for (CharHandler handler : handlers) {
+            handler.handleAll(c);
+          }
+        } else {
+          for (CharHandler handler : handlers) {
             handler.handleIgnoreEoL(c);
             handler.handleAll(c);
           }
         }
-        afterCR = c == CARRIAGE_RETURN;
-      } else if (c == LINE_FEED) {
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-          handler.newLine();
-        }
-      } else if (c == CARRIAGE_RETURN) {
-        afterCR = true;
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-        }
-      } else {
-        for (CharHandler handler : handlers) {
-          handler.handleIgnoreEoL(c);
-          handler.handleAll(c);
-        }
       }
-      i = reader.read();
+      n = reader.read(buffer);
     }
     for (CharHandler handler : handlers) {
       if (afterCR) {
@@ -360,9 +417,28 @@ public class FileMetadata {
   }
 
   /**
-   * Compute a MD5 hash of each line of the file after removing of all blank chars
+   * Compute a MD5 hash of each line of the file after removing of all blank chars.
+   * Hashes already computed when reading the metadata of the file are reused, without reading the file again.
    */
   public static void computeLineHashesForIssueTracking(InputFile f, LineHashConsumer consumer) {
-    readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
+    byte[] lineHashes = f instanceof DefaultInputFile ? ((DefaultInputFile) f).lineHashes() : null;
+    if (lineHashes == null) {
+      readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
+      return;
+    }
+    for (int offset = 0; offset < lineHashes.length; offset += LINE_HASH_SIZE) {
+      if (!isZero(lineHashes, offset)) {
+        consumer.consume(offset / LINE_HASH_SIZE + 1, Arrays.copyOfRange(lineHashes, offset, offset + LINE_HASH_SIZE));
+      }
+    }
+  }
+
+  private static boolean isZero(byte[] bytes, int offset) {
+    for (int i = offset; i < offset + LINE_HASH_SIZE; i++) {
+      if (bytes[i] != 0) {
+        return false;
+      }
+    }
+    return true;
   }
 }
@@ -19,19 +19,31 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 public class Metadata {
   private final int lines;
   private final int nonBlankLines;
   private final String hash;
   private final int[] originalLineOffsets;
   private final int lastValidOffset;
+  private final byte[] lineHashes;
 
   public Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
+    this(lines, nonBlankLines, hash, originalLineOffsets, lastValidOffset, null);
+  }
+
+  /**
+   * @since 6.4
+   */
+  public Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset, @Nullable byte[] lineHashes) {
     this.lines = lines;
     this.nonBlankLines = nonBlankLines;
     this.hash = hash;
     this.originalLineOffsets = originalLineOffsets;
     this.lastValidOffset = lastValidOffset;
+    this.lineHashes = lineHashes;
   }
 
   public int lines() {
@@ -54,4 +66,15 @@ public class Metadata {
     return lastValidOffset;
   }
 
+  /**
+   * MD5 hashes of the lines used by issue tracking, {@link FileMetadata#LINE_HASH_SIZE} bytes per line. Bytes of
+   * lines without hash (blank lines) are zeros.
+   * @return null if line hashes were not computed when reading the file
+   * @since 6.4
+   */
+  @CheckForNull
+  public byte[] lineHashes() {
+    return lineHashes;
+  }
+
 }
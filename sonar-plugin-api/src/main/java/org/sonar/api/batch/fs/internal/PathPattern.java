@@ -19,6 +19,8 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.IndexedFile;
@@ -36,6 +38,22 @@ public abstract class PathPattern {
 
   public abstract boolean match(IndexedFile inputFile, boolean caseSensitiveFileExtension);
 
+  /**
+   * Literal directories that start the relative paths matched by this pattern, for example "src/main/" for
+   * "src/main/**&#47;*.java". Empty if the pattern starts with a wildcard, null if the pattern does not apply
+   * to relative paths.
+   * @since 6.4
+   */
+  @CheckForNull
+  public abstract String relativePathPrefix();
+
+  /**
+   * The relative path matched by this pattern if it does not contain any wildcard, otherwise null.
+   * @since 6.4
+   */
+  @CheckForNull
+  public abstract String literalRelativePath();
+
   public static PathPattern create(String s) {
     String trimmed = StringUtils.trim(s);
     if (StringUtils.startsWithIgnoreCase(trimmed, "file:")) {
@@ -75,6 +93,16 @@ public abstract class PathPattern {
       return pattern.match(path);
     }
 
+    @Override
+    public String relativePathPrefix() {
+      return null;
+    }
+
+    @Override
+    public String literalRelativePath() {
+      return null;
+    }
+
     @Override
     public String toString() {
       return "file:" + pattern.toString();
@@ -85,8 +113,17 @@ public abstract class PathPattern {
    * Path relative to module basedir
    */
   private static class RelativePathPattern extends PathPattern {
+    private final String prefix;
+    @Nullable
+    private final String literalPath;
+
     private RelativePathPattern(String pattern) {
       super(pattern);
+      String normalized = StringUtils.removeStart(pattern.replace('\\', '/'), "/");
+      int wildcardIndex = StringUtils.indexOfAny(normalized, "*?");
+      String literal = wildcardIndex < 0 ? normalized : normalized.substring(0, wildcardIndex);
+      this.prefix = literal.substring(0, literal.lastIndexOf('/') + 1);
+      this.literalPath = wildcardIndex < 0 && !normalized.endsWith("/") ? normalized : null;
     }
 
     @Override
@@ -107,6 +144,16 @@ public abstract class PathPattern {
       return path != null && pattern.match(path);
     }
 
+    @Override
+    public String relativePathPrefix() {
+      return prefix;
+    }
+
+    @Override
+    public String literalRelativePath() {
+      return literalPath;
+    }
+
     @Override
     public String toString() {
       return pattern.toString();
@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.fs.IndexedFile;
+
+/**
+ * Matches files against a set of {@link PathPattern}, without evaluating all of them for each file:
+ * <ul>
+ *   <li>patterns without wildcard are looked up by relative path</li>
+ *   <li>other relative patterns are stored in a tree of the literal directories they start with,
+ *   so that only the patterns of the directories containing the file are evaluated</li>
+ *   <li>absolute patterns are always evaluated</li>
+ * </ul>
+ * Matching is case-sensitive, like {@link PathPattern#match(IndexedFile)}.
+ * @since 6.4
+ */
+public class PathPatternMatcher {
+
+  private final boolean empty;
+  private final Set<String> literalPaths = new HashSet<>();
+  private final Node root = new Node();
+  private final List<PathPattern> absolutePatterns = new ArrayList<>();
+
+  public PathPatternMatcher(PathPattern[] patterns) {
+    this.empty = patterns.length == 0;
+    for (PathPattern pattern : patterns) {
+      String literalPath = pattern.literalRelativePath();
+      String prefix = pattern.relativePathPrefix();
+      if (literalPath != null) {
+        literalPaths.add(literalPath);
+      } else if (prefix == null) {
+        absolutePatterns.add(pattern);
+      } else {
+        root.add(prefix, pattern);
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * @return true if at least one of the patterns matches the file
+   */
+  public boolean matchAny(IndexedFile indexedFile) {
+    for (PathPattern pattern : absolutePatterns) {
+      if (pattern.match(indexedFile)) {
+        return true;
+      }
+    }
+    String relativePath = indexedFile.relativePath();
+    if (relativePath == null) {
+      return false;
+    }
+    String path = StringUtils.removeEnd(StringUtils.removeStart(relativePath, "/"), "/");
+    if (literalPaths.contains(path)) {
+      return true;
+    }
+    Node node = root;
+    int segmentStart = 0;
+    while (true) {
+      if (node.matchAny(indexedFile)) {
+        return true;
+      }
+      int segmentEnd = path.indexOf('/', segmentStart);
+      if (segmentEnd < 0) {
+        return false;
+      }
+      node = node.children.get(path.substring(segmentStart, segmentEnd));
+      if (node == null) {
+        return false;
+      }
+      segmentStart = segmentEnd + 1;
+    }
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private final List<PathPattern> patterns = new ArrayList<>();
+
+    private void add(String prefix, PathPattern pattern) {
+      Node node = this;
+      if (!prefix.isEmpty()) {
+        // the prefix ends with a slash, trailing empty string is not part of the result
+        for (String segment : prefix.split("/")) {
+          node = node.children.computeIfAbsent(segment, k -> new Node());
+        }
+      }
+      node.patterns.add(pattern);
+    }
+
+    private boolean matchAny(IndexedFile indexedFile) {
+      for (PathPattern pattern : patterns) {
+        if (pattern.match(indexedFile)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
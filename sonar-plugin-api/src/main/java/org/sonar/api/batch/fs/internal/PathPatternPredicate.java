@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
@@ -37,4 +38,25 @@ class PathPatternPredicate extends AbstractFilePredicate {
     return pattern.match(f);
   }
 
+  /**
+   * Only the files located in the literal directories the pattern starts with are matched
+   */
+  @Override
+  public Iterable<InputFile> get(FileSystem.Index index) {
+    String prefix = pattern.relativePathPrefix();
+    if (prefix == null || prefix.isEmpty()) {
+      return super.get(index);
+    }
+    return filter(index.getFilesByRelativePathPrefix(prefix));
+  }
+
+  /**
+   * Prefix lookups are less selective than the exact lookups of {@link RelativePathPredicate}
+   */
+  @Override
+  public int priority() {
+    String prefix = pattern.relativePathPrefix();
+    return prefix == null || prefix.isEmpty() ? DEFAULT_PRIORITY : (USE_INDEX - 1);
+  }
+
 }
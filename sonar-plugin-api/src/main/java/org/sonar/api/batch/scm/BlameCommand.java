@@ -19,12 +19,14 @@
  */
 package org.sonar.api.batch.scm;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This class should be implemented by SCM providers.
@@ -36,7 +38,7 @@ public abstract class BlameCommand {
 
   /**
    * Compute blame of the provided files. 
-   * Computation can be done in parallel if this is more efficient.
+   * Computation can be done in parallel if this is more efficient, preferably using {@link BlameInput#executorService()}.
    * If there is an error that prevent to blame a file then an exception should be raised. If 
    * one file is new or contains local modifications then an exception should be raised.
    * @see BlameOutput#blameResult(InputFile, List)
@@ -58,6 +60,17 @@ public abstract class BlameCommand {
      */
     Iterable<InputFile> filesToBlame();
 
+    /**
+     * Executor provided by the scanner to blame files concurrently. Its number of threads is bounded
+     * by the scanner configuration. It must not be shut down by the provider, and all the submitted tasks
+     * must be completed when {@link BlameCommand#blame(BlameInput, BlameOutput)} returns.
+     * The default implementation runs tasks in the calling thread.
+     * @since 6.4
+     */
+    default ExecutorService executorService() {
+      return MoreExecutors.newDirectExecutorService();
+    }
+
   }
 
   /**
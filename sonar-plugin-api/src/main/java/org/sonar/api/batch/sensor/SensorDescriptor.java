@@ -79,4 +79,13 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} does not depend on the results of other sensors and can be executed
+   * concurrently with the other thread-safe sensors. Such a {@link Sensor} must not keep state that is not thread-safe.
+   * The platform only executes sensors concurrently when it is enabled on the scanner side.
+   * Default is to execute the {@link Sensor} alone.
+   * @since 6.4
+   */
+  SensorDescriptor threadSafe();
+
 }
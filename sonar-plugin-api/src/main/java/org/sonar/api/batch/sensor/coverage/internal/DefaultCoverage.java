@@ -19,9 +19,10 @@
  */
 package org.sonar.api.batch.sensor.coverage.internal;
 
-import com.google.common.collect.Maps;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.coverage.CoverageType;
@@ -29,6 +30,7 @@ import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.batch.sensor.internal.DefaultStorable;
 import org.sonar.api.batch.sensor.internal.SensorStorage;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -39,9 +41,11 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
   private int totalCoveredLines = 0;
   private int totalConditions = 0;
   private int totalCoveredConditions = 0;
-  private SortedMap<Integer, Integer> hitsByLine = Maps.newTreeMap();
-  private SortedMap<Integer, Integer> conditionsByLine = Maps.newTreeMap();
-  private SortedMap<Integer, Integer> coveredConditionsByLine = Maps.newTreeMap();
+  private int linesToCover = 0;
+  // indexed by line, -1 when the line has no value
+  private int[] hitsByLine = new int[0];
+  private int[] conditionsByLine = new int[0];
+  private int[] coveredConditionsByLine = new int[0];
 
   public DefaultCoverage() {
     super();
@@ -76,9 +80,13 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
   public NewCoverage lineHits(int line, int hits) {
     validateFile();
     validateLine(line);
+    // negative values mark the lines without hits
+    checkArgument(hits >= 0, "Hits on line %s of the file %s must not be negative: %s", line, inputFile.relativePath(), hits);
 
-    if (!hitsByLine.containsKey(line)) {
-      hitsByLine.put(line, hits);
+    ensureCapacity();
+    if (hitsByLine[line] < 0) {
+      hitsByLine[line] = hits;
+      linesToCover += 1;
       if (hits > 0) {
         totalCoveredLines += 1;
       }
@@ -95,16 +103,32 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
     checkNotNull(inputFile, "Call onFile() first");
   }
 
+  private void ensureCapacity() {
+    int length = inputFile.lines() + 1;
+    if (hitsByLine.length < length) {
+      hitsByLine = grow(hitsByLine, length);
+      conditionsByLine = grow(conditionsByLine, length);
+      coveredConditionsByLine = grow(coveredConditionsByLine, length);
+    }
+  }
+
+  private static int[] grow(int[] values, int length) {
+    int[] result = Arrays.copyOf(values, length);
+    Arrays.fill(result, values.length, length, -1);
+    return result;
+  }
+
   @Override
   public NewCoverage conditions(int line, int conditions, int coveredConditions) {
     validateFile();
     validateLine(line);
 
-    if (conditions > 0 && !conditionsByLine.containsKey(line)) {
+    ensureCapacity();
+    if (conditions > 0 && conditionsByLine[line] < 0) {
       totalConditions += conditions;
       totalCoveredConditions += coveredConditions;
-      conditionsByLine.put(line, conditions);
-      coveredConditionsByLine.put(line, coveredConditions);
+      conditionsByLine[line] = conditions;
+      coveredConditionsByLine[line] = coveredConditions;
     }
     return this;
   }
@@ -114,7 +138,7 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
   }
 
   public int linesToCover() {
-    return hitsByLine.size();
+    return linesToCover;
   }
 
   public int conditions() {
@@ -125,16 +149,62 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
     return totalCoveredConditions;
   }
 
+  /**
+   * Last line which may have a value, 0 if no line has any.
+   * @since 6.4
+   */
+  public int lastLine() {
+    return Math.max(0, hitsByLine.length - 1);
+  }
+
+  /**
+   * @return the hits of the line, or -1 if the line is not to be covered
+   * @since 6.4
+   */
+  public int hitsOfLine(int line) {
+    return valueOf(hitsByLine, line);
+  }
+
+  /**
+   * @return the conditions of the line, or -1 if the line has no conditions
+   * @since 6.4
+   */
+  public int conditionsOfLine(int line) {
+    return valueOf(conditionsByLine, line);
+  }
+
+  /**
+   * @return the covered conditions of the line, or -1 if the line has no conditions
+   * @since 6.4
+   */
+  public int coveredConditionsOfLine(int line) {
+    return valueOf(coveredConditionsByLine, line);
+  }
+
   public SortedMap<Integer, Integer> hitsByLine() {
-    return Collections.unmodifiableSortedMap(hitsByLine);
+    return toMap(hitsByLine);
   }
 
   public SortedMap<Integer, Integer> conditionsByLine() {
-    return Collections.unmodifiableSortedMap(conditionsByLine);
+    return toMap(conditionsByLine);
   }
 
   public SortedMap<Integer, Integer> coveredConditionsByLine() {
-    return Collections.unmodifiableSortedMap(coveredConditionsByLine);
+    return toMap(coveredConditionsByLine);
+  }
+
+  private static int valueOf(int[] values, int line) {
+    return line > 0 && line < values.length ? values[line] : -1;
+  }
+
+  private static SortedMap<Integer, Integer> toMap(int[] values) {
+    SortedMap<Integer, Integer> result = new TreeMap<>();
+    for (int line = 1; line < values.length; line++) {
+      if (values[line] >= 0) {
+        result.put(line, values[line]);
+      }
+    }
+    return Collections.unmodifiableSortedMap(result);
   }
 
   @Override
@@ -28,6 +28,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Iterator;
+import org.sonar.api.batch.fs.InputFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -108,6 +109,21 @@ public class DefaultFileSystemTest {
     assertThat(fs.languages()).containsOnly("java", "php");
   }
 
+  @Test
+  public void files_matching_path_patterns() {
+    fs.add(new TestInputFileBuilder("foo", "src/main/Foo.java").build());
+    fs.add(new TestInputFileBuilder("foo", "src/main/sub/Bar.java").build());
+    fs.add(new TestInputFileBuilder("foo", "src/mainly/Baz.java").build());
+    fs.add(new TestInputFileBuilder("foo", "test/Qix.java").build());
+
+    assertThat(fs.inputFiles(fs.predicates().matchesPathPattern("src/main/**/*.java"))).extracting(InputFile::relativePath)
+      .containsOnly("src/main/Foo.java", "src/main/sub/Bar.java");
+    assertThat(fs.inputFiles(fs.predicates().and(fs.predicates().matchesPathPattern("src/main/**"), fs.predicates().hasRelativePath("src/main/Foo.java"))))
+      .extracting(InputFile::relativePath).containsOnly("src/main/Foo.java");
+    assertThat(fs.inputFiles(fs.predicates().matchesPathPattern("**/Qix.java"))).extracting(InputFile::relativePath)
+      .containsOnly("test/Qix.java");
+  }
+
   @Test
   public void filesWithDefaultPredicate() {
     DefaultInputFile file1 = new TestInputFileBuilder("foo", "src/Foo.php").setLanguage("php").build();
@@ -20,6 +20,8 @@
 package org.sonar.api.batch.fs.internal;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
@@ -250,6 +252,35 @@ public class FileMetadataTest {
     });
   }
 
+  @Test
+  public void compute_line_hashes_while_reading_metadata() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, " foo\n\nb ar\r\nbaz \t", StandardCharsets.UTF_8, true);
+
+    Metadata metadata;
+    try (InputStream stream = new FileInputStream(tempFile)) {
+      metadata = new FileMetadata().readMetadata(stream, StandardCharsets.UTF_8, tempFile, true);
+    }
+    assertThat(metadata.lines()).isEqualTo(4);
+    assertThat(metadata.nonBlankLines()).isEqualTo(3);
+    assertThat(metadata.hash()).isEqualTo(new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8).hash());
+
+    DefaultInputFile f = new DefaultInputFile(new DefaultIndexedFile("foo", tempFile.getParentFile().toPath(), tempFile.getName()), i -> i.setMetadata(metadata));
+    String[] hashes = new String[4];
+    FileMetadata.computeLineHashesForIssueTracking(f, (lineIdx, hash) -> hashes[lineIdx - 1] = Hex.encodeHexString(hash));
+    assertThat(hashes).containsExactly(md5Hex("foo"), null, md5Hex("bar"), md5Hex("baz"));
+  }
+
+  @Test
+  public void dont_compute_line_hashes_if_not_requested() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "foo", StandardCharsets.UTF_8, true);
+
+    try (InputStream stream = new FileInputStream(tempFile)) {
+      assertThat(new FileMetadata().readMetadata(stream, StandardCharsets.UTF_8, tempFile, false).lineHashes()).isNull();
+    }
+  }
+
   @Test
   public void dont_fail_on_empty_file() throws Exception {
     File tempFile = temp.newFile();
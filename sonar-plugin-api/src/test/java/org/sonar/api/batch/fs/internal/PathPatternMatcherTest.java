@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathPatternMatcherTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  private Path moduleBasePath;
+
+  @Before
+  public void setUp() throws IOException {
+    moduleBasePath = temp.newFolder().toPath();
+  }
+
+  @Test
+  public void empty_matcher_does_not_match() {
+    PathPatternMatcher matcher = new PathPatternMatcher(new PathPattern[0]);
+
+    assertThat(matcher.isEmpty()).isTrue();
+    assertThat(matcher.matchAny(file("src/main/java/Foo.java"))).isFalse();
+  }
+
+  @Test
+  public void match_literal_paths() {
+    PathPatternMatcher matcher = matcher("src/main/java/Foo.java", "/Bar.java");
+
+    assertThat(matcher.isEmpty()).isFalse();
+    assertThat(matcher.matchAny(file("src/main/java/Foo.java"))).isTrue();
+    assertThat(matcher.matchAny(file("Bar.java"))).isTrue();
+    assertThat(matcher.matchAny(file("src/main/java/Bar.java"))).isFalse();
+  }
+
+  @Test
+  public void match_patterns_of_parent_directories() {
+    PathPatternMatcher matcher = matcher("src/main/**/*Foo.java", "src/test/java/*.xml", "**/generated/**");
+
+    assertThat(matcher.matchAny(file("src/main/java/org/MyFoo.java"))).isTrue();
+    assertThat(matcher.matchAny(file("src/main/MyFoo.java"))).isTrue();
+    assertThat(matcher.matchAny(file("src/test/java/MyFoo.java"))).isFalse();
+    assertThat(matcher.matchAny(file("src/test/java/foo.xml"))).isTrue();
+    assertThat(matcher.matchAny(file("src/test/java/org/foo.xml"))).isFalse();
+    assertThat(matcher.matchAny(file("src/test/generated/Bar.java"))).isTrue();
+    assertThat(matcher.matchAny(file("other/Foo.java"))).isFalse();
+  }
+
+  @Test
+  public void match_absolute_patterns() {
+    PathPatternMatcher matcher = matcher("file:**/src/main/**Foo.java", "src/test/**");
+
+    assertThat(matcher.matchAny(file("src/main/java/org/MyFoo.java"))).isTrue();
+    assertThat(matcher.matchAny(file("src/test/java/org/Bar.java"))).isTrue();
+    assertThat(matcher.matchAny(file("src/main/java/org/Bar.java"))).isFalse();
+  }
+
+  @Test
+  public void match_same_files_as_patterns() {
+    String[] patterns = {"src/main/**/*Foo.java", "src/*/java/Bar.java", "**/*.xml", "src/main/java/Baz.java", "file:**/test/**"};
+    String[] paths = {"src/main/java/MyFoo.java", "src/test/java/Bar.java", "pom.xml", "src/main/java/Baz.java", "src/main/java/Other.java",
+      "src/test/resources/data.txt", "Baz.java"};
+    PathPatternMatcher matcher = matcher(patterns);
+
+    for (String path : paths) {
+      boolean expected = false;
+      for (PathPattern pattern : PathPattern.create(patterns)) {
+        expected |= pattern.match(file(path));
+      }
+      assertThat(matcher.matchAny(file(path))).as(path).isEqualTo(expected);
+    }
+  }
+
+  private PathPatternMatcher matcher(String... patterns) {
+    return new PathPatternMatcher(PathPattern.create(patterns));
+  }
+
+  private DefaultIndexedFile file(String relativePath) {
+    return new DefaultIndexedFile("ABCDE", moduleBasePath, relativePath);
+  }
+}
@@ -105,4 +105,22 @@ public class PathPatternTest {
     assertThat(patterns[0].toString()).isEqualTo("**/src/main/**Foo.java");
     assertThat(patterns[1].toString()).isEqualTo("file:**/src/main/**Bar.java");
   }
+
+  @Test
+  public void literal_prefix_of_relative_path() {
+    assertThat(PathPattern.create("src/main/**/*.java").relativePathPrefix()).isEqualTo("src/main/");
+    assertThat(PathPattern.create("/src/main/java/Foo*.java").relativePathPrefix()).isEqualTo("src/main/java/");
+    assertThat(PathPattern.create("src\\test\\**").relativePathPrefix()).isEqualTo("src/test/");
+    assertThat(PathPattern.create("**/*Foo.java").relativePathPrefix()).isEmpty();
+    assertThat(PathPattern.create("Foo?.java").relativePathPrefix()).isEmpty();
+    assertThat(PathPattern.create("file:**/src/main/**Foo.java").relativePathPrefix()).isNull();
+  }
+
+  @Test
+  public void literal_relative_path() {
+    assertThat(PathPattern.create("src/main/java/Foo.java").literalRelativePath()).isEqualTo("src/main/java/Foo.java");
+    assertThat(PathPattern.create("/Foo.java").literalRelativePath()).isEqualTo("Foo.java");
+    assertThat(PathPattern.create("src/main/**/*.java").literalRelativePath()).isNull();
+    assertThat(PathPattern.create("file:/src/main/java/Foo.java").literalRelativePath()).isNull();
+  }
 }
@@ -41,6 +41,14 @@ public class DefaultSensorDescriptorTest {
     assertThat(descriptor.type()).isEqualTo(InputFile.Type.MAIN);
     assertThat(descriptor.properties()).containsOnly("sonar.foo.reportPath");
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isThreadSafe()).isFalse();
+  }
+
+  @Test
+  public void thread_safe() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor().name("Foo").threadSafe();
+
+    assertThat(descriptor.isThreadSafe()).isTrue();
   }
 
 }
@@ -157,6 +157,23 @@ public class ScannerExtensionDictionnary {
       .collect(Collectors.toList());
   }
 
+  /**
+   * Whether the extension must be executed after the other one, because of their {@link DependsUpon},
+   * {@link DependedUpon} or {@link Phase} annotations. Extensions without such a constraint are only
+   * ordered by {@link #sort(Collection)} to get a deterministic order.
+   */
+  public boolean dependsUpon(Object extension, Object other) {
+    if (evaluatePhase(extension).compareTo(evaluatePhase(other)) > 0) {
+      return true;
+    }
+    List<Object> dependencies = getDependencies(extension);
+    if (dependencies.contains(other) || getDependents(other).contains(extension)) {
+      return true;
+    }
+    List<Object> dependentsOfOther = getDependents(other);
+    return dependencies.stream().anyMatch(dependentsOfOther::contains);
+  }
+
   /**
    * Extension dependencies
    */
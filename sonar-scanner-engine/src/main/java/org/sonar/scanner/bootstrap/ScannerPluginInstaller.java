@@ -20,6 +20,7 @@
 package org.sonar.scanner.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,6 +30,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
@@ -41,6 +47,7 @@ import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.core.platform.RemotePluginFile;
 import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.profiling.BootstrapProfiling;
 import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -54,15 +61,18 @@ public class ScannerPluginInstaller implements PluginInstaller {
 
   private static final Logger LOG = Loggers.get(ScannerPluginInstaller.class);
   private static final String PLUGINS_INDEX_URL = "/deploy/plugins/index.txt";
+  private static final int DOWNLOAD_THREADS = 4;
 
   private final FileCache fileCache;
   private final ScannerPluginPredicate pluginPredicate;
   private final ScannerWsClient wsClient;
+  private final BootstrapProfiling bootstrapProfiling;
 
-  public ScannerPluginInstaller(ScannerWsClient wsClient, FileCache fileCache, ScannerPluginPredicate pluginPredicate) {
+  public ScannerPluginInstaller(ScannerWsClient wsClient, FileCache fileCache, ScannerPluginPredicate pluginPredicate, BootstrapProfiling bootstrapProfiling) {
     this.fileCache = fileCache;
     this.pluginPredicate = pluginPredicate;
     this.wsClient = wsClient;
+    this.bootstrapProfiling = bootstrapProfiling;
   }
 
   @Override
@@ -71,22 +81,62 @@ public class ScannerPluginInstaller implements PluginInstaller {
   }
 
   private Map<String, PluginInfo> loadPlugins(List<RemotePlugin> remotePlugins) {
-    Map<String, PluginInfo> infosByKey = new HashMap<>(remotePlugins.size());
+    List<RemotePlugin> pluginsToLoad = remotePlugins.stream()
+      .filter(remotePlugin -> pluginPredicate.apply(remotePlugin.getKey()))
+      .collect(Collectors.toList());
+    Map<String, PluginInfo> infosByKey = new HashMap<>(pluginsToLoad.size());
 
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
+    long start = System.currentTimeMillis();
 
-    for (RemotePlugin remotePlugin : remotePlugins) {
-      if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), info);
-      }
+    for (PluginInfo info : downloadAll(pluginsToLoad)) {
+      infosByKey.put(info.getKey(), info);
     }
 
+    bootstrapProfiling.add("Load plugins", System.currentTimeMillis() - start);
     profiler.stopDebug();
     return infosByKey;
   }
 
+  /**
+   * Plugins are downloaded concurrently, the hash of each file being verified by {@link FileCache}. Plugins
+   * already in cache are not downloaded again.
+   */
+  private List<PluginInfo> downloadAll(List<RemotePlugin> remotePlugins) {
+    if (remotePlugins.size() <= 1) {
+      return remotePlugins.stream().map(remotePlugin -> PluginInfo.create(download(remotePlugin))).collect(Collectors.toList());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(DOWNLOAD_THREADS, remotePlugins.size()),
+      new ThreadFactoryBuilder().setNameFormat("plugin-download-%d").setDaemon(true).build());
+    try {
+      List<Future<PluginInfo>> futures = new ArrayList<>(remotePlugins.size());
+      for (RemotePlugin remotePlugin : remotePlugins) {
+        futures.add(executor.submit(() -> PluginInfo.create(download(remotePlugin))));
+      }
+      List<PluginInfo> infos = new ArrayList<>(futures.size());
+      for (Future<PluginInfo> future : futures) {
+        infos.add(getDownloaded(future));
+      }
+      return infos;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static PluginInfo getDownloaded(Future<PluginInfo> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading plugins", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to download plugins", e.getCause());
+    }
+  }
+
   /**
    * Returns empty on purpose. This method is used only by tests.
    * @see org.sonar.scanner.mediumtest.ScannerMediumTester
@@ -127,6 +177,7 @@ public class ScannerPluginInstaller implements PluginInstaller {
 
   private String loadPluginIndex() {
     Profiler profiler = Profiler.create(LOG).startInfo("Load plugins index");
+    long start = System.currentTimeMillis();
     GetRequest getRequest = new GetRequest(PLUGINS_INDEX_URL);
     String str;
     try (Reader reader = wsClient.call(getRequest).contentReader()) {
@@ -135,6 +186,7 @@ public class ScannerPluginInstaller implements PluginInstaller {
       throw new IllegalStateException(e);
     }
 
+    bootstrapProfiling.add("Load plugins index", System.currentTimeMillis() - start);
     profiler.stopInfo();
     return str;
   }
@@ -25,14 +25,12 @@ import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginJarExploder;
 import org.sonar.core.platform.PluginInfo;
+import org.sonar.home.cache.DirectoryLock;
 import org.sonar.home.cache.FileCache;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
-import static org.sonar.core.util.FileUtils.deleteQuietly;
-
 @ScannerSide
 public class ScannerPluginJarExploder extends PluginJarExploder {
 
@@ -52,27 +50,26 @@ public class ScannerPluginJarExploder extends PluginJarExploder {
     }
   }
 
+  /**
+   * Libraries of plugins are extracted once in the cache, next to the plugin file. As the directory of the
+   * plugin file is named after its hash, the extracted libraries can be shared by all the analyses using the same
+   * version of the plugin, even if they run concurrently.
+   */
   private File unzipFile(File cachedFile) throws IOException {
     String filename = cachedFile.getName();
     File destDir = new File(cachedFile.getParentFile(), filename + "_unzip");
-    File lockFile = new File(cachedFile.getParentFile(), filename + "_unzip.lock");
     if (!destDir.exists()) {
-      FileOutputStream out = new FileOutputStream(lockFile);
+      DirectoryLock lock = new DirectoryLock(cachedFile.getParentFile().toPath(), new Slf4jLogger());
+      lock.lock();
       try {
-        java.nio.channels.FileLock lock = out.getChannel().lock();
-        try {
-          // Recheck in case of concurrent processes
-          if (!destDir.exists()) {
-            File tempDir = fileCache.createTempDir();
-            ZipUtils.unzip(cachedFile, tempDir, newLibFilter());
-            FileUtils.moveDirectory(tempDir, destDir);
-          }
-        } finally {
-          lock.release();
+        // Recheck in case of concurrent processes
+        if (!destDir.exists()) {
+          File tempDir = fileCache.createTempDir();
+          ZipUtils.unzip(cachedFile, tempDir, newLibFilter());
+          FileUtils.moveDirectory(tempDir, destDir);
         }
       } finally {
-        out.close();
-        deleteQuietly(lockFile);
+        lock.unlock();
       }
     }
     return destDir;
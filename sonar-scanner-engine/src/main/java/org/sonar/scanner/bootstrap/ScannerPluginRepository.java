@@ -33,6 +33,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginLoader;
 import org.sonar.core.platform.PluginRepository;
+import org.sonar.scanner.profiling.BootstrapProfiling;
 
 /**
  * Orchestrates the installation and loading of plugins
@@ -42,20 +43,24 @@ public class ScannerPluginRepository implements PluginRepository, Startable {
 
   private final PluginInstaller installer;
   private final PluginLoader loader;
+  private final BootstrapProfiling bootstrapProfiling;
 
   private Map<String, Plugin> pluginInstancesByKeys;
   private Map<String, PluginInfo> infosByKeys;
   private Map<ClassLoader, String> keysByClassLoader;
 
-  public ScannerPluginRepository(PluginInstaller installer, PluginLoader loader) {
+  public ScannerPluginRepository(PluginInstaller installer, PluginLoader loader, BootstrapProfiling bootstrapProfiling) {
     this.installer = installer;
     this.loader = loader;
+    this.bootstrapProfiling = bootstrapProfiling;
   }
 
   @Override
   public void start() {
     infosByKeys = new HashMap<>(installer.installRemotes());
+    long start = System.currentTimeMillis();
     pluginInstancesByKeys = new HashMap<>(loader.load(infosByKeys));
+    bootstrapProfiling.add("Explode and instantiate plugins", System.currentTimeMillis() - start);
 
     // this part is only used by tests
     for (Map.Entry<String, Plugin> entry : installer.installLocals().entrySet()) {
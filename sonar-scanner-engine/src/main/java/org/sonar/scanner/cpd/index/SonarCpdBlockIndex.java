@@ -20,9 +20,9 @@
 package org.sonar.scanner.cpd.index;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
@@ -32,20 +32,23 @@ import org.sonar.api.config.Settings;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
-import org.sonar.duplications.index.CloneIndex;
-import org.sonar.duplications.index.PackedMemoryCloneIndex;
+import org.sonar.duplications.index.ConcurrentPackedCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.report.ReportPublisher;
 
+/**
+ * Blocks of the files of the project. Files can be indexed concurrently, but the index must not be queried
+ * before all the files are indexed.
+ */
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
 
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final ConcurrentPackedCloneIndex mem = new ConcurrentPackedCloneIndex();
   private final ReportPublisher publisher;
   private final Settings settings;
   // Files already tokenized
-  private final Set<InputFile> indexedFiles = new HashSet<>();
+  private final Set<InputFile> indexedFiles = ConcurrentHashMap.newKeySet();
 
   public SonarCpdBlockIndex(ReportPublisher publisher, Settings settings) {
     this.publisher = publisher;
@@ -69,9 +72,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
         return builder.build();
       }).collect(Collectors.toList()));
     }
-    for (Block block : blocks) {
-      mem.insert(block);
-    }
+    mem.insert(((DefaultInputFile) inputFile).key(), blocks);
     indexedFiles.add(inputFile);
   }
 
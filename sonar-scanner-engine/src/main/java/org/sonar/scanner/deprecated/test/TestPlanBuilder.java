@@ -19,8 +19,8 @@
  */
 package org.sonar.scanner.deprecated.test;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
@@ -31,7 +31,7 @@ import org.sonar.scanner.deprecated.perspectives.PerspectiveBuilder;
 
 public class TestPlanBuilder extends PerspectiveBuilder<MutableTestPlan> {
 
-  private Map<InputFile, DefaultTestPlan> testPlanByFile = new HashMap<>();
+  private final Map<InputFile, DefaultTestPlan> testPlanByFile = new ConcurrentHashMap<>();
 
   public TestPlanBuilder() {
     super(MutableTestPlan.class);
@@ -44,10 +44,7 @@ public class TestPlanBuilder extends PerspectiveBuilder<MutableTestPlan> {
       DefaultInputFile inputFile = (DefaultInputFile) component;
       if (inputFile.type() == Type.TEST) {
         inputFile.setPublish(true);
-        if (!testPlanByFile.containsKey(inputFile)) {
-          testPlanByFile.put(inputFile, new DefaultTestPlan());
-        }
-        return testPlanByFile.get(inputFile);
+        return testPlanByFile.computeIfAbsent(inputFile, f -> new DefaultTestPlan());
       }
     }
     return null;
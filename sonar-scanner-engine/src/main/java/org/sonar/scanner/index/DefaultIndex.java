@@ -50,8 +50,8 @@ public class DefaultIndex {
   private final InputComponentStore componentStore;
   private final MeasureCache measureCache;
   private final MetricFinder metricFinder;
-  // caches
-  private DefaultSensorStorage sensorStorage;
+  // storage of the module being analysed by the current thread, inherited by the threads executing its sensors
+  private final ThreadLocal<DefaultSensorStorage> sensorStorage = new InheritableThreadLocal<>();
 
   private InputComponentTree tree;
 
@@ -64,7 +64,7 @@ public class DefaultIndex {
 
   public void setCurrentStorage(DefaultSensorStorage sensorStorage) {
     // the following components depend on the current module, so they need to be reloaded.
-    this.sensorStorage = sensorStorage;
+    this.sensorStorage.set(sensorStorage);
   }
 
   @CheckForNull
@@ -125,7 +125,7 @@ public class DefaultIndex {
     if (component == null) {
       throw new IllegalStateException("Invalid component key: " + key);
     }
-    if (sensorStorage.isDeprecatedMetric(measure.getMetricKey())) {
+    if (sensorStorage.get().isDeprecatedMetric(measure.getMetricKey())) {
       // Ignore deprecated metrics
       return measure;
     }
@@ -152,7 +152,7 @@ public class DefaultIndex {
     } else {
       throw new UnsupportedOperationException("Unsupported type :" + metric.valueType());
     }
-    sensorStorage.saveMeasure(component, newMeasure);
+    sensorStorage.get().saveMeasure(component, newMeasure);
     return measure;
   }
 
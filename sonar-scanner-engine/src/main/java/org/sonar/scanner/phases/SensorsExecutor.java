@@ -20,38 +20,115 @@
 package org.sonar.scanner.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
-import java.util.Collection;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 @ScannerSide
 public class SensorsExecutor {
+  /**
+   * Number of threads used to execute the sensors declared as thread-safe. By default all sensors
+   * are executed one after the other.
+   */
+  static final String THREADS_PROPERTY = "sonar.scanner.sensorThreads";
+
   private final EventBus eventBus;
   private final DefaultInputModule module;
   private final ScannerExtensionDictionnary selector;
+  private final int threads;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = module;
+    this.threads = Math.max(1, settings.getInt(THREADS_PROPERTY));
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    if (threads > 1) {
+      executeConcurrently(context, sensors);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  /**
+   * Sensors are executed in their usual order. Consecutive thread-safe sensors which do not depend
+   * upon each other are executed concurrently on a pool. The other sensors are executed alone,
+   * once the previous sensors are finished.
+   */
+  private void executeConcurrently(SensorContext context, Collection<Sensor> sensors) {
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Sensor-%d").build());
+    try {
+      List<Sensor> concurrentSensors = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (!isThreadSafe(sensor) || concurrentSensors.stream().anyMatch(previous -> selector.dependsUpon(sensor, previous))) {
+          executeTogether(executorService, context, concurrentSensors);
+          concurrentSensors.clear();
+        }
+        if (isThreadSafe(sensor)) {
+          concurrentSensors.add(sensor);
+        } else {
+          executeSensor(context, sensor);
+        }
+      }
+      executeTogether(executorService, context, concurrentSensors);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeTogether(ExecutorService executorService, SensorContext context, List<Sensor> sensors) {
+    if (sensors.size() == 1) {
+      executeSensor(context, sensors.get(0));
+      return;
+    }
+    List<Future<?>> tasks = new ArrayList<>();
+    for (Sensor sensor : sensors) {
+      tasks.add(executorService.submit(() -> executeSensor(context, sensor)));
+    }
+    waitForTasksToComplete(tasks);
+  }
+
+  private static void waitForTasksToComplete(List<Future<?>> tasks) {
+    for (Future<?> task : tasks) {
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        // Unwrap ExecutionException
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
     eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(new Project(module.definition()), context);
@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Durations of the steps executed when bootstrapping the scanner, before the analysis of the project
+ * starts. They are reported by {@link PhasesSumUpTimeProfiler}.
+ */
+public class BootstrapProfiling {
+
+  private final Map<String, Long> durationsByStep = new LinkedHashMap<>();
+
+  public synchronized void add(String step, long durationMs) {
+    durationsByStep.merge(step, durationMs, Long::sum);
+  }
+
+  public synchronized Map<String, Long> durationsByStep() {
+    return new LinkedHashMap<>(durationsByStep);
+  }
+}
@@ -19,8 +19,8 @@
  */
 package org.sonar.scanner.profiling;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map.Entry;
 import java.util.Properties;
 import org.sonar.api.utils.System2;
@@ -29,7 +29,8 @@ public class PhaseProfiling extends AbstractTimeProfiling {
 
   private final Phase phase;
 
-  private Map<String, ItemProfiling> profilingPerItem = new HashMap<>();
+  // items of the sensor phase may be started and stopped concurrently
+  private Map<String, ItemProfiling> profilingPerItem = new ConcurrentHashMap<>();
 
   PhaseProfiling(System2 system, Phase phase) {
     super(system);
@@ -70,15 +70,17 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
   private DecoratorsProfiler decoratorsProfiler;
 
   private final System2 system;
+  private final BootstrapProfiling bootstrapProfiling;
   private final File out;
 
-  public PhasesSumUpTimeProfiler(System2 system, GlobalProperties bootstrapProps) {
+  public PhasesSumUpTimeProfiler(System2 system, GlobalProperties bootstrapProps, BootstrapProfiling bootstrapProfiling) {
     String workingDirPath = StringUtils.defaultIfBlank(bootstrapProps.property(CoreProperties.WORKING_DIRECTORY), CoreProperties.WORKING_DIRECTORY_DEFAULT_VALUE);
     File workingDir = new File(workingDirPath).getAbsoluteFile();
     this.out = new File(workingDir, "profiling");
     this.out.mkdirs();
     this.totalProfiling = new ModuleProfiling(null, system);
     this.system = system;
+    this.bootstrapProfiling = bootstrapProfiling;
   }
 
   static void println(String msg) {
@@ -115,12 +117,32 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
       String fileName = module.getKey() + "-profiler.properties";
       dumpToFile(props, ScannerUtils.cleanKeyForFilename(fileName));
       totalProfiling.merge(currentModuleProfiling);
-      if (module.getParent() == null && !module.getModules().isEmpty()) {
-        dumpTotalExecutionSummary();
+      if (module.getParent() == null) {
+        dumpBootstrapSummary();
+        if (!module.getModules().isEmpty()) {
+          dumpTotalExecutionSummary();
+        }
       }
     }
   }
 
+  private void dumpBootstrapSummary() {
+    Map<String, Long> durationsByStep = bootstrapProfiling.durationsByStep();
+    if (durationsByStep.isEmpty()) {
+      return;
+    }
+    println("");
+    println(" -------- Profiling of bootstrap --------");
+    println("");
+    Properties props = new Properties();
+    for (Map.Entry<String, Long> entry : durationsByStep.entrySet()) {
+      println(StringUtils.rightPad("   o " + entry.getKey() + ": ", TEXT_RIGHT_PAD) + StringUtils.leftPad(TimeUtils.formatDuration(entry.getValue()), TIME_LEFT_PAD));
+      props.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+    }
+    println("");
+    dumpToFile(props, "bootstrap-profiler.properties");
+  }
+
   private void dumpTotalExecutionSummary() {
     totalProfiling.stop();
     long totalTime = totalProfiling.totalTime();
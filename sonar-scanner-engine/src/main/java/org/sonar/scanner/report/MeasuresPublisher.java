@@ -21,9 +21,10 @@ package org.sonar.scanner.report;
 
 import com.google.common.collect.Iterables;
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.sonar.api.batch.fs.InputComponent;
@@ -32,10 +33,8 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
 import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
-import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.test.MutableTestPlan;
 import org.sonar.api.test.TestCase.Status;
-import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.scanner.deprecated.test.TestPlanBuilder;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.BoolValue;
@@ -45,10 +44,15 @@ import org.sonar.scanner.protocol.output.ScannerReport.Measure.LongValue;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.scan.measure.CoverageCache;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
 import org.sonar.scanner.scan.measure.MeasureCache;
 
+import static org.sonar.api.measures.CoreMetrics.CONDITIONS_BY_LINE;
 import static org.sonar.api.measures.CoreMetrics.CONDITIONS_TO_COVER;
 import static org.sonar.api.measures.CoreMetrics.CONDITIONS_TO_COVER_KEY;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_LINE_HITS_DATA;
+import static org.sonar.api.measures.CoreMetrics.COVERED_CONDITIONS_BY_LINE;
 import static org.sonar.api.measures.CoreMetrics.LINES_TO_COVER;
 import static org.sonar.api.measures.CoreMetrics.LINES_TO_COVER_KEY;
 import static org.sonar.api.measures.CoreMetrics.SKIPPED_TESTS;
@@ -70,11 +74,13 @@ public class MeasuresPublisher implements ReportPublisherStep {
 
   private final InputComponentStore componentStore;
   private final MeasureCache measureCache;
+  private final CoverageCache coverageCache;
   private final TestPlanBuilder testPlanBuilder;
 
-  public MeasuresPublisher(InputComponentStore componentStore, MeasureCache measureCache, TestPlanBuilder testPlanBuilder) {
+  public MeasuresPublisher(InputComponentStore componentStore, MeasureCache measureCache, CoverageCache coverageCache, TestPlanBuilder testPlanBuilder) {
     this.componentStore = componentStore;
     this.measureCache = measureCache;
+    this.coverageCache = coverageCache;
     this.testPlanBuilder = testPlanBuilder;
   }
 
@@ -90,7 +96,7 @@ public class MeasuresPublisher implements ReportPublisherStep {
       updateTestExecutionFromTestPlan(component);
 
       Iterable<DefaultMeasure<?>> scannerMeasures = measureCache.byComponentKey(component.key());
-      writer.writeComponentMeasures(component.batchId(), StreamSupport.stream(scannerMeasures.spliterator(), false)
+      writer.writeComponentMeasures(component.batchId(), Stream.concat(StreamSupport.stream(scannerMeasures.spliterator(), false), lineCoverageMeasures(component))
         .map(input -> {
           if (input.value() == null) {
             throw new IllegalArgumentException(
@@ -143,33 +149,40 @@ public class MeasuresPublisher implements ReportPublisherStep {
     if (!component.isFile() || ((InputFile) component).type() != Type.MAIN) {
       return;
     }
-    DefaultMeasure<String> lineHitsMeasure = (DefaultMeasure<String>) measureCache.byMetric(component.key(), CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
-    if (lineHitsMeasure != null) {
-      Map<Integer, Integer> lineHits = KeyValueFormat.parseIntInt(lineHitsMeasure.value());
-      measureCache.put(component.key(), LINES_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(LINES_TO_COVER).withValue(lineHits.keySet().size()));
-      measureCache.put(component.key(), UNCOVERED_LINES_KEY,
-        new DefaultMeasure<Integer>().forMetric(UNCOVERED_LINES).withValue((int) lineHits.values()
-          .stream()
-          .filter(hit -> hit == 0)
-          .count()));
+    FileLineCoverage coverage = coverageCache.byFileKey(component.key());
+    if (coverage == null) {
+      return;
+    }
+    if (coverage.hasHits()) {
+      measureCache.put(component.key(), LINES_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(LINES_TO_COVER).withValue(coverage.linesToCover()));
+      measureCache.put(component.key(), UNCOVERED_LINES_KEY, new DefaultMeasure<Integer>().forMetric(UNCOVERED_LINES).withValue(coverage.uncoveredLines()));
     }
-    DefaultMeasure<String> conditionsMeasure = (DefaultMeasure<String>) measureCache.byMetric(component.key(), CoreMetrics.CONDITIONS_BY_LINE_KEY);
-    DefaultMeasure<String> coveredConditionsMeasure = (DefaultMeasure<String>) measureCache.byMetric(component.key(), CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY);
-    if (conditionsMeasure != null) {
-      Map<Integer, Integer> conditions = KeyValueFormat.parseIntInt(conditionsMeasure.value());
-      Map<Integer, Integer> coveredConditions = coveredConditionsMeasure != null ? KeyValueFormat.parseIntInt(coveredConditionsMeasure.value()) : Collections.emptyMap();
-      measureCache.put(component.key(), CONDITIONS_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(CONDITIONS_TO_COVER).withValue(conditions
-        .values()
-        .stream()
-        .mapToInt(Integer::intValue)
-        .sum()));
+    if (coverage.hasConditions()) {
+      measureCache.put(component.key(), CONDITIONS_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(CONDITIONS_TO_COVER).withValue(coverage.conditionsToCover()));
       measureCache.put(component.key(), UNCOVERED_CONDITIONS_KEY,
-        new DefaultMeasure<Integer>().forMetric(UNCOVERED_CONDITIONS)
-          .withValue((int) conditions.keySet()
-            .stream()
-            .mapToInt(line -> conditions.get(line) - coveredConditions.get(line))
-            .sum()));
+        new DefaultMeasure<Integer>().forMetric(UNCOVERED_CONDITIONS).withValue(coverage.uncoveredConditions()));
+    }
+  }
+
+  /**
+   * Line coverage data is formatted from the merged coverage only when writing the report
+   */
+  private Stream<DefaultMeasure<?>> lineCoverageMeasures(InputComponent component) {
+    FileLineCoverage coverage = component.isFile() ? coverageCache.byFileKey(component.key()) : null;
+    if (coverage == null) {
+      return Stream.empty();
+    }
+    List<DefaultMeasure<?>> measures = new ArrayList<>();
+    if (coverage.hasHits()) {
+      measures.add(new DefaultMeasure<String>().forMetric(COVERAGE_LINE_HITS_DATA).withValue(coverage.formatHits()));
+    }
+    if (coverage.hasConditions()) {
+      measures.add(new DefaultMeasure<String>().forMetric(CONDITIONS_BY_LINE).withValue(coverage.formatConditions()));
+    }
+    if (coverage.hasCoveredConditions()) {
+      measures.add(new DefaultMeasure<String>().forMetric(COVERED_CONDITIONS_BY_LINE).withValue(coverage.formatCoveredConditions()));
     }
+    return measures.stream();
   }
 
 }
@@ -21,6 +21,8 @@ package org.sonar.scanner.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 
 import java.io.File;
 import java.io.IOException;
@@ -52,10 +54,14 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsCe;
+import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsResponse;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_OFFSET;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
 
 @ScannerSide
 public class ReportPublisher implements Startable {
@@ -65,6 +71,10 @@ public class ReportPublisher implements Startable {
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
+  public static final String UPLOAD_CHUNK_SIZE_PROP_KEY = "sonar.scanner.reportUploadChunkSize";
+
+  private static final long DEFAULT_UPLOAD_CHUNK_SIZE = 10L * 1024 * 1024;
+  private static final int MAX_UPLOAD_ATTEMPTS = 3;
 
   private final Settings settings;
   private final ScannerWsClient wsClient;
@@ -141,15 +151,29 @@ public class ReportPublisher implements Startable {
   private File generateReportFile() {
     try {
       long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
+      File reportZip = temp.newFile("batch-report", ".zip");
+      ReportZipper zipper = new ReportZipper(reportDir, reportZip);
+      try {
+        // files written during the analysis are compressed while the publishers are running
+        zipper.addNewFiles();
+        for (ReportPublisherStep publisher : publishers) {
+          long stepStartTime = System.currentTimeMillis();
+          publisher.publish(writer);
+          LOG.debug("{} executed in {}ms", publisher.getClass().getSimpleName(), System.currentTimeMillis() - stepStartTime);
+          zipper.addNewFiles();
+        }
+      } catch (RuntimeException | IOException e) {
+        zipper.cancel();
+        throw e;
       }
       long stopTime = System.currentTimeMillis();
       LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
 
       startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("batch-report", ".zip");
-      ZipUtils.zipDir(reportDir, reportZip);
+      if (!zipper.finish()) {
+        LOG.debug("Report files were modified while being compressed, compressing the whole report again");
+        ZipUtils.zipDir(reportDir, reportZip);
+      }
       stopTime = System.currentTimeMillis();
       LOG.info("Analysis reports compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
       return reportZip;
@@ -159,29 +183,100 @@ public class ReportPublisher implements Startable {
   }
 
   /**
-   * Uploads the report file to server and returns the generated task id
+   * Uploads the report file to server and returns the generated task id. Reports bigger than one chunk are
+   * uploaded chunk by chunk, so that a chunk which fails to be uploaded is sent again instead of the whole report.
+   * The report is sent at once when the server refuses to start an upload in chunks.
    */
   @VisibleForTesting
   String upload(File report) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
+    try {
+      long chunkSize = settings.getLong(UPLOAD_CHUNK_SIZE_PROP_KEY);
+      if (chunkSize <= 0) {
+        chunkSize = DEFAULT_UPLOAD_CHUNK_SIZE;
+      }
+      if (report.length() <= chunkSize) {
+        return submitAtOnce(report);
+      }
+      WsCe.UploadResponse upload;
+      try {
+        upload = initUpload(null);
+      } catch (HttpException e) {
+        // server does not support uploads in chunks, or too many uploads are in progress
+        LOG.debug("Upload of analysis report in chunks is refused (HTTP {}), report is sent at once", e.code());
+        return submitAtOnce(report);
+      }
+      String uploadId = uploadInChunks(report, chunkSize, upload);
+      return submit(new PostRequest("api/ce/upload_commit")
+        .setParam(PARAM_UPLOAD_ID, uploadId));
+    } finally {
+      long stopTime = System.currentTimeMillis();
+      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
+    }
+  }
+
+  private String submitAtOnce(File report) {
+    return submit(new PostRequest("api/ce/submit")
+      .setPart("report", new PostRequest.Part(MediaTypes.ZIP, report)));
+  }
+
+  private String submit(PostRequest post) {
     ProjectDefinition projectDefinition = projectReactor.getRoot();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
-    PostRequest post = new PostRequest("api/ce/submit")
-      .setMediaType(MediaTypes.PROTOBUF)
+    post.setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", settings.getString(CoreProperties.PROJECT_ORGANIZATION_PROPERTY))
       .setParam("projectKey", projectDefinition.getKey())
       .setParam("projectName", projectDefinition.getOriginalName())
+      .setParam("projectBranch", projectDefinition.getBranch());
+    return parse(wsClient.call(post), WsCe.SubmitResponse.parser()).getTaskId();
+  }
+
+  /**
+   * @return the id of the complete upload
+   */
+  private String uploadInChunks(File report, long chunkSize, WsCe.UploadResponse initialUpload) {
+    long size = report.length();
+    WsCe.UploadResponse upload = initialUpload;
+    int failures = 0;
+    while (upload.getOffset() < size) {
+      long offset = upload.getOffset();
+      PostRequest append = new PostRequest("api/ce/upload_append")
+        .setMediaType(MediaTypes.PROTOBUF)
+        .setParam(PARAM_UPLOAD_ID, upload.getUploadId())
+        .setParam(PARAM_OFFSET, offset)
+        .setPart(PARAM_CHUNK, new PostRequest.Part(MediaTypes.ZIP, report, offset, Math.min(chunkSize, size - offset)));
+      try {
+        upload = parse(wsClient.call(append), WsCe.UploadResponse.parser());
+        failures = 0;
+      } catch (RuntimeException e) {
+        failures++;
+        if (failures >= MAX_UPLOAD_ATTEMPTS) {
+          throw e;
+        }
+        LOG.warn("Fail to upload analysis report at offset {}, upload is resumed: {}", offset, e.getMessage());
+        // the server may have received the chunk, or part of it
+        upload = initUpload(upload.getUploadId());
+      }
+    }
+    return upload.getUploadId();
+  }
+
+  private WsCe.UploadResponse initUpload(@Nullable String uploadId) {
+    ProjectDefinition projectDefinition = projectReactor.getRoot();
+    PostRequest init = new PostRequest("api/ce/upload_init")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("organization", settings.getString(CoreProperties.PROJECT_ORGANIZATION_PROPERTY))
+      .setParam("projectKey", projectDefinition.getKey())
       .setParam("projectBranch", projectDefinition.getBranch())
-      .setPart("report", filePart);
-    WsResponse response = wsClient.call(post).failIfNotSuccessful();
-    try (InputStream protobuf = response.contentStream()) {
-      return WsCe.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
+      .setParam(PARAM_UPLOAD_ID, uploadId);
+    return parse(wsClient.call(init), WsCe.UploadResponse.parser());
+  }
+
+  private static <M extends Message> M parse(WsResponse response, Parser<M> parser) {
+    try (InputStream protobuf = response.failIfNotSuccessful().contentStream()) {
+      return parser.parseFrom(protobuf);
     } catch (Exception e) {
       throw Throwables.propagate(e);
-    } finally {
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
     }
   }
 
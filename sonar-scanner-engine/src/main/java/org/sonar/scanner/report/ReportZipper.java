@@ -0,0 +1,150 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compresses the files of the report directory in a background thread, so that the files produced by a
+ * publisher are compressed while the next publishers are running. Files must be complete when
+ * {@link #addNewFiles()} is called. Files modified afterwards are detected by {@link #finish()}, which
+ * compares their content with the checksums of the compressed entries.
+ */
+class ReportZipper {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path dir;
+  private final ZipOutputStream zip;
+  private final ExecutorService executor;
+  private final List<Future<?>> pendingEntries = new ArrayList<>();
+  // size and CRC-32 of the entries are set once compressed
+  private final Map<Path, ZipEntry> addedFiles = new HashMap<>();
+
+  ReportZipper(File dir, File zipFile) throws IOException {
+    this(dir, zipFile, Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("report-zipper-%d")
+      .setDaemon(true)
+      .build()));
+  }
+
+  ReportZipper(File dir, File zipFile, ExecutorService executor) throws IOException {
+    this.dir = dir.toPath();
+    this.zip = new ZipOutputStream(new BufferedOutputStream(FileUtils.openOutputStream(zipFile), BUFFER_SIZE));
+    this.executor = executor;
+  }
+
+  /**
+   * Schedules the compression of the files which have not been added yet
+   */
+  void addNewFiles() throws IOException {
+    for (Path file : listFiles()) {
+      if (!addedFiles.containsKey(file)) {
+        ZipEntry entry = new ZipEntry(dir.relativize(file).toString().replace('\\', '/'));
+        addedFiles.put(file, entry);
+        pendingEntries.add(executor.submit(() -> {
+          addEntry(file, entry);
+          return null;
+        }));
+      }
+    }
+  }
+
+  /**
+   * Waits for the compression of all the files which have been added and closes the zip.
+   *
+   * @return false if some files were created or modified after having been added, in which case the zip is not complete
+   */
+  boolean finish() throws IOException {
+    try {
+      for (Future<?> pendingEntry : pendingEntries) {
+        pendingEntry.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compressing the report", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Fail to compress the report", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      zip.close();
+    }
+    for (Path file : listFiles()) {
+      ZipEntry entry = addedFiles.get(file);
+      if (entry == null || entry.getSize() != Files.size(file) || entry.getCrc() != checksumOf(file)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops compressing, the zip is not complete
+   */
+  void cancel() {
+    executor.shutdownNow();
+    IOUtils.closeQuietly(zip);
+  }
+
+  private void addEntry(Path file, ZipEntry entry) throws IOException {
+    zip.putNextEntry(entry);
+    Files.copy(file, zip);
+    zip.closeEntry();
+  }
+
+  private List<Path> listFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static long checksumOf(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream input = new CheckedInputStream(Files.newInputStream(file), crc)) {
+      while (input.read(buffer) != -1) {
+        // only update the checksum
+      }
+    }
+    return crc.getValue();
+  }
+}
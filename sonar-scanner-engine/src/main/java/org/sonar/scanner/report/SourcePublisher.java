@@ -19,23 +19,31 @@
  */
 package org.sonar.scanner.report;
 
-import org.apache.commons.io.ByteOrderMark;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BOMInputStream;
-import org.sonar.api.batch.fs.internal.DefaultInputFile;
-import org.sonar.scanner.protocol.output.ScannerReportWriter;
-import org.sonar.scanner.scan.filesystem.InputComponentStore;
-
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BOMInputStream;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 public class SourcePublisher implements ReportPublisherStep {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final InputComponentStore componentCache;
 
   public SourcePublisher(InputComponentStore componentStore) {
@@ -44,20 +52,96 @@ public class SourcePublisher implements ReportPublisherStep {
 
   @Override
   public void publish(ScannerReportWriter writer) {
+    ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
     for (final DefaultInputFile inputFile : componentCache.allFilesToPublish()) {
       File iofile = writer.getSourceFile(inputFile.batchId());
 
-      try (FileOutputStream output = new FileOutputStream(iofile);
-        BOMInputStream bomIn = new BOMInputStream(new FileInputStream(inputFile.file()),
-          ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(bomIn, inputFile.charset()))) {
-        writeSource(reader, output, inputFile.lines());
+      try {
+        if (StandardCharsets.UTF_8.equals(inputFile.charset()) && isNormalizedUtf8(inputFile.file(), bytes, chars)) {
+          copy(inputFile.file(), iofile);
+        } else {
+          rewrite(inputFile, iofile);
+        }
       } catch (IOException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
     }
   }
 
+  /**
+   * Whether the file is valid UTF-8, without BOM nor carriage return, in which case it is already
+   * in the format expected in the report.
+   */
+  private static boolean isNormalizedUtf8(File file, ByteBuffer bytes, CharBuffer chars) throws IOException {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPORT)
+      .onUnmappableCharacter(CodingErrorAction.REPORT);
+    bytes.clear();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      boolean first = true;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        endOfInput = channel.read(bytes) < 0;
+        bytes.flip();
+        if (first && hasBom(bytes)) {
+          return false;
+        }
+        first = false;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+          if (bytes.get(i) == '\r') {
+            return false;
+          }
+        }
+        chars.clear();
+        CoderResult result = decoder.decode(bytes, chars, endOfInput);
+        while (result.isOverflow()) {
+          chars.clear();
+          result = decoder.decode(bytes, chars, endOfInput);
+        }
+        if (result.isError()) {
+          return false;
+        }
+        bytes.compact();
+      }
+      chars.clear();
+      return !decoder.flush(chars).isError();
+    }
+  }
+
+  private static boolean hasBom(ByteBuffer bytes) {
+    byte[] bom = ByteOrderMark.UTF_8.getBytes();
+    if (bytes.remaining() < bom.length) {
+      return false;
+    }
+    for (int i = 0; i < bom.length; i++) {
+      if (bytes.get(bytes.position() + i) != bom[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void copy(File source, File target) throws IOException {
+    try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+      FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = in.size();
+      long position = 0;
+      while (position < size) {
+        position += in.transferTo(position, size - position, out);
+      }
+    }
+  }
+
+  private static void rewrite(DefaultInputFile inputFile, File target) throws IOException {
+    try (FileOutputStream output = new FileOutputStream(target);
+      BOMInputStream bomIn = new BOMInputStream(new FileInputStream(inputFile.file()),
+        ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
+      BufferedReader reader = new BufferedReader(new InputStreamReader(bomIn, inputFile.charset()))) {
+      writeSource(reader, output, inputFile.lines());
+    }
+  }
+
   private static void writeSource(BufferedReader reader, FileOutputStream output, int lines) throws IOException {
     int line = 0;
     String lineStr = reader.readLine();
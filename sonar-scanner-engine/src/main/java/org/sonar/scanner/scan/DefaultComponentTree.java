@@ -21,10 +21,11 @@ package org.sonar.scanner.scan;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 import javax.annotation.CheckForNull;
 
@@ -33,21 +34,21 @@ import org.sonar.api.batch.fs.internal.InputComponentTree;
 
 import com.google.common.base.Preconditions;
 
+/**
+ * Thread-safe, as modules may be indexed concurrently. Children are sorted by key, so that the order of components
+ * in the report does not depend on the order of indexing.
+ */
 public class DefaultComponentTree implements InputComponentTree {
-  private Map<InputComponent, InputComponent> parents = new HashMap<>();
-  private Map<InputComponent, Set<InputComponent>> children = new HashMap<>();
+  private static final Comparator<InputComponent> BY_KEY = Comparator.comparing(InputComponent::key);
+
+  private Map<InputComponent, InputComponent> parents = new ConcurrentHashMap<>();
+  private Map<InputComponent, Set<InputComponent>> children = new ConcurrentHashMap<>();
 
   public void index(InputComponent component, InputComponent parent) {
     Preconditions.checkNotNull(component);
     Preconditions.checkNotNull(parent);
     parents.put(component, parent);
-    Set<InputComponent> list = children.get(parent);
-    if (list == null) {
-      list = new LinkedHashSet<>();
-      children.put(parent, list);
-    }
-
-    list.add(component);
+    children.computeIfAbsent(parent, p -> new ConcurrentSkipListSet<>(BY_KEY)).add(component);
   }
 
   @Override
@@ -20,6 +20,14 @@
 package org.sonar.scanner.scan;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
@@ -91,6 +99,7 @@ import org.sonar.scanner.scan.filesystem.BatchIdGenerator;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
 import org.sonar.scanner.scan.measure.DeprecatedMetricFinder;
+import org.sonar.scanner.scan.measure.CoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.source.CodeColorizers;
 import org.sonar.scanner.storage.Storages;
@@ -99,6 +108,11 @@ public class ProjectScanContainer extends ComponentContainer {
 
   private static final Logger LOG = Loggers.get(ProjectScanContainer.class);
 
+  /**
+   * Number of threads used to analyse leaf modules. Modules are analysed one after another by default.
+   */
+  static final String MODULE_THREADS_PROPERTY = "sonar.scanner.moduleThreads";
+
   private final AnalysisProperties props;
 
   public ProjectScanContainer(ComponentContainer globalContainer, AnalysisProperties props) {
@@ -179,6 +193,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
       // Measures
       MeasureCache.class,
+      CoverageCache.class,
 
       // context
       ContextPropertiesCache.class,
@@ -239,8 +254,14 @@ public class ProjectScanContainer extends ComponentContainer {
       LOG.info("Organization key: {}", organization);
     }
 
-    LOG.debug("Start recursive analysis of project modules");
-    scanRecursively(tree, tree.root());
+    int threads = moduleThreads();
+    if (threads > 1) {
+      LOG.debug("Start analysis of project modules using {} threads", threads);
+      scanConcurrently(tree, threads);
+    } else {
+      LOG.debug("Start recursive analysis of project modules");
+      scanRecursively(tree, tree.root());
+    }
     if (analysisMode.isMediumTest()) {
       getComponentByType(ScanTaskObservers.class).notifyEndOfScanTask();
     }
@@ -253,6 +274,75 @@ public class ProjectScanContainer extends ComponentContainer {
     scan(module);
   }
 
+  private int moduleThreads() {
+    Settings settings = getComponentByType(Settings.class);
+    int threads = settings.hasKey(MODULE_THREADS_PROPERTY) ? settings.getInt(MODULE_THREADS_PROPERTY) : 1;
+    if (threads > 1 && getComponentByType(PhasesSumUpTimeProfiler.class) != null) {
+      LOG.warn("Property '{}' is ignored when '{}' is enabled", MODULE_THREADS_PROPERTY, CoreProperties.PROFILING_LOG_PROPERTY);
+      return 1;
+    }
+    return threads;
+  }
+
+  /**
+   * Leaf modules do not depend on each other, so they are analysed concurrently. The first one is analysed alone, so that
+   * the project components lazily created by modules are instantiated once. Then the other modules are analysed in the same
+   * order as {@link #scanRecursively(InputModuleHierarchy, DefaultInputModule)}, root module last. IDs of components
+   * are reserved by modules in that order too.
+   */
+  private void scanConcurrently(InputModuleHierarchy tree, int threads) {
+    List<DefaultInputModule> leaves = new ArrayList<>();
+    List<DefaultInputModule> parents = new ArrayList<>();
+    collectModules(tree, tree.root(), leaves, parents);
+
+    scan(leaves.get(0));
+    List<DefaultInputModule> concurrentLeaves = leaves.subList(1, leaves.size());
+    BatchIdGenerator batchIdGenerator = getComponentByType(BatchIdGenerator.class);
+    batchIdGenerator.reserveInOrder(concurrentLeaves.stream().map(DefaultInputModule::key).collect(Collectors.toList()));
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Module-%d").build());
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (DefaultInputModule module : concurrentLeaves) {
+        tasks.add(executorService.submit(() -> {
+          try {
+            scan(module);
+          } finally {
+            batchIdGenerator.release(module.key());
+          }
+        }));
+      }
+      waitForTasksToComplete(tasks);
+    } finally {
+      executorService.shutdownNow();
+    }
+    parents.forEach(this::scan);
+  }
+
+  private static void collectModules(InputModuleHierarchy tree, DefaultInputModule module, List<DefaultInputModule> leaves, List<DefaultInputModule> parents) {
+    if (tree.children(module).isEmpty()) {
+      leaves.add(module);
+      return;
+    }
+    for (DefaultInputModule child : tree.children(module)) {
+      collectModules(tree, child, leaves, parents);
+    }
+    parents.add(module);
+  }
+
+  private static void waitForTasksToComplete(List<Future<?>> tasks) {
+    for (Future<?> task : tasks) {
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        // Unwrap ExecutionException
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
   @VisibleForTesting
   void scan(DefaultInputModule module) {
     new ModuleScanContainer(this, module).execute();
@@ -19,6 +19,9 @@
  */
 package org.sonar.scanner.scan.filesystem;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
@@ -28,12 +31,56 @@ import org.sonar.api.batch.fs.InputComponent;
  * Generates unique IDs for any {@link InputComponent}. 
  * The IDs must be unique among all types of components and for all modules in the project.
  * The ID should never be 0, as it is sometimes used to indicate invalid components. 
+ * <p>
+ * Files and directories of a module get their IDs from a range reserved at once with {@link #reserve(String, int)}.
+ * When modules are analysed concurrently, ranges are reserved in the order given to {@link #reserveInOrder(Collection)},
+ * so that IDs, which are the references of components in the scanner report, do not depend on the scheduling of threads.
  */
 public class BatchIdGenerator implements Supplier<Integer> {
-  private AtomicInteger nextBatchId = new AtomicInteger(1);
+  private final AtomicInteger nextBatchId = new AtomicInteger(1);
+
+  // guarded by this
+  private final Deque<String> pendingModules = new ArrayDeque<>();
 
   @Override
   public Integer get() {
     return nextBatchId.getAndIncrement();
   }
+
+  /**
+   * Keys of the modules that reserve their range of IDs, in the expected order.
+   */
+  public synchronized void reserveInOrder(Collection<String> moduleKeys) {
+    pendingModules.clear();
+    pendingModules.addAll(moduleKeys);
+  }
+
+  /**
+   * Reserves {@code count} consecutive IDs for the given module and returns the first one. Waits for the
+   * modules expected to reserve their range before it, unless they are {@link #release(String) released}.
+   */
+  public synchronized int reserve(String moduleKey, int count) {
+    if (pendingModules.contains(moduleKey)) {
+      while (!moduleKey.equals(pendingModules.peekFirst())) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting to reserve IDs of module " + moduleKey, e);
+        }
+      }
+      pendingModules.removeFirst();
+      notifyAll();
+    }
+    return nextBatchId.getAndAdd(count);
+  }
+
+  /**
+   * The module does not reserve IDs anymore, for example because its analysis is over or failed.
+   */
+  public synchronized void release(String moduleKey) {
+    if (pendingModules.remove(moduleKey)) {
+      notifyAll();
+    }
+  }
 }
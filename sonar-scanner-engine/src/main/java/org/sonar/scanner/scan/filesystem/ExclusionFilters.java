@@ -26,6 +26,7 @@ import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.IndexedFile;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.PathPattern;
+import org.sonar.api.batch.fs.internal.PathPatternMatcher;
 import org.sonar.api.scan.filesystem.FileExclusions;
 
 @ScannerSide
@@ -39,6 +40,10 @@ public class ExclusionFilters {
   private PathPattern[] mainExclusions;
   private PathPattern[] testInclusions;
   private PathPattern[] testExclusions;
+  private PathPatternMatcher mainInclusionsMatcher;
+  private PathPatternMatcher mainExclusionsMatcher;
+  private PathPatternMatcher testInclusionsMatcher;
+  private PathPatternMatcher testExclusionsMatcher;
 
   public ExclusionFilters(FileExclusions exclusions) {
     this.exclusionSettings = exclusions;
@@ -49,6 +54,10 @@ public class ExclusionFilters {
     mainExclusions = prepareMainExclusions();
     testInclusions = prepareTestInclusions();
     testExclusions = prepareTestExclusions();
+    mainInclusionsMatcher = new PathPatternMatcher(mainInclusions);
+    mainExclusionsMatcher = new PathPatternMatcher(mainExclusions);
+    testInclusionsMatcher = new PathPatternMatcher(testInclusions);
+    testExclusionsMatcher = new PathPatternMatcher(testExclusions);
     log("Included sources: ", mainInclusions);
     log("Excluded sources: ", mainExclusions);
     log("Included tests: ", testInclusions);
@@ -69,35 +78,22 @@ public class ExclusionFilters {
   }
 
   public boolean accept(IndexedFile indexedFile, InputFile.Type type) {
-    PathPattern[] inclusionPatterns;
-    PathPattern[] exclusionPatterns;
+    PathPatternMatcher inclusions;
+    PathPatternMatcher exclusions;
     if (InputFile.Type.MAIN == type) {
-      inclusionPatterns = mainInclusions;
-      exclusionPatterns = mainExclusions;
+      inclusions = mainInclusionsMatcher;
+      exclusions = mainExclusionsMatcher;
     } else if (InputFile.Type.TEST == type) {
-      inclusionPatterns = testInclusions;
-      exclusionPatterns = testExclusions;
+      inclusions = testInclusionsMatcher;
+      exclusions = testExclusionsMatcher;
     } else {
       throw new IllegalArgumentException("Unknown file type: " + type);
     }
 
-    if (inclusionPatterns.length > 0) {
-      boolean matchInclusion = false;
-      for (PathPattern pattern : inclusionPatterns) {
-        matchInclusion |= pattern.match(indexedFile);
-      }
-      if (!matchInclusion) {
-        return false;
-      }
-    }
-    if (exclusionPatterns.length > 0) {
-      for (PathPattern pattern : exclusionPatterns) {
-        if (pattern.match(indexedFile)) {
-          return false;
-        }
-      }
+    if (!inclusions.isEmpty() && !inclusions.matchAny(indexedFile)) {
+      return false;
     }
-    return true;
+    return exclusions.isEmpty() || !exclusions.matchAny(indexedFile);
   }
 
   PathPattern[] prepareMainInclusions() {
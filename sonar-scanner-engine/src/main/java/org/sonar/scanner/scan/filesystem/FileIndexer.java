@@ -31,8 +31,10 @@ import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -112,8 +114,10 @@ public class FileIndexer {
 
     Progress progress = new Progress();
 
-    indexFiles(fileSystem, progress, fileSystem.sources(), InputFile.Type.MAIN);
-    indexFiles(fileSystem, progress, fileSystem.tests(), InputFile.Type.TEST);
+    List<FileToIndex> files = new ArrayList<>();
+    collectFiles(files, fileSystem.sources(), InputFile.Type.MAIN);
+    collectFiles(files, fileSystem.tests(), InputFile.Type.TEST);
+    indexFiles(fileSystem, progress, files);
 
     waitForTasksToComplete();
 
@@ -142,13 +146,13 @@ public class FileIndexer {
     return count == 1 ? "file" : "files";
   }
 
-  private void indexFiles(DefaultModuleFileSystem fileSystem, Progress progress, List<File> sources, InputFile.Type type) {
+  private static void collectFiles(List<FileToIndex> files, List<File> sources, InputFile.Type type) {
     try {
       for (File dirOrFile : sources) {
         if (dirOrFile.isDirectory()) {
-          indexDirectory(fileSystem, progress, dirOrFile.toPath(), type);
+          collectDirectory(files, dirOrFile.toPath(), type);
         } else {
-          tasks.add(executorService.submit(() -> indexFile(fileSystem, progress, dirOrFile.toPath(), type)));
+          files.add(new FileToIndex(dirOrFile.toPath(), type));
         }
       }
     } catch (IOException e) {
@@ -156,20 +160,46 @@ public class FileIndexer {
     }
   }
 
-  private void indexDirectory(final DefaultModuleFileSystem fileSystem, final Progress status, final Path dirToIndex, final InputFile.Type type) throws IOException {
+  private static void collectDirectory(List<FileToIndex> files, Path dirToIndex, InputFile.Type type) throws IOException {
+    List<Path> paths = new ArrayList<>();
     Files.walkFileTree(dirToIndex.normalize(), Collections.singleton(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
-      new IndexFileVisitor(fileSystem, status, type));
+      new IndexFileVisitor(paths));
+    // order of traversal depends on the file system
+    Collections.sort(paths);
+    for (Path path : paths) {
+      files.add(new FileToIndex(path, type));
+    }
+  }
+
+  /**
+   * IDs of files, then of their parent directories, are reserved in the order files are collected, before
+   * files are indexed concurrently. That way they do not depend on the scheduling of threads.
+   */
+  private void indexFiles(DefaultModuleFileSystem fileSystem, Progress progress, List<FileToIndex> files) {
+    Map<Path, Integer> dirIndexes = new HashMap<>();
+    for (FileToIndex file : files) {
+      dirIndexes.putIfAbsent(file.path.getParent(), dirIndexes.size());
+    }
+    int firstFileId = batchIdGenerator.reserve(module.key(), files.size() + dirIndexes.size());
+    int firstDirId = firstFileId + files.size();
+    for (int i = 0; i < files.size(); i++) {
+      FileToIndex file = files.get(i);
+      int fileId = firstFileId + i;
+      int dirId = firstDirId + dirIndexes.get(file.path.getParent());
+      tasks.add(executorService.submit(() -> indexFile(fileSystem, progress, file.path, file.type, fileId, dirId)));
+    }
   }
 
-  private Void indexFile(DefaultModuleFileSystem fileSystem, Progress progress, Path sourceFile, InputFile.Type type) throws IOException {
+  private Void indexFile(DefaultModuleFileSystem fileSystem, Progress progress, Path sourceFile, InputFile.Type type, int fileId, int dirId)
+    throws IOException {
     // get case of real file without resolving link
     Path realFile = sourceFile.toRealPath(LinkOption.NOFOLLOW_LINKS);
-    DefaultInputFile inputFile = inputFileBuilder.create(realFile, type, fileSystem.encoding());
+    DefaultInputFile inputFile = inputFileBuilder.create(realFile, type, fileSystem.encoding(), fileId);
     if (inputFile != null) {
       if (exclusionFilters.accept(inputFile, type) && accept(inputFile)) {
         synchronized (this) {
           fileSystem.add(inputFile);
-          indexParentDir(fileSystem, inputFile);
+          indexParentDir(fileSystem, inputFile, dirId);
           progress.markAsIndexed(inputFile);
         }
         LOG.debug("'{}' indexed {}with language '{}'", inputFile.relativePath(), type == Type.TEST ? "as test " : "", inputFile.language());
@@ -181,7 +211,7 @@ public class FileIndexer {
     return null;
   }
 
-  private void indexParentDir(DefaultModuleFileSystem fileSystem, InputFile inputFile) {
+  private void indexParentDir(DefaultModuleFileSystem fileSystem, InputFile inputFile, int dirId) {
     Path parentDir = inputFile.path().getParent();
     String relativePath = new PathResolver().relativePath(fileSystem.baseDirPath(), parentDir);
     if (relativePath == null) {
@@ -190,7 +220,7 @@ public class FileIndexer {
 
     DefaultInputDir inputDir = (DefaultInputDir) componentStore.getDir(module.key(), relativePath);
     if (inputDir == null) {
-      inputDir = new DefaultInputDir(fileSystem.moduleKey(), relativePath, batchIdGenerator.get());
+      inputDir = new DefaultInputDir(fileSystem.moduleKey(), relativePath, dirId);
       inputDir.setModuleBaseDir(fileSystem.baseDirPath());
       fileSystem.add(inputDir);
       componentTree.index(inputDir, module);
@@ -209,16 +239,22 @@ public class FileIndexer {
     return true;
   }
 
-  private class IndexFileVisitor implements FileVisitor<Path> {
-    private DefaultModuleFileSystem fileSystem;
-    private Progress status;
-    private Type type;
+  private static class FileToIndex {
+    private final Path path;
+    private final InputFile.Type type;
 
-    IndexFileVisitor(DefaultModuleFileSystem fileSystem, Progress status, InputFile.Type type) {
-      this.fileSystem = fileSystem;
-      this.status = status;
+    FileToIndex(Path path, InputFile.Type type) {
+      this.path = path;
       this.type = type;
     }
+  }
+
+  private static class IndexFileVisitor implements FileVisitor<Path> {
+    private final List<Path> paths;
+
+    IndexFileVisitor(List<Path> paths) {
+      this.paths = paths;
+    }
 
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
@@ -236,7 +272,7 @@ public class FileIndexer {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       if (!Files.isHidden(file)) {
-        tasks.add(executorService.submit(() -> indexFile(fileSystem, status, file, type)));
+        paths.add(file);
       }
       return FileVisitResult.CONTINUE;
     }
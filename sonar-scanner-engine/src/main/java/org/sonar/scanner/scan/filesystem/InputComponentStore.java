@@ -19,11 +19,16 @@
  */
 package org.sonar.scanner.scan.filesystem;
 
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.SetMultimap;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 import javax.annotation.CheckForNull;
 
@@ -34,43 +39,52 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputModule;
 import org.sonar.api.batch.fs.internal.DefaultInputDir;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
-
-import com.google.common.collect.Table;
-import com.google.common.collect.TreeBasedTable;
 import org.sonar.api.batch.fs.internal.FileExtensionPredicate;
 import org.sonar.api.batch.fs.internal.FilenamePredicate;
 
 /**
  * Store of all files and dirs. This cache is shared amongst all project modules. Inclusion and
  * exclusion patterns are already applied.
+ * <p>
+ * Modules may be indexed concurrently (see {@link org.sonar.scanner.scan.ProjectScanContainer}), so the store is thread-safe.
+ * Files and dirs are sorted by module key then relative path, and files having the same name or extension are sorted by key,
+ * so that iteration order does not depend on the order of indexing.
  */
 @ScannerSide
 public class InputComponentStore {
 
-  private final Table<String, String, InputFile> inputFileCache = TreeBasedTable.create();
-  private final Table<String, String, InputDir> inputDirCache = TreeBasedTable.create();
-  private final Map<String, InputModule> inputModuleCache = new HashMap<>();
-  private final Map<String, InputComponent> inputComponents = new HashMap<>();
-  private final SetMultimap<String, InputFile> filesByNameCache = LinkedHashMultimap.create();
-  private final SetMultimap<String, InputFile> filesByExtensionCache = LinkedHashMultimap.create();
-  private InputModule root;
+  private static final Comparator<InputFile> BY_KEY = Comparator.comparing(InputFile::key);
+
+  private final ConcurrentMap<String, NavigableMap<String, InputFile>> inputFileCache = new ConcurrentSkipListMap<>();
+  private final ConcurrentMap<String, NavigableMap<String, InputDir>> inputDirCache = new ConcurrentSkipListMap<>();
+  private final Map<String, InputModule> inputModuleCache = new ConcurrentHashMap<>();
+  private final Map<String, InputComponent> inputComponents = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<InputFile>> filesByNameCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<InputFile>> filesByExtensionCache = new ConcurrentHashMap<>();
+  private volatile InputModule root;
 
   public Collection<InputComponent> all() {
     return inputComponents.values();
   }
 
   public Iterable<DefaultInputFile> allFilesToPublish() {
-    return inputFileCache.values().stream()
+    return () -> inputFileCache.values().stream()
+      .flatMap(row -> row.values().stream())
       .map(f -> (DefaultInputFile) f)
-      .filter(DefaultInputFile::publish)::iterator;
+      .filter(DefaultInputFile::publish)
+      .iterator();
   }
 
   public Iterable<InputFile> allFiles() {
-    return inputFileCache.values();
+    return () -> inputFileCache.values().stream()
+      .flatMap(row -> row.values().stream())
+      .iterator();
   }
 
   public Iterable<InputDir> allDirs() {
-    return inputDirCache.values();
+    return () -> inputDirCache.values().stream()
+      .flatMap(row -> row.values().stream())
+      .iterator();
   }
 
   public InputComponent getByKey(String key) {
@@ -87,55 +101,62 @@ public class InputComponentStore {
   }
 
   public Iterable<InputFile> filesByModule(String moduleKey) {
-    return inputFileCache.row(moduleKey).values();
+    return () -> existingRow(inputFileCache, moduleKey).values().iterator();
+  }
+
+  /**
+   * Files of the module whose relative path starts with the given prefix, in relative path order
+   */
+  public Iterable<InputFile> filesByModuleAndRelativePathPrefix(String moduleKey, String prefix) {
+    return () -> existingRow(inputFileCache, moduleKey).subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().iterator();
   }
 
   public Iterable<InputDir> dirsByModule(String moduleKey) {
-    return inputDirCache.row(moduleKey).values();
+    return () -> existingRow(inputDirCache, moduleKey).values().iterator();
   }
 
   public InputComponentStore removeModule(String moduleKey) {
-    inputFileCache.row(moduleKey).clear();
-    inputDirCache.row(moduleKey).clear();
+    inputFileCache.remove(moduleKey);
+    inputDirCache.remove(moduleKey);
     return this;
   }
 
   public InputComponentStore remove(InputFile inputFile) {
     DefaultInputFile file = (DefaultInputFile) inputFile;
-    inputFileCache.remove(file.moduleKey(), inputFile.relativePath());
+    existingRow(inputFileCache, file.moduleKey()).remove(inputFile.relativePath());
     return this;
   }
 
   public InputComponentStore remove(InputDir inputDir) {
     DefaultInputDir dir = (DefaultInputDir) inputDir;
-    inputDirCache.remove(dir.moduleKey(), inputDir.relativePath());
+    existingRow(inputDirCache, dir.moduleKey()).remove(inputDir.relativePath());
     return this;
   }
 
   public InputComponentStore put(InputFile inputFile) {
     DefaultInputFile file = (DefaultInputFile) inputFile;
-    inputFileCache.put(file.moduleKey(), inputFile.relativePath(), inputFile);
+    row(inputFileCache, file.moduleKey()).put(inputFile.relativePath(), inputFile);
     inputComponents.put(inputFile.key(), inputFile);
-    filesByNameCache.put(FilenamePredicate.getFilename(inputFile), inputFile);
-    filesByExtensionCache.put(FileExtensionPredicate.getExtension(inputFile), inputFile);
+    filesByNameCache.computeIfAbsent(FilenamePredicate.getFilename(inputFile), k -> new ConcurrentSkipListSet<>(BY_KEY)).add(inputFile);
+    filesByExtensionCache.computeIfAbsent(FileExtensionPredicate.getExtension(inputFile), k -> new ConcurrentSkipListSet<>(BY_KEY)).add(inputFile);
     return this;
   }
 
   public InputComponentStore put(InputDir inputDir) {
     DefaultInputDir dir = (DefaultInputDir) inputDir;
-    inputDirCache.put(dir.moduleKey(), inputDir.relativePath(), inputDir);
+    row(inputDirCache, dir.moduleKey()).put(inputDir.relativePath(), inputDir);
     inputComponents.put(inputDir.key(), inputDir);
     return this;
   }
 
   @CheckForNull
   public InputFile getFile(String moduleKey, String relativePath) {
-    return inputFileCache.get(moduleKey, relativePath);
+    return existingRow(inputFileCache, moduleKey).get(relativePath);
   }
 
   @CheckForNull
   public InputDir getDir(String moduleKey, String relativePath) {
-    return inputDirCache.get(moduleKey, relativePath);
+    return existingRow(inputDirCache, moduleKey).get(relativePath);
   }
 
   @CheckForNull
@@ -149,10 +170,18 @@ public class InputComponentStore {
   }
 
   public Iterable<InputFile> getFilesByName(String filename) {
-    return filesByNameCache.get(filename);
+    return filesByNameCache.getOrDefault(filename, Collections.emptySet());
   }
 
   public Iterable<InputFile> getFilesByExtension(String extension) {
-    return filesByExtensionCache.get(extension);
+    return filesByExtensionCache.getOrDefault(extension, Collections.emptySet());
+  }
+
+  private static <V> NavigableMap<String, V> row(ConcurrentMap<String, NavigableMap<String, V>> cache, String moduleKey) {
+    return cache.computeIfAbsent(moduleKey, k -> new ConcurrentSkipListMap<>());
+  }
+
+  private static <V> NavigableMap<String, V> existingRow(ConcurrentMap<String, NavigableMap<String, V>> cache, String moduleKey) {
+    return cache.getOrDefault(moduleKey, Collections.emptyNavigableMap());
   }
 }
@@ -40,29 +40,27 @@ public class InputFileBuilder {
   private final Path moduleBaseDir;
   private final PathResolver pathResolver;
   private final LanguageDetection langDetection;
-  private final BatchIdGenerator idGenerator;
   private final MetadataGenerator metadataGenerator;
   private final boolean preloadMetadata;
 
   public InputFileBuilder(DefaultInputModule module, PathResolver pathResolver, LanguageDetection langDetection, MetadataGenerator metadataGenerator,
-    BatchIdGenerator idGenerator, Settings settings) {
+    Settings settings) {
     this.moduleKey = module.key();
     this.moduleBaseDir = module.definition().getBaseDir().toPath();
     this.pathResolver = pathResolver;
     this.langDetection = langDetection;
     this.metadataGenerator = metadataGenerator;
-    this.idGenerator = idGenerator;
     this.preloadMetadata = settings.getBoolean(PRELOAD_FILE_METADATA_KEY);
   }
 
   @CheckForNull
-  DefaultInputFile create(Path file, InputFile.Type type, Charset defaultEncoding) {
+  DefaultInputFile create(Path file, InputFile.Type type, Charset defaultEncoding, int batchId) {
     String relativePath = pathResolver.relativePath(moduleBaseDir, file);
     if (relativePath == null) {
       LOG.warn("File '{}' is ignored. It is not located in module basedir '{}'.", file.toAbsolutePath(), moduleBaseDir);
       return null;
     }
-    DefaultIndexedFile indexedFile = new DefaultIndexedFile(moduleKey, moduleBaseDir, relativePath, type, idGenerator.get());
+    DefaultIndexedFile indexedFile = new DefaultIndexedFile(moduleKey, moduleBaseDir, relativePath, type, batchId);
     String language = langDetection.language(indexedFile);
     if (language == null && langDetection.forcedLanguage() != null) {
       LOG.warn("File '{}' is ignored because it doens't belong to the forced langauge '{}'", file.toAbsolutePath(), langDetection.forcedLanguage());
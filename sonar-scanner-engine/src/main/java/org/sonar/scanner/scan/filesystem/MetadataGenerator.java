@@ -19,15 +19,14 @@
  */
 package org.sonar.scanner.scan.filesystem;
 
-import com.google.common.annotations.VisibleForTesting;
-
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.input.BOMInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -38,33 +37,37 @@ import org.sonar.api.batch.fs.internal.Metadata;
 
 class MetadataGenerator {
   private static final Logger LOG = LoggerFactory.getLogger(MetadataGenerator.class);
-  @VisibleForTesting
-  static final Charset UTF_32BE = Charset.forName("UTF-32BE");
-
-  @VisibleForTesting
-  static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+  private static final int BUFFER_SIZE = 16 * 1024;
 
   private final StatusDetection statusDetection;
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
+  private final boolean computeLineHashes;
 
-  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata) {
+  /**
+   * @param computeLineHashes whether the line hashes used by issue tracking are computed along with other metadata,
+   * so that issue tracking does not read files again
+   */
+  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, boolean computeLineHashes) {
     this.inputModule = inputModule;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
+    this.computeLineHashes = computeLineHashes;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file once: the charset is detected from the BOM
+   * of the stream then used to decode the rest of it.
    */
   public void setMetadata(final DefaultInputFile inputFile, Charset defaultEncoding) {
-    try {
-      Charset charset = detectCharset(inputFile.path(), defaultEncoding);
+    try (BOMInputStream stream = open(inputFile.path())) {
+      Charset charset = detectCharset(stream, defaultEncoding);
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(inputFile.file(), charset);
-      inputFile.setMetadata(metadata);
+      Metadata metadata = fileMetadata.readMetadata(stream, charset, inputFile.file(), computeLineHashes);
       inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile.relativePath(), metadata.hash()));
+      // set last, as it marks the metadata of the file as available to other threads
+      inputFile.setMetadata(metadata);
       LOG.debug("'{}' generated metadata {} with charset '{}'",
         inputFile.relativePath(), inputFile.type() == Type.TEST ? "as test " : "", charset);
     } catch (Exception e) {
@@ -73,28 +76,22 @@ class MetadataGenerator {
   }
 
   /**
-   * @return charset detected from BOM in given file or given defaultCharset
-   * @throws IllegalStateException if an I/O error occurs
+   * @throws IllegalStateException if the file can't be opened
    */
-  private static Charset detectCharset(Path path, Charset defaultCharset) {
-    try (InputStream inputStream = Files.newInputStream(path)) {
-      byte[] bom = new byte[4];
-      int n = inputStream.read(bom, 0, bom.length);
-      if ((n >= 3) && (bom[0] == (byte) 0xEF) && (bom[1] == (byte) 0xBB) && (bom[2] == (byte) 0xBF)) {
-        return StandardCharsets.UTF_8;
-      } else if ((n >= 4) && (bom[0] == (byte) 0x00) && (bom[1] == (byte) 0x00) && (bom[2] == (byte) 0xFE) && (bom[3] == (byte) 0xFF)) {
-        return UTF_32BE;
-      } else if ((n >= 4) && (bom[0] == (byte) 0xFF) && (bom[1] == (byte) 0xFE) && (bom[2] == (byte) 0x00) && (bom[3] == (byte) 0x00)) {
-        return UTF_32LE;
-      } else if ((n >= 2) && (bom[0] == (byte) 0xFE) && (bom[1] == (byte) 0xFF)) {
-        return StandardCharsets.UTF_16BE;
-      } else if ((n >= 2) && (bom[0] == (byte) 0xFF) && (bom[1] == (byte) 0xFE)) {
-        return StandardCharsets.UTF_16LE;
-      } else {
-        return defaultCharset;
-      }
+  private static BOMInputStream open(Path path) {
+    try {
+      return new BOMInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE),
+        ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
     } catch (IOException e) {
       throw new IllegalStateException("Unable to read file " + path.toAbsolutePath().toString(), e);
     }
   }
+
+  /**
+   * @return charset detected from BOM of the stream or given defaultCharset
+   */
+  private static Charset detectCharset(BOMInputStream stream, Charset defaultCharset) throws IOException {
+    ByteOrderMark bom = stream.getBOM();
+    return bom == null ? defaultCharset : Charset.forName(bom.getCharsetName());
+  }
 }
@@ -20,13 +20,18 @@
 package org.sonar.scanner.scan.filesystem;
 
 import org.picocontainer.injectors.ProviderAdapter;
+import org.sonar.api.batch.AnalysisMode;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.scanner.repository.ProjectRepositories;
 
 @ScannerSide
 public class MetadataGeneratorProvider extends ProviderAdapter {
-  public MetadataGenerator provide(DefaultInputModule inputModule, StatusDetectionFactory statusDetectionFactory, FileMetadata fileMetadata) {
-    return new MetadataGenerator(inputModule, statusDetectionFactory.create(), fileMetadata);
+  public MetadataGenerator provide(DefaultInputModule inputModule, StatusDetectionFactory statusDetectionFactory, FileMetadata fileMetadata,
+    AnalysisMode analysisMode, ProjectRepositories projectRepositories) {
+    // line hashes are only needed to track issues against a previous analysis, which is done in issues mode
+    boolean computeLineHashes = analysisMode.isIssues() && projectRepositories.lastAnalysisDate() != null;
+    return new MetadataGenerator(inputModule, statusDetectionFactory.create(), fileMetadata, computeLineHashes);
   }
 }
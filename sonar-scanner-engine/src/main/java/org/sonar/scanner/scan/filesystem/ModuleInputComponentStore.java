@@ -69,4 +69,9 @@ public class ModuleInputComponentStore extends DefaultFileSystem.Cache {
   @Override public Iterable<InputFile> getFilesByExtension(String extension) {
     return inputComponentStore.getFilesByExtension(extension);
   }
+
+  @Override
+  public Iterable<InputFile> getFilesByRelativePathPrefix(String prefix) {
+    return inputComponentStore.filesByModuleAndRelativePathPrefix(moduleKey, prefix);
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
+
+/**
+ * Line coverage of all the files of the project, kept apart from {@link MeasureCache} so that merging reports
+ * does not require to parse and format line data measures.
+ */
+@ScannerSide
+public class CoverageCache {
+
+  private final Map<String, FileLineCoverage> coverageByFileKey = new ConcurrentHashMap<>();
+
+  public FileLineCoverage merge(DefaultCoverage coverage) {
+    return forFile(coverage.inputFile()).merge(coverage);
+  }
+
+  public FileLineCoverage forFile(InputFile inputFile) {
+    return coverageByFileKey.computeIfAbsent(inputFile.key(), k -> new FileLineCoverage(inputFile.lines()));
+  }
+
+  @CheckForNull
+  public FileLineCoverage byFileKey(String fileKey) {
+    return coverageByFileKey.get(fileKey);
+  }
+}
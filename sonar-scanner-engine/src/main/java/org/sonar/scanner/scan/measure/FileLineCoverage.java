@@ -0,0 +1,227 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.util.Arrays;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
+
+/**
+ * Line coverage of a file, merged from all the coverage reports. Values are stored in arrays indexed by line,
+ * -1 meaning that the line has no value. When several reports provide a value for the same line, hits are
+ * summed and conditions are the maximum ones.
+ * <p>
+ * This class is thread-safe.
+ */
+public class FileLineCoverage {
+
+  private static final int NO_VALUE = -1;
+
+  private int[] hits;
+  private int[] conditions;
+  private int[] coveredConditions;
+
+  FileLineCoverage(int lines) {
+    int length = Math.max(lines, 0) + 1;
+    this.hits = newValues(length);
+    this.conditions = newValues(length);
+    this.coveredConditions = newValues(length);
+  }
+
+  public synchronized FileLineCoverage merge(DefaultCoverage coverage) {
+    for (int line = 1; line <= coverage.lastLine(); line++) {
+      int lineHits = coverage.hitsOfLine(line);
+      if (lineHits >= 0) {
+        mergeHits(line, lineHits);
+      }
+      int lineConditions = coverage.conditionsOfLine(line);
+      if (lineConditions >= 0) {
+        mergeConditions(line, lineConditions);
+        mergeCoveredConditions(line, coverage.coveredConditionsOfLine(line));
+      }
+    }
+    return this;
+  }
+
+  public synchronized FileLineCoverage mergeHits(int line, int value) {
+    ensureCapacity(line);
+    hits[line] = hits[line] == NO_VALUE ? value : (hits[line] + value);
+    return this;
+  }
+
+  public synchronized FileLineCoverage mergeConditions(int line, int value) {
+    ensureCapacity(line);
+    conditions[line] = Math.max(conditions[line], value);
+    return this;
+  }
+
+  public synchronized FileLineCoverage mergeCoveredConditions(int line, int value) {
+    ensureCapacity(line);
+    coveredConditions[line] = Math.max(coveredConditions[line], value);
+    return this;
+  }
+
+  /**
+   * Last line which may have a value
+   */
+  public synchronized int lastLine() {
+    return hits.length - 1;
+  }
+
+  /**
+   * @return the hits of the line, or -1 if the line is not to be covered
+   */
+  public synchronized int hits(int line) {
+    return valueOf(hits, line);
+  }
+
+  /**
+   * @return the conditions of the line, or -1 if unknown
+   */
+  public synchronized int conditions(int line) {
+    return valueOf(conditions, line);
+  }
+
+  /**
+   * @return the covered conditions of the line, or -1 if unknown
+   */
+  public synchronized int coveredConditions(int line) {
+    return valueOf(coveredConditions, line);
+  }
+
+  public synchronized boolean hasHits() {
+    return hasValue(hits);
+  }
+
+  public synchronized boolean hasConditions() {
+    return hasValue(conditions);
+  }
+
+  public synchronized boolean hasCoveredConditions() {
+    return hasValue(coveredConditions);
+  }
+
+  public synchronized int linesToCover() {
+    int count = 0;
+    for (int value : hits) {
+      if (value != NO_VALUE) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public synchronized int uncoveredLines() {
+    int count = 0;
+    for (int value : hits) {
+      if (value == 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public synchronized int conditionsToCover() {
+    int sum = 0;
+    for (int value : conditions) {
+      if (value != NO_VALUE) {
+        sum += value;
+      }
+    }
+    return sum;
+  }
+
+  public synchronized int uncoveredConditions() {
+    int sum = 0;
+    for (int line = 1; line < conditions.length; line++) {
+      if (conditions[line] != NO_VALUE) {
+        sum += conditions[line] - Math.max(coveredConditions[line], 0);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Hits in the format of the {@link org.sonar.api.measures.CoreMetrics#COVERAGE_LINE_HITS_DATA} measure
+   */
+  public synchronized String formatHits() {
+    return format(hits);
+  }
+
+  /**
+   * Conditions in the format of the {@link org.sonar.api.measures.CoreMetrics#CONDITIONS_BY_LINE} measure
+   */
+  public synchronized String formatConditions() {
+    return format(conditions);
+  }
+
+  /**
+   * Covered conditions in the format of the {@link org.sonar.api.measures.CoreMetrics#COVERED_CONDITIONS_BY_LINE} measure
+   */
+  public synchronized String formatCoveredConditions() {
+    return format(coveredConditions);
+  }
+
+  private void ensureCapacity(int line) {
+    if (line >= hits.length) {
+      int length = Math.max(line + 1, hits.length * 2);
+      hits = grow(hits, length);
+      conditions = grow(conditions, length);
+      coveredConditions = grow(coveredConditions, length);
+    }
+  }
+
+  private static int[] newValues(int length) {
+    int[] values = new int[length];
+    Arrays.fill(values, NO_VALUE);
+    return values;
+  }
+
+  private static int[] grow(int[] values, int length) {
+    int[] result = Arrays.copyOf(values, length);
+    Arrays.fill(result, values.length, length, NO_VALUE);
+    return result;
+  }
+
+  private static int valueOf(int[] values, int line) {
+    return line > 0 && line < values.length ? values[line] : NO_VALUE;
+  }
+
+  private static boolean hasValue(int[] values) {
+    for (int value : values) {
+      if (value != NO_VALUE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String format(int[] values) {
+    StringBuilder sb = new StringBuilder();
+    for (int line = 1; line < values.length; line++) {
+      if (values[line] != NO_VALUE) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(line).append('=').append(values[line]);
+      }
+    }
+    return sb.toString();
+  }
+}
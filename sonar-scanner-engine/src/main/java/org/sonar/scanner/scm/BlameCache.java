@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Blame results stored in the user cache, so that they are shared by all the analyses run on the same machine.
+ * There is one entry per SCM provider, module and path of file, which also records the hash of the blamed content.
+ * Files that did not change since they were blamed are not blamed again, even if the server does not know their
+ * SCM data (first analysis of a branch for example).
+ * <p>
+ * Entries are written to a temporary file then moved, so that concurrent analyses never read partial entries.
+ * Reading an entry marks it as recently used. At the end of the analysis, the least recently used entries
+ * are removed so that the cache does not exceed {@link ScmConfiguration#blameCacheMaxEntries()}.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+@ScannerSide
+public class BlameCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+  private static final String DIR_NAME = "_scm";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private final ScmConfiguration configuration;
+  private final FileCache fileCache;
+  private File dir;
+
+  public BlameCache(ScmConfiguration configuration, FileCache fileCache) {
+    this.configuration = configuration;
+    this.fileCache = fileCache;
+  }
+
+  @Override
+  public void start() {
+    // cache directory is created lazily
+  }
+
+  @Override
+  public void stop() {
+    if (dir != null) {
+      prune(configuration.blameCacheMaxEntries());
+    }
+  }
+
+  /**
+   * @return changesets of the file, without component ref, or null if they are not in the cache
+   */
+  @CheckForNull
+  public ScannerReport.Changesets get(String providerKey, DefaultInputFile file) {
+    if (!configuration.isBlameCacheEnabled() || configuration.forceReloadAll()) {
+      return null;
+    }
+    File entry = new File(dir(), key(providerKey, file));
+    if (!entry.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry.toPath())))) {
+      if (!input.readUTF().equals(file.hash())) {
+        return null;
+      }
+      ScannerReport.Changesets changesets = ScannerReport.Changesets.parseFrom(input);
+      entry.setLastModified(System.currentTimeMillis());
+      return changesets;
+    } catch (Exception e) {
+      LOG.debug("Ignoring corrupted blame cache entry {}", entry, e);
+      deleteQuietly(entry);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the changesets of the file, replacing those of a previous version of the file
+   */
+  public void put(String providerKey, DefaultInputFile file, ScannerReport.Changesets changesets) {
+    if (!configuration.isBlameCacheEnabled()) {
+      return;
+    }
+    File entry = new File(dir(), key(providerKey, file));
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("blame", TEMP_FILE_SUFFIX, dir());
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+        output.writeUTF(file.hash());
+        changesets.toBuilder().clearComponentRef().build().writeTo(output);
+      }
+      Files.move(tempFile.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      // the cache is an optimization, analysis must not fail
+      LOG.debug("Fail to store blame of {} in cache", file.relativePath(), e);
+      deleteQuietly(tempFile);
+    }
+  }
+
+  /**
+   * Removes the least recently used entries in excess. Temporary files being written by concurrent analyses are kept.
+   */
+  void prune(int maxEntries) {
+    File[] entries = dir().listFiles((d, name) -> !name.endsWith(TEMP_FILE_SUFFIX));
+    if (entries == null || entries.length <= maxEntries) {
+      return;
+    }
+    long[] lastModified = new long[entries.length];
+    Integer[] indexes = new Integer[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      lastModified[i] = entries[i].lastModified();
+      indexes[i] = i;
+    }
+    Arrays.sort(indexes, Comparator.comparingLong(i -> lastModified[i]));
+    int toRemove = entries.length - maxEntries;
+    for (int i = 0; i < toRemove; i++) {
+      deleteQuietly(entries[indexes[i]]);
+    }
+    LOG.debug("{} least recently used entries removed from blame cache", toRemove);
+  }
+
+  private synchronized File dir() {
+    if (dir == null) {
+      dir = new File(fileCache.getDir(), DIR_NAME);
+      try {
+        Files.createDirectories(dir.toPath());
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to create blame cache directory: " + dir, e);
+      }
+    }
+    return dir;
+  }
+
+  private static String key(String providerKey, DefaultInputFile file) {
+    return DigestUtils.md5Hex(providerKey + '\0' + file.moduleKey() + '\0' + file.relativePath());
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.scm;
 
+import java.util.concurrent.ExecutorService;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.scm.BlameCommand.BlameInput;
@@ -27,10 +28,12 @@ class DefaultBlameInput implements BlameInput {
 
   private FileSystem fs;
   private Iterable<InputFile> filesToBlame;
+  private ExecutorService executorService;
 
-  DefaultBlameInput(FileSystem fs, Iterable<InputFile> filesToBlame) {
+  DefaultBlameInput(FileSystem fs, Iterable<InputFile> filesToBlame, ExecutorService executorService) {
     this.fs = fs;
     this.filesToBlame = filesToBlame;
+    this.executorService = executorService;
   }
 
   @Override
@@ -43,4 +46,9 @@ class DefaultBlameInput implements BlameInput {
     return filesToBlame;
   }
 
+  @Override
+  public ExecutorService executorService() {
+    return executorService;
+  }
+
 }
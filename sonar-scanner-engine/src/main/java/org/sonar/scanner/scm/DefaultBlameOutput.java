@@ -44,13 +44,17 @@ class DefaultBlameOutput implements BlameOutput {
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
+  private final BlameCache cache;
+  private final String providerKey;
   private final Set<InputFile> allFilesToBlame = new HashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
-  DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame) {
+  DefaultBlameOutput(ScannerReportWriter writer, BlameCache cache, String providerKey, List<InputFile> filesToBlame) {
     this.writer = writer;
+    this.cache = cache;
+    this.providerKey = providerKey;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -86,7 +90,9 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    cache.put(providerKey, inputFile, changesets);
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " files analyzed");
@@ -47,7 +47,36 @@ import org.sonar.scanner.scan.ImmutableProjectReactor;
     project = false,
     module = false,
     global = false,
-    type = PropertyType.BOOLEAN)
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = ScmConfiguration.BLAME_CACHE_KEY,
+    defaultValue = "true",
+    name = "Cache blame results locally",
+    description = "Blame results are stored in the user cache, so that files whose content did not change are not blamed again by later analyses on the same machine.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = ScmConfiguration.BLAME_CACHE_MAX_ENTRIES_KEY,
+    defaultValue = "" + ScmConfiguration.DEFAULT_BLAME_CACHE_MAX_ENTRIES,
+    name = "Maximum number of files in the local blame cache",
+    description = "When the local blame cache holds more files, the least recently used ones are removed at the end of the analysis.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = ScmConfiguration.BLAME_THREADS_KEY,
+    name = "Number of threads available to blame files",
+    description = "Maximum number of threads the SCM provider can use to blame files concurrently. Default is the number of available processors.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.INTEGER)
 })
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
@@ -55,6 +84,10 @@ public final class ScmConfiguration implements Startable {
   private static final Logger LOG = Loggers.get(ScmConfiguration.class);
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  public static final String BLAME_CACHE_KEY = "sonar.scm.blameCache";
+  public static final String BLAME_CACHE_MAX_ENTRIES_KEY = "sonar.scm.blameCache.maxEntries";
+  public static final String BLAME_THREADS_KEY = "sonar.scm.blameThreads";
+  static final int DEFAULT_BLAME_CACHE_MAX_ENTRIES = 50_000;
 
   private final ImmutableProjectReactor projectReactor;
   private final Settings settings;
@@ -147,6 +180,19 @@ public final class ScmConfiguration implements Startable {
     return settings.getBoolean(FORCE_RELOAD_KEY);
   }
 
+  public boolean isBlameCacheEnabled() {
+    return !settings.hasKey(BLAME_CACHE_KEY) || settings.getBoolean(BLAME_CACHE_KEY);
+  }
+
+  public int blameCacheMaxEntries() {
+    return settings.hasKey(BLAME_CACHE_MAX_ENTRIES_KEY) ? Math.max(0, settings.getInt(BLAME_CACHE_MAX_ENTRIES_KEY)) : DEFAULT_BLAME_CACHE_MAX_ENTRIES;
+  }
+
+  public int blameThreads() {
+    int threads = settings.hasKey(BLAME_THREADS_KEY) ? settings.getInt(BLAME_THREADS_KEY) : Runtime.getRuntime().availableProcessors();
+    return Math.max(1, threads);
+  }
+
   @Override
   public void stop() {
     // Nothing to do
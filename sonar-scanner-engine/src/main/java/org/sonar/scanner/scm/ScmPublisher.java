@@ -19,8 +19,11 @@
  */
 package org.sonar.scanner.scm;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -52,15 +55,17 @@ public final class ScmPublisher {
   private final ModuleInputComponentStore componentStore;
   private final DefaultModuleFileSystem fs;
   private final ScannerReportWriter writer;
+  private final BlameCache cache;
 
   public ScmPublisher(DefaultInputModule inputModule, ScmConfiguration configuration, ProjectRepositories projectRepositories,
-    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher) {
+    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BlameCache cache) {
     this.inputModule = inputModule;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.componentStore = componentStore;
     this.fs = fs;
     this.writer = reportPublisher.getWriter();
+    this.cache = cache;
   }
 
   public void publish() {
@@ -73,46 +78,69 @@ public final class ScmPublisher {
       return;
     }
 
-    List<InputFile> filesToBlame = collectFilesToBlame(writer);
+    String key = configuration.provider().key();
+    List<InputFile> filesToBlame = collectFilesToBlame(key, writer);
     if (!filesToBlame.isEmpty()) {
-      String key = configuration.provider().key();
       LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(writer, cache, key, filesToBlame);
+      ExecutorService executorService = Executors.newFixedThreadPool(configuration.blameThreads(), new ThreadFactoryBuilder().setNameFormat("Blame-%d").build());
       try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame, executorService), output);
       } catch (Exception e) {
         output.finish(false);
         throw e;
+      } finally {
+        executorService.shutdownNow();
       }
       output.finish(true);
     }
   }
 
-  private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
+  private List<InputFile> collectFilesToBlame(String providerKey, ScannerReportWriter writer) {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
     }
     List<InputFile> filesToBlame = new LinkedList<>();
+    int cached = 0;
     for (InputFile f : componentStore.inputFiles()) {
       DefaultInputFile inputFile = (DefaultInputFile) f;
       if (!inputFile.publish()) {
         continue;
       }
       if (configuration.forceReloadAll() || f.status() != Status.SAME) {
-        addIfNotEmpty(filesToBlame, f);
+        cached += addIfNotEmptyNorCached(filesToBlame, inputFile, providerKey, writer);
       } else {
         // File status is SAME so that mean fileData exists
         FileData fileData = projectRepositories.fileData(inputModule.definition().getKeyWithBranch(), f.relativePath());
         if (StringUtils.isEmpty(fileData.revision())) {
-          addIfNotEmpty(filesToBlame, f);
+          cached += addIfNotEmptyNorCached(filesToBlame, inputFile, providerKey, writer);
         } else {
-          askToCopyDataFromPreviousAnalysis((DefaultInputFile) f, writer);
+          askToCopyDataFromPreviousAnalysis(inputFile, writer);
         }
       }
     }
+    if (cached > 0) {
+      LOG.info("{} files with blame information found in local cache", cached);
+    }
     return filesToBlame;
   }
 
+  /**
+   * @return 1 if blame of the file was found in cache, else 0
+   */
+  private int addIfNotEmptyNorCached(List<InputFile> filesToBlame, DefaultInputFile f, String providerKey, ScannerReportWriter writer) {
+    if (f.isEmpty()) {
+      return 0;
+    }
+    ScannerReport.Changesets changesets = cache.get(providerKey, f);
+    if (changesets == null) {
+      filesToBlame.add(f);
+      return 0;
+    }
+    writer.writeComponentChangesets(changesets.toBuilder().setComponentRef(f.batchId()).build());
+    return 1;
+  }
+
   private static void askToCopyDataFromPreviousAnalysis(DefaultInputFile f, ScannerReportWriter writer) {
     Builder scmBuilder = ScannerReport.Changesets.newBuilder();
     scmBuilder.setComponentRef(f.batchId());
@@ -120,10 +148,4 @@ public final class ScmPublisher {
     writer.writeComponentChangesets(scmBuilder.build());
   }
 
-  private static void addIfNotEmpty(List<InputFile> filesToBlame, InputFile f) {
-    if (!f.isEmpty()) {
-      filesToBlame.add(f);
-    }
-  }
-
 }
@@ -21,15 +21,13 @@ package org.sonar.scanner.sensor;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
@@ -62,6 +60,8 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.report.ScannerReportUtils;
 import org.sonar.scanner.repository.ContextPropertiesCache;
+import org.sonar.scanner.scan.measure.CoverageCache;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.sensor.coverage.CoverageExclusions;
 
@@ -112,6 +112,9 @@ import static org.sonar.api.measures.CoreMetrics.TEST_SUCCESS_DENSITY_KEY;
 import static org.sonar.api.measures.CoreMetrics.UNCOVERED_CONDITIONS;
 import static org.sonar.api.measures.CoreMetrics.UNCOVERED_LINES;
 
+/**
+ * Thread-safe, as sensors declared as thread-safe may be executed concurrently.
+ */
 public class DefaultSensorStorage implements SensorStorage {
 
   private static final Logger LOG = Loggers.get(DefaultSensorStorage.class);
@@ -144,6 +147,7 @@ public class DefaultSensorStorage implements SensorStorage {
   private final CoverageExclusions coverageExclusions;
   private final ReportPublisher reportPublisher;
   private final MeasureCache measureCache;
+  private final CoverageCache coverageCache;
   private final SonarCpdBlockIndex index;
   private final ContextPropertiesCache contextPropertiesCache;
   private final Settings settings;
@@ -151,12 +155,14 @@ public class DefaultSensorStorage implements SensorStorage {
   private final Map<Metric<?>, Metric<?>> deprecatedCoverageMetricMapping = new HashMap<>();
   private final Set<Metric<?>> coverageMetrics = new HashSet<>();
   private final Set<Metric<?>> byLineMetrics = new HashSet<>();
-  private Set<String> alreadyLogged = new HashSet<>();
+  private final Set<String> alreadyLogged = ConcurrentHashMap.newKeySet();
+  // guards the read-then-write sequences on the measure cache
+  private final Object measureLock = new Object();
 
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues,
     Settings settings,
     CoverageExclusions coverageExclusions, ReportPublisher reportPublisher,
-    MeasureCache measureCache, SonarCpdBlockIndex index,
+    MeasureCache measureCache, CoverageCache coverageCache, SonarCpdBlockIndex index,
     ContextPropertiesCache contextPropertiesCache, ScannerMetrics scannerMetrics) {
     this.metricFinder = metricFinder;
     this.moduleIssues = moduleIssues;
@@ -164,6 +170,7 @@ public class DefaultSensorStorage implements SensorStorage {
     this.coverageExclusions = coverageExclusions;
     this.reportPublisher = reportPublisher;
     this.measureCache = measureCache;
+    this.coverageCache = coverageCache;
     this.index = index;
     this.contextPropertiesCache = contextPropertiesCache;
     this.scannerMetrics = scannerMetrics;
@@ -211,9 +218,8 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   private void logOnce(String metricKey, String msg, Object... params) {
-    if (!alreadyLogged.contains(metricKey)) {
+    if (alreadyLogged.add(metricKey)) {
       LOG.warn(msg, params);
-      alreadyLogged.add(metricKey);
     }
   }
 
@@ -259,24 +265,20 @@ public class DefaultSensorStorage implements SensorStorage {
       }
       saveCoverageMetricInternal((InputFile) component, metric, measureToSave);
     } else {
-      if (measureCache.contains(component.key(), metric.key())) {
-        throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+      synchronized (measureLock) {
+        if (measureCache.contains(component.key(), metric.key())) {
+          throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+        }
+        measureCache.put(component.key(), metric.key(), measureToSave);
       }
-      measureCache.put(component.key(), metric.key(), measureToSave);
     }
   }
 
   private void saveCoverageMetricInternal(InputFile file, Metric<?> metric, DefaultMeasure<?> measure) {
     if (isLineMetrics(metric)) {
-      validateCoverageMeasure((String) measure.value(), file);
-      DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
-      if (previousMeasure != null) {
-        measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
-          .forMetric((Metric<String>) metric)
-          .withValue(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value())));
-      } else {
-        measureCache.put(file.key(), metric.key(), measure);
-      }
+      Map<Integer, Integer> valuesByLine = KeyValueFormat.parseIntInt((String) measure.value());
+      validateCoverageMeasure(valuesByLine, file);
+      mergeCoverageLineMetric(coverageCache.forFile(file), metric, valuesByLine);
     } else {
       // Other coverage metrics are all integer values. Just erase value, it will be recomputed at the end anyway
       measureCache.put(file.key(), metric.key(), measure);
@@ -284,32 +286,18 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   /**
-   * Merge the two line coverage data measures. For lines hits use the sum, and for conditions 
+   * Merge line coverage data measure into the coverage of the file. For lines hits use the sum, and for conditions
    * keep max value in case they both contains a value for the same line.
    */
-  static String mergeCoverageLineMetric(Metric<?> metric, String value1, String value2) {
-    Map<Integer, Integer> data1 = KeyValueFormat.parseIntInt(value1);
-    Map<Integer, Integer> data2 = KeyValueFormat.parseIntInt(value2);
-    if (metric.key().equals(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)) {
-      return KeyValueFormat.format(Stream.of(data1, data2)
-        .map(Map::entrySet)
-        .flatMap(Collection::stream)
-        .collect(
-          Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue,
-            Integer::sum,
-            TreeMap::new)));
-    } else {
-      return KeyValueFormat.format(Stream.of(data1, data2)
-        .map(Map::entrySet)
-        .flatMap(Collection::stream)
-        .collect(
-          Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue,
-            Integer::max,
-            TreeMap::new)));
+  private static void mergeCoverageLineMetric(FileLineCoverage coverage, Metric<?> metric, Map<Integer, Integer> valuesByLine) {
+    for (Map.Entry<Integer, Integer> lineValue : valuesByLine.entrySet()) {
+      if (metric.key().equals(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)) {
+        coverage.mergeHits(lineValue.getKey(), lineValue.getValue());
+      } else if (metric.key().equals(CoreMetrics.CONDITIONS_BY_LINE_KEY)) {
+        coverage.mergeConditions(lineValue.getKey(), lineValue.getValue());
+      } else {
+        coverage.mergeCoveredConditions(lineValue.getKey(), lineValue.getValue());
+      }
     }
   }
 
@@ -326,7 +314,10 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   public void validateCoverageMeasure(String value, InputFile inputFile) {
-    Map<Integer, Integer> m = KeyValueFormat.parseIntInt(value);
+    validateCoverageMeasure(KeyValueFormat.parseIntInt(value), inputFile);
+  }
+
+  private static void validateCoverageMeasure(Map<Integer, Integer> m, InputFile inputFile) {
     validatePositiveLine(m, inputFile.absolutePath());
     validateMaxLine(m, inputFile);
   }
@@ -426,19 +417,14 @@ public class DefaultSensorStorage implements SensorStorage {
       saveCoverageMetricInternal(inputFile, LINES_TO_COVER, new DefaultMeasure<Integer>().forMetric(LINES_TO_COVER).withValue(defaultCoverage.linesToCover()));
       saveCoverageMetricInternal(inputFile, UNCOVERED_LINES,
         new DefaultMeasure<Integer>().forMetric(UNCOVERED_LINES).withValue(defaultCoverage.linesToCover() - defaultCoverage.coveredLines()));
-      saveCoverageMetricInternal(inputFile, COVERAGE_LINE_HITS_DATA,
-        new DefaultMeasure<String>().forMetric(COVERAGE_LINE_HITS_DATA).withValue(KeyValueFormat.format(defaultCoverage.hitsByLine())));
     }
     if (defaultCoverage.conditions() > 0) {
       saveCoverageMetricInternal(inputFile, CONDITIONS_TO_COVER,
         new DefaultMeasure<Integer>().forMetric(CONDITIONS_TO_COVER).withValue(defaultCoverage.conditions()));
       saveCoverageMetricInternal(inputFile, UNCOVERED_CONDITIONS,
         new DefaultMeasure<Integer>().forMetric(UNCOVERED_CONDITIONS).withValue(defaultCoverage.conditions() - defaultCoverage.coveredConditions()));
-      saveCoverageMetricInternal(inputFile, COVERED_CONDITIONS_BY_LINE,
-        new DefaultMeasure<String>().forMetric(COVERED_CONDITIONS_BY_LINE).withValue(KeyValueFormat.format(defaultCoverage.coveredConditionsByLine())));
-      saveCoverageMetricInternal(inputFile, CONDITIONS_BY_LINE,
-        new DefaultMeasure<String>().forMetric(CONDITIONS_BY_LINE).withValue(KeyValueFormat.format(defaultCoverage.conditionsByLine())));
     }
+    coverageCache.merge(defaultCoverage);
   }
 
   @Override
@@ -38,6 +38,7 @@ import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.core.util.stream.Collectors;
+import org.sonar.scanner.scan.measure.CoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.sensor.coverage.CoverageExclusions;
 
@@ -61,10 +62,12 @@ public final class ZeroCoverageSensor implements Sensor {
   }
 
   private final MeasureCache measureCache;
+  private final CoverageCache coverageCache;
   private final CoverageExclusions coverageExclusions;
 
-  public ZeroCoverageSensor(MeasureCache measureCache, CoverageExclusions exclusions) {
+  public ZeroCoverageSensor(MeasureCache measureCache, CoverageCache coverageCache, CoverageExclusions exclusions) {
     this.measureCache = measureCache;
+    this.coverageCache = coverageCache;
     this.coverageExclusions = exclusions;
   }
 
@@ -102,6 +105,10 @@ public final class ZeroCoverageSensor implements Sensor {
   }
 
   private boolean isCoverageMeasuresAlreadyDefined(InputFile f) {
+    // line coverage is not kept in measure cache
+    if (coverageCache.byFileKey(f.key()) != null) {
+      return true;
+    }
     Set<String> metricKeys = StreamSupport.stream(measureCache.byComponentKey(f.key()).spliterator(), false)
       .map(new MeasureToMetricKey()).collect(Collectors.toSet());
     Function<Metric, String> metricToKey = new MetricToKey();
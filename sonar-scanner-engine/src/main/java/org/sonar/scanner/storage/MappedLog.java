@@ -0,0 +1,200 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Append-only sequence of records stored in memory-mapped segment files.
+ * <p>
+ * Appending only reserves space under a lock, bytes are copied outside of it, so that
+ * concurrent writers do not wait for each other. A record is addressed by a {@code long}
+ * made of the index of its segment (high 32 bits) and its offset in the segment (low 32 bits).
+ * Records are never overwritten: space of removed values is reclaimed when the log is closed.
+ * Closing also unmaps the segments. Appends and reads hold the read lock of {@link #closeLock}, so
+ * that segments are not unmapped while they are accessed, and fail once the log is closed.
+ */
+class MappedLog {
+
+  private static final int HEADER_SIZE = 4;
+
+  private final File dir;
+  private final String prefix;
+  private final int segmentSize;
+  private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+  // guarded by the write lock of closeLock
+  private boolean closed = false;
+
+  // guarded by this
+  private MappedByteBuffer current;
+  private int position;
+
+  MappedLog(File dir, String prefix, int segmentSize) {
+    this.dir = dir;
+    this.prefix = prefix;
+    this.segmentSize = segmentSize;
+  }
+
+  long append(byte[] bytes) throws IOException {
+    Lock lock = openedLock();
+    try {
+      int recordSize = HEADER_SIZE + bytes.length;
+      ByteBuffer target;
+      int segmentIndex;
+      int offset;
+      synchronized (this) {
+        if (current == null || position + recordSize > current.capacity()) {
+          current = createSegment(Math.max(segmentSize, recordSize));
+          position = 0;
+        }
+        target = current;
+        segmentIndex = segments.size() - 1;
+        offset = position;
+        position += recordSize;
+      }
+      ByteBuffer buffer = target.duplicate();
+      buffer.position(offset);
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+      return ((long) segmentIndex << 32) | offset;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  byte[] read(long address) {
+    Lock lock = openedLock();
+    try {
+      ByteBuffer buffer = segments.get((int) (address >>> 32)).duplicate();
+      buffer.position((int) address);
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void close() {
+    Lock lock = closeLock.writeLock();
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      List<MappedByteBuffer> toUnmap;
+      synchronized (this) {
+        current = null;
+        toUnmap = new ArrayList<>(segments);
+        segments.clear();
+      }
+      for (int i = 0; i < toUnmap.size(); i++) {
+        unmap(toUnmap.get(i));
+        deleteQuietly(segmentFile(i));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Acquires the read lock, which must be released by the caller.
+   *
+   * @throws IllegalStateException if the log is closed
+   */
+  private Lock openedLock() {
+    Lock lock = closeLock.readLock();
+    lock.lock();
+    if (closed) {
+      lock.unlock();
+      throw new IllegalStateException("Storage is closed: " + prefix);
+    }
+    return lock;
+  }
+
+  /**
+   * Releases the mapping of the buffer without waiting for it to be garbage collected. There is no public
+   * API for that, so the cleaner is called through {@code sun.misc.Unsafe} on Java 9+ and through the
+   * buffer on Java 8. If none is accessible, the mapping is released by the garbage collector.
+   *
+   * @return whether the mapping has been released
+   */
+  static boolean unmap(MappedByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return unmapJava8(buffer);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private static boolean unmapJava8(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner == null) {
+        return false;
+      }
+      cleaner.getClass().getMethod("clean").invoke(cleaner);
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private MappedByteBuffer createSegment(int size) throws IOException {
+    File file = segmentFile(segments.size());
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      segments.add(segment);
+      return segment;
+    }
+  }
+
+  private File segmentFile(int index) {
+    return new File(dir, prefix + "-" + index + ".seg");
+  }
+}
@@ -19,56 +19,76 @@
  */
 package org.sonar.scanner.storage;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Values are appended to memory-mapped segment files (see {@link MappedLog}) and located through
+ * an in-memory sorted index of keys. Keys are made of one or more {@link Comparable} or null parts and are
+ * ordered part by part, a key being placed before the keys it is a prefix of.
+ * </p>
+ * <p>
+ * This storage is thread-safe. Iterables are lazy and weakly consistent: they reflect the
+ * state of the storage at some point at or since the creation of the iterator.
  * </p>
  */
 public class Storage<V> {
 
+  /**
+   * Same limit as the former Persistit implementation
+   */
+  static final int MAXIMUM_VALUE_SIZE = 64 * 1024 * 1024;
+
+  private static final Object AFTER = new Object();
+  private static final Comparator<Object[]> KEY_COMPARATOR = new KeyComparator();
+
   private final String name;
-  private final Exchange exchange;
+  private final MappedLog log;
+  private final ValueCoders coders;
+  private final ConcurrentNavigableMap<Object[], Long> index = new ConcurrentSkipListMap<>(KEY_COMPARATOR);
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, MappedLog log, ValueCoders coders) {
     this.name = name;
-    this.exchange = exchange;
+    this.log = log;
+    this.coders = coders;
   }
 
   public Storage<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(new Object[] {key}, value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(new Object[] {firstKey, secondKey}, value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(new Object[] {firstKey, secondKey, thirdKey}, value);
   }
 
   public Storage<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(key.clone(), value);
   }
 
-  private Storage<V> doPut(V value) {
+  private Storage<V> doPut(Object[] key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      checkKey(key);
+      byte[] bytes = coders.encode(value);
+      if (bytes.length > MAXIMUM_VALUE_SIZE) {
+        throw new IllegalArgumentException("Value is too big: " + bytes.length + " bytes");
+      }
+      index.put(key, log.append(bytes));
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +99,7 @@ public class Storage<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(new Object[] {key});
   }
 
   /**
@@ -88,8 +107,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -97,8 +115,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   /**
@@ -106,114 +123,88 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(key);
   }
 
-  @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
+  private V doGet(Object[] key) {
     try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
+      return read(index.get(key));
     } catch (Exception e) {
-      // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return doContainsKey(new Object[] {key});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return doContainsKey(new Object[] {firstKey, secondKey});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return doContainsKey(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
+    return doContainsKey(key);
   }
 
-  private boolean doContainsKey() {
+  private boolean doContainsKey(Object[] key) {
     try {
-      exchange.fetch();
-      return exchange.isValueDefined();
+      return index.containsKey(key);
     } catch (Exception e) {
-      // TODO add parameters to message
       throw new IllegalStateException("Fail to check if element is in cache " + name, e);
     }
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(new Object[] {key});
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return doRemove(new Object[] {firstKey, secondKey});
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return doRemove(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(key);
   }
 
-  private boolean doRemove() {
+  private boolean doRemove(Object[] key) {
     try {
-      return exchange.remove();
+      return index.remove(key) != null;
     } catch (Exception e) {
-      // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
   }
 
   /**
-   * Removes everything in the specified group.
-   *
-   * @param group The group name.
+   * Removes the value of the key as well as all the values of its sub-keys.
    */
   public Storage<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(new Object[] {key});
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(new Object[] {firstKey, secondKey});
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public Storage<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(key);
   }
 
-  private Storage<V> doClear() {
+  private Storage<V> doClear(Object[] key) {
     try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
+      index.subMap(key, true, after(key), false).clear();
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to clear values from cache " + name, e);
@@ -224,54 +215,23 @@ public class Storage<V> {
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
-    }
+    index.clear();
   }
 
   /**
    * Returns the set of cache keys associated with this group.
-   * TODO implement a lazy-loading equivalent with Iterator/Iterable
    *
    * @param group The group.
    * @return The set of cache keys for this group.
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(new Object[] {key});
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -280,13 +240,24 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
+    return doKeySet(new Object[0]);
+  }
+
+  /**
+   * Distinct values of the key part that follows the given prefix, in key order. Sub-keys
+   * sharing the same part are skipped with a single index lookup.
+   */
+  private Set<Object> doKeySet(Object[] prefix) {
     try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
+      Set<Object> keys = new LinkedHashSet<>();
+      NavigableMap<Object[], Long> children = children(prefix);
+      Object[] key = children.isEmpty() ? null : children.firstKey();
+      while (key != null) {
+        Object part = key[prefix.length];
+        keys.add(part);
+        Object[] childPrefix = Arrays.copyOf(prefix, prefix.length + 1);
+        childPrefix[prefix.length] = part;
+        key = children.higherKey(after(childPrefix));
       }
       return keys;
     } catch (Exception e) {
@@ -298,182 +269,123 @@ public class Storage<V> {
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return values(new Object[] {firstKey, secondKey});
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return values(new Object[] {firstKey});
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
-  }
-
-  public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return values(new Object[0]);
   }
 
-  public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+  private Iterable<V> values(Object[] prefix) {
+    return Iterables.transform(children(prefix).values(), new Function<Long, V>() {
+      @Override
+      public V apply(@Nullable Long address) {
+        return read(address);
+      }
+    });
   }
 
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
+  public Iterable<Entry<V>> entries() {
+    return entries(new Object[0]);
   }
 
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
+  public Iterable<Entry<V>> entries(Object firstKey) {
+    return entries(new Object[] {firstKey});
   }
 
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+  private Iterable<Entry<V>> entries(Object[] prefix) {
+    return Iterables.transform(children(prefix).entrySet(), new Function<Map.Entry<Object[], Long>, Entry<V>>() {
+      @Override
+      public Entry<V> apply(@Nullable Map.Entry<Object[], Long> entry) {
+        return new Entry<>(entry.getKey().clone(), read(entry.getValue()));
+      }
+    });
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
+  /**
+   * Keys strictly starting with the given prefix
+   */
+  private NavigableMap<Object[], Long> children(Object[] prefix) {
+    if (prefix.length == 0) {
+      return index;
     }
+    return index.subMap(prefix, false, after(prefix), false);
   }
 
-  //
-  // LAZY ITERATORS AND ITERABLES
-  //
-
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
+  @SuppressWarnings("unchecked")
+  @CheckForNull
+  private V read(@Nullable Long address) {
+    if (address == null) {
+      return null;
+    }
+    try {
+      return (V) coders.decode(log.read(address));
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to read element from cache " + name, e);
     }
+  }
 
-    @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
+  private static void checkKey(Object[] key) {
+    for (Object part : key) {
+      if (part != null && !(part instanceof Comparable)) {
+        throw new IllegalArgumentException("Key parts must be null or comparable: " + Arrays.toString(key));
       }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
     }
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
+  /**
+   * Upper bound of the keys starting with the given prefix
+   */
+  private static Object[] after(Object[] prefix) {
+    Object[] bound = Arrays.copyOf(prefix, prefix.length + 1);
+    bound[prefix.length] = AFTER;
+    return bound;
+  }
 
+  private static class KeyComparator implements Comparator<Object[]> {
     @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+    public int compare(Object[] k1, Object[] k2) {
+      int length = Math.min(k1.length, k2.length);
+      for (int i = 0; i < length; i++) {
+        int c = compareParts(k1[i], k2[i]);
+        if (c != 0) {
+          return c;
+        }
       }
+      return Integer.compare(k1.length, k2.length);
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareParts(Object p1, Object p2) {
+      if (p1 == p2) {
+        return 0;
       }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
+      if (p1 == AFTER) {
+        return 1;
       }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
-  }
-
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
+      if (p2 == AFTER) {
+        return -1;
       }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+      if (p1 == null) {
+        return -1;
       }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+      if (p2 == null) {
+        return 1;
       }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
+      if (p1.getClass() == p2.getClass()) {
+        return ((Comparable) p1).compareTo(p2);
       }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+      return p1.getClass().getName().compareTo(p2.getClass().getName());
     }
   }
 
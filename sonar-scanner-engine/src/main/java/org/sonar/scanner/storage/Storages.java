@@ -20,28 +20,29 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-
-import java.util.HashMap;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
+  private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private final Map<String, Storage<?>> cacheMap = new ConcurrentHashMap<>();
+  private final Map<String, MappedLog> logs = new ConcurrentHashMap<>();
+  private final ValueCoders coders = new ValueCoders();
+  private final StoragesManager storagesManager;
+  private File dir;
 
   public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
+    this.storagesManager = storagesManager;
     doStart();
   }
 
@@ -52,48 +53,38 @@ public class Storages implements Startable {
 
   private void doStart() {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
+      dir = Files.createTempDirectory(storagesManager.tempDir().toPath(), "storages").toFile();
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create a cache volume", e);
     }
   }
 
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+    coders.register(clazz, coder);
   }
 
-  public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
+  public synchronized <V> Storage<V> createCache(String cacheName) {
+    Preconditions.checkState(dir != null, "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    MappedLog log = new MappedLog(dir, "storage-" + cacheMap.size(), SEGMENT_SIZE);
+    Storage<V> cache = new Storage<>(cacheName, log, coders);
+    cacheMap.put(cacheName, cache);
+    logs.put(cacheName, log);
+    return cache;
   }
 
   @Override
-  public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
-    }
-
+  public synchronized void stop() {
+    List<MappedLog> toClose = new ArrayList<>(logs.values());
+    logs.clear();
     cacheMap.clear();
+    for (MappedLog log : toClose) {
+      log.close();
+    }
 
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    if (dir != null) {
+      deleteQuietly(dir);
+      dir = null;
     }
   }
 }
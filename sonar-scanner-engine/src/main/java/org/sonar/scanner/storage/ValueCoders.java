@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converts values to and from the bytes stored in segment files. The first byte of
+ * each encoded value identifies how the remaining bytes must be decoded.
+ */
+class ValueCoders {
+
+  private static final byte SERIALIZED = 0;
+  private static final byte STRING = 1;
+  private static final int FIRST_CODER_ID = 2;
+
+  private final List<ValueCoder> coders = new CopyOnWriteArrayList<>();
+  private final Map<Class<?>, Integer> coderIdsByClass = new ConcurrentHashMap<>();
+
+  synchronized void register(Class<?> clazz, ValueCoder coder) {
+    if (coderIdsByClass.containsKey(clazz)) {
+      coders.set(coderIdsByClass.get(clazz) - FIRST_CODER_ID, coder);
+    } else {
+      coders.add(coder);
+      coderIdsByClass.put(clazz, FIRST_CODER_ID + coders.size() - 1);
+    }
+  }
+
+  byte[] encode(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Integer coderId = coderIdOf(value.getClass());
+    if (coderId != null) {
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeByte(coderId);
+      coders.get(coderId - FIRST_CODER_ID).put(value, output);
+      output.flush();
+    } else if (value instanceof String) {
+      bytes.write(STRING);
+      bytes.write(((String) value).getBytes(UTF_8));
+    } else {
+      bytes.write(SERIALIZED);
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+        output.writeObject(value);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  Object decode(byte[] bytes) throws IOException {
+    int coderId = bytes[0];
+    if (coderId == STRING) {
+      return new String(bytes, 1, bytes.length - 1, UTF_8);
+    }
+    ByteArrayInputStream input = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+    if (coderId == SERIALIZED) {
+      try (ObjectInputStream objectInput = new ObjectInputStream(input)) {
+        return objectInput.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+    }
+    return coders.get(coderId - FIRST_CODER_ID).get(new DataInputStream(input));
+  }
+
+  @CheckForNull
+  private Integer coderIdOf(Class<?> clazz) {
+    Class<?> c = clazz;
+    while (c != null) {
+      Integer id = coderIdsByClass.get(c);
+      if (id != null) {
+        return id;
+      }
+      c = c.getSuperclass();
+    }
+    return null;
+  }
+}
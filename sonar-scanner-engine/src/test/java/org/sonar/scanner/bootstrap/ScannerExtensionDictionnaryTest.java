@@ -307,6 +307,25 @@ public class ScannerExtensionDictionnaryTest {
     assertThat(extensions.get(2)).isEqualTo(post);
   }
 
+  @Test
+  public void dependsUpon() {
+    BatchExtension a = new MethodDependentOf(null);
+    BatchExtension b = new MethodDependentOf(a);
+    BatchExtension generates = new GeneratesSomething("foo");
+    BatchExtension dependsUponGenerated = new MethodDependentOf("foo");
+    BatchExtension pre = new PreSensor();
+    BatchExtension post = new PostSensor();
+    ScannerExtensionDictionnary selector = newSelector();
+
+    assertThat(selector.dependsUpon(b, a)).isTrue();
+    assertThat(selector.dependsUpon(a, b)).isFalse();
+    assertThat(selector.dependsUpon(dependsUponGenerated, generates)).isTrue();
+    assertThat(selector.dependsUpon(new ClassDependsUpon(), new ClassDependedUpon())).isTrue();
+    assertThat(selector.dependsUpon(post, pre)).isTrue();
+    assertThat(selector.dependsUpon(pre, post)).isFalse();
+    assertThat(selector.dependsUpon(generates, a)).isFalse();
+  }
+
   @Test
   public void buildStatusCheckersAreExecutedAfterOtherPostJobs() {
     BuildBreaker checker = new BuildBreaker() {
@@ -22,19 +22,25 @@ package org.sonar.scanner.bootstrap;
 import java.io.File;
 import java.io.StringReader;
 import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.WsTestUtil;
+import org.sonar.scanner.profiling.BootstrapProfiling;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ScannerPluginInstallerTest {
@@ -57,7 +63,7 @@ public class ScannerPluginInstallerTest {
   @Test
   public void listRemotePlugins() {
     WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle\nsqale"));
-    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, new BootstrapProfiling());
 
     List<RemotePlugin> remotePlugins = underTest.listRemotePlugins();
     assertThat(remotePlugins).extracting("key").containsOnly("checkstyle", "sqale");
@@ -68,7 +74,7 @@ public class ScannerPluginInstallerTest {
     File pluginJar = temp.newFile();
     when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
 
-    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, new BootstrapProfiling());
 
     RemotePlugin remote = new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1");
     File file = underTest.download(remote);
@@ -76,11 +82,41 @@ public class ScannerPluginInstallerTest {
     assertThat(file).isEqualTo(pluginJar);
   }
 
+  @Test
+  public void download_plugins_concurrently() throws Exception {
+    File pluginJar = FileUtils.toFile(getClass().getResource("ScannerPluginJarExploderTest/sonar-checkstyle-plugin-2.8.jar"));
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt",
+      new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1\nsqale,true,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    when(fileCache.get(anyString(), anyString(), any(FileCache.Downloader.class))).thenReturn(pluginJar);
+    BootstrapProfiling bootstrapProfiling = new BootstrapProfiling();
+
+    Map<String, PluginInfo> infos = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, bootstrapProfiling).installRemotes();
+
+    assertThat(infos).containsOnlyKeys("checkstyle");
+    verify(fileCache).get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class));
+    verify(fileCache).get(eq("sqale-plugin.jar"), eq("fakemd5_2"), any(FileCache.Downloader.class));
+    assertThat(bootstrapProfiling.durationsByStep()).containsOnlyKeys("Load plugins index", "Load plugins");
+  }
+
+  @Test
+  public void fail_if_a_plugin_can_not_be_downloaded() {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt",
+      new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1\nsqale,true,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    when(fileCache.get(anyString(), anyString(), any(FileCache.Downloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: ");
+
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, new BootstrapProfiling()).installRemotes();
+  }
+
   @Test
   public void should_fail_to_get_plugin_index() {
     WsTestUtil.mockException(wsClient, "/deploy/plugins/index.txt", new IllegalStateException());
     thrown.expect(IllegalStateException.class);
 
-    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, new BootstrapProfiling()).installRemotes();
   }
 }
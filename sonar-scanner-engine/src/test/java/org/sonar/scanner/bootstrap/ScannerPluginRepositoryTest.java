@@ -26,6 +26,7 @@ import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginLoader;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
 import org.sonar.scanner.bootstrap.PluginInstaller;
+import org.sonar.scanner.profiling.BootstrapProfiling;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -38,7 +39,7 @@ public class ScannerPluginRepositoryTest {
 
   PluginInstaller installer = mock(PluginInstaller.class);
   PluginLoader loader = mock(PluginLoader.class);
-  ScannerPluginRepository underTest = new ScannerPluginRepository(installer, loader);
+  ScannerPluginRepository underTest = new ScannerPluginRepository(installer, loader, new BootstrapProfiling());
 
   @Test
   public void install_and_load_plugins() {
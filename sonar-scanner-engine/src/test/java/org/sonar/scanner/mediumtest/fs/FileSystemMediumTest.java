@@ -23,6 +23,8 @@ import com.google.common.collect.ImmutableMap;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.junit.After;
@@ -33,6 +35,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputDir;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputDir;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.System2;
@@ -578,4 +581,43 @@ public class FileSystemMediumTest {
     assertThat(result.inputDirs()).hasSize(4);
   }
 
+  @Test
+  public void scanMultiModuleProjectConcurrently() {
+    File projectDir = new File("src/test/resources/mediumtest/xoo/multi-modules-sample");
+    TaskResult result = tester
+      .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.scanner.moduleThreads", "3")
+      .start();
+
+    assertThat(result.inputFiles()).hasSize(4);
+    assertThat(result.inputDirs()).hasSize(4);
+  }
+
+  @Test
+  public void scanMultiModuleProjectConcurrentlyWithSameComponentRefs() {
+    File projectDir = new File("src/test/resources/mediumtest/xoo/multi-modules-sample");
+
+    Map<String, Integer> firstRefs = scanConcurrentlyAndGetRefs(projectDir);
+    Map<String, Integer> secondRefs = scanConcurrentlyAndGetRefs(projectDir);
+
+    assertThat(firstRefs).hasSize(8);
+    assertThat(secondRefs).isEqualTo(firstRefs);
+  }
+
+  private Map<String, Integer> scanConcurrentlyAndGetRefs(File projectDir) {
+    TaskResult result = tester
+      .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.scanner.moduleThreads", "3")
+      .start();
+
+    Map<String, Integer> refs = new HashMap<>();
+    for (InputFile inputFile : result.inputFiles()) {
+      refs.put(inputFile.key(), ((DefaultInputFile) inputFile).batchId());
+    }
+    for (InputDir inputDir : result.inputDirs()) {
+      refs.put(inputDir.key(), ((DefaultInputDir) inputDir).batchId());
+    }
+    return refs;
+  }
+
 }
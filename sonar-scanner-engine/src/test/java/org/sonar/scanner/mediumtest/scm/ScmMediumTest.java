@@ -255,6 +255,33 @@ public class ScmMediumTest {
     assertThat(logTester.logs()).containsSubsequence(MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES, "  * " + noBlameScmOnServer.getPath().replaceAll("\\\\", "/"));
   }
 
+  @Test
+  public void reuse_blame_of_unchanged_files_from_local_cache() throws IOException, URISyntaxException {
+    File baseDir = prepareProject();
+    TaskBuilder taskBuilder = tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .build());
+    taskBuilder.start();
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetIndexByLineList()).hasSize(5);
+
+    // blame would fail without the .scm file
+    new File(baseDir, "src/sample.xoo.scm").delete();
+    taskBuilder.start();
+
+    ScannerReport.Changesets fileScm = getChangesets(baseDir, "src/sample.xoo");
+    assertThat(fileScm.getChangesetIndexByLineList()).hasSize(5);
+    assertThat(fileScm.getChangeset(fileScm.getChangesetIndexByLine(4)).getAuthor()).isEqualTo("simon");
+    assertThat(logTester.logs()).contains("1 files with blame information found in local cache");
+  }
+
   @Test
   public void forceReload() throws IOException, URISyntaxException {
 
@@ -0,0 +1,237 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.resources.Project;
+import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private DefaultInputModule module = new DefaultInputModule("project");
+  private ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+  private SensorContext context = mock(SensorContext.class);
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void execute_sensors_sequentially_by_default() {
+    Sensor sensor1 = mock(Sensor.class);
+    Sensor sensor2 = mock(Sensor.class);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+
+    verify(sensor1).analyse(any(Project.class), eq(context));
+    verify(sensor2).analyse(any(Project.class), eq(context));
+  }
+
+  @Test
+  public void execute_thread_safe_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AwaitingSensor sensor1 = new AwaitingSensor(bothStarted, true);
+    AwaitingSensor sensor2 = new AwaitingSensor(bothStarted, true);
+    Sensor notThreadSafe = mock(Sensor.class);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(wrap(sensor1), wrap(sensor2), notThreadSafe));
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+
+    // would have timed out if sensors were executed one after the other
+    assertThat(sensor1.executed).isTrue();
+    assertThat(sensor2.executed).isTrue();
+    verify(notThreadSafe).analyse(any(Project.class), eq(context));
+  }
+
+  @Test
+  public void do_not_execute_other_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AwaitingSensor sensor1 = new AwaitingSensor(bothStarted, false);
+    AwaitingSensor sensor2 = new AwaitingSensor(bothStarted, false);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(wrap(sensor1), wrap(sensor2)));
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+
+    // first sensor timed out waiting for the second one
+    assertThat(sensor1.executed).isFalse();
+    assertThat(sensor2.executed).isTrue();
+  }
+
+  @Test
+  public void do_not_execute_thread_safe_sensors_concurrently_with_the_other_ones() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 4);
+    AtomicInteger running = new AtomicInteger();
+    AtomicBoolean overlap = new AtomicBoolean();
+    Sensor sequential = mock(Sensor.class);
+    doAnswer(invocation -> {
+      if (running.get() != 0) {
+        overlap.set(true);
+      }
+      Thread.sleep(20);
+      if (running.get() != 0) {
+        overlap.set(true);
+      }
+      return null;
+    }).when(sequential).analyse(any(Project.class), eq(context));
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(
+      wrap(new CountingSensor(running)), wrap(new CountingSensor(running)), sequential,
+      wrap(new CountingSensor(running)), sequential, wrap(new CountingSensor(running))));
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+
+    assertThat(overlap.get()).isFalse();
+  }
+
+  @Test
+  public void do_not_execute_dependent_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AwaitingSensor sensor1 = new AwaitingSensor(bothStarted, true, 1);
+    AwaitingSensor sensor2 = new AwaitingSensor(bothStarted, true, 1);
+    SensorWrapper wrapper1 = wrap(sensor1);
+    SensorWrapper wrapper2 = wrap(sensor2);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(wrapper1, wrapper2));
+    when(selector.dependsUpon(wrapper2, wrapper1)).thenReturn(true);
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+
+    // first sensor timed out waiting for the second one
+    assertThat(sensor1.executed).isFalse();
+    assertThat(sensor2.executed).isTrue();
+  }
+
+  @Test
+  public void propagate_failure_of_concurrent_sensor() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    org.sonar.api.batch.sensor.Sensor failing = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        descriptor.name("Failing").threadSafe();
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalArgumentException("BOOM");
+      }
+    };
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(wrap(failing), wrap(new CountingSensor(new AtomicInteger()))));
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("BOOM");
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), settings).execute(context);
+  }
+
+  private static SensorWrapper wrap(org.sonar.api.batch.sensor.Sensor sensor) {
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+
+  /**
+   * Waits for another sensor to be started. Only succeeds if both are executed at the same time.
+   */
+  private static class AwaitingSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final CountDownLatch bothStarted;
+    private final boolean threadSafe;
+    private final int timeoutSeconds;
+    private volatile boolean executed = false;
+
+    AwaitingSensor(CountDownLatch bothStarted, boolean threadSafe) {
+      this(bothStarted, threadSafe, threadSafe ? 10 : 1);
+    }
+
+    AwaitingSensor(CountDownLatch bothStarted, boolean threadSafe, int timeoutSeconds) {
+      this.bothStarted = bothStarted;
+      this.threadSafe = threadSafe;
+      this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("Awaiting");
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      bothStarted.countDown();
+      try {
+        executed = bothStarted.await(timeoutSeconds, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Thread-safe sensor which counts the sensors being executed
+   */
+  private static class CountingSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final AtomicInteger running;
+
+    CountingSensor(AtomicInteger running) {
+      this.running = running;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("Counting").threadSafe();
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      running.incrementAndGet();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+}
@@ -20,9 +20,13 @@
 package org.sonar.scanner.profiling;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -57,14 +61,17 @@ public class PhasesSumUpTimeProfilerTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   private MockedSystem clock;
+  private BootstrapProfiling bootstrapProfiling = new BootstrapProfiling();
+  private File workingDir;
   private PhasesSumUpTimeProfiler profiler;
 
   @Before
   public void prepare() throws Exception {
     clock = new MockedSystem();
     Map<String, String> props = Maps.newHashMap();
-    props.put(CoreProperties.WORKING_DIRECTORY, temp.newFolder().getAbsolutePath());
-    profiler = new PhasesSumUpTimeProfiler(clock, new GlobalProperties(props));
+    workingDir = temp.newFolder();
+    props.put(CoreProperties.WORKING_DIRECTORY, workingDir.getAbsolutePath());
+    profiler = new PhasesSumUpTimeProfiler(clock, new GlobalProperties(props), bootstrapProfiling);
   }
 
   @Test
@@ -102,6 +109,21 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.totalProfiling.getProfilingPerPhase(Phase.POSTJOB).getProfilingPerItem(new FakePostJob()).totalTime()).isEqualTo(90L);
   }
 
+  @Test
+  public void dump_bootstrap_timings_at_the_end_of_root_module() throws Exception {
+    bootstrapProfiling.add("Load plugins index", 12L);
+    bootstrapProfiling.add("Load plugins", 300L);
+    bootstrapProfiling.add("Load plugins", 20L);
+
+    fakeAnalysis(profiler, mockProject("my:project", true));
+
+    Properties props = new Properties();
+    try (FileInputStream input = new FileInputStream(new File(workingDir, "profiling/bootstrap-profiler.properties"))) {
+      props.load(input);
+    }
+    assertThat(props).containsOnly(entry("Load plugins index", "12"), entry("Load plugins", "320"));
+  }
+
   @Test
   public void testDisplayTimings() {
     AbstractTimeProfiling profiling = new AbstractTimeProfiling(System2.INSTANCE) {
@@ -39,10 +39,12 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.scan.measure.CoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -56,6 +58,7 @@ public class MeasuresPublisherTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   private MeasureCache measureCache;
+  private CoverageCache coverageCache = new CoverageCache();
   private MeasuresPublisher publisher;
 
   private InputComponentStore componentCache;
@@ -73,7 +76,7 @@ public class MeasuresPublisherTest {
     componentCache.put(inputFile);
     measureCache = mock(MeasureCache.class);
     when(measureCache.byComponentKey(anyString())).thenReturn(Collections.<DefaultMeasure<?>>emptyList());
-    publisher = new MeasuresPublisher(componentCache, measureCache, mock(TestPlanBuilder.class));
+    publisher = new MeasuresPublisher(componentCache, measureCache, coverageCache, mock(TestPlanBuilder.class));
     outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -96,6 +99,21 @@ public class MeasuresPublisherTest {
     }
   }
 
+  @Test
+  public void publish_line_coverage_data() throws Exception {
+    coverageCache.forFile(inputFile).mergeHits(1, 2).mergeHits(3, 0).mergeConditions(1, 4).mergeCoveredConditions(1, 3);
+
+    publisher.publish(writer);
+    ScannerReportReader reader = new ScannerReportReader(outputDir);
+
+    try (CloseableIterator<ScannerReport.Measure> componentMeasures = reader.readComponentMeasures(inputFile.batchId())) {
+      assertThat(componentMeasures).extracting("metricKey", "stringValue.value").containsOnly(
+        tuple(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, "1=2;3=0"),
+        tuple(CoreMetrics.CONDITIONS_BY_LINE_KEY, "1=4"),
+        tuple(CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, "1=3"));
+    }
+  }
+
   @Test
   public void fail_with_IAE_when_measure_has_no_value() throws Exception {
     DefaultMeasure<Integer> measure = new DefaultMeasure<Integer>().forMetric(CoreMetrics.LINES_TO_COVER);
@@ -19,12 +19,16 @@
  */
 package org.sonar.scanner.report;
 
+import com.google.protobuf.Message;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -47,6 +51,8 @@ import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 import org.sonarqube.ws.WsCe;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -55,6 +61,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -201,4 +208,64 @@ public class ReportPublisherTest {
       entry("projectKey", "struts"));
   }
 
+  @Test
+  public void upload_big_report_in_chunks_and_resume_after_failure() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    settings.setProperty(ReportPublisher.UPLOAD_CHUNK_SIZE_PROP_KEY, "4");
+    File report = temp.newFile();
+    FileUtils.write(report, "0123456789", StandardCharsets.UTF_8);
+
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(response(uploadResponse(0L)))
+      .thenReturn(response(uploadResponse(4L)))
+      .thenThrow(new IllegalStateException("Connection reset"))
+      .thenReturn(response(uploadResponse(8L)))
+      .thenReturn(response(uploadResponse(10L)))
+      .thenReturn(response(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build()));
+
+    assertThat(underTest.upload(report)).isEqualTo("TASK_1");
+
+    ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(6)).call(capture.capture());
+    assertThat(capture.getAllValues()).extracting(WsRequest::getPath).containsExactly(
+      "api/ce/upload_init", "api/ce/upload_append", "api/ce/upload_append", "api/ce/upload_init", "api/ce/upload_append", "api/ce/upload_commit");
+    assertThat(capture.getAllValues().get(3).getParams()).contains(entry("uploadId", "UPLOAD_1"), entry("projectKey", "struts"));
+    PostRequest lastChunk = (PostRequest) capture.getAllValues().get(4);
+    assertThat(lastChunk.getParams()).contains(entry("offset", "8"));
+    assertThat(lastChunk.getParts().get("chunk").getOffset()).isEqualTo(8L);
+    assertThat(lastChunk.getParts().get("chunk").getLength()).isEqualTo(2L);
+    assertThat(capture.getAllValues().get(5).getParams()).contains(entry("uploadId", "UPLOAD_1"), entry("projectKey", "struts"));
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly("Fail to upload analysis report at offset 8, upload is resumed: Connection reset");
+  }
+
+  @Test
+  public void submit_big_report_at_once_when_upload_in_chunks_is_refused() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    settings.setProperty(ReportPublisher.UPLOAD_CHUNK_SIZE_PROP_KEY, "4");
+    File report = temp.newFile();
+    FileUtils.write(report, "0123456789", StandardCharsets.UTF_8);
+    WsResponse refused = mock(WsResponse.class);
+    when(refused.failIfNotSuccessful()).thenThrow(new HttpException("http://foo/api/ce/upload_init", 404, "not found"));
+
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(refused)
+      .thenReturn(response(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build()));
+
+    assertThat(underTest.upload(report)).isEqualTo("TASK_1");
+
+    ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(capture.capture());
+    assertThat(capture.getAllValues()).extracting(WsRequest::getPath).containsExactly("api/ce/upload_init", "api/ce/submit");
+  }
+
+  private static WsCe.UploadResponse uploadResponse(long offset) {
+    return WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setOffset(offset).build();
+  }
+
+  private static WsResponse response(Message message) {
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(message.toByteArray()));
+    return response;
+  }
 }
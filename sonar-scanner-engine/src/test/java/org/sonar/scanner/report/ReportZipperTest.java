@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportZipperTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+  private File zipFile;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temp.newFolder();
+    zipFile = new File(temp.newFolder(), "report.zip");
+  }
+
+  @Test
+  public void compress_files_added_in_several_steps() throws Exception {
+    FileUtils.write(new File(dir, "metadata.pb"), "metadata", StandardCharsets.UTF_8);
+    ReportZipper zipper = new ReportZipper(dir, zipFile);
+    zipper.addNewFiles();
+    FileUtils.write(new File(dir, "component-1.pb"), "component", StandardCharsets.UTF_8);
+    zipper.addNewFiles();
+
+    assertThat(zipper.finish()).isTrue();
+    assertThat(entriesOf(zipFile)).containsOnly("metadata.pb", "component-1.pb");
+  }
+
+  @Test
+  public void detect_files_modified_after_being_added() throws Exception {
+    File file = new File(dir, "measures-1.pb");
+    FileUtils.write(file, "measure", StandardCharsets.UTF_8);
+    // entries are compressed as soon as added
+    ReportZipper zipper = new ReportZipper(dir, zipFile, MoreExecutors.newDirectExecutorService());
+    zipper.addNewFiles();
+    FileUtils.write(file, "another measure", StandardCharsets.UTF_8, true);
+
+    assertThat(zipper.finish()).isFalse();
+  }
+
+  @Test
+  public void detect_files_rewritten_with_same_size_and_modification_time() throws Exception {
+    File file = new File(dir, "measures-1.pb");
+    FileUtils.write(file, "measure", StandardCharsets.UTF_8);
+    long lastModified = file.lastModified();
+    // entries are compressed as soon as added
+    ReportZipper zipper = new ReportZipper(dir, zipFile, MoreExecutors.newDirectExecutorService());
+    zipper.addNewFiles();
+    FileUtils.write(file, "MEASURE", StandardCharsets.UTF_8);
+    assertThat(file.setLastModified(lastModified)).isTrue();
+
+    assertThat(zipper.finish()).isFalse();
+  }
+
+  @Test
+  public void detect_files_created_after_last_step() throws Exception {
+    ReportZipper zipper = new ReportZipper(dir, zipFile);
+    zipper.addNewFiles();
+    FileUtils.write(new File(dir, "metadata.pb"), "metadata", StandardCharsets.UTF_8);
+
+    assertThat(zipper.finish()).isFalse();
+  }
+
+  private static List<String> entriesOf(File file) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (ZipFile zip = new ZipFile(file)) {
+      for (ZipEntry entry : Collections.list(zip.entries())) {
+        names.add(entry.getName());
+      }
+    }
+    return names;
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.scanner.report;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -48,12 +49,16 @@ public class SourcePublisherTest {
 
   @Before
   public void prepare() throws IOException {
+    prepare(StandardCharsets.ISO_8859_1);
+  }
+
+  private void prepare(Charset charset) throws IOException {
     File baseDir = temp.newFolder();
     sourceFile = new File(baseDir, "src/Foo.php");
     inputFile = new TestInputFileBuilder("foo", "src/Foo.php")
       .setLines(5)
       .setModuleBaseDir(baseDir.toPath())
-      .setCharset(StandardCharsets.ISO_8859_1)
+      .setCharset(charset)
       .build();
     componentStore = new InputComponentStore();
     componentStore.put(new DefaultInputModule("foo"));
@@ -113,4 +118,37 @@ public class SourcePublisherTest {
     File out = writer.getSourceFile(inputFile.batchId());
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
   }
+
+  @Test
+  public void copyNormalizedUtf8Source() throws Exception {
+    prepare(StandardCharsets.UTF_8);
+    FileUtils.write(sourceFile, "1\n2\n\u00e9\n4\n", StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("1\n2\n\u00e9\n4\n");
+  }
+
+  @Test
+  public void cleanLineEndsAndBomOfUtf8Source() throws Exception {
+    prepare(StandardCharsets.UTF_8);
+    FileUtils.write(sourceFile, "\ufeff1\r\n2\n3\n4\r5", StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("1\n2\n3\n4\n5");
+  }
+
+  @Test
+  public void replaceMalformedUtf8Source() throws Exception {
+    prepare(StandardCharsets.UTF_8);
+    FileUtils.writeByteArrayToFile(sourceFile, new byte[] {'1', '\n', (byte) 0xC3});
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("1\n\ufffd\n");
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchIdGeneratorTest {
+
+  private BatchIdGenerator underTest = new BatchIdGenerator();
+
+  @Test
+  public void generate_ids_starting_at_one() {
+    assertThat(underTest.get()).isEqualTo(1);
+    assertThat(underTest.get()).isEqualTo(2);
+    assertThat(underTest.reserve("module", 10)).isEqualTo(3);
+    assertThat(underTest.get()).isEqualTo(13);
+  }
+
+  @Test
+  public void reserve_ranges_in_expected_order_of_modules() throws Exception {
+    underTest.reserveInOrder(asList("a", "b"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Integer> b = executor.submit(() -> underTest.reserve("b", 5));
+      Thread.sleep(50);
+      assertThat(b.isDone()).isFalse();
+
+      assertThat(underTest.reserve("a", 10)).isEqualTo(1);
+      assertThat(b.get()).isEqualTo(11);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void do_not_wait_for_released_modules() {
+    underTest.reserveInOrder(asList("a", "b"));
+    underTest.release("a");
+
+    assertThat(underTest.reserve("b", 5)).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_wait_for_unexpected_modules() {
+    underTest.reserveInOrder(asList("a", "b"));
+
+    assertThat(underTest.reserve("c", 5)).isEqualTo(1);
+  }
+}
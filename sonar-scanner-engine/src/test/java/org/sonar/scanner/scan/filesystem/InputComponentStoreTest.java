@@ -81,4 +81,19 @@ public class InputComponentStoreTest {
     assertThat(cache.allFiles()).hasSize(1);
   }
 
+  @Test
+  public void should_find_files_by_relative_path_prefix() throws Exception {
+    InputComponentStore cache = new InputComponentStore();
+    for (String relativePath : new String[] {"src/main/Foo.java", "src/main/sub/Bar.java", "src/mainly/Baz.java", "test/Qix.java"}) {
+      cache.put(new TestInputFileBuilder("struts", relativePath).setModuleBaseDir(temp.newFolder().toPath()).build());
+    }
+    cache.put(new TestInputFileBuilder("struts-core", "src/main/Other.java").setModuleBaseDir(temp.newFolder().toPath()).build());
+
+    assertThat(cache.filesByModuleAndRelativePathPrefix("struts", "src/main/")).extracting(InputFile::relativePath)
+      .containsExactly("src/main/Foo.java", "src/main/sub/Bar.java");
+    assertThat(cache.filesByModuleAndRelativePathPrefix("struts", "")).hasSize(4);
+    assertThat(cache.filesByModuleAndRelativePathPrefix("struts", "doc/")).isEmpty();
+    assertThat(cache.filesByModuleAndRelativePathPrefix("unknown", "src/")).isEmpty();
+  }
+
 }
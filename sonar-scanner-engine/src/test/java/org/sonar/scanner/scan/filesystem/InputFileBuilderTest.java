@@ -55,19 +55,19 @@ public class InputFileBuilderTest {
     PathResolver pathResolver = new PathResolver();
     LanguageDetection langDetection = mock(LanguageDetection.class);
     MetadataGenerator metadataGenerator = mock(MetadataGenerator.class);
-    BatchIdGenerator idGenerator = new BatchIdGenerator();
     Settings settings = new MapSettings();
-    builder = new InputFileBuilder(module, pathResolver, langDetection, metadataGenerator, idGenerator, settings);
+    builder = new InputFileBuilder(module, pathResolver, langDetection, metadataGenerator, settings);
   }
 
   @Test
   public void testBuild() {
     Path filePath = baseDir.resolve("src/File1.xoo");
-    DefaultInputFile inputFile = builder.create(filePath, Type.MAIN, StandardCharsets.UTF_8);
+    DefaultInputFile inputFile = builder.create(filePath, Type.MAIN, StandardCharsets.UTF_8, 3);
 
     assertThat(inputFile.moduleKey()).isEqualTo("module1");
     assertThat(inputFile.absolutePath()).isEqualTo(filePath.toString());
     assertThat(inputFile.key()).isEqualTo("module1:src/File1.xoo");
     assertThat(inputFile.publish()).isFalse();
+    assertThat(inputFile.batchId()).isEqualTo(3);
   }
 }
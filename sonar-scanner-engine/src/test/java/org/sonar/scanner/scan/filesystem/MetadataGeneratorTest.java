@@ -22,10 +22,13 @@ package org.sonar.scanner.scan.filesystem;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -57,7 +60,7 @@ public class MetadataGeneratorTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
     metadata = new FileMetadata();
-    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata);
+    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata, false);
   }
 
   @Test
@@ -73,9 +76,9 @@ public class MetadataGeneratorTest {
     assertThat(createInputFileWithMetadata(generator, basedir, "UTF-16LE.txt").charset())
       .isEqualTo(StandardCharsets.UTF_16LE);
     assertThat(createInputFileWithMetadata(generator, basedir, "UTF-32BE.txt").charset())
-      .isEqualTo(MetadataGenerator.UTF_32BE);
+      .isEqualTo(Charset.forName("UTF-32BE"));
     assertThat(createInputFileWithMetadata(generator, basedir, "UTF-32LE.txt").charset())
-      .isEqualTo(MetadataGenerator.UTF_32LE);
+      .isEqualTo(Charset.forName("UTF-32LE"));
 
     try {
       createInputFileWithMetadata(generator, basedir, "non_existing");
@@ -115,4 +118,30 @@ public class MetadataGeneratorTest {
     assertThat(inputFile.relativePath()).isEqualTo("src/main/java/foo/Bar.java");
     assertThat(inputFile.lines()).isEqualTo(1);
   }
+
+  @Test
+  public void compute_line_hashes_with_metadata() throws Exception {
+    Path baseDir = temp.newFolder().toPath();
+    Path srcFile = baseDir.resolve("src/main/java/foo/Bar.java");
+    FileUtils.write(srcFile.toFile(), "foo\n\n bar");
+
+    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata, true);
+    DefaultInputFile inputFile = createInputFileWithMetadata(generator, baseDir, "src/main/java/foo/Bar.java");
+
+    byte[][] hashes = new byte[3][];
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, (line, hash) -> hashes[line - 1] = hash);
+    assertThat(inputFile.lineHashes()).hasSize(3 * FileMetadata.LINE_HASH_SIZE);
+    assertThat(Hex.encodeHexString(hashes[0])).isEqualTo(DigestUtils.md5Hex("foo"));
+    assertThat(hashes[1]).isNull();
+    assertThat(Hex.encodeHexString(hashes[2])).isEqualTo(DigestUtils.md5Hex("bar"));
+  }
+
+  @Test
+  public void dont_compute_line_hashes_by_default() throws Exception {
+    Path baseDir = temp.newFolder().toPath();
+    Path srcFile = baseDir.resolve("src/main/java/foo/Bar.java");
+    FileUtils.write(srcFile.toFile(), "foo");
+
+    assertThat(createInputFileWithMetadata(generator, baseDir, "src/main/java/foo/Bar.java").lineHashes()).isNull();
+  }
 }
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileLineCoverageTest {
+
+  @Test
+  public void sum_hits_and_keep_max_conditions() {
+    FileLineCoverage coverage = new FileLineCoverage(3)
+      .mergeHits(1, 1).mergeHits(1, 1).mergeHits(2, 0)
+      .mergeConditions(1, 2).mergeConditions(1, 4)
+      .mergeCoveredConditions(1, 3).mergeCoveredConditions(1, 1);
+
+    assertThat(coverage.hits(1)).isEqualTo(2);
+    assertThat(coverage.hits(2)).isEqualTo(0);
+    assertThat(coverage.hits(3)).isEqualTo(-1);
+    assertThat(coverage.conditions(1)).isEqualTo(4);
+    assertThat(coverage.coveredConditions(1)).isEqualTo(3);
+    assertThat(coverage.linesToCover()).isEqualTo(2);
+    assertThat(coverage.uncoveredLines()).isEqualTo(1);
+    assertThat(coverage.conditionsToCover()).isEqualTo(4);
+    assertThat(coverage.uncoveredConditions()).isEqualTo(1);
+  }
+
+  @Test
+  public void format_values_sorted_by_line() {
+    FileLineCoverage coverage = new FileLineCoverage(3).mergeHits(3, 1).mergeHits(1, 0).mergeConditions(2, 2);
+
+    assertThat(coverage.formatHits()).isEqualTo("1=0;3=1");
+    assertThat(coverage.formatConditions()).isEqualTo("2=2");
+    assertThat(coverage.formatCoveredConditions()).isEmpty();
+    assertThat(coverage.hasHits()).isTrue();
+    assertThat(coverage.hasConditions()).isTrue();
+    assertThat(coverage.hasCoveredConditions()).isFalse();
+  }
+
+  @Test
+  public void grow_when_line_is_greater_than_expected() {
+    FileLineCoverage coverage = new FileLineCoverage(-1).mergeHits(10, 1);
+
+    assertThat(coverage.lastLine()).isGreaterThanOrEqualTo(10);
+    assertThat(coverage.hits(10)).isEqualTo(1);
+    assertThat(coverage.hits(11)).isEqualTo(-1);
+  }
+}
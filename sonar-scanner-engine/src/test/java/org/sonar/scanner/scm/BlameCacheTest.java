@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.AnalysisMode;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.scan.ImmutableProjectReactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private MapSettings settings = new MapSettings();
+  private File cacheDir;
+  private BlameCache underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = temp.newFolder();
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(cacheDir);
+    ScmConfiguration configuration = new ScmConfiguration(mock(ImmutableProjectReactor.class), mock(AnalysisMode.class), settings);
+    underTest = new BlameCache(configuration, fileCache);
+  }
+
+  @Test
+  public void get_changesets_of_unchanged_file() {
+    underTest.put("xoo", file("Foo.xoo", "hash1"), changesets(12, "simon"));
+
+    ScannerReport.Changesets changesets = underTest.get("xoo", file("Foo.xoo", "hash1"));
+
+    assertThat(changesets.getComponentRef()).isZero();
+    assertThat(changesets.getChangeset(0).getAuthor()).isEqualTo("simon");
+    assertThat(underTest.get("svn", file("Foo.xoo", "hash1"))).isNull();
+    assertThat(underTest.get("xoo", file("Bar.xoo", "hash1"))).isNull();
+  }
+
+  @Test
+  public void keep_a_single_entry_per_file() {
+    underTest.put("xoo", file("Foo.xoo", "hash1"), changesets(12, "simon"));
+    underTest.put("xoo", file("Foo.xoo", "hash2"), changesets(12, "julien"));
+
+    assertThat(underTest.get("xoo", file("Foo.xoo", "hash1"))).isNull();
+    assertThat(underTest.get("xoo", file("Foo.xoo", "hash2")).getChangeset(0).getAuthor()).isEqualTo("julien");
+    assertThat(new File(cacheDir, "_scm").list()).hasSize(1);
+  }
+
+  @Test
+  public void do_not_use_cache_when_disabled() {
+    settings.setProperty(ScmConfiguration.BLAME_CACHE_KEY, false);
+
+    underTest.put("xoo", file("Foo.xoo", "hash1"), changesets(12, "simon"));
+
+    assertThat(underTest.get("xoo", file("Foo.xoo", "hash1"))).isNull();
+  }
+
+  @Test
+  public void remove_least_recently_used_entries_when_stopping() {
+    settings.setProperty(ScmConfiguration.BLAME_CACHE_MAX_ENTRIES_KEY, 2);
+    underTest.put("xoo", file("A.xoo", "hash"), changesets(1, "simon"));
+    underTest.put("xoo", file("B.xoo", "hash"), changesets(1, "simon"));
+    underTest.put("xoo", file("C.xoo", "hash"), changesets(1, "simon"));
+    File[] entries = new File(cacheDir, "_scm").listFiles();
+    for (File entry : entries) {
+      entry.setLastModified(1_000L);
+    }
+    // A and C are used again
+    assertThat(underTest.get("xoo", file("A.xoo", "hash"))).isNotNull();
+    assertThat(underTest.get("xoo", file("C.xoo", "hash"))).isNotNull();
+
+    underTest.stop();
+
+    assertThat(new File(cacheDir, "_scm").list()).hasSize(2);
+    assertThat(underTest.get("xoo", file("A.xoo", "hash"))).isNotNull();
+    assertThat(underTest.get("xoo", file("B.xoo", "hash"))).isNull();
+    assertThat(underTest.get("xoo", file("C.xoo", "hash"))).isNotNull();
+  }
+
+  private static DefaultInputFile file(String relativePath, String hash) {
+    return new TestInputFileBuilder("module", relativePath).setHash(hash).build();
+  }
+
+  private static ScannerReport.Changesets changesets(int componentRef, String author) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(componentRef)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setAuthor(author).setRevision("rev").setDate(1_000L))
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
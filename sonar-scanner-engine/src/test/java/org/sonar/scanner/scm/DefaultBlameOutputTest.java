@@ -29,6 +29,8 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.scanner.scm.DefaultBlameOutput;
 
+import static org.mockito.Mockito.mock;
+
 public class DefaultBlameOutputTest {
 
   @Rule
@@ -38,7 +40,7 @@ public class DefaultBlameOutputTest {
   public void shouldNotFailIfNotSameNumberOfLines() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
 
-    new DefaultBlameOutput(null, Arrays.asList(file)).blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
+    new DefaultBlameOutput(null, mock(BlameCache.class), "xoo", Arrays.asList(file)).blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
   @Test
@@ -48,7 +50,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("It was not expected to blame file src/main/java/Foo.java");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()))
+    new DefaultBlameOutput(null, mock(BlameCache.class), "xoo", Arrays.<InputFile>asList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()))
       .blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -59,7 +61,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame date is null for file src/main/java/Foo.java at line 1");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file))
+    new DefaultBlameOutput(null, mock(BlameCache.class), "xoo", Arrays.<InputFile>asList(file))
       .blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -70,7 +72,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame revision is blank for file src/main/java/Foo.java at line 1");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file))
+    new DefaultBlameOutput(null, mock(BlameCache.class), "xoo", Arrays.<InputFile>asList(file))
       .blameResult(file, Arrays.asList(new BlameLine().date(new Date()).author("guy")));
   }
 
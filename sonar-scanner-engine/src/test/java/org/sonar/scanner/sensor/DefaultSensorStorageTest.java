@@ -31,6 +31,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
 import org.sonar.api.batch.sensor.highlighting.internal.DefaultHighlighting;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
@@ -44,6 +45,8 @@ import org.sonar.scanner.issue.ModuleIssues;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.repository.ContextPropertiesCache;
+import org.sonar.scanner.scan.measure.CoverageCache;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.sensor.coverage.CoverageExclusions;
 
@@ -66,6 +69,7 @@ public class DefaultSensorStorageTest {
   private Settings settings;
   private ModuleIssues moduleIssues;
   private MeasureCache measureCache;
+  private CoverageCache coverageCache = new CoverageCache();
   private ContextPropertiesCache contextPropertiesCache = new ContextPropertiesCache();
 
   @Before
@@ -73,6 +77,8 @@ public class DefaultSensorStorageTest {
     MetricFinder metricFinder = mock(MetricFinder.class);
     when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
     when(metricFinder.<String>findByKey(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY)).thenReturn(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+    when(metricFinder.<String>findByKey(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(CoreMetrics.COVERAGE_LINE_HITS_DATA);
+    when(metricFinder.<String>findByKey(CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(CoreMetrics.COVERED_CONDITIONS_BY_LINE);
     settings = new MapSettings();
     moduleIssues = mock(ModuleIssues.class);
     measureCache = mock(MeasureCache.class);
@@ -81,7 +87,7 @@ public class DefaultSensorStorageTest {
     ReportPublisher reportPublisher = mock(ReportPublisher.class);
     when(reportPublisher.getWriter()).thenReturn(new ScannerReportWriter(temp.newFolder()));
     underTest = new DefaultSensorStorage(metricFinder,
-      moduleIssues, settings, coverageExclusions, reportPublisher, measureCache,
+      moduleIssues, settings, coverageExclusions, reportPublisher, measureCache, coverageCache,
       mock(SonarCpdBlockIndex.class), contextPropertiesCache, new ScannerMetrics());
   }
 
@@ -180,14 +186,41 @@ public class DefaultSensorStorageTest {
   }
 
   @Test
-  public void mergeCoverageLineMetrics_should_be_sorted() {
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1", "1=1")).isEqualTo("1=2");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1", "2=1")).isEqualTo("1=1;2=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "2=1", "1=1")).isEqualTo("1=1;2=1");
-
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "1=1", "1=1")).isEqualTo("1=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "1=1", "2=1")).isEqualTo("1=1;2=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "2=1", "1=1")).isEqualTo("1=1;2=1");
+  public void mergeCoverageLineMetrics_should_be_sorted() throws Exception {
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(5).setModuleBaseDir(temp.newFolder().toPath()).build();
+
+    underTest.saveMeasure(file, new DefaultMeasure<String>().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue("2=1;1=1"));
+    underTest.saveMeasure(file, new DefaultMeasure<String>().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue("1=1"));
+    underTest.saveMeasure(file, new DefaultMeasure<String>().forMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE).withValue("2=1"));
+    underTest.saveMeasure(file, new DefaultMeasure<String>().forMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE).withValue("1=1;2=0"));
+
+    FileLineCoverage coverage = coverageCache.byFileKey(file.key());
+    assertThat(coverage.formatHits()).isEqualTo("1=2;2=1");
+    assertThat(coverage.formatCoveredConditions()).isEqualTo("1=1;2=1");
+    assertThat(coverage.hasConditions()).isFalse();
+  }
+
+  @Test
+  public void should_merge_coverage() throws Exception {
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(5).setModuleBaseDir(temp.newFolder().toPath()).build();
+
+    underTest.store((DefaultCoverage) new DefaultCoverage().onFile(file).lineHits(1, 1).lineHits(3, 0).conditions(1, 4, 2));
+    underTest.store((DefaultCoverage) new DefaultCoverage().onFile(file).lineHits(1, 2).lineHits(2, 0).conditions(1, 4, 3));
+
+    FileLineCoverage coverage = coverageCache.byFileKey(file.key());
+    assertThat(coverage.formatHits()).isEqualTo("1=3;2=0;3=0");
+    assertThat(coverage.formatConditions()).isEqualTo("1=4");
+    assertThat(coverage.formatCoveredConditions()).isEqualTo("1=3");
+  }
+
+  @Test
+  public void fail_to_store_negative_line_hits() throws Exception {
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(5).setModuleBaseDir(temp.newFolder().toPath()).build();
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Hits on line 1 of the file src/Foo.php must not be negative: -1");
+
+    new DefaultCoverage().onFile(file).lineHits(1, -1);
   }
 
 }
@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.source;
+
+import java.io.File;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.scanner.scan.measure.CoverageCache;
+import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.scanner.sensor.coverage.CoverageExclusions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ZeroCoverageSensorTest {
+
+  private MeasureCache measureCache = mock(MeasureCache.class);
+  private CoverageCache coverageCache = new CoverageCache();
+  private ZeroCoverageSensor underTest = new ZeroCoverageSensor(measureCache, coverageCache, mock(CoverageExclusions.class));
+  private SensorContextTester context = spy(SensorContextTester.create(new File("")));
+  private DefaultInputFile file;
+
+  @Before
+  public void setUp() {
+    file = new TestInputFileBuilder("foo", "src/Foo.java")
+      .setType(InputFile.Type.MAIN)
+      .initMetadata("a\nb\nc\n")
+      .build();
+    context.fileSystem().add(file);
+    when(measureCache.byComponentKey(file.key())).thenReturn(Collections.emptyList());
+    doReturn(new DefaultMeasure<String>().forMetric(CoreMetrics.EXECUTABLE_LINES_DATA).withValue("1=1;2=0;3=1"))
+      .when(measureCache).byMetric(file.key(), CoreMetrics.EXECUTABLE_LINES_DATA_KEY);
+  }
+
+  @Test
+  public void store_zero_coverage_on_executable_lines_of_file_without_coverage() {
+    underTest.execute(context);
+
+    assertThat(context.lineHits(file.key(), 1)).isEqualTo(0);
+    assertThat(context.lineHits(file.key(), 2)).isNull();
+    assertThat(context.lineHits(file.key(), 3)).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_store_zero_coverage_on_file_with_line_coverage() {
+    coverageCache.forFile(file).mergeHits(1, 3);
+
+    underTest.execute(context);
+
+    verify(context, never()).newCoverage();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedLogTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void read_appended_records() throws Exception {
+    MappedLog log = new MappedLog(temp.newFolder(), "test", 16);
+
+    long first = log.append("first".getBytes(UTF_8));
+    long second = log.append("second record".getBytes(UTF_8));
+
+    assertThat(second >>> 32).isEqualTo(1L);
+    assertThat(new String(log.read(first), UTF_8)).isEqualTo("first");
+    assertThat(new String(log.read(second), UTF_8)).isEqualTo("second record");
+  }
+
+  @Test
+  public void close_unmaps_and_deletes_segments() throws Exception {
+    File dir = temp.newFolder();
+    MappedLog log = new MappedLog(dir, "test", 16);
+    log.append("first".getBytes(UTF_8));
+    log.append("second record".getBytes(UTF_8));
+    assertThat(dir.list()).hasSize(2);
+
+    log.close();
+
+    assertThat(dir.list()).isEmpty();
+  }
+
+  @Test
+  public void fail_to_read_when_closed() throws Exception {
+    MappedLog log = new MappedLog(temp.newFolder(), "test", 16);
+    long address = log.append("first".getBytes(UTF_8));
+    log.close();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Storage is closed: test");
+
+    log.read(address);
+  }
+
+  @Test
+  public void fail_to_append_when_closed() throws Exception {
+    MappedLog log = new MappedLog(temp.newFolder(), "test", 16);
+    log.close();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Storage is closed: test");
+
+    log.append("first".getBytes(UTF_8));
+  }
+
+  @Test
+  public void unmap_is_supported_by_the_running_jvm() throws Exception {
+    try (RandomAccessFile file = new RandomAccessFile(temp.newFile(), "rw"); FileChannel channel = file.getChannel()) {
+      assertThat(MappedLog.unmap(channel.map(FileChannel.MapMode.READ_WRITE, 0, 16))).isTrue();
+    }
+  }
+}
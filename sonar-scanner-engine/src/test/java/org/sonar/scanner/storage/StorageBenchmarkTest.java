@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.persistit.Exchange;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import com.persistit.Volume;
+import java.io.File;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.sonar.scanner.index.AbstractCachesTest;
+import org.sonar.test.Benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the memory-mapped {@link Storage} with the Persistit engine it replaced, using the
+ * Persistit configuration of the scanner.
+ *
+ * @see Benchmark
+ */
+public class StorageBenchmarkTest extends AbstractCachesTest {
+
+  private static final int COMPONENTS = Benchmark.size(100, 10_000);
+  private static final int METRICS = 20;
+  private static final int THREADS = 4;
+
+  @Test
+  public void compare_with_persistit() throws Exception {
+    long persistitNs = persistit();
+    long storageNs = storage(1);
+    long concurrentStorageNs = storage(THREADS);
+
+    Benchmark.assertFaster("storage", storageNs, "persistit", persistitNs);
+    Benchmark.assertFaster("storage with " + THREADS + " threads", concurrentStorageNs, "storage", storageNs);
+  }
+
+  private long storage(int threads) throws Exception {
+    Storage<String> storage = caches.createCache("bench" + threads);
+    long duration = Benchmark.nanos(() -> {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        executor.submit(() -> {
+          for (int c = thread; c < COMPONENTS; c += threads) {
+            for (int m = 0; m < METRICS; m++) {
+              storage.put("component" + c, "metric" + m, "value" + c + m);
+            }
+            for (int m = 0; m < METRICS; m++) {
+              storage.get("component" + c, "metric" + m);
+            }
+          }
+        });
+      }
+      executor.shutdown();
+      assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+    });
+    assertThat(storage.get("component0", "metric0")).isEqualTo("value00");
+    return duration;
+  }
+
+  private long persistit() throws Exception {
+    File dir = temp.newFolder();
+    Persistit persistit = new Persistit();
+    Properties props = new Properties();
+    props.setProperty("datapath", dir.getAbsolutePath());
+    props.setProperty("logpath", "${datapath}/log");
+    props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
+    props.setProperty("buffer.count.8192", "10");
+    props.setProperty("journalpath", "${datapath}/journal");
+    props.setProperty("tmpvoldir", "${datapath}");
+    props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
+    props.setProperty("jmx", "false");
+    persistit.setProperties(props);
+    persistit.initialize();
+    try {
+      Volume volume = persistit.createTemporaryVolume();
+      Exchange exchange = persistit.getExchange(volume, "bench", true);
+      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+      long duration = Benchmark.nanos(() -> {
+        for (int c = 0; c < COMPONENTS; c++) {
+          for (int m = 0; m < METRICS; m++) {
+            exchange.clear().append("component" + c).append("metric" + m);
+            exchange.getValue().put("value" + c + m);
+            exchange.store();
+          }
+          for (int m = 0; m < METRICS; m++) {
+            exchange.clear().append("component" + c).append("metric" + m);
+            exchange.fetch();
+            exchange.getValue().get();
+          }
+        }
+      });
+      persistit.releaseExchange(exchange);
+      volume.close();
+      volume.delete();
+      return duration;
+    } finally {
+      persistit.close(false);
+    }
+  }
+}
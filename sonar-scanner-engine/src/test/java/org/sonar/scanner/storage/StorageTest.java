@@ -20,6 +20,11 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -249,4 +254,45 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void concurrent_writers() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          cache.put(thread, i, "value" + thread + "-" + i);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertThat(cache.keySet()).containsExactly(0, 1, 2, 3);
+    for (int t = 0; t < 4; t++) {
+      assertThat(cache.values(t)).hasSize(10_000);
+    }
+    assertThat(cache.get(2, 42)).isEqualTo("value2-42");
+  }
+
+  @Test
+  public void value_bigger_than_segment() {
+    Storage<String> cache = caches.createCache("big");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20 * 1024 * 1024; i++) {
+      sb.append('a');
+    }
+    cache.put("small", "a");
+    cache.put("big", sb.toString());
+    cache.put("small2", "b");
+
+    assertThat(cache.get("big")).isEqualTo(sb.toString());
+    assertThat(cache.get("small")).isEqualTo("a");
+    assertThat(cache.get("small2")).isEqualTo("b");
+  }
 }
@@ -21,7 +21,6 @@ package org.sonar.scanner.storage;
 
 import java.io.Serializable;
 
-import com.persistit.exception.PersistitException;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -57,8 +56,9 @@ public class StoragesTest extends AbstractCachesTest {
 
     caches.stop();
 
-    // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    // segment files are deleted, manager continues up
+    assertThat(cachesManager.tempDir()).isDirectory();
+    assertThat(cachesManager.tempDir().list()).isEmpty();
 
     caches = new Storages(cachesManager);
     caches.start();
@@ -66,7 +66,7 @@ public class StoragesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -80,9 +80,10 @@ public class StoragesTest extends AbstractCachesTest {
       caches.start();
       Storage<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
+      assertThat(c.get("key" + i)).isEqualTo(sb.toString());
 
       caches.stop();
+      assertThat(cachesManager.tempDir().list()).isEmpty();
     }
   }
 
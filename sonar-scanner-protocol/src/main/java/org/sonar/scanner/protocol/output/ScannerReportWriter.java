@@ -26,15 +26,24 @@ import java.io.OutputStream;
 import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
 
+/**
+ * Files are written once per component, except issues which can be appended concurrently.
+ */
 public class ScannerReportWriter {
 
+  private static final int ISSUE_LOCK_STRIPES = 64;
+
   private final FileStructure fileStructure;
+  private final Object[] issueLocks = new Object[ISSUE_LOCK_STRIPES];
 
   public ScannerReportWriter(File dir) {
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    for (int i = 0; i < issueLocks.length; i++) {
+      issueLocks[i] = new Object();
+    }
   }
 
   public FileStructure getFileStructure() {
@@ -73,10 +82,12 @@ public class ScannerReportWriter {
 
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write issue", e).addContext("file", file);
+    synchronized (issueLocks[Math.floorMod(componentRef, ISSUE_LOCK_STRIPES)]) {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+        issue.writeDelimitedTo(out);
+      } catch (Exception e) {
+        throw ContextException.of("Unable to write issue", e).addContext("file", file);
+      }
     }
   }
 
@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Utilities for benchmark tests, which compare the duration of an implementation with a reference one.
+ * By default inputs are small and durations are only printed. The {@code runBenchmarks} profile sets the
+ * system property {@code enableBenchmarkAssertions}, which enables realistic inputs and assertions on durations.
+ */
+public final class Benchmark {
+
+  private static final boolean ENABLED = Boolean.getBoolean("enableBenchmarkAssertions");
+
+  private Benchmark() {
+  }
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Size of the inputs: {@code benchmarkSize} when benchmarks are enabled, else {@code defaultSize}.
+   */
+  public static int size(int defaultSize, int benchmarkSize) {
+    return ENABLED ? benchmarkSize : defaultSize;
+  }
+
+  /**
+   * Duration of the execution of the step, in nanoseconds
+   */
+  public static long nanos(Step step) throws Exception {
+    long start = System.nanoTime();
+    step.run();
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Prints both durations and, when benchmarks are enabled, verifies that the first one is shorter.
+   */
+  public static void assertFaster(String label, long nanos, String referenceLabel, long referenceNanos) {
+    System.out.println(String.format("%s: %d ms, %s: %d ms", label, TimeUnit.NANOSECONDS.toMillis(nanos),
+      referenceLabel, TimeUnit.NANOSECONDS.toMillis(referenceNanos)));
+    if (ENABLED) {
+      assertThat(nanos).as("%s is faster than %s", label, referenceLabel).isLessThan(referenceNanos);
+    }
+  }
+
+  @FunctionalInterface
+  public interface Step {
+    void run() throws Exception;
+  }
+}
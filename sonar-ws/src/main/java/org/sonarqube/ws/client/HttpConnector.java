@@ -136,7 +136,7 @@ public class HttpConnector implements WsConnector {
         PostRequest.Part part = param.getValue();
         bodyBuilder.addPart(
           Headers.of("Content-Disposition", format("form-data; name=\"%s\"", param.getKey())),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          createBody(part));
       });
       body = bodyBuilder.build();
     }
@@ -144,6 +144,14 @@ public class HttpConnector implements WsConnector {
     return doCall(reqBuilder.post(body).build());
   }
 
+  private static RequestBody createBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    if (part.getLength() < 0) {
+      return RequestBody.create(mediaType, part.getFile());
+    }
+    return new FileRangeRequestBody(mediaType, part.getFile(), part.getOffset(), part.getLength());
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
@@ -51,10 +51,24 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final long offset;
+    private final long length;
 
     public Part(String mediaType, File file) {
+      this(mediaType, file, 0L, -1L);
+    }
+
+    /**
+     * Part made of the {@code length} bytes of the file starting at {@code offset}. The bytes are
+     * streamed from the file when the request is sent.
+     *
+     * @since 6.4
+     */
+    public Part(String mediaType, File file, long offset, long length) {
       this.mediaType = mediaType;
       this.file = file;
+      this.offset = offset;
+      this.length = length;
     }
 
     public String getMediaType() {
@@ -64,6 +78,22 @@ public class PostRequest extends BaseRequest<PostRequest> {
     public File getFile() {
       return file;
     }
+
+    /**
+     * @since 6.4
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Number of bytes to send, or -1 if the whole file is sent
+     *
+     * @since 6.4
+     */
+    public long getLength() {
+      return length;
+    }
   }
 
 }
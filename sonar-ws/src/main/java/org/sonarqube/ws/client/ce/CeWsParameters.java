@@ -28,6 +28,9 @@ public class CeWsParameters {
   public static final String PARAM_ONLY_CURRENTS = "onlyCurrents";
   public static final String PARAM_MIN_SUBMITTED_AT = "minSubmittedAt";
   public static final String PARAM_MAX_EXECUTED_AT = "maxExecutedAt";
+  public static final String PARAM_UPLOAD_ID = "uploadId";
+  public static final String PARAM_OFFSET = "offset";
+  public static final String PARAM_CHUNK = "chunk";
 
   private CeWsParameters() {
     // prevent instantiation
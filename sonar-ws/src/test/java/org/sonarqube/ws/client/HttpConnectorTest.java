@@ -241,6 +241,27 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_range_of_file() throws Exception {
+    answerHelloWorld();
+    File reportFile = temp.newFile();
+    FileUtils.write(reportFile, "the report content");
+    PostRequest request = new PostRequest("api/report/upload")
+      .setPart("chunk", new PostRequest.Part(MediaTypes.TXT, reportFile, 4, 6))
+      .setMediaType(MediaTypes.PROTOBUF);
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    underTest.call(request);
+
+    RecordedRequest recordedRequest = server.takeRequest();
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"chunk\"")
+      .contains("\r\n\r\nreport\r\n")
+      .doesNotContain("the report")
+      .doesNotContain("content");
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));